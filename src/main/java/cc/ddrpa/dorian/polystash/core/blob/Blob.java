@@ -51,6 +51,11 @@ public class Blob {
      */
     private String etag;
 
+    /**
+     * 对象的版本号，仅在存储启用了版本控制时可用
+     */
+    private String versionId;
+
     /**
      * 对象的字节大小，默认值为 -1，表示大小未设置
      */
@@ -183,6 +188,26 @@ public class Blob {
         return this;
     }
 
+    /**
+     * 获取对象的版本号
+     *
+     * @return 版本号，存储未启用版本控制时为 null
+     */
+    public String getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * 设置版本号，支持链式调用
+     *
+     * @param versionId 要设置的版本号
+     * @return 当前 Blob 实例，支持链式调用
+     */
+    public Blob setVersionId(String versionId) {
+        this.versionId = versionId;
+        return this;
+    }
+
     /**
      * 获取 Blob 对象的校验和
      *
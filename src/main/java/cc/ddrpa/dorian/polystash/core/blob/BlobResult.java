@@ -46,6 +46,24 @@ public class BlobResult {
         this.t = ex;
     }
 
+    /**
+     * 判断操作是否成功。
+     *
+     * @return true 如果操作成功
+     */
+    public boolean isSuccess() {
+        return t == null;
+    }
+
+    /**
+     * 获取操作失败时的异常，不经过 get() 方法的类型转换。
+     *
+     * @return 操作过程中发生的异常，操作成功时为 null
+     */
+    public Throwable getException() {
+        return t;
+    }
+
     /**
      * 获取 Blob 对象或抛出相应的异常。
      * <p>
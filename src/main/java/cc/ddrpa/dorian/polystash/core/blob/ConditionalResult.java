@@ -0,0 +1,66 @@
+package cc.ddrpa.dorian.polystash.core.blob;
+
+/**
+ * 条件读取的结果。
+ * <p>
+ * 对象相对于调用方持有的版本发生变化时包含读取到的对象；未变化时不包含对象，
+ * 调用方继续使用已经持有的版本，相当于 HTTP 的 304 Not Modified。
+ */
+public class ConditionalResult {
+
+    private final String objectName;
+    private final Blob blob;
+
+    private ConditionalResult(String objectName, Blob blob) {
+        this.objectName = objectName;
+        this.blob = blob;
+    }
+
+    /**
+     * 创建对象已经变化的结果。
+     *
+     * @param objectName 对象名称
+     * @param blob       读取到的对象
+     * @return 条件读取的结果
+     */
+    public static ConditionalResult modified(String objectName, Blob blob) {
+        return new ConditionalResult(objectName, blob);
+    }
+
+    /**
+     * 创建对象未变化的结果。
+     *
+     * @param objectName 对象名称
+     * @return 条件读取的结果
+     */
+    public static ConditionalResult notModified(String objectName) {
+        return new ConditionalResult(objectName, null);
+    }
+
+    /**
+     * 获取对象名称。
+     *
+     * @return 对象名称
+     */
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * 判断对象相对于调用方持有的版本是否发生了变化。
+     *
+     * @return true 如果对象已经变化，此时 {@link #getBlob()} 返回读取到的对象
+     */
+    public boolean isModified() {
+        return blob != null;
+    }
+
+    /**
+     * 获取读取到的对象。
+     *
+     * @return 读取到的对象，对象未变化时为 null
+     */
+    public Blob getBlob() {
+        return blob;
+    }
+}
@@ -0,0 +1,59 @@
+package cc.ddrpa.dorian.polystash.core.blob;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 批量上传中的单个对象，包含对象名称、数据和元数据。
+ * <p>
+ * 批量上传按指定的名称存储或覆盖对象，与 putOrReplace 的语义相同。
+ */
+public class PutEntry {
+
+    private final String objectName;
+    private final String readableName;
+    private final Payload<?> payload;
+    private final Map<String, String> userDefinedAttributes;
+    private final String contentType;
+
+    /**
+     * 构造函数
+     *
+     * @param objectName            对象名称
+     * @param readableName          可读的文件名
+     * @param payload               对象数据，上传结束后由批量上传关闭
+     * @param userDefinedAttributes 用户自定义属性，可以为 null
+     * @param contentType           内容类型
+     */
+    public PutEntry(String objectName, String readableName, Payload<?> payload,
+                    Map<String, String> userDefinedAttributes, String contentType) {
+        this.objectName = Objects.requireNonNull(objectName, "objectName");
+        this.readableName = readableName;
+        this.payload = Objects.requireNonNull(payload, "payload");
+        this.userDefinedAttributes = userDefinedAttributes == null ? Collections.emptyMap() : userDefinedAttributes;
+        this.contentType = contentType;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getReadableName() {
+        return readableName;
+    }
+
+    public Payload<?> getPayload() {
+        return payload;
+    }
+
+    public Map<String, String> getUserDefinedAttributes() {
+        return userDefinedAttributes;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
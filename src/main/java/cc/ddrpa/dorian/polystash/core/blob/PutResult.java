@@ -0,0 +1,70 @@
+package cc.ddrpa.dorian.polystash.core.blob;
+
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+
+/**
+ * 批量上传中单个对象的上传结果。
+ * <p>
+ * 与 {@link RemoveResult} 类似，上传失败时包装相应的异常，通过 get() 方法抛出。
+ */
+public class PutResult {
+
+    private final String objectName;
+    private final Blob blob;
+    private final GeneralPolyStashException exception;
+
+    /**
+     * 构造函数，创建上传成功的结果。
+     *
+     * @param objectName 对象名称
+     * @param blob       上传后的对象
+     */
+    public PutResult(String objectName, Blob blob) {
+        this.objectName = objectName;
+        this.blob = blob;
+        this.exception = null;
+    }
+
+    /**
+     * 构造函数，创建上传失败的结果。
+     *
+     * @param objectName 对象名称
+     * @param exception  上传过程中发生的异常
+     */
+    public PutResult(String objectName, GeneralPolyStashException exception) {
+        this.objectName = objectName;
+        this.blob = null;
+        this.exception = exception;
+    }
+
+    /**
+     * 获取对象名称。
+     *
+     * @return 对象名称
+     */
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * 判断对象是否已经上传。
+     *
+     * @return true 如果上传成功
+     */
+    public boolean isStored() {
+        return exception == null;
+    }
+
+    /**
+     * 获取上传后的对象或抛出上传失败的原因。
+     *
+     * @return 上传后的对象，不包含数据流
+     * @throws GeneralPolyStashException 上传失败的原因
+     */
+    public Blob get() throws GeneralPolyStashException {
+        if (exception != null) {
+            throw exception;
+        }
+        return blob;
+    }
+}
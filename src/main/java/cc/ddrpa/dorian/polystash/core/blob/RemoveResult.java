@@ -0,0 +1,65 @@
+package cc.ddrpa.dorian.polystash.core.blob;
+
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+
+/**
+ * 批量删除中单个对象的删除结果。
+ * <p>
+ * 与 {@link BlobResult} 类似，删除失败时包装相应的异常，通过 get() 方法抛出。
+ * 批量删除只返回失败的对象，对象原本不存在不视为失败。
+ */
+public class RemoveResult {
+
+    private final String objectName;
+    private final GeneralPolyStashException exception;
+
+    /**
+     * 构造函数，创建删除成功的结果。
+     *
+     * @param objectName 对象名称
+     */
+    public RemoveResult(String objectName) {
+        this.objectName = objectName;
+        this.exception = null;
+    }
+
+    /**
+     * 构造函数，创建删除失败的结果。
+     *
+     * @param objectName 对象名称
+     * @param exception  删除过程中发生的异常
+     */
+    public RemoveResult(String objectName, GeneralPolyStashException exception) {
+        this.objectName = objectName;
+        this.exception = exception;
+    }
+
+    /**
+     * 获取对象名称。
+     *
+     * @return 对象名称
+     */
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * 判断对象是否已经删除。
+     *
+     * @return true 如果删除成功
+     */
+    public boolean isRemoved() {
+        return exception == null;
+    }
+
+    /**
+     * 删除失败时抛出相应的异常。
+     *
+     * @throws GeneralPolyStashException 删除失败的原因
+     */
+    public void get() throws GeneralPolyStashException {
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class ByteArrayPayload extends Payload<byte[]> {
      *
      * @return 数据的字节长度
      */
+    @Override
     public long length() {
         return this.content.length;
     }
@@ -24,6 +24,7 @@ public class FilePayload extends Payload<File> {
         return Instant.ofEpochSecond(this.content.lastModified());
     }
 
+    @Override
     public long length() {
         return this.content.length();
     }
@@ -7,8 +7,18 @@ import java.io.InputStream;
  */
 public class InputStreamPayload extends Payload<InputStream> {
 
+    private final long length;
+
     public InputStreamPayload(InputStream content) {
+        this(content, -1);
+    }
+
+    /**
+     * @param length 数据流的长度，未知时为 -1
+     */
+    public InputStreamPayload(InputStream content, long length) {
         super(content);
+        this.length = length;
     }
 
     @Override
@@ -16,6 +26,11 @@ public class InputStreamPayload extends Payload<InputStream> {
         return content;
     }
 
+    @Override
+    public long length() {
+        return length;
+    }
+
     @Override
     public void close() {
         try {
@@ -23,4 +38,4 @@ public class InputStreamPayload extends Payload<InputStream> {
         } catch (Exception ignored) {
         }
     }
-}
\ No newline at end of file
+}
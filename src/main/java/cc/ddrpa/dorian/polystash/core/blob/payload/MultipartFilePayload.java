@@ -22,6 +22,7 @@ public class MultipartFilePayload extends Payload<MultipartFile> {
         return this.content.getOriginalFilename();
     }
 
+    @Override
     public long length() {
         return this.content.getSize();
     }
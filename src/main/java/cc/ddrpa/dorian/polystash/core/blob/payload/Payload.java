@@ -52,6 +52,20 @@ public abstract class Payload<T> implements Closeable {
      */
     public abstract InputStream stream() throws IOException;
 
+    /**
+     * 获取数据的长度（字节数）。
+     * <p>
+     * 长度已知时存储实现可以选择更高效的写入方式，例如 S3 兼容存储以单个请求上传并设置 Content-Length，
+     * 而不需要按分片缓冲数据流。
+     * <p>
+     * 默认实现返回 -1，表示长度未知，能够直接获得长度的子类应该重写此方法。
+     *
+     * @return 数据的字节长度，未知时返回 -1
+     */
+    public long length() {
+        return -1;
+    }
+
     /**
      * 返回原始数据内容。
      * <p>
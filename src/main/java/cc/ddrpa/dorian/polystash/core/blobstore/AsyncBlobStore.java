@@ -0,0 +1,67 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BlobStore 的异步接口，通过 {@link BlobStore#async()} 获取。
+ * <p>
+ * 所有方法立即返回，返回的 CompletableFuture 以 {@link GeneralPolyStashException} 异常结束，
+ * 对象不存在时为 {@link BlobNotFoundException}。同一个 BlobStore 同时执行的异步操作数有上限，
+ * 超过上限的操作排队等待，不会阻塞调用线程。
+ * <p>
+ * 对返回的 CompletableFuture 调用 {@code cancel(true)} 可以取消操作：排队中的操作不再执行，
+ * 执行中的操作被中断；取消之后才读取到的对象会关闭其数据流。已经写入存储的数据不会回滚。
+ * 取消只对方法直接返回的 CompletableFuture 有效，不会从 thenApply 等派生的 CompletableFuture 传递回来。
+ * <p>
+ * 上传的数据在返回的 CompletableFuture 结束之前可能仍在读取，调用方不能提前关闭 payload。
+ */
+public interface AsyncBlobStore {
+
+    /**
+     * 异步获取对象，读取完成后需要关闭对象的数据流
+     *
+     * @see BlobStore#get(String)
+     */
+    CompletableFuture<Blob> get(String objectName);
+
+    /**
+     * 异步获取对象的元数据
+     *
+     * @see BlobStore#stat(String)
+     */
+    CompletableFuture<Blob> stat(String objectName);
+
+    /**
+     * 异步判断对象是否存在
+     *
+     * @see BlobStore#exist(String)
+     */
+    CompletableFuture<Boolean> exist(String objectName);
+
+    /**
+     * 异步存储对象，对象名称由前缀和名称生成器生成
+     *
+     * @see BlobStore#put(String, String, Payload, Map, String)
+     */
+    CompletableFuture<Blob> put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType);
+
+    /**
+     * 异步存储或覆盖对象
+     *
+     * @see BlobStore#putOrReplace(String, String, Payload, Map, String)
+     */
+    CompletableFuture<Blob> putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType);
+
+    /**
+     * 异步删除对象
+     *
+     * @see BlobStore#remove(String, boolean)
+     */
+    CompletableFuture<Void> remove(String objectName, boolean silent);
+}
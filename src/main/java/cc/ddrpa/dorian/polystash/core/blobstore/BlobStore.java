@@ -2,11 +2,32 @@ package cc.ddrpa.dorian.polystash.core.blobstore;
 
 import cc.ddrpa.dorian.polystash.core.blob.Blob;
 import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.ConditionalResult;
+import cc.ddrpa.dorian.polystash.core.blob.PutEntry;
+import cc.ddrpa.dorian.polystash.core.blob.PutResult;
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
 import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
+import cc.ddrpa.dorian.polystash.core.exception.PreconditionFailedException;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
+import cc.ddrpa.dorian.polystash.utils.naming.RandomUUIDNameGenerator;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.NotImplementedException;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 /**
  * 抽象 Blob 存储类，定义了对象存储的基本操作接口。
@@ -21,8 +42,21 @@ import java.util.Map;
  * </ul>
  * <p>
  * 实现类需要继承此类并实现所有抽象方法，以提供具体的存储后端实现。
+ * <p>
+ * 持有索引、线程池等资源的实现应当重写 {@link #close()}，通过 Spring Boot 自动配置创建的
+ * BlobStore 会在应用关闭时由 {@code BlobStoreHolder} 统一关闭。
  */
-public abstract class BlobStore {
+public abstract class BlobStore implements Closeable {
+
+    /**
+     * 异步接口默认同时执行的最大操作数
+     */
+    public static final int DEFAULT_ASYNC_CONCURRENCY = 64;
+    public static final int MAX_ASYNC_CONCURRENCY = 4096;
+    /**
+     * 批量删除时每批处理的对象数，与 S3 单次批量删除的上限一致
+     */
+    public static final int REMOVE_BATCH_SIZE = 1000;
 
     protected final BlobStoreContext context;
     protected BlobPublicAccessIdentifierHandler publicAccessIdentifierHandler = (BlobStoreContext ctx, String objectName) -> {
@@ -30,6 +64,11 @@ public abstract class BlobStore {
                 String.format("No public access identifier handler implemented for blob store '%s' and object '%s'",
                         ctx.getBlobStoreName(), objectName));
     };
+    protected ObjectNameGenerator objectNameGenerator = new RandomUUIDNameGenerator();
+    protected int asyncConcurrency = DEFAULT_ASYNC_CONCURRENCY;
+    private volatile BoundedAsyncExecutor asyncExecutor;
+    private volatile AsyncBlobStore asyncBlobStore;
+    private volatile ReactiveBlobStore reactiveBlobStore;
 
     /**
      * 构造函数，初始化 BlobStore 实例。
@@ -64,6 +103,117 @@ public abstract class BlobStore {
         return this;
     }
 
+    /**
+     * 替换默认的对象名称生成器。
+     * <p>
+     * 默认使用随机 UUID 作为新对象的名称，可以替换为按时间排序的 ID、
+     * 基于内容的摘要等实现。
+     *
+     * @param generator 自定义的对象名称生成器
+     * @return 当前 BlobStore 实例，支持链式调用
+     */
+    public BlobStore replaceObjectNameGenerator(ObjectNameGenerator generator) {
+        this.objectNameGenerator = generator;
+        return this;
+    }
+
+    /**
+     * 设置异步接口和响应式接口同时执行的最大操作数。
+     * <p>
+     * 超过上限的异步操作排队等待，避免大量并发请求耗尽文件句柄或连接。
+     * 只对设置之后首次调用 {@link #async()} 或 {@link #reactive()} 时创建的执行器生效。
+     *
+     * @param maxConcurrency 同时执行的最大操作数，取值 1 到 {@value #MAX_ASYNC_CONCURRENCY}
+     * @return 当前 BlobStore 实例，支持链式调用
+     */
+    public BlobStore limitAsyncConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1 || maxConcurrency > MAX_ASYNC_CONCURRENCY) {
+            throw new IllegalArgumentException(
+                    String.format("Async concurrency must be between 1 and %d, but got %d", MAX_ASYNC_CONCURRENCY, maxConcurrency));
+        }
+        this.asyncConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * 获取异步接口。
+     * <p>
+     * 首次调用时创建，默认实现在独立的线程中调用同步接口，运行时支持虚拟线程时每个操作使用一个虚拟线程，
+     * 同时执行的操作数不超过 {@link #limitAsyncConcurrency(int)} 设置的上限。异步接口随 BlobStore 一起关闭。
+     *
+     * @return 当前 BlobStore 的异步接口
+     */
+    public AsyncBlobStore async() {
+        AsyncBlobStore result = asyncBlobStore;
+        if (result == null) {
+            synchronized (this) {
+                result = asyncBlobStore;
+                if (result == null) {
+                    result = createAsyncBlobStore(asyncExecutor());
+                    asyncBlobStore = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取响应式接口。
+     * <p>
+     * 首次调用时创建，以 {@link java.util.concurrent.Flow.Publisher} 读写数据和列举对象，
+     * 阻塞读写在与异步接口共用的执行器中完成，不占用调用方的事件循环线程。
+     *
+     * @return 当前 BlobStore 的响应式接口
+     */
+    public ReactiveBlobStore reactive() {
+        ReactiveBlobStore result = reactiveBlobStore;
+        if (result == null) {
+            synchronized (this) {
+                result = reactiveBlobStore;
+                if (result == null) {
+                    result = createReactiveBlobStore(asyncExecutor());
+                    reactiveBlobStore = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 创建异步接口，存储后端支持原生异步请求时可以重写此方法
+     *
+     * @param executor 限制并发数的执行器，由 BlobStore 负责关闭
+     */
+    protected AsyncBlobStore createAsyncBlobStore(BoundedAsyncExecutor executor) {
+        return new ExecutorAsyncBlobStore(this, executor);
+    }
+
+    /**
+     * 创建响应式接口，存储后端支持原生流式读写时可以重写此方法
+     *
+     * @param executor 限制并发数的执行器，由 BlobStore 负责关闭
+     */
+    protected ReactiveBlobStore createReactiveBlobStore(BoundedAsyncExecutor executor) {
+        return new ExecutorReactiveBlobStore(this, executor);
+    }
+
+    /**
+     * 异步接口和响应式接口共用的执行器，首次调用时创建
+     */
+    protected BoundedAsyncExecutor asyncExecutor() {
+        BoundedAsyncExecutor result = asyncExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = asyncExecutor;
+                if (result == null) {
+                    result = new BoundedAsyncExecutor("polystash-async-" + getBlobStoreName(), asyncConcurrency);
+                    asyncExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 返回底层操作对象。
      * <p>
@@ -100,6 +250,40 @@ public abstract class BlobStore {
      */
     public abstract Blob get(String objectName) throws GeneralPolyStashException;
 
+    /**
+     * 获取指定名称的 Blob 对象，对象不存在时返回空值而不是抛出异常。
+     * <p>
+     * 适合大部分对象都不存在的查询，实现类应当尽量在不构造异常的情况下判断对象不存在。
+     *
+     * @param objectName 要获取的对象名称
+     * @return 包含对象信息和内容的 Blob 实例，对象不存在时为空
+     * @throws GeneralPolyStashException 当获取操作因为对象不存在以外的原因失败时抛出
+     */
+    public Optional<Blob> tryGet(String objectName) throws GeneralPolyStashException {
+        try {
+            return Optional.of(get(objectName));
+        } catch (BlobNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 条件读取对象，对象相对于调用方持有的版本未变化时不传输数据。
+     * <p>
+     * 默认实现先获取元数据判断条件，对象发生变化时再读取对象，实现类应当尽量在一次请求中完成。
+     *
+     * @param objectName 要获取的对象名称
+     * @param condition  读取条件
+     * @return 条件读取的结果，对象发生变化时包含读取到的对象和数据流
+     * @throws GeneralPolyStashException 当获取操作失败或对象不存在时抛出
+     */
+    public ConditionalResult get(String objectName, ReadCondition condition) throws GeneralPolyStashException {
+        if (condition.isNotModified(stat(objectName))) {
+            return ConditionalResult.notModified(objectName);
+        }
+        return ConditionalResult.modified(objectName, get(objectName));
+    }
+
     /**
      * 将数据存储到指定的前缀路径下。
      * <p>
@@ -134,6 +318,126 @@ public abstract class BlobStore {
     public abstract Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType)
             throws GeneralPolyStashException;
 
+    /**
+     * 仅当对象不存在时以指定的名称存储数据。
+     * <p>
+     * 多个写入方同时创建同一个对象时只有一个成功，其余的抛出 {@link PreconditionFailedException}，
+     * 可以用于在存储中抢占一个名称而不需要额外的锁服务。
+     *
+     * @param objectName            对象名称
+     * @param readableName          人类可读的文件名
+     * @param payload               要存储的数据内容
+     * @param userDefinedAttributes 用户自定义的属性键值对
+     * @param contentType           内容的 MIME 类型
+     * @return 存储成功后的 Blob 对象，包含存储后的元数据
+     * @throws PreconditionFailedException 当对象已经存在时抛出
+     * @throws GeneralPolyStashException   当存储操作失败或存储不支持条件写入时抛出
+     */
+    public Blob putIfAbsent(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType)
+            throws GeneralPolyStashException {
+        throw new OperationNotSupportedException("putIfAbsent");
+    }
+
+    /**
+     * 仅当对象存在且 ETag 与指定的值相同时覆盖对象，即基于 ETag 的比较并交换。
+     * <p>
+     * 写入方先读取对象和 ETag，修改后以读取到的 ETag 写回；期间对象被其他写入方修改时抛出
+     * {@link PreconditionFailedException}，调用方重新读取后重试。
+     *
+     * @param objectName            对象名称
+     * @param eTag                  期望的 ETag，可以带有引号，{@code *} 匹配任意已经存在的对象
+     * @param readableName          人类可读的文件名
+     * @param payload               要存储的数据内容
+     * @param userDefinedAttributes 用户自定义的属性键值对
+     * @param contentType           内容的 MIME 类型
+     * @return 存储成功后的 Blob 对象，包含新的 ETag
+     * @throws PreconditionFailedException 当对象不存在或 ETag 不同时抛出
+     * @throws GeneralPolyStashException   当存储操作失败或存储不支持条件写入时抛出
+     */
+    public Blob putIfMatch(String objectName, String eTag, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType)
+            throws GeneralPolyStashException {
+        throw new OperationNotSupportedException("putIfMatch");
+    }
+
+    /**
+     * 批量上传对象，适合导入大量小文件。
+     *
+     * @see #putAll(Iterable, Consumer)
+     */
+    public List<PutResult> putAll(Iterable<PutEntry> entries) throws GeneralPolyStashException {
+        return putAll(entries, null);
+    }
+
+    /**
+     * 批量上传对象，适合导入大量小文件。
+     * <p>
+     * 按遍历顺序提交到异步接口的执行器中并行上传，同时上传的对象数不超过 {@link #limitAsyncConcurrency(int)} 设置的上限，
+     * 达到上限时暂停遍历，因此可以传入惰性生成的序列。每个条目的 payload 在上传结束后关闭。
+     * 单个对象上传失败不会中止其余对象的上传。
+     *
+     * @param entries  要上传的对象，按需遍历
+     * @param listener 每个对象上传结束时调用，用于报告进度，可能在执行器的线程中并发调用，抛出的异常被忽略；可以为 null
+     * @return 上传失败的对象，全部成功时为空列表
+     * @throws GeneralPolyStashException 当等待上传时线程被中断时抛出，已经提交的对象会继续上传完成
+     */
+    public List<PutResult> putAll(Iterable<PutEntry> entries, Consumer<PutResult> listener) throws GeneralPolyStashException {
+        return putAll(entries, listener, entry -> putOrReplace(entry.getObjectName(), entry.getReadableName(),
+                entry.getPayload(), entry.getUserDefinedAttributes(), entry.getContentType()));
+    }
+
+    /**
+     * 以指定的写入操作执行批量上传，重写 {@link #putAll(Iterable, Consumer)} 的实现可以复用其中的并发控制
+     */
+    protected final List<PutResult> putAll(Iterable<PutEntry> entries, Consumer<PutResult> listener, EntryWriter writer)
+            throws GeneralPolyStashException {
+        BoundedAsyncExecutor executor = asyncExecutor();
+        int maxConcurrency = executor.getMaxConcurrency();
+        Semaphore window = new Semaphore(maxConcurrency);
+        List<PutResult> failures = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (PutEntry entry : entries) {
+                window.acquire();
+                executor.submit(() -> writer.write(entry)).whenComplete((blob, throwable) -> {
+                    try {
+                        PutResult result;
+                        if (throwable == null) {
+                            result = new PutResult(entry.getObjectName(), blob);
+                        } else {
+                            result = new PutResult(entry.getObjectName(), throwable instanceof GeneralPolyStashException polyStashException
+                                    ? polyStashException
+                                    : new IOErrorOccursException(String.format("Failed to put blob '%s'", entry.getObjectName()), throwable));
+                            failures.add(result);
+                        }
+                        if (listener != null) {
+                            listener.accept(result);
+                        }
+                    } finally {
+                        IOUtils.closeQuietly(entry.getPayload());
+                        window.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOErrorOccursException(
+                    String.format("Interrupted while putting blobs into blob store '%s'", getBlobStoreName()), e);
+        } finally {
+            // 等待已经提交的对象上传完成
+            window.acquireUninterruptibly(maxConcurrency);
+        }
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    /**
+     * 批量上传时写入单个对象的操作
+     */
+    @FunctionalInterface
+    protected interface EntryWriter {
+        Blob write(PutEntry entry) throws GeneralPolyStashException;
+    }
+
     /**
      * 删除指定名称的 Blob 对象。
      * <p>
@@ -146,6 +450,70 @@ public abstract class BlobStore {
      */
     public abstract void remove(String objectName, boolean silent) throws GeneralPolyStashException;
 
+    /**
+     * 批量删除对象。
+     * <p>
+     * 默认实现逐个调用 {@link #remove(String, boolean)}，存储后端支持批量删除或并行删除时应当重写此方法。
+     * 对象不存在不视为失败；单个对象删除失败不会中止其余对象的删除。
+     *
+     * @param objectNames 要删除的对象名称，按需遍历，可以是惰性生成的序列
+     * @return 删除失败的对象，全部成功时为空列表
+     * @throws GeneralPolyStashException 当批量删除无法继续执行时抛出
+     */
+    public List<RemoveResult> removeAll(Iterable<String> objectNames) throws GeneralPolyStashException {
+        List<RemoveResult> failures = new ArrayList<>();
+        for (String objectName : objectNames) {
+            try {
+                remove(objectName, false);
+            } catch (GeneralPolyStashException e) {
+                failures.add(new RemoveResult(objectName, e));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 删除指定前缀下的所有对象。
+     * <p>
+     * 默认实现递归列举前缀下的对象，每列举到 {@value #REMOVE_BATCH_SIZE} 个对象调用一次 {@link #removeAll(Iterable)}，
+     * 不会一次性把所有对象名称读入内存。
+     *
+     * @param prefix 对象名称的前缀
+     * @return 删除失败的对象，全部成功时为空列表
+     * @throws GeneralPolyStashException 当列举操作失败时抛出
+     */
+    public List<RemoveResult> removePrefix(String prefix) throws GeneralPolyStashException {
+        List<RemoveResult> failures = new ArrayList<>();
+        List<String> batch = new ArrayList<>(REMOVE_BATCH_SIZE);
+        for (BlobResult result : list(prefix, ListOptions.withDefault())) {
+            Blob blob;
+            try {
+                blob = result.get();
+            } catch (Exception e) {
+                // BlobResult 把未列出的异常类型包装为 RuntimeException
+                Throwable cause = e instanceof RuntimeException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof BlobNotFoundException) {
+                    // 列举期间已经被删除
+                    continue;
+                }
+                if (cause instanceof GeneralPolyStashException polyStashException) {
+                    throw polyStashException;
+                }
+                throw new IOErrorOccursException(
+                        String.format("Failed to list objects with prefix '%s' in blob store '%s'", prefix, getBlobStoreName()), cause);
+            }
+            batch.add(blob.getObjectName());
+            if (batch.size() == REMOVE_BATCH_SIZE) {
+                failures.addAll(removeAll(batch));
+                batch = new ArrayList<>(REMOVE_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            failures.addAll(removeAll(batch));
+        }
+        return failures;
+    }
+
     /**
      * 获取指定 Blob 对象的元数据信息。
      * <p>
@@ -158,6 +526,39 @@ public abstract class BlobStore {
      */
     public abstract Blob stat(String objectName) throws GeneralPolyStashException;
 
+    /**
+     * 获取指定 Blob 对象的元数据信息，对象不存在时返回空值而不是抛出异常。
+     * <p>
+     * 适合大部分对象都不存在的查询，实现类应当尽量在不构造异常的情况下判断对象不存在。
+     *
+     * @param objectName 要查询元数据的对象名称
+     * @return 包含元数据信息的 Blob 对象，对象不存在时为空
+     * @throws GeneralPolyStashException 当查询操作因为对象不存在以外的原因失败时抛出
+     */
+    public Optional<Blob> tryStat(String objectName) throws GeneralPolyStashException {
+        try {
+            return Optional.of(stat(objectName));
+        } catch (BlobNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 条件获取对象的元数据，对象相对于调用方持有的版本未变化时结果中不包含对象。
+     *
+     * @param objectName 要查询元数据的对象名称
+     * @param condition  读取条件
+     * @return 条件读取的结果，对象发生变化时包含对象的元数据
+     * @throws GeneralPolyStashException 当查询操作失败或对象不存在时抛出
+     */
+    public ConditionalResult stat(String objectName, ReadCondition condition) throws GeneralPolyStashException {
+        Blob blob = stat(objectName);
+        if (condition.isNotModified(blob)) {
+            return ConditionalResult.notModified(objectName);
+        }
+        return ConditionalResult.modified(objectName, blob);
+    }
+
     /**
      * 判断给定名称的对象是否存在。
      * <p>
@@ -169,6 +570,111 @@ public abstract class BlobStore {
      */
     public abstract boolean exist(String objectName) throws GeneralPolyStashException;
 
+    /**
+     * 批量获取对象的元数据，结果与输入的顺序一致。
+     * <p>
+     * 默认实现通过 {@link #async()} 并发查询，同时执行的查询数受 {@link #limitAsyncConcurrency(int)} 限制。
+     * 单个对象查询失败不影响其他对象，对象不存在时对应的结果包装 {@link BlobNotFoundException}。
+     *
+     * @param objectNames 要查询的对象名称
+     * @return 每个对象的查询结果
+     * @throws GeneralPolyStashException 当等待查询结果时线程被中断时抛出
+     */
+    public List<BlobResult> statAll(List<String> objectNames) throws GeneralPolyStashException {
+        AsyncBlobStore async = async();
+        return awaitAll(objectNames.stream().map(async::stat).toList());
+    }
+
+    /**
+     * 批量获取对象，结果与输入的顺序一致。
+     * <p>
+     * 并发方式与 {@link #statAll(List)} 相同。所有成功获取的对象的数据流同时处于打开状态，
+     * 调用方需要逐个关闭；对象数量较多时应当分批调用。
+     *
+     * @param objectNames 要获取的对象名称
+     * @return 每个对象的获取结果
+     * @throws GeneralPolyStashException 当等待获取结果时线程被中断时抛出，已经打开的数据流会被关闭
+     */
+    public List<BlobResult> getAll(List<String> objectNames) throws GeneralPolyStashException {
+        AsyncBlobStore async = async();
+        return awaitAll(objectNames.stream().map(async::get).toList());
+    }
+
+    /**
+     * 批量判断对象是否存在，结果与输入的顺序一致。
+     * <p>
+     * 默认实现与 {@link #statAll(List)} 一样并发查询，存储后端有更低成本的查询方式时应当重写此方法。
+     *
+     * @param objectNames 要检查的对象名称
+     * @return 每个对象是否存在
+     * @throws GeneralPolyStashException 当任意一个对象查询失败时抛出，其余查询被取消
+     */
+    public List<Boolean> existAll(List<String> objectNames) throws GeneralPolyStashException {
+        AsyncBlobStore async = async();
+        List<CompletableFuture<Boolean>> futures = objectNames.stream().map(async::exist).toList();
+        List<Boolean> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<Boolean> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IOErrorOccursException(
+                    String.format("Interrupted while checking existence of %d objects in blob store '%s'", futures.size(), getBlobStoreName()), e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof GeneralPolyStashException polyStashException) {
+                throw polyStashException;
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to check existence of %d objects in blob store '%s'", futures.size(), getBlobStoreName()), e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * 按顺序等待批量操作的结果，被中断时取消其余操作并关闭已经打开的数据流
+     */
+    private List<BlobResult> awaitAll(List<CompletableFuture<Blob>> futures) throws GeneralPolyStashException {
+        List<BlobResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Blob> future : futures) {
+            try {
+                results.add(new BlobResult(future.get()));
+            } catch (ExecutionException e) {
+                results.add(new BlobResult(e.getCause() instanceof Exception cause
+                        ? cause
+                        : new IOErrorOccursException("Batch operation failed with an unexpected error", e.getCause())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (CompletableFuture<Blob> pending : futures) {
+                    // 已经结束的操作无法取消，需要关闭其数据流，取消之后才得到的对象由执行器关闭
+                    if (!pending.cancel(true) && !pending.isCompletedExceptionally()) {
+                        ExecutorAsyncBlobStore.closePayload(pending.join());
+                    }
+                }
+                throw new IOErrorOccursException(
+                        String.format("Interrupted while waiting for %d objects in blob store '%s'", futures.size(), getBlobStoreName()), e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 关闭 BlobStore 并释放相关资源。
+     * <p>
+     * 默认实现关闭异步接口和响应式接口共用的执行器，取消排队中的异步操作。重写此方法的实现应当调用 {@code super.close()}。
+     * 关闭后不应再调用该实例的其他方法，重复关闭不会产生影响。
+     *
+     * @throws IOException 当释放资源失败时抛出
+     */
+    @Override
+    public void close() throws IOException {
+        if (asyncExecutor != null) {
+            asyncExecutor.close();
+        }
+    }
+
 //    /**
 //     * 获取指定对象的公共访问标识符。
 //     * <p>
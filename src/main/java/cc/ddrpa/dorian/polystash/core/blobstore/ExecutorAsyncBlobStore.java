@@ -0,0 +1,74 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步接口的默认实现，在独立的线程中调用同步接口，运行时支持虚拟线程时每个操作使用一个虚拟线程
+ */
+class ExecutorAsyncBlobStore implements AsyncBlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorAsyncBlobStore.class);
+
+    private final BlobStore blobStore;
+    private final BoundedAsyncExecutor executor;
+
+    ExecutorAsyncBlobStore(BlobStore blobStore, BoundedAsyncExecutor executor) {
+        this.blobStore = blobStore;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Blob> get(String objectName) {
+        return executor.submit(() -> blobStore.get(objectName), ExecutorAsyncBlobStore::closePayload);
+    }
+
+    @Override
+    public CompletableFuture<Blob> stat(String objectName) {
+        return executor.submit(() -> blobStore.stat(objectName));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exist(String objectName) {
+        return executor.submit(() -> blobStore.exist(objectName));
+    }
+
+    @Override
+    public CompletableFuture<Blob> put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) {
+        return executor.submit(() -> blobStore.put(prefix, readableName, payload, userDefinedAttributes, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Blob> putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) {
+        return executor.submit(() -> blobStore.putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(String objectName, boolean silent) {
+        return executor.submit(() -> {
+            blobStore.remove(objectName, silent);
+            return null;
+        });
+    }
+
+    /**
+     * 关闭取消之后才读取到的对象的数据流
+     */
+    static void closePayload(Blob blob) {
+        if (blob.getPayload() == null) {
+            return;
+        }
+        try {
+            blob.getPayload().close();
+        } catch (IOException e) {
+            logger.debug("Failed to close payload of discarded blob '{}'", blob.getObjectName(), e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BlockingPublisher;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
+import cc.ddrpa.dorian.polystash.utils.concurrent.PublisherInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * 响应式接口的默认实现，在执行器的线程中调用同步接口。
+ * <p>
+ * 读取文件时通过 FileChannel 直接读入发给订阅方的缓冲区，其他数据源按块读取数据流。
+ * 缓冲区交给订阅方后不再复用，订阅方可以异步处理而不需要复制。
+ */
+class ExecutorReactiveBlobStore implements ReactiveBlobStore {
+
+    /**
+     * 每个缓冲区的长度
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+    /**
+     * 上传时同时向发布方请求的缓冲区数
+     */
+    static final int PREFETCH = 4;
+
+    private final BlobStore blobStore;
+    private final BoundedAsyncExecutor executor;
+
+    ExecutorReactiveBlobStore(BlobStore blobStore, BoundedAsyncExecutor executor) {
+        this.blobStore = blobStore;
+        this.executor = executor;
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> get(String objectName) {
+        String message = String.format("Failed to read object '%s' from blob store '%s'", objectName, blobStore.getBlobStoreName());
+        return new BlockingPublisher<>(executor, () -> open(blobStore.get(objectName)), e -> translate(e, message));
+    }
+
+    private static BlockingPublisher.Source<ByteBuffer> open(Blob blob) throws IOException {
+        Payload<?> payload = blob.getPayload();
+        if (payload instanceof FilePayload filePayload) {
+            FileChannel channel = FileChannel.open(filePayload.file().toPath(), StandardOpenOption.READ);
+            return new BlockingPublisher.Source<>() {
+                @Override
+                public ByteBuffer next() throws IOException {
+                    ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // 读满一个缓冲区或读到文件末尾
+                    }
+                    return buffer.position() == 0 ? null : buffer.flip();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+        InputStream inputStream = payload.stream();
+        return new BlockingPublisher.Source<>() {
+            @Override
+            public ByteBuffer next() throws IOException {
+                byte[] chunk = inputStream.readNBytes(CHUNK_SIZE);
+                return chunk.length == 0 ? null : ByteBuffer.wrap(chunk);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    inputStream.close();
+                } finally {
+                    payload.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Blob> put(String prefix, String readableName, Flow.Publisher<ByteBuffer> content, long length,
+                                       Map<String, String> userDefinedAttributes, String contentType) {
+        return executor.submit(() -> {
+            try (PublisherInputStream inputStream = subscribe(content)) {
+                return blobStore.put(prefix, readableName, new InputStreamPayload(inputStream, length), userDefinedAttributes, contentType);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Blob> putOrReplace(String objectName, String readableName, Flow.Publisher<ByteBuffer> content, long length,
+                                                Map<String, String> userDefinedAttributes, String contentType) {
+        return executor.submit(() -> {
+            try (PublisherInputStream inputStream = subscribe(content)) {
+                return blobStore.putOrReplace(objectName, readableName, new InputStreamPayload(inputStream, length), userDefinedAttributes, contentType);
+            }
+        });
+    }
+
+    private static PublisherInputStream subscribe(Flow.Publisher<ByteBuffer> content) {
+        PublisherInputStream inputStream = new PublisherInputStream(PREFETCH);
+        content.subscribe(inputStream);
+        return inputStream;
+    }
+
+    @Override
+    public Flow.Publisher<Blob> list(String prefix, ListOptions listOptions) {
+        String message = String.format("Failed to list objects with prefix '%s' in blob store '%s'", prefix, blobStore.getBlobStoreName());
+        return new BlockingPublisher<>(executor, () -> {
+            Iterator<BlobResult> iterator = blobStore.list(prefix, listOptions).iterator();
+            return () -> iterator.hasNext() ? iterator.next().get() : null;
+        }, e -> translate(e, message));
+    }
+
+    private static GeneralPolyStashException translate(Exception e, String message) {
+        if (e instanceof GeneralPolyStashException polyStashException) {
+            return polyStashException;
+        }
+        return new IOErrorOccursException(message, e);
+    }
+}
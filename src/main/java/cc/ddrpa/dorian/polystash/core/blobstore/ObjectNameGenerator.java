@@ -0,0 +1,30 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+
+/**
+ * 对象名称生成器接口，用于在 put 操作中为新对象生成名称。
+ * <p>
+ * BlobStore 会将生成的名称拼接在调用方指定的前缀之后，例如前缀 {@code avatars}
+ * 与名称 {@code 0192b3c4-...} 组成对象名称 {@code avatars/0192b3c4-...}。
+ * 生成的名称中可以包含 "/"，用于进一步划分子路径。
+ * <p>
+ * 实现类必须是线程安全的，同一个实例会被并发的 put 操作共享。
+ * 内置实现参见 {@link cc.ddrpa.dorian.polystash.utils.naming.ObjectNameGenerators}。
+ */
+@FunctionalInterface
+public interface ObjectNameGenerator {
+
+    /**
+     * 为即将写入的对象生成名称。
+     * <p>
+     * 大多数实现与数据内容无关，不应读取 payload；
+     * 基于内容的实现只能读取可重复读取的 payload。
+     *
+     * @param payload 即将写入的数据内容
+     * @return 对象名称，不包含前缀
+     * @throws GeneralPolyStashException 当无法生成名称时抛出
+     */
+    String generate(Payload<?> payload) throws GeneralPolyStashException;
+}
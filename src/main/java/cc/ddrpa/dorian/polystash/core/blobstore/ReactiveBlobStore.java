@@ -0,0 +1,60 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * BlobStore 的响应式接口，通过 {@link BlobStore#reactive()} 获取。
+ * <p>
+ * 数据以 {@link Flow.Publisher} 读写，遵循 Reactive Streams 的背压约定：只在订阅方请求时读取数据，
+ * 上传时只在存储后端写入之后才向发布方请求更多数据。Project Reactor 可以通过 {@code JdkFlowAdapter}
+ * 转换为 Flux。
+ * <p>
+ * 阻塞读写在与 {@link AsyncBlobStore} 共用的执行器中完成，不会占用调用方的事件循环线程，
+ * 订阅方的信号也在执行器的线程中发出。失败时以 {@link GeneralPolyStashException} 结束，
+ * 对象不存在时为 {@link BlobNotFoundException}。
+ */
+public interface ReactiveBlobStore {
+
+    /**
+     * 读取对象的数据。
+     * <p>
+     * 每次订阅重新打开对象，每个缓冲区由订阅方独占，订阅方可以直接保留而不需要复制；取消订阅时关闭对象的数据流。
+     *
+     * @see BlobStore#get(String)
+     */
+    Flow.Publisher<ByteBuffer> get(String objectName);
+
+    /**
+     * 存储发布方提供的数据，对象名称由前缀和名称生成器生成。
+     * <p>
+     * 操作开始执行时订阅 content，返回的 CompletableFuture 结束之前不会再次订阅。
+     *
+     * @param length 数据长度，未知时为 -1；已知长度时存储实现可以选择更高效的写入方式
+     * @see BlobStore#put(String, String, cc.ddrpa.dorian.polystash.core.blob.payload.Payload, Map, String)
+     */
+    CompletableFuture<Blob> put(String prefix, String readableName, Flow.Publisher<ByteBuffer> content, long length,
+                                Map<String, String> userDefinedAttributes, String contentType);
+
+    /**
+     * 存储或覆盖对象，数据由发布方提供
+     *
+     * @param length 数据长度，未知时为 -1
+     * @see BlobStore#putOrReplace(String, String, cc.ddrpa.dorian.polystash.core.blob.payload.Payload, Map, String)
+     */
+    CompletableFuture<Blob> putOrReplace(String objectName, String readableName, Flow.Publisher<ByteBuffer> content, long length,
+                                         Map<String, String> userDefinedAttributes, String contentType);
+
+    /**
+     * 列举指定前缀下的对象，按订阅方的请求逐页读取，列举到的 Blob 不包含 payload
+     *
+     * @see BlobStore#list(String, ListOptions)
+     */
+    Flow.Publisher<Blob> list(String prefix, ListOptions listOptions);
+}
@@ -0,0 +1,76 @@
+package cc.ddrpa.dorian.polystash.core.blobstore;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 条件读取的条件，与 HTTP 的 If-None-Match 和 If-Modified-Since 含义一致。
+ * <p>
+ * 调用方已经持有对象的某个版本时，通过条件读取确认对象是否发生变化，
+ * 对象未变化时不传输数据。两个条件都提供时只判断 ETag，与 HTTP 的规则一致。
+ *
+ * @param ifNoneMatch     调用方持有的 ETag，对象的 ETag 与其相同时视为未变化，{@code *} 匹配任意 ETag
+ * @param ifModifiedSince 调用方持有的版本的最后修改时间，对象在此之后没有修改时视为未变化，精确到秒
+ */
+public record ReadCondition(
+        String ifNoneMatch,
+        Instant ifModifiedSince
+) {
+
+    /**
+     * 创建按 ETag 判断的条件
+     *
+     * @param etag 调用方持有的 ETag，可以带有引号或弱校验前缀 W/
+     * @return 条件
+     */
+    public static ReadCondition ifNoneMatch(String etag) {
+        return new ReadCondition(etag, null);
+    }
+
+    /**
+     * 创建按最后修改时间判断的条件
+     *
+     * @param lastModified 调用方持有的版本的最后修改时间
+     * @return 条件
+     */
+    public static ReadCondition ifModifiedSince(Instant lastModified) {
+        return new ReadCondition(null, lastModified);
+    }
+
+    /**
+     * 判断对象相对于调用方持有的版本是否未变化
+     *
+     * @param blob 对象的元数据
+     * @return true 如果对象未变化，没有提供任何条件时返回 false
+     */
+    public boolean isNotModified(Blob blob) {
+        if (ifNoneMatch != null) {
+            if ("*".equals(ifNoneMatch.trim())) {
+                return true;
+            }
+            return blob.getETag() != null && normalizeETag(ifNoneMatch).equals(normalizeETag(blob.getETag()));
+        }
+        if (ifModifiedSince != null && blob.getLastModified() != null) {
+            // HTTP 日期只精确到秒
+            return !blob.getLastModified().truncatedTo(ChronoUnit.SECONDS)
+                    .isAfter(ifModifiedSince.truncatedTo(ChronoUnit.SECONDS));
+        }
+        return false;
+    }
+
+    /**
+     * 去掉 ETag 的弱校验前缀和引号
+     */
+    static String normalizeETag(String etag) {
+        String normalized = etag.trim();
+        if (normalized.startsWith("W/")) {
+            normalized = normalized.substring(2);
+        }
+        if (normalized.length() >= 2 && normalized.startsWith("\"") && normalized.endsWith("\"")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        return normalized;
+    }
+}
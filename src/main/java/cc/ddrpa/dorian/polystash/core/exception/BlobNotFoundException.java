@@ -13,6 +13,9 @@ package cc.ddrpa.dorian.polystash.core.exception;
  * <p>
  * 此异常通常表示业务逻辑问题，调用方应该检查对象名称的正确性
  * 或确认对象是否仍然存在。
+ * <p>
+ * 对象不存在是常见的查询结果，此异常不记录调用栈，需要定位时参考消息和原因异常。
+ * 不希望通过异常判断对象是否存在时使用 {@code tryStat} 或 {@code tryGet}。
  */
 public class BlobNotFoundException extends GeneralPolyStashException {
 
@@ -22,7 +25,7 @@ public class BlobNotFoundException extends GeneralPolyStashException {
      * @param message 描述 Blob 未找到原因的详细错误消息
      */
     public BlobNotFoundException(String message) {
-        super(message);
+        super(message, null, false);
     }
 
     /**
@@ -32,6 +35,6 @@ public class BlobNotFoundException extends GeneralPolyStashException {
      * @param cause   导致此异常的根本原因异常
      */
     public BlobNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false);
     }
 }
\ No newline at end of file
@@ -33,4 +33,17 @@ public abstract class GeneralPolyStashException extends Exception {
     public GeneralPolyStashException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * 构造函数，可以选择不记录调用栈。
+     * <p>
+     * 用于频繁出现、只表示结果的异常，例如对象不存在。记录调用栈的开销远大于创建异常对象本身。
+     *
+     * @param message            描述异常情况的错误消息
+     * @param cause              导致此异常的原因异常，可以为 null
+     * @param writableStackTrace 是否记录调用栈
+     */
+    protected GeneralPolyStashException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
@@ -0,0 +1,29 @@
+package cc.ddrpa.dorian.polystash.core.exception;
+
+/**
+ * 条件写入的条件不满足，表示对象已经存在，或者对象的 ETag 与调用方期望的不同。
+ * <p>
+ * 多个写入方通过条件写入协调时，条件不满足是常见的结果，调用方通常重新读取对象后重试，
+ * 因此此异常不记录调用栈。
+ */
+public class PreconditionFailedException extends GeneralPolyStashException {
+
+    /**
+     * 构造函数，使用指定的错误消息创建条件不满足异常。
+     *
+     * @param message 描述条件不满足原因的详细错误消息
+     */
+    public PreconditionFailedException(String message) {
+        super(message, null, false);
+    }
+
+    /**
+     * 构造函数，使用指定的错误消息和原因异常创建条件不满足异常。
+     *
+     * @param message 描述条件不满足原因的详细错误消息
+     * @param cause   导致此异常的根本原因异常
+     */
+    public PreconditionFailedException(String message, Throwable cause) {
+        super(message, cause, false);
+    }
+}
@@ -0,0 +1,358 @@
+package cc.ddrpa.dorian.polystash.provider.cache;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.ConditionalResult;
+import cc.ddrpa.dorian.polystash.core.blob.PutEntry;
+import cc.ddrpa.dorian.polystash.core.blob.PutResult;
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobPublicAccessIdentifierHandler;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+import cc.ddrpa.dorian.polystash.core.blobstore.ReadCondition;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.utils.concurrent.SingleFlight;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 在任意 BlobStore 前增加一层本地磁盘缓存，反复读取的对象不再从存储传输数据。
+ * <p>
+ * {@code get} 未命中时把对象完整写入缓存目录后再返回；命中时以缓存的 ETag 发起条件读取，
+ * 对象未变化时直接读取本地文件，变化时以条件读取返回的数据重新填充。
+ * 在 {@code revalidateInterval} 内确认过的对象不再发起请求，期间其他实例的写入不可见。
+ * <p>
+ * 通过当前存储的写入和删除立即移除对应的缓存，填充期间发生的写入不会留下过时的缓存。
+ * 缓存的数据总长度超过预算时淘汰最久未访问的对象，超过预算的单个对象不缓存。
+ * 缓存索引在关闭时保存，重启后已经缓存的对象在第一次访问时重新确认即可使用。
+ */
+public class CachingBlobStore extends BlobStore {
+
+    private final BlobStore delegate;
+    private final DiskCache cache;
+    private final long revalidateIntervalNanos;
+    /**
+     * 同一对象同时未命中时只填充一次，其余调用方等待后读取缓存；不同对象的填充互不等待
+     */
+    private final SingleFlight<String, Boolean> fills = new SingleFlight<>();
+
+    /**
+     * 构造函数
+     *
+     * @param delegate           被缓存的存储，随缓存一起关闭
+     * @param cacheDir           缓存目录，不能与其他缓存或存储共用
+     * @param maxBytes           缓存的数据总长度上限
+     * @param revalidateInterval 确认过的对象在多长时间内不再发起条件读取，{@link Duration#ZERO} 表示每次读取都确认
+     * @throws GeneralPolyStashException 当缓存目录无法创建或索引无法加载时抛出
+     */
+    public CachingBlobStore(BlobStore delegate, Path cacheDir, long maxBytes, Duration revalidateInterval) throws GeneralPolyStashException {
+        super(new CachingBlobStoreContext(delegate.getBlobStoreName(), cacheDir));
+        this.delegate = delegate;
+        this.cache = new DiskCache(cacheDir, maxBytes);
+        this.revalidateIntervalNanos = revalidateInterval.toNanos();
+    }
+
+    /**
+     * 获取被缓存的存储
+     */
+    public BlobStore getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 获取缓存的数据总长度
+     */
+    public long getCachedBytes() {
+        return cache.size();
+    }
+
+    /**
+     * 获取缓存的对象数
+     */
+    public int getCachedCount() {
+        return cache.count();
+    }
+
+    @Override
+    public BlobStore replacePublicAccessIdentifierHandler(BlobPublicAccessIdentifierHandler handler) {
+        delegate.replacePublicAccessIdentifierHandler(handler);
+        return this;
+    }
+
+    @Override
+    public BlobStore replaceObjectNameGenerator(ObjectNameGenerator generator) {
+        delegate.replaceObjectNameGenerator(generator);
+        return this;
+    }
+
+    /**
+     * 返回被缓存的存储的底层操作对象
+     */
+    @Override
+    public Object _raw() {
+        return delegate._raw();
+    }
+
+    @Override
+    public Iterable<BlobResult> list(String prefix, ListOptions listOptions) throws GeneralPolyStashException {
+        return delegate.list(prefix, listOptions);
+    }
+
+    @Override
+    public Blob get(String objectName) throws GeneralPolyStashException {
+        DiskCache.Hit hit = cache.open(objectName);
+        if (hit != null) {
+            return hit.isFresh(revalidateIntervalNanos) ? fromHit(hit) : revalidate(objectName, hit);
+        }
+        // 数据流不能共用，执行填充的调用方直接返回自己的结果
+        Blob[] filled = new Blob[1];
+        fills.execute(objectName, () -> {
+            // 上一次填充可能刚刚完成
+            DiskCache.Hit filledHit = cache.open(objectName);
+            if (filledHit != null) {
+                filled[0] = filledHit.isFresh(revalidateIntervalNanos) ? fromHit(filledHit) : revalidate(objectName, filledHit);
+                return Boolean.TRUE;
+            }
+            long stamp = cache.stamp(objectName);
+            filled[0] = fill(objectName, delegate.get(objectName), stamp);
+            return Boolean.TRUE;
+        });
+        if (filled[0] != null) {
+            return filled[0];
+        }
+        // 等待的调用方读取刚刚填充的缓存，对象过大或填充期间发生写入时没有缓存，需要自己读取
+        hit = cache.open(objectName);
+        if (hit != null) {
+            return hit.isFresh(revalidateIntervalNanos) ? fromHit(hit) : revalidate(objectName, hit);
+        }
+        long stamp = cache.stamp(objectName);
+        return fill(objectName, delegate.get(objectName), stamp);
+    }
+
+    /**
+     * 以缓存的 ETag 条件读取对象，未变化时使用缓存，变化时以返回的数据重新填充
+     */
+    private Blob revalidate(String objectName, DiskCache.Hit hit) throws GeneralPolyStashException {
+        long stamp = cache.stamp(objectName);
+        ConditionalResult result;
+        try {
+            // 没有 ETag 的对象无法确认，视为已经变化
+            result = hit.entry().eTag() == null
+                    ? ConditionalResult.modified(objectName, delegate.get(objectName))
+                    : delegate.get(objectName, ReadCondition.ifNoneMatch(hit.entry().eTag()));
+        } catch (GeneralPolyStashException e) {
+            IOUtils.closeQuietly(hit.stream());
+            if (e instanceof BlobNotFoundException) {
+                cache.invalidate(objectName);
+            }
+            throw e;
+        }
+        if (!result.isModified()) {
+            cache.markValidated(objectName, hit.entry().fileName());
+            return fromHit(hit);
+        }
+        IOUtils.closeQuietly(hit.stream());
+        return fill(objectName, result.getBlob(), stamp);
+    }
+
+    /**
+     * 把读取到的对象写入临时文件，再移动到缓存目录中，返回的对象从缓存文件读取
+     *
+     * @param stamp 读取开始前取得的版本号，期间发生过写入时不加入缓存
+     */
+    private Blob fill(String objectName, Blob remote, long stamp) throws GeneralPolyStashException {
+        if (remote.getLength() > cache.getMaxBytes()) {
+            // 超过预算的对象不缓存
+            return remote;
+        }
+        Payload<?> payload = remote.getPayload();
+        Path tempFile = cache.createTempFile();
+        try (InputStream inputStream = payload.stream()) {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to fill disk cache with blob '%s' of blob store '%s'", objectName, getBlobStoreName()), e);
+        } finally {
+            IOUtils.closeQuietly(payload);
+        }
+        DiskCache.Hit hit = cache.commit(objectName, tempFile, remote, stamp);
+        return remote.setPayload(new InputStreamPayload(hit.stream(), hit.entry().length()))
+                .setLength(hit.entry().length());
+    }
+
+    private static Blob fromHit(DiskCache.Hit hit) {
+        return hit.entry().toBlob()
+                .setPayload(new InputStreamPayload(hit.stream(), hit.entry().length()));
+    }
+
+    /**
+     * 在 {@code revalidateInterval} 内确认过的对象直接返回缓存的元数据，否则查询存储，
+     * 对象已经变化或不存在时移除缓存
+     */
+    @Override
+    public Blob stat(String objectName) throws GeneralPolyStashException {
+        DiskCache.Hit hit = cache.lookup(objectName);
+        if (hit != null && hit.isFresh(revalidateIntervalNanos)) {
+            return hit.entry().toBlob();
+        }
+        Blob blob;
+        try {
+            blob = delegate.stat(objectName);
+        } catch (BlobNotFoundException e) {
+            if (hit != null) {
+                cache.invalidate(objectName);
+            }
+            throw e;
+        }
+        if (hit != null) {
+            if (hit.entry().eTag() != null && ReadCondition.ifNoneMatch(hit.entry().eTag()).isNotModified(blob)) {
+                cache.markValidated(objectName, hit.entry().fileName());
+            } else {
+                cache.invalidate(objectName);
+            }
+        }
+        return blob;
+    }
+
+    @Override
+    public boolean exist(String objectName) throws GeneralPolyStashException {
+        DiskCache.Hit hit = cache.lookup(objectName);
+        if (hit != null && hit.isFresh(revalidateIntervalNanos)) {
+            return true;
+        }
+        boolean exist = delegate.exist(objectName);
+        if (!exist && hit != null) {
+            cache.invalidate(objectName);
+        }
+        return exist;
+    }
+
+    @Override
+    public Blob put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        Blob blob = delegate.put(prefix, readableName, payload, userDefinedAttributes, contentType);
+        // 按内容生成的名称可能与缓存的对象相同
+        cache.invalidate(blob.getObjectName());
+        return blob;
+    }
+
+    @Override
+    public Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        try {
+            return delegate.putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType);
+        } finally {
+            // 写入失败时对象也可能已经改变
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public Blob putIfAbsent(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        try {
+            return delegate.putIfAbsent(objectName, readableName, payload, userDefinedAttributes, contentType);
+        } finally {
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public Blob putIfMatch(String objectName, String eTag, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        try {
+            return delegate.putIfMatch(objectName, eTag, readableName, payload, userDefinedAttributes, contentType);
+        } finally {
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public List<PutResult> putAll(Iterable<PutEntry> entries, Consumer<PutResult> listener) throws GeneralPolyStashException {
+        return delegate.putAll(entries, result -> {
+            cache.invalidate(result.getObjectName());
+            if (listener != null) {
+                listener.accept(result);
+            }
+        });
+    }
+
+    @Override
+    public void remove(String objectName, boolean silent) throws GeneralPolyStashException {
+        try {
+            delegate.remove(objectName, silent);
+        } finally {
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public List<RemoveResult> removeAll(Iterable<String> objectNames) throws GeneralPolyStashException {
+        // 按需遍历的同时记录名称，删除结束后移除缓存
+        List<String> removed = new ArrayList<>();
+        try {
+            return delegate.removeAll(() -> new Iterator<>() {
+                private final Iterator<String> iterator = objectNames.iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    String objectName = iterator.next();
+                    synchronized (removed) {
+                        removed.add(objectName);
+                    }
+                    return objectName;
+                }
+            });
+        } finally {
+            synchronized (removed) {
+                removed.forEach(cache::invalidate);
+            }
+        }
+    }
+
+    @Override
+    public List<RemoveResult> removePrefix(String prefix) throws GeneralPolyStashException {
+        try {
+            return delegate.removePrefix(prefix);
+        } finally {
+            cache.invalidatePrefix(prefix);
+        }
+    }
+
+    /**
+     * 保存缓存索引，再关闭被缓存的存储
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            cache.close();
+        } finally {
+            try {
+                delegate.close();
+            } finally {
+                super.close();
+            }
+        }
+    }
+}
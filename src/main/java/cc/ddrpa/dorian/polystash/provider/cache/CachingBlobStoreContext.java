@@ -0,0 +1,54 @@
+package cc.ddrpa.dorian.polystash.provider.cache;
+
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStoreContext;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+public class CachingBlobStoreContext implements BlobStoreContext {
+
+    private String blobStoreName;
+    private Path cacheDir;
+
+    public CachingBlobStoreContext(String blobStoreName, Path cacheDir) {
+        this.blobStoreName = blobStoreName;
+        this.cacheDir = cacheDir;
+    }
+
+    public String getBlobStoreName() {
+        return blobStoreName;
+    }
+
+    public void setBlobStoreName(String blobStoreName) {
+        this.blobStoreName = blobStoreName;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CachingBlobStoreContext that = (CachingBlobStoreContext) o;
+        return Objects.equals(blobStoreName, that.blobStoreName) && Objects.equals(cacheDir, that.cacheDir);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(blobStoreName, cacheDir);
+    }
+
+    @Override
+    public String toString() {
+        return "CachingBlobStoreContext{" +
+                "blobStoreName='" + blobStoreName + '\'' +
+                ", cacheDir=" + cacheDir +
+                '}';
+    }
+}
@@ -0,0 +1,787 @@
+package cc.ddrpa.dorian.polystash.provider.cache;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 本地磁盘上的对象缓存，按最近最少使用的顺序淘汰，缓存的数据总长度不超过预算。
+ * <p>
+ * 每个缓存的对象是 {@code data} 目录下的一个文件，先写入 {@code tmp} 目录再移动到位，
+ * 不会出现写了一半的缓存文件。索引保存在内存中，写入和淘汰追加到日志，
+ * 关闭时保存为快照并清空日志；启动时先加载快照，再重放日志，
+ * 丢弃数据文件缺失或长度不符的记录，并删除没有记录的数据文件。
+ * 进程崩溃后已经缓存的对象仍然可用，只是访问顺序退回到写入顺序。
+ * <p>
+ * 索引的修改在持有锁时完成，日志记录先排队，释放锁后再写入磁盘，
+ * 重写快照也在锁外进行。未能写入的日志记录只影响重启后的索引，数据文件与记录不符的条目在启动时被丢弃。
+ * 缓存目录在打开期间加排他锁，同一目录只能由一个缓存使用。
+ */
+class DiskCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskCache.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x50534349;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final String SNAPSHOT_FILE = "index";
+    private static final String JOURNAL_FILE = "journal";
+    private static final String LOCK_FILE = "lock";
+    /**
+     * 日志记录数超过索引条目数的两倍且不少于该值时重写快照
+     */
+    private static final int MIN_JOURNAL_COMPACTION = 1024;
+    /**
+     * 版本号按名称的哈希值分组，写入只使同组名称正在进行的填充失效
+     */
+    private static final int STRIPES = 64;
+
+    private final Path cacheDir;
+    private final Path dataDir;
+    private final Path tempDir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Node> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 等待写入日志的记录，在持有 {@link #lock} 时按修改索引的顺序加入
+     */
+    private final ConcurrentLinkedQueue<JournalWrite> pendingJournal = new ConcurrentLinkedQueue<>();
+    /**
+     * 日志文件和快照文件的写入锁，不与索引的锁同时持有
+     */
+    private final ReentrantLock journalLock = new ReentrantLock();
+    /**
+     * 缓存目录的排他锁，随缓存一起释放
+     */
+    private final FileLock directoryLock;
+    private long totalBytes = 0;
+    private OutputStream journal;
+    private int journalRecords = 0;
+    private boolean closed = false;
+
+    /**
+     * 打开或创建缓存目录，加载索引
+     *
+     * @param cacheDir 缓存目录
+     * @param maxBytes 缓存的数据总长度上限
+     */
+    DiskCache(Path cacheDir, long maxBytes) throws GeneralPolyStashException {
+        this.cacheDir = cacheDir;
+        this.dataDir = cacheDir.resolve("data");
+        this.tempDir = cacheDir.resolve("tmp");
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(dataDir);
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to open disk cache at '%s'", cacheDir), e);
+        }
+        this.directoryLock = lockDirectory(cacheDir);
+        try {
+            load();
+        } catch (IOException e) {
+            releaseDirectoryLock();
+            throw new IOErrorOccursException(
+                    String.format("Failed to open disk cache at '%s'", cacheDir), e);
+        }
+    }
+
+    /**
+     * 对缓存目录加排他锁，其他进程或同一进程中的其他缓存已经持有锁时立即失败
+     */
+    private static FileLock lockDirectory(Path cacheDir) throws IOErrorOccursException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(cacheDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 同一进程中的其他缓存持有锁
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                channel.close();
+                throw new IOErrorOccursException(
+                        String.format("Disk cache at '%s' is already opened by another process or blob store instance", cacheDir));
+            }
+            return fileLock;
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to lock disk cache at '%s'", cacheDir), e);
+        }
+    }
+
+    private void releaseDirectoryLock() {
+        try {
+            // 关闭通道同时释放锁
+            directoryLock.channel().close();
+        } catch (IOException e) {
+            logger.warn("Failed to release lock of disk cache '{}': {}", cacheDir, e.getMessage());
+        }
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 缓存的数据总长度
+     */
+    long size() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int count() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 填充开始前获取名称所在分组的版本号，之后通过 {@link #commit} 提交填充结果
+     */
+    long stamp(String objectName) {
+        return stamps.get(stripe(objectName));
+    }
+
+    /**
+     * 查找缓存的对象并打开数据文件，同时更新访问顺序。
+     * <p>
+     * 数据文件在持有锁时打开，之后被淘汰也不影响已经打开的数据流。
+     *
+     * @return 缓存的对象，未缓存时返回 null
+     */
+    Hit open(String objectName) throws IOErrorOccursException {
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            Node node = index.get(objectName);
+            if (node == null) {
+                return null;
+            }
+            try {
+                return new Hit(node.entry, Files.newInputStream(dataDir.resolve(node.entry.fileName())), node.validated, node.validatedAt);
+            } catch (NoSuchFileException e) {
+                // 数据文件被外部删除，丢弃记录
+                removeLocked(objectName);
+                return null;
+            } catch (IOException e) {
+                throw new IOErrorOccursException(
+                        String.format("Failed to open cached blob '%s' in '%s'", objectName, cacheDir), e);
+            }
+        } finally {
+            lock.unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * 查找缓存的对象的元数据，同时更新访问顺序
+     *
+     * @return 缓存的对象，未缓存时返回 null
+     */
+    Hit lookup(String objectName) {
+        lock.lock();
+        try {
+            Node node = closed ? null : index.get(objectName);
+            return node == null ? null : new Hit(node.entry, null, node.validated, node.validatedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录缓存的对象刚刚与存储确认过一致
+     *
+     * @param fileName 确认时缓存的数据文件，已经被替换时不做任何操作
+     */
+    void markValidated(String objectName, String fileName) {
+        lock.lock();
+        try {
+            Node node = index.get(objectName);
+            if (node != null && node.entry.fileName().equals(fileName)) {
+                node.validatedAt = System.nanoTime();
+                node.validated = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 创建填充使用的临时文件
+     */
+    Path createTempFile() throws IOErrorOccursException {
+        try {
+            return Files.createTempFile(tempDir, "fill-", ".tmp");
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to create temporary file in disk cache '%s'", cacheDir), e);
+        }
+    }
+
+    /**
+     * 把填充完成的临时文件移动到位并加入索引，超过预算时淘汰最久未访问的对象。
+     * <p>
+     * 填充期间同组名称有过写入时不加入索引，临时文件仍然作为本次读取的结果打开后删除。
+     *
+     * @param tempFile 填充完成的临时文件
+     * @param blob     对象的元数据
+     * @param stamp    填充开始前取得的版本号
+     * @return 打开的缓存对象
+     */
+    Hit commit(String objectName, Path tempFile, Blob blob, long stamp) throws IOErrorOccursException {
+        long length;
+        try {
+            length = Files.size(tempFile);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new IOErrorOccursException(
+                    String.format("Failed to read temporary file of cached blob '%s'", objectName), e);
+        }
+        Entry entry = new Entry(objectName, UUID.randomUUID().toString(), length, blob.getETag(),
+                blob.getLastModified() == null ? -1 : blob.getLastModified().toEpochMilli(),
+                blob.getReadableName(), blob.getContentType(), blob.getChecksum(), blob.getChecksumAlgorithm(),
+                blob.getUserDefinedAttributes() == null ? Map.of() : blob.getUserDefinedAttributes());
+        InputStream stream = null;
+        lock.lock();
+        try {
+            if (!closed && stamps.get(stripe(objectName)) == stamp && length <= maxBytes) {
+                Path dataFile = dataDir.resolve(entry.fileName());
+                Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE);
+                stream = Files.newInputStream(dataFile);
+                removeLocked(objectName);
+                Node node = new Node(entry);
+                node.validatedAt = System.nanoTime();
+                node.validated = true;
+                index.put(objectName, node);
+                totalBytes += length;
+                appendJournal(TYPE_PUT, entry);
+                evictLocked(objectName);
+                return new Hit(entry, stream, true, node.validatedAt);
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(stream);
+            deleteQuietly(tempFile);
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to commit cached blob '%s' to '%s'", objectName, cacheDir), e);
+        } finally {
+            lock.unlock();
+            flushJournal();
+        }
+        try {
+            InputStream tempStream = Files.newInputStream(tempFile);
+            // 已经打开的文件删除后仍然可以读取，删除失败的临时文件在下次启动时清理
+            deleteQuietly(tempFile);
+            return new Hit(entry, tempStream, true, System.nanoTime());
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new IOErrorOccursException(
+                    String.format("Failed to open temporary file of blob '%s'", objectName), e);
+        }
+    }
+
+    /**
+     * 对象已经写入或删除，移除缓存并使正在进行的填充失效
+     */
+    void invalidate(String objectName) {
+        stamps.incrementAndGet(stripe(objectName));
+        lock.lock();
+        try {
+            removeLocked(objectName);
+        } finally {
+            lock.unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * 移除指定前缀下的所有缓存，并使所有正在进行的填充失效
+     */
+    void invalidatePrefix(String prefix) {
+        for (int i = 0; i < STRIPES; i++) {
+            stamps.incrementAndGet(i);
+        }
+        lock.lock();
+        try {
+            List<String> names = index.keySet().stream().filter(name -> name.startsWith(prefix)).toList();
+            for (String name : names) {
+                removeLocked(name);
+            }
+        } finally {
+            lock.unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * 保存索引快照并清空日志
+     */
+    @Override
+    public void close() throws IOException {
+        List<Entry> entries;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entries = snapshotLocked();
+        } finally {
+            lock.unlock();
+        }
+        journalLock.lock();
+        try {
+            // 快照已经包含排队的记录
+            pendingJournal.clear();
+            try {
+                writeSnapshot(entries);
+            } finally {
+                journal.close();
+            }
+            Files.deleteIfExists(cacheDir.resolve(JOURNAL_FILE));
+        } finally {
+            journalLock.unlock();
+            releaseDirectoryLock();
+        }
+    }
+
+    /**
+     * 移除缓存的对象，日志写入失败时只记录警告，重启后数据文件已经删除的记录会被丢弃
+     */
+    private void removeLocked(String objectName) {
+        Node node = index.remove(objectName);
+        if (node == null) {
+            return;
+        }
+        totalBytes -= node.entry.length();
+        deleteQuietly(dataDir.resolve(node.entry.fileName()));
+        appendJournal(TYPE_REMOVE, node.entry);
+    }
+
+    /**
+     * 淘汰最久未访问的对象直到不超过预算
+     *
+     * @param retained 刚刚加入的对象，不参与淘汰
+     */
+    private void evictLocked(String retained) {
+        Iterator<Map.Entry<String, Node>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Node> eldest = iterator.next();
+            if (eldest.getKey().equals(retained)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue().entry.length();
+            deleteQuietly(dataDir.resolve(eldest.getValue().entry.fileName()));
+            appendJournal(TYPE_REMOVE, eldest.getValue().entry);
+        }
+    }
+
+    /**
+     * 把记录加入写入队列，调用方需要持有锁，释放锁后通过 {@link #flushJournal} 写入。
+     * 记录数过多时同时排队一份索引的副本，写入时以它重写快照并清空日志
+     */
+    private void appendJournal(byte type, Entry entry) {
+        if (closed) {
+            // 关闭时保存的快照已经包含之后的修改
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            if (type == TYPE_PUT) {
+                writeEntry(out, entry);
+            } else {
+                writeString(out, entry.objectName());
+            }
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new IllegalStateException(e);
+        }
+        pendingJournal.add(new JournalWrite(bytes.toByteArray(), null));
+        journalRecords++;
+        if (journalRecords > Math.max(MIN_JOURNAL_COMPACTION, index.size() * 2)) {
+            pendingJournal.add(new JournalWrite(null, snapshotLocked()));
+            journalRecords = 0;
+        }
+    }
+
+    /**
+     * 按顺序写入排队的日志记录，不持有索引的锁。写入失败时只记录警告，重启后数据文件与记录不符的条目会被丢弃
+     */
+    private void flushJournal() {
+        if (pendingJournal.isEmpty()) {
+            return;
+        }
+        journalLock.lock();
+        try {
+            DataOutputStream out = null;
+            JournalWrite write;
+            while ((write = pendingJournal.poll()) != null) {
+                if (write.snapshot() != null) {
+                    writeSnapshot(write.snapshot());
+                    resetJournal();
+                    out = null;
+                    continue;
+                }
+                if (out == null) {
+                    out = new DataOutputStream(journal);
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(write.record());
+                out.writeInt(write.record().length);
+                out.write(write.record());
+                out.writeInt((int) crc.getValue());
+            }
+            if (out != null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write journal of disk cache '{}': {}", cacheDir, e.getMessage());
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * 按最久未访问到最近访问的顺序复制索引，调用方需要持有锁
+     */
+    private List<Entry> snapshotLocked() {
+        List<Entry> entries = new ArrayList<>(index.size());
+        for (Node node : index.values()) {
+            entries.add(node.entry);
+        }
+        return entries;
+    }
+
+    private void load() throws IOException {
+        // 上次运行中断的填充
+        try (Stream<Path> files = Files.list(tempDir)) {
+            files.forEach(DiskCache::deleteQuietly);
+        }
+        readSnapshot();
+        replayJournal();
+        // 丢弃数据文件缺失或长度不符的记录
+        Set<String> referenced = new HashSet<>();
+        Iterator<Node> iterator = index.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().entry;
+            Path dataFile = dataDir.resolve(entry.fileName());
+            if (!Files.isRegularFile(dataFile) || Files.size(dataFile) != entry.length()) {
+                iterator.remove();
+                continue;
+            }
+            referenced.add(entry.fileName());
+            totalBytes += entry.length();
+        }
+        try (Stream<Path> files = Files.list(dataDir)) {
+            files.filter(file -> !referenced.contains(file.getFileName().toString()))
+                    .forEach(DiskCache::deleteQuietly);
+        }
+        // 预算可能比上次运行时更小
+        Iterator<Node> eldest = index.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next().entry;
+            eldest.remove();
+            totalBytes -= entry.length();
+            deleteQuietly(dataDir.resolve(entry.fileName()));
+        }
+        writeSnapshot(snapshotLocked());
+        resetJournal();
+        logger.info("Loaded disk cache '{}' with {} blobs, {} bytes", cacheDir, index.size(), totalBytes);
+    }
+
+    private void readSnapshot() {
+        Path snapshotFile = cacheDir.resolve(SNAPSHOT_FILE);
+        if (!Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        Map<String, Node> entries = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Entry entry = readEntry(in);
+                entries.put(entry.objectName(), new Node(entry));
+            }
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return;
+            }
+            // 快照按最久未访问到最近访问的顺序保存
+            index.putAll(entries);
+        } catch (IOException e) {
+            logger.warn("Failed to read disk cache index snapshot '{}': {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 重放快照之后的日志，末尾因进程崩溃而不完整或校验失败的记录被忽略
+     */
+    private void replayJournal() throws IOException {
+        Path journalFile = cacheDir.resolve(JOURNAL_FILE);
+        if (!Files.isRegularFile(journalFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0 || length > 16 * 1024 * 1024) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                CRC32C crc = new CRC32C();
+                crc.update(record);
+                if (in.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                byte type = recordIn.readByte();
+                if (type == TYPE_PUT) {
+                    Entry entry = readEntry(recordIn);
+                    index.remove(entry.objectName());
+                    index.put(entry.objectName(), new Node(entry));
+                } else if (type == TYPE_REMOVE) {
+                    index.remove(readString(recordIn));
+                }
+            }
+        } catch (EOFException ignored) {
+            // 日志末尾
+        }
+    }
+
+    /**
+     * 保存索引快照
+     *
+     * @param entries 按最久未访问到最近访问的顺序排列的条目
+     */
+    private void writeSnapshot(List<Entry> entries) throws IOException {
+        Path tempFile = cacheDir.resolve(UUID.randomUUID() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeEntry(out, entry);
+            }
+            out.writeInt(SNAPSHOT_MAGIC);
+        }
+        Files.move(tempFile, cacheDir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void resetJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new BufferedOutputStream(Files.newOutputStream(cacheDir.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        journalRecords = 0;
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        writeString(out, entry.objectName());
+        writeString(out, entry.fileName());
+        out.writeLong(entry.length());
+        writeNullableString(out, entry.eTag());
+        out.writeLong(entry.lastModified());
+        writeNullableString(out, entry.readableName());
+        writeNullableString(out, entry.contentType());
+        writeNullableString(out, entry.checksum());
+        writeNullableString(out, entry.checksumAlgorithm());
+        List<Map.Entry<String, String>> attributes = new ArrayList<>();
+        entry.userDefinedAttributes().forEach((k, v) -> {
+            if (k != null && v != null) {
+                attributes.add(Map.entry(k, v));
+            }
+        });
+        out.writeInt(attributes.size());
+        for (Map.Entry<String, String> attribute : attributes) {
+            writeString(out, attribute.getKey());
+            writeString(out, attribute.getValue());
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        String objectName = readString(in);
+        String fileName = readString(in);
+        long length = in.readLong();
+        String eTag = readNullableString(in);
+        long lastModified = in.readLong();
+        String readableName = readNullableString(in);
+        String contentType = readNullableString(in);
+        String checksum = readNullableString(in);
+        String checksumAlgorithm = readNullableString(in);
+        int size = in.readInt();
+        Map<String, String> attributes = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            attributes.put(readString(in), readString(in));
+        }
+        return new Entry(objectName, fileName, length, eTag, lastModified, readableName, contentType,
+                checksum, checksumAlgorithm, attributes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        writeString(out, value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete disk cache file '{}': {}", path, e.getMessage());
+        }
+    }
+
+    private static int stripe(String objectName) {
+        return (objectName.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    /**
+     * 缓存的对象的元数据
+     *
+     * @param fileName     数据目录中的文件名，每次填充使用新的文件名
+     * @param lastModified 对象的最后修改时间，未知时为 -1
+     */
+    record Entry(String objectName, String fileName, long length, String eTag, long lastModified,
+                 String readableName, String contentType, String checksum, String checksumAlgorithm,
+                 Map<String, String> userDefinedAttributes) {
+
+        Blob toBlob() {
+            return new Blob()
+                    .setObjectName(objectName)
+                    .setLength(length)
+                    .setETag(eTag)
+                    .setLastModified(lastModified < 0 ? null : Instant.ofEpochMilli(lastModified))
+                    .setReadableName(readableName)
+                    .setContentType(contentType)
+                    .setChecksum(checksum)
+                    .setChecksumAlgorithm(checksumAlgorithm)
+                    .setUserDefinedAttributes(userDefinedAttributes);
+        }
+    }
+
+    /**
+     * 查找结果
+     *
+     * @param stream      打开的数据流，只查找元数据时为 null
+     * @param validated   本次运行中是否与存储确认过一致，从快照和日志加载的对象需要重新确认
+     * @param validatedAt 最近一次确认的时间（{@link System#nanoTime()}）
+     */
+    record Hit(Entry entry, InputStream stream, boolean validated, long validatedAt) {
+
+        /**
+         * 最近一次确认是否在指定的时间之内
+         */
+        boolean isFresh(long intervalNanos) {
+            return validated && System.nanoTime() - validatedAt < intervalNanos;
+        }
+    }
+
+    /**
+     * 排队的日志写入
+     *
+     * @param record   日志记录，重写快照时为 null
+     * @param snapshot 排队时的索引副本，写入普通记录时为 null
+     */
+    private record JournalWrite(byte[] record, List<Entry> snapshot) {
+    }
+
+    private static class Node {
+        private final Entry entry;
+        private boolean validated = false;
+        private long validatedAt;
+
+        private Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
@@ -2,52 +2,207 @@ package cc.ddrpa.dorian.polystash.provider.filesystem;
 
 import cc.ddrpa.dorian.polystash.core.blob.Blob;
 import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.PutEntry;
+import cc.ddrpa.dorian.polystash.core.blob.PutResult;
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.blobstore.ReadCondition;
 import cc.ddrpa.dorian.polystash.core.exception.*;
-import cc.ddrpa.dorian.polystash.utils.StringPool;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
 import cc.ddrpa.dorian.polystash.utils.digest.SupportedChecksumAlgorithm;
 import cc.ddrpa.dorian.polystash.utils.digest.XXHash64MessageDigest;
 import cc.ddrpa.dorian.polystash.utils.filesystem.IAttributeHandler;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public class FileSystemBlobStore extends BlobStore {
 
     private final Path baseDir;
-    private final String baseDirAsString;
     private final IAttributeHandler attributeHandler;
-    private final Pattern directoryPattern = Pattern.compile("^/");
+    private final FileSystemShardLayout layout;
+    /**
+     * 去重模式下保存内容的唯一副本；关闭去重后仍用于读取和释放已有的引用
+     */
+    private final FileSystemContentStore contentStore;
+    private final boolean dedup;
+    /**
+     * 分块模式下保存数据块；关闭分块后仍用于读取已有的块清单
+     */
+    private final FileSystemChunkStore chunkStore;
+    private final boolean chunking;
+    /**
+     * 小对象打包存储，未启用打包且不存在历史段文件时为 null
+     */
+    private FileSystemPackStore packStore;
+    private int packThreshold = 0;
+    /**
+     * 条件写入按对象名称加锁，检查条件和写入之间不会插入其他条件写入
+     */
+    private final Striped<Lock> conditionalWriteLocks = Striped.lock(256);
+    /**
+     * 按对象文件的存放路径加锁，读取旧引用、替换或删除对象文件、释放旧引用作为一个整体执行，
+     * 同一对象的并发覆盖和删除不会重复释放同一个引用
+     */
+    private final Striped<Lock> objectFileLocks = Striped.lock(256);
+    /**
+     * 基础目录中是否可能存在引用文件或清单文件，启用过去重或分块后不再恢复为 false
+     */
+    private volatile boolean indirectObjectsPossible;
 
     protected FileSystemBlobStore(String blobStoreName, Path baseDir, IAttributeHandler attributeHandler) {
+        this(blobStoreName, baseDir, attributeHandler, FileSystemShardLayout.FLAT);
+    }
+
+    protected FileSystemBlobStore(String blobStoreName, Path baseDir, IAttributeHandler attributeHandler,
+                                  FileSystemShardLayout layout) {
+        this(blobStoreName, baseDir, attributeHandler, layout, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param dedup 是否启用去重模式，启用后内容相同的对象共享同一份物理副本，
+     *              对象文件本身只保存元数据和对内容的引用，因此要求文件系统支持扩展属性
+     */
+    protected FileSystemBlobStore(String blobStoreName, Path baseDir, IAttributeHandler attributeHandler,
+                                  FileSystemShardLayout layout, boolean dedup) {
+        this(blobStoreName, baseDir, attributeHandler, layout, dedup, false, FileSystemChunkStore.DEFAULT_AVERAGE_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param dedup            是否启用去重模式
+     * @param chunking         是否启用分块模式，启用后对象按内容定义的边界切分为块，相同的块只保存一份，
+     *                         对象文件本身只保存元数据和块清单，因此要求文件系统支持扩展属性；不能与去重模式同时启用
+     * @param averageChunkSize 分块模式下的平均块长度，必须是 2 的幂
+     */
+    protected FileSystemBlobStore(String blobStoreName, Path baseDir, IAttributeHandler attributeHandler,
+                                  FileSystemShardLayout layout, boolean dedup, boolean chunking, int averageChunkSize) {
         super(new FileSystemBlobStoreContext(blobStoreName, baseDir));
+        if (dedup && chunking) {
+            throw new IllegalArgumentException("Dedup and chunking modes cannot be enabled at the same time");
+        }
         this.baseDir = baseDir;
-        this.baseDirAsString = this.baseDir.toString();
         this.attributeHandler = attributeHandler;
+        this.layout = layout;
+        this.contentStore = new FileSystemContentStore(baseDir);
+        this.dedup = dedup;
+        this.chunkStore = new FileSystemChunkStore(baseDir, averageChunkSize,
+                FileSystemChunkStore.DEFAULT_PARALLELISM, FileSystemChunkStore.DEFAULT_READ_AHEAD);
+        this.chunking = chunking;
+        this.indirectObjectsPossible = dedup || chunking;
+    }
+
+    /**
+     * 是否启用了去重模式
+     */
+    public boolean isDedup() {
+        return dedup;
+    }
+
+    /**
+     * 是否启用了分块模式
+     */
+    public boolean isChunking() {
+        return chunking;
+    }
+
+    /**
+     * 获取当前使用的分片布局
+     */
+    public FileSystemShardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 启用小对象打包，长度不超过阈值的对象会追加写入段文件。
+     * <p>
+     * 阈值为 0 时不再打包新的对象，但仍然可以读取和删除已经打包的对象。
+     *
+     * @param packThreshold 打包阈值
+     * @param segmentSize   单个段文件的最大长度
+     */
+    void openPackStore(int packThreshold, long segmentSize) throws GeneralPolyStashException {
+        this.packStore = new FileSystemPackStore(baseDir, segmentSize);
+        this.packThreshold = packThreshold;
+    }
+
+    /**
+     * 获取小对象打包阈值，0 表示未启用打包
+     */
+    public int getPackThreshold() {
+        return packThreshold;
+    }
+
+    /**
+     * 立即压缩打包存储中包含垃圾的已封存段。
+     * <p>
+     * 删除和覆盖产生的垃圾超过一半时会在后台自动压缩，通常不需要手动调用。
+     *
+     * @return 释放的字节数，未启用打包时返回 0
+     * @throws GeneralPolyStashException 压缩失败时抛出
+     */
+    public long compactPacks() throws GeneralPolyStashException {
+        return packStore == null ? 0 : packStore.compact(0);
+    }
+
+    Path getBaseDir() {
+        return baseDir;
+    }
+
+    FileSystemChunkStore getChunkStore() {
+        return chunkStore;
+    }
+
+    IAttributeHandler getAttributeHandler() {
+        return attributeHandler;
     }
 
     /**
      * 生成一个对象名称，通常用于创建新的对象
      */
-    protected Pair<Path, String> generateObjectName(String prefix) throws AccessDeniedException, IOErrorOccursException {
+    protected Pair<Path, String> generateObjectName(String prefix, Payload<?> payload) throws GeneralPolyStashException {
         // 指向磁盘上某个路径
         Path targetPath = this.baseDir.resolve(prefix).normalize();
         // 确保这个路径没有越过 baseDir
@@ -55,23 +210,26 @@ public class FileSystemBlobStore extends BlobStore {
             throw new AccessDeniedException(
                     String.format("Access denied: path '%s' is outside of base directory '%s'", targetPath, this.baseDir));
         }
-        if (Files.notExists(targetPath)) {
-            try {
-                Files.createDirectories(targetPath);
-            } catch (IOException e) {
-                throw new IOErrorOccursException(
-                        String.format("Failed to create directory structure for prefix '%s' at path '%s'", prefix, targetPath),
-                        e);
-            }
-        } else if (!Files.isDirectory(targetPath)) {
+        if (isReserved(this.baseDir.relativize(targetPath))) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: prefix '%s' is reserved for internal use", prefix));
+        }
+        if (Files.isRegularFile(targetPath)) {
             throw new IOErrorOccursException(
                     String.format("Target path '%s' exists but is not a directory. Expected directory for prefix '%s'", targetPath, prefix));
         }
-        String randomFilename = UUID.randomUUID().toString();
-        Path relativePath = Path.of(prefix).resolve(randomFilename);
-        Path absoluteFilePath = targetPath.resolve(randomFilename);
+        String generatedName = objectNameGenerator.generate(payload);
+        Path generatedPath = targetPath.resolve(generatedName).normalize();
+        // 生成的名称可以包含子路径，但不能越过前缀目录
+        if (!generatedPath.startsWith(targetPath) || generatedPath.equals(targetPath)) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: generated name '%s' is outside of prefix '%s'", generatedName, prefix));
+        }
+        Path relativePath = this.baseDir.relativize(generatedPath);
+        // 分片布局下文件实际存放在前缀目录下的分片子目录中
+        Path absoluteFilePath = this.baseDir.resolve(layout.toStoragePath(relativePath));
         // 统一使用 /
-        return Pair.of(absoluteFilePath, relativePath.toString().replace("\\", "/"));
+        return Pair.of(absoluteFilePath, Path.of(prefix).resolve(generatedName).toString().replace("\\", "/"));
     }
 
     /**
@@ -84,28 +242,11 @@ public class FileSystemBlobStore extends BlobStore {
      */
     protected Pair<Path, String> deconstructObjectName(String objectName) throws AccessDeniedException, IOErrorOccursException {
         // 指向磁盘上某个路径
-        Path targetFilePath = this.baseDir.resolve(objectName).normalize();
-        // 确保这个路径没有越过 baseDir
-        if (!targetFilePath.startsWith(this.baseDir)) {
-            throw new AccessDeniedException(
-                    String.format("Access denied: object '%s' is outside of base directory '%s'", targetFilePath, this.baseDir));
-        }
-        if (Files.notExists(targetFilePath)) {
-            // 确保这个路径的父级目录存在
-            if (Files.notExists(targetFilePath.getParent())) {
-                try {
-                    Files.createDirectories(targetFilePath.getParent());
-                } catch (IOException e) {
-                    throw new IOErrorOccursException(
-                            String.format("Failed to create parent directories for object '%s' at path '%s'", objectName, targetFilePath), e);
-                }
-            } else if (!Files.isDirectory(targetFilePath.getParent())) {
-                throw new IOErrorOccursException(
-                        String.format("Parent path '%s' exists but is not a directory. Expected directory for object '%s'", targetFilePath.getParent(), objectName));
-            } else if (!Files.isRegularFile(targetFilePath)) {
-                throw new IOErrorOccursException(
-                        String.format("Target path '%s' exists but is not a regular file. Expected file for object '%s'", targetFilePath, objectName));
-            }
+        Path targetFilePath = this.baseDir.resolve(layout.toStoragePath(resolveObjectPath(objectName)));
+        // 只做一次查询，同时进行的删除不会让检查误判
+        if (Files.isDirectory(targetFilePath, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOErrorOccursException(
+                    String.format("Target path '%s' is a directory. Expected file for object '%s'", targetFilePath, objectName));
         }
         Path relativePath = Path.of(objectName);
         // 统一使用 /
@@ -118,82 +259,198 @@ public class FileSystemBlobStore extends BlobStore {
      * @param objectName
      */
     protected Path objectCheck(String objectName, boolean expectExist) throws AccessDeniedException, IOErrorOccursException, BlobNotFoundException {
+        if (expectExist) {
+            // 这个路径必须存在且是一个文件
+            Path existingObjectPath = findObjectPath(objectName);
+            if (existingObjectPath == null) {
+                throw new BlobNotFoundException(
+                        String.format("Blob not found: object '%s' does not exist or is not a regular file", objectName));
+            }
+            return existingObjectPath;
+        }
         // 指向磁盘上某个路径
-        Path targetObjectPath = this.baseDir.resolve(objectName);
+        Path targetObjectPath = this.baseDir.resolve(layout.toStoragePath(resolveObjectPath(objectName)));
+        // 如果不期望文件存在
+        if (Files.exists(targetObjectPath)) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: object '%s' already exists at path '%s'", objectName, targetObjectPath));
+        }
+        // 确保这个路径的父级目录存在
+        ensureParentDirectory(targetObjectPath, objectName);
+        return targetObjectPath;
+    }
+
+    /**
+     * 查找对象对应的文件，不存在时返回 null 而不是抛出异常
+     *
+     * @param objectName 对象名称
+     * @return 对象文件的路径，对象不存在或不是普通文件时返回 null
+     * @throws AccessDeniedException 当对象路径越过 baseDir 时抛出
+     */
+    protected Path findObjectPath(String objectName) throws AccessDeniedException {
+        Path objectPath = resolveObjectPath(objectName);
+        Path targetObjectPath = this.baseDir.resolve(layout.toStoragePath(objectPath));
+        if (Files.isRegularFile(targetObjectPath)) {
+            return targetObjectPath;
+        }
+        // 兼容启用分片前按扁平布局存放的对象
+        Path legacyObjectPath = this.baseDir.resolve(objectPath);
+        if (!layout.isFlat() && Files.isRegularFile(legacyObjectPath)) {
+            return legacyObjectPath;
+        }
+        return null;
+    }
+
+    /**
+     * 将对象名称解析为相对于 baseDir 的规范化路径
+     *
+     * @param objectName 对象名称
+     * @return 相对于 baseDir 的对象路径
+     * @throws AccessDeniedException 当对象路径越过 baseDir 时抛出
+     */
+    private Path resolveObjectPath(String objectName) throws AccessDeniedException {
+        Path targetObjectPath = this.baseDir.resolve(objectName).normalize();
         // 确保这个路径没有越过 baseDir
-        if (!targetObjectPath.startsWith(this.baseDir)) {
+        if (!targetObjectPath.startsWith(this.baseDir) || targetObjectPath.equals(this.baseDir)) {
             throw new AccessDeniedException(
                     String.format("Access denied: object path '%s' is outside of base directory '%s'", targetObjectPath, this.baseDir));
         }
-        if (expectExist) {
-            // 这个路径必须存在且是一个文件
-            if (!Files.exists(targetObjectPath) || !Files.isRegularFile(targetObjectPath)) {
-                throw new BlobNotFoundException(
-                        String.format("Blob not found: object '%s' does not exist or is not a regular file at path '%s'", objectName, targetObjectPath));
-            }
-        } else {
-            // 如果不期望文件存在
-            if (Files.exists(targetObjectPath)) {
-                throw new AccessDeniedException(
-                        String.format("Access denied: object '%s' already exists at path '%s'", objectName, targetObjectPath));
-            }
-            // 确保这个路径的父级目录存在
-            if (Files.notExists(targetObjectPath.getParent())) {
-                try {
-                    Files.createDirectories(targetObjectPath.getParent());
-                } catch (IOException e) {
-                    throw new IOErrorOccursException(
-                            String.format("Failed to create parent directories for object '%s' at path '%s'", objectName, targetObjectPath), e);
-                }
+        Path objectPath = this.baseDir.relativize(targetObjectPath);
+        if (isReserved(objectPath)) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: object '%s' is reserved for internal use", objectName));
+        }
+        return objectPath;
+    }
+
+    /**
+     * 将对象名称转换为打包存储中的键，即相对于 baseDir 的规范化路径
+     */
+    private String packKey(String objectName) throws AccessDeniedException {
+        // 统一使用 /
+        return resolveObjectPath(objectName).toString().replace("\\", "/");
+    }
+
+    /**
+     * 检查相对于 baseDir 的路径是否位于存储内部使用的保留目录中
+     */
+    private static boolean isReserved(Path relativePath) {
+        return relativePath.getNameCount() > 0
+                && relativePath.getName(0).toString().equals(FileSystemContentStore.RESERVED_DIR);
+    }
+
+    private void ensureParentDirectory(Path targetFilePath, String objectName) throws IOErrorOccursException {
+        ensureParentDirectory(targetFilePath, objectName, null);
+    }
+
+    /**
+     * @param ensuredDirectories 批量上传时已经确认存在的目录，命中时不再检查文件系统，可以为 null
+     */
+    private void ensureParentDirectory(Path targetFilePath, String objectName, Set<Path> ensuredDirectories) throws IOErrorOccursException {
+        Path parent = targetFilePath.getParent();
+        if (ensuredDirectories != null && ensuredDirectories.contains(parent)) {
+            return;
+        }
+        if (Files.notExists(parent)) {
+            try {
+                Files.createDirectories(parent);
+            } catch (IOException e) {
+                throw new IOErrorOccursException(
+                        String.format("Failed to create parent directories for object '%s' at path '%s'", objectName, targetFilePath), e);
             }
+        } else if (!Files.isDirectory(parent)) {
+            throw new IOErrorOccursException(
+                    String.format("Parent path '%s' exists but is not a directory. Expected directory for object '%s'", parent, objectName));
+        }
+        if (ensuredDirectories != null) {
+            ensuredDirectories.add(parent);
         }
-        return targetObjectPath;
     }
 
+    /**
+     * 将磁盘上的文件路径还原为对象名称，去掉分片目录
+     */
     protected String cleanObjectName(Path targetPath) {
-        return directoryPattern.matcher(
-                        targetPath.toString().replace(baseDirAsString, StringPool.EMPTY))
-                .replaceFirst(StringPool.EMPTY);
+        Path objectPath = layout.toObjectPath(this.baseDir.relativize(targetPath));
+        // 统一使用 /
+        return objectPath.toString().replace("\\", "/");
     }
 
     @Override
     public Iterable<BlobResult> list(String prefix, ListOptions listOptions) throws GeneralPolyStashException {
+        Path targetPath = prefixCheck(prefix);
+        // 打包存储中的对象没有对应的文件，前缀目录可能不存在
+        List<String> packedKeys = packStore == null
+                ? Collections.emptyList()
+                : packStore.keys(this.baseDir.relativize(targetPath.normalize()).toString().replace("\\", "/"),
+                listOptions.recursive());
+        if (!Files.isDirectory(targetPath) && packedKeys.isEmpty()) {
+            throw new OperationNotSupportedException(String.format(
+                    "List operation failed: path '%s' is not a directory, cannot list objects. Base directory: '%s'", prefix, this.baseDir));
+        }
+        List<Path> fileList = Files.isDirectory(targetPath)
+                ? listFiles(prefix, targetPath, listOptions)
+                : Collections.emptyList();
+
+        return () -> new Iterator<>() {
+            private final Iterator<Path> fileIterator = fileList.iterator();
+            private final Iterator<String> packedKeyIterator = packedKeys.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return fileIterator.hasNext() || packedKeyIterator.hasNext();
+            }
+
+            @Override
+            public BlobResult next() {
+                try {
+                    if (fileIterator.hasNext()) {
+                        Path filePath = fileIterator.next();
+                        Blob blob = get(filePath, false)
+                                .setObjectName(cleanObjectName(filePath));
+                        return new BlobResult(blob);
+                    }
+                    String packedKey = packedKeyIterator.next();
+                    Blob blob = getPacked(packedKey, false);
+                    if (blob == null) {
+                        throw new BlobNotFoundException(
+                                String.format("Blob not found: packed object '%s' was removed while listing", packedKey));
+                    }
+                    return new BlobResult(blob);
+                } catch (GeneralPolyStashException e) {
+                    return new BlobResult(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 解析前缀对应的目录，前缀不能位于基础目录之外或指向内部使用的目录
+     */
+    private Path prefixCheck(String prefix) throws AccessDeniedException {
         Path targetPath = baseDir.resolve(prefix);
         if (!targetPath.startsWith(this.baseDir)) {
             throw new AccessDeniedException(
                     String.format("Access denied: list path '%s' is outside of base directory '%s'", targetPath, this.baseDir));
         }
-        if (!Files.isDirectory(targetPath)) {
-            throw new OperationNotSupportedException(String.format(
-                    "List operation failed: path '%s' is not a directory, cannot list objects. Base directory: '%s'", prefix, this.baseDir));
+        if (isReserved(this.baseDir.relativize(targetPath.normalize()))) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: list path '%s' is reserved for internal use", prefix));
         }
+        return targetPath;
+    }
 
+    private List<Path> listFiles(String prefix, Path targetPath, ListOptions listOptions) throws IOErrorOccursException {
         // walk through the directory and return an iterable object
+        // 非递归模式下需要多遍历分片目录的层级，并排除真实子目录中的文件
         try (Stream<Path> filesWalkStream = listOptions.recursive()
                 ? Files.walk(targetPath, Integer.MAX_VALUE).filter(Files::isRegularFile)
-                : Files.walk(targetPath, 1).filter(Files::isRegularFile)) {
+                : Files.walk(targetPath, 1 + layout.getDepth()).filter(Files::isRegularFile)
+                .filter(path -> layout.toObjectPath(targetPath.relativize(path)).getNameCount() == 1)) {
 
-            var fileList = filesWalkStream.toList();
-
-            return () -> new Iterator<>() {
-                private final Iterator<Path> fileIterator = fileList.iterator();
-
-                @Override
-                public boolean hasNext() {
-                    return fileIterator.hasNext();
-                }
-
-                @Override
-                public BlobResult next() {
-                    Path filePath = fileIterator.next();
-                    String objectName = directoryPattern.matcher(
-                                    filePath.toString().replace(baseDirAsString, StringPool.EMPTY))
-                            .replaceFirst(StringPool.EMPTY);
-                    Blob blob = get(filePath, false)
-                            .setObjectName(objectName);
-                    return new BlobResult(blob);
-                }
-            };
+            return filesWalkStream
+                    .filter(path -> !isReserved(this.baseDir.relativize(path)))
+                    .toList();
         } catch (IOException e) {
             throw new IOErrorOccursException(
                     String.format("IO error occurred while walking through directory '%s' at path '%s'. Recursive: %s",
@@ -204,6 +461,10 @@ public class FileSystemBlobStore extends BlobStore {
 
     @Override
     public Blob get(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, true);
+        if (packed != null) {
+            return packed;
+        }
         Path filePath = objectCheck(objectName, true);
         return get(filePath, true)
                 .setObjectName(cleanObjectName(filePath));
@@ -211,7 +472,7 @@ public class FileSystemBlobStore extends BlobStore {
 
     @Override
     public Blob put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
-        Pair<Path, String> pair = generateObjectName(prefix);
+        Pair<Path, String> pair = generateObjectName(prefix, payload);
         Path targetFilePath = pair.getLeft();
         String objectName = pair.getRight();
         return save(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
@@ -219,19 +480,375 @@ public class FileSystemBlobStore extends BlobStore {
 
     @Override
     public Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        return putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType, null);
+    }
+
+    /**
+     * 批量上传时记录已经确认存在的父目录，同一目录下的大量对象只检查和创建一次目录
+     */
+    @Override
+    public List<PutResult> putAll(Iterable<PutEntry> entries, Consumer<PutResult> listener) throws GeneralPolyStashException {
+        Set<Path> ensuredDirectories = ConcurrentHashMap.newKeySet();
+        return putAll(entries, listener, entry -> putOrReplace(entry.getObjectName(), entry.getReadableName(),
+                entry.getPayload(), entry.getUserDefinedAttributes(), entry.getContentType(), ensuredDirectories));
+    }
+
+    private Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType,
+                              Set<Path> ensuredDirectories) throws GeneralPolyStashException {
         Pair<Path, String> pair = deconstructObjectName(objectName);
         Path targetFilePath = pair.getLeft();
-        return save(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
+        Blob blob = save(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType, ensuredDirectories);
+        if (!layout.isFlat()) {
+            // 覆盖按扁平布局存放的历史对象后，移除旧文件，避免同一对象存在两份
+            Path legacyObjectPath = this.baseDir.resolve(resolveObjectPath(objectName));
+            if (!legacyObjectPath.equals(targetFilePath) && Files.isRegularFile(legacyObjectPath)) {
+                deleteObjectFile(legacyObjectPath, objectName);
+            }
+        }
+        return blob;
+    }
+
+    /**
+     * 先把对象完整写入保留目录中的临时文件，再以硬链接发布到对象路径。链接在目标已经存在时失败，
+     * 共享同一目录的其他进程同时创建时只有一个成功，写入期间和写入失败后对象路径上都不会出现不完整的文件。
+     * 保存到打包存储的小对象只与当前存储的其他条件写入互斥
+     */
+    @Override
+    public Blob putIfAbsent(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        Lock lock = conditionalWriteLocks.get(packKey(objectName));
+        lock.lock();
+        try {
+            if (findObjectPath(objectName) != null || getPacked(objectName, false) != null) {
+                throw new PreconditionFailedException(
+                        String.format("Precondition failed: object '%s' already exists", objectName));
+            }
+            Path targetFilePath = deconstructObjectName(objectName).getLeft();
+            ensureParentDirectory(targetFilePath, objectName);
+            Path stagingFilePath = contentStore.createTempFile();
+            try {
+                Blob blob = save(stagingFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
+                // 保存到打包存储时不会产生对象文件
+                if (Files.isRegularFile(stagingFilePath)) {
+                    publish(stagingFilePath, targetFilePath, objectName);
+                }
+                return blob;
+            } finally {
+                deleteQuietly(stagingFilePath);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把写好的对象文件发布到对象路径，目标已经存在时放弃写入。扩展属性属于文件本身，链接或移动后保持不变；
+     * 不支持硬链接的文件系统上退回到不替换目标的移动
+     */
+    private void publish(Path stagingFilePath, Path targetFilePath, String objectName) throws GeneralPolyStashException {
+        try {
+            try {
+                Files.createLink(targetFilePath, stagingFilePath);
+            } catch (UnsupportedOperationException e) {
+                Files.move(stagingFilePath, targetFilePath);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // 释放去重模式下临时引用文件持有的内容引用
+            deleteObjectFile(stagingFilePath, objectName);
+            throw new PreconditionFailedException(
+                    String.format("Precondition failed: object '%s' already exists", objectName), e);
+        } catch (IOException e) {
+            deleteObjectFile(stagingFilePath, objectName);
+            throw new IOErrorOccursException(
+                    String.format("Failed to create file for blob '%s' at path '%s'", objectName, targetFilePath), e);
+        }
+    }
+
+    /**
+     * 比较保存的 ETag 后覆盖对象。条件检查和写入之间只排除当前存储的其他条件写入，
+     * 不能与共享同一目录的其他进程或普通写入协调
+     */
+    @Override
+    public Blob putIfMatch(String objectName, String eTag, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        Lock lock = conditionalWriteLocks.get(packKey(objectName));
+        lock.lock();
+        try {
+            Blob current = tryStat(objectName).orElseThrow(() -> new PreconditionFailedException(
+                    String.format("Precondition failed: object '%s' does not exist", objectName)));
+            // If-Match 与 If-None-Match 使用相同的 ETag 比较规则
+            if (!ReadCondition.ifNoneMatch(eTag).isNotModified(current)) {
+                throw new PreconditionFailedException(
+                        String.format("Precondition failed: ETag of object '%s' is '%s', expected '%s'", objectName, current.getETag(), eTag));
+            }
+            return putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType);
+        } finally {
+            lock.unlock();
+        }
     }
 
     protected Blob save(Path targetFilePath, String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
-        long contentLength;
-        byte[] digest;
+        return save(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType, null);
+    }
+
+    private Blob save(Path targetFilePath, String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType,
+                      Set<Path> ensuredDirectories) throws GeneralPolyStashException {
+        // 长度已知且超过阈值的数据不需要预读
+        if (packStore != null && packThreshold > 0 && payload.length() <= packThreshold) {
+            // 最多读取阈值加一个字节，判断数据是否足够小
+            InputStream inputStream = null;
+            try {
+                inputStream = payload.stream();
+                byte[] head = inputStream.readNBytes(packThreshold + 1);
+                if (head.length <= packThreshold) {
+                    inputStream.close();
+                    return savePacked(targetFilePath, objectName, readableName, head, userDefinedAttributes, contentType);
+                }
+                if (payload.isRepeatable()) {
+                    inputStream.close();
+                } else {
+                    // 不可重复读取的数据需要拼接已经读取的部分
+                    payload = new InputStreamPayload(new SequenceInputStream(new ByteArrayInputStream(head), inputStream));
+                }
+            } catch (IOException e) {
+                IOUtils.closeQuietly(inputStream);
+                throw new IOErrorOccursException(
+                        String.format("Failed to read blob data of '%s'", objectName), e);
+            }
+        }
+        ensureParentDirectory(targetFilePath, objectName, ensuredDirectories);
+        Blob blob = saveFile(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
+        if (packStore != null) {
+            // 覆盖打包存储中的旧对象
+            packStore.remove(packKey(objectName));
+        }
+        return blob;
+    }
+
+    /**
+     * 把小对象追加写入打包存储，并删除以文件形式保存的旧对象
+     */
+    private Blob savePacked(Path targetFilePath, String objectName, String readableName, byte[] data, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        MessageDigest messageDigest = new XXHash64MessageDigest();
+        messageDigest.update(data);
+        String digestAsHexString = BaseEncoding.base16().lowerCase().encode(messageDigest.digest());
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(IAttributeHandler.ATTR_ETAG, digestAsHexString);
+        metadata.put(IAttributeHandler.ATTR_CHECKSUM, digestAsHexString);
+        metadata.put(IAttributeHandler.ATTR_CHECKSUM_ALGORITHM, SupportedChecksumAlgorithm.ALG_XXHASH_64);
+        metadata.put(IAttributeHandler.ATTR_READABLE_FILENAME, readableName);
+        metadata.put(IAttributeHandler.ATTR_CONTENT_TYPE, contentType);
+        long lastModified = packStore.put(packKey(objectName), metadata, userDefinedAttributes, data);
+        if (Files.isRegularFile(targetFilePath)) {
+            deleteObjectFile(targetFilePath, objectName);
+        }
+        return new Blob()
+                .setObjectName(objectName)
+                .setLastModified(Instant.ofEpochMilli(lastModified))
+                .setReadableName(readableName)
+                .setContentType(contentType)
+                .setLength(data.length)
+                .setETag(digestAsHexString)
+                .setChecksum(digestAsHexString)
+                .setChecksumAlgorithm(SupportedChecksumAlgorithm.ALG_XXHASH_64);
+    }
+
+    /**
+     * 从打包存储中读取对象
+     *
+     * @return 对象，未启用打包或对象不在打包存储中时返回 null
+     */
+    private Blob getPacked(String objectName, boolean acquirePayload) throws GeneralPolyStashException {
+        if (packStore == null) {
+            return null;
+        }
+        String key = packKey(objectName);
+        FileSystemPackStore.PackedObject packed = packStore.read(key);
+        if (packed == null) {
+            return null;
+        }
+        Map<String, String> metadata = packed.metadata();
+        Blob blob = new Blob()
+                .setObjectName(key)
+                .setRepeatable(true)
+                .setLastModified(Instant.ofEpochMilli(packed.lastModified()))
+                .setLength(packed.data().length)
+                .setETag(IAttributeHandler.parseETag(metadata).orElse(null))
+                .setReadableName(IAttributeHandler.parseReadableFilename(metadata).orElse(null))
+                .setContentType(IAttributeHandler.parseContentType(metadata).orElse(null))
+                .setChecksum(IAttributeHandler.parseChecksum(metadata).orElse(null))
+                .setChecksumAlgorithm(IAttributeHandler.parseChecksumAlgorithm(metadata).orElse(null))
+                .setUserDefinedAttributes(packed.userDefinedAttributes());
+        if (acquirePayload) {
+            blob.setPayload(new ByteArrayPayload(packed.data()));
+        }
+        return blob;
+    }
+
+    private Blob saveFile(Path targetFilePath, String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        if (dedup) {
+            return saveDeduplicated(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
+        }
+        if (chunking) {
+            return saveChunked(targetFilePath, objectName, readableName, payload, userDefinedAttributes, contentType);
+        }
+        // 覆盖去重模式下的引用文件或分块模式下的清单文件时，先删除旧文件，避免残留的属性
+        if (mayContainIndirectObjects()) {
+            Lock lock = objectFileLocks.get(targetFilePath);
+            lock.lock();
+            try {
+                if (isIndirect(targetFilePath)) {
+                    deleteObjectFile(targetFilePath, objectName);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        Pair<Long, String> written = write(payload, targetFilePath, objectName);
+        long contentLength = written.getLeft();
+        String digestAsHexString = written.getRight();
         Blob blob = new Blob()
                 .setObjectName(objectName)
                 .setLastModified(Instant.now())
                 .setReadableName(readableName)
-                .setContentType(contentType);
+                .setContentType(contentType)
+                .setLength(contentLength)
+                .setETag(digestAsHexString)
+                .setChecksum(digestAsHexString)
+                .setChecksumAlgorithm(SupportedChecksumAlgorithm.ALG_XXHASH_64);
+        writeAttributes(targetFilePath, digestAsHexString, readableName, contentType, userDefinedAttributes, Collections.emptyMap());
+        return blob;
+    }
+
+    /**
+     * 去重模式下保存对象：数据存放在内容存储中，对象文件只保存元数据和内容引用。
+     * <p>
+     * 对于可重复读取的数据，先计算摘要并查找相同内容，找到时不写入任何数据；
+     * 否则写入临时文件，再交给内容存储比较或收录。
+     */
+    private Blob saveDeduplicated(Path targetFilePath, String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        String contentId = null;
+        long contentLength = -1;
+        String digestAsHexString = null;
+        if (payload.isRepeatable()) {
+            Pair<Long, String> digested = digest(payload, objectName);
+            contentLength = digested.getLeft();
+            digestAsHexString = digested.getRight();
+            contentId = contentStore.acquireExisting(digestAsHexString, contentLength, payload);
+        }
+        if (contentId == null) {
+            Path tempFile = contentStore.createTempFile();
+            try {
+                Pair<Long, String> written = write(payload, tempFile, objectName);
+                contentLength = written.getLeft();
+                digestAsHexString = written.getRight();
+                contentId = contentStore.acquire(tempFile, digestAsHexString);
+            } finally {
+                deleteQuietly(tempFile);
+            }
+        }
+        Path tempRefFile = contentStore.createTempFile();
+        try {
+            Files.writeString(tempRefFile, contentId, StandardCharsets.US_ASCII);
+            writeAttributes(tempRefFile, digestAsHexString, readableName, contentType, userDefinedAttributes,
+                    Map.of(IAttributeHandler.ATTR_CONTENT_REF, contentId));
+        } catch (IOException e) {
+            deleteQuietly(tempRefFile);
+            contentStore.release(contentId);
+            throw new IOErrorOccursException(
+                    String.format("Failed to write content reference for blob '%s' at path '%s'", objectName, targetFilePath), e);
+        }
+        Lock lock = objectFileLocks.get(targetFilePath);
+        lock.lock();
+        try {
+            String previousContentRef = contentReference(targetFilePath);
+            try {
+                // 扩展属性随文件一起移动，替换后对象立即指向新的内容
+                Files.move(tempRefFile, targetFilePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteQuietly(tempRefFile);
+                contentStore.release(contentId);
+                throw new IOErrorOccursException(
+                        String.format("Failed to write content reference for blob '%s' at path '%s'", objectName, targetFilePath), e);
+            }
+            if (previousContentRef != null) {
+                contentStore.release(previousContentRef);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Blob()
+                .setObjectName(objectName)
+                .setLastModified(Instant.now())
+                .setReadableName(readableName)
+                .setContentType(contentType)
+                .setLength(contentLength)
+                .setETag(digestAsHexString)
+                .setChecksum(digestAsHexString)
+                .setChecksumAlgorithm(SupportedChecksumAlgorithm.ALG_XXHASH_64);
+    }
+
+    /**
+     * 分块模式下保存对象：数据切分为块存放在分块存储中，对象文件只保存元数据和块清单。
+     * <p>
+     * 切分在调用线程中进行，块的摘要计算和写入并行执行；清单写入临时文件后原子替换对象文件。
+     * 被替换的清单引用的块由 {@link FileSystemChunkCollector} 回收。
+     */
+    private Blob saveChunked(Path targetFilePath, String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        MessageDigest messageDigest = new XXHash64MessageDigest();
+        List<FileSystemChunkStore.ChunkRef> chunks;
+        try (DigestInputStream digestInputStream = new DigestInputStream(payload.stream(), messageDigest)) {
+            chunks = chunkStore.write(digestInputStream);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to write chunks of blob '%s'", objectName), e);
+        }
+        long contentLength = chunks.stream().mapToLong(FileSystemChunkStore.ChunkRef::length).sum();
+        String digestAsHexString = BaseEncoding.base16().lowerCase().encode(messageDigest.digest());
+        Path tempManifestFile = contentStore.createTempFile();
+        try {
+            FileSystemChunkStore.writeManifest(tempManifestFile, chunks);
+            writeAttributes(tempManifestFile, digestAsHexString, readableName, contentType, userDefinedAttributes,
+                    Map.of(IAttributeHandler.ATTR_CONTENT_MANIFEST, FileSystemChunkStore.MANIFEST_VERSION,
+                            IAttributeHandler.ATTR_CONTENT_LENGTH, Long.toString(contentLength)));
+        } catch (IOException e) {
+            deleteQuietly(tempManifestFile);
+            throw new IOErrorOccursException(
+                    String.format("Failed to write chunk manifest for blob '%s' at path '%s'", objectName, targetFilePath), e);
+        }
+        Lock lock = objectFileLocks.get(targetFilePath);
+        lock.lock();
+        try {
+            String previousContentRef = contentReference(targetFilePath);
+            try {
+                Files.move(tempManifestFile, targetFilePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteQuietly(tempManifestFile);
+                throw new IOErrorOccursException(
+                        String.format("Failed to write chunk manifest for blob '%s' at path '%s'", objectName, targetFilePath), e);
+            }
+            // 替换去重模式下写入的引用文件时，释放对旧内容的引用
+            if (previousContentRef != null) {
+                contentStore.release(previousContentRef);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Blob()
+                .setObjectName(objectName)
+                .setLastModified(Instant.now())
+                .setReadableName(readableName)
+                .setContentType(contentType)
+                .setLength(contentLength)
+                .setETag(digestAsHexString)
+                .setChecksum(digestAsHexString)
+                .setChecksumAlgorithm(SupportedChecksumAlgorithm.ALG_XXHASH_64);
+    }
+
+    /**
+     * 将数据写入指定文件，同时计算 xxHash64 摘要
+     *
+     * @return 数据长度和十六进制摘要
+     */
+    private Pair<Long, String> write(Payload<?> payload, Path targetFilePath, String objectName) throws IOErrorOccursException {
         MessageDigest messageDigest = new XXHash64MessageDigest();
         try (BoundedInputStream boundedInputStream = BoundedInputStream.builder()
                 .setInputStream(payload.stream())
@@ -239,22 +856,33 @@ public class FileSystemBlobStore extends BlobStore {
                 .get();
              DigestInputStream digestInputStream = new DigestInputStream(boundedInputStream, messageDigest);
              FileOutputStream fos = new FileOutputStream(targetFilePath.toFile())) {
-            contentLength = digestInputStream.transferTo(fos);
-            digest = messageDigest.digest();
+            long contentLength = digestInputStream.transferTo(fos);
+            return Pair.of(contentLength, BaseEncoding.base16().lowerCase().encode(messageDigest.digest()));
         } catch (IOException e) {
             throw new IOErrorOccursException(
                     String.format("Failed to write blob data to file '%s' at path '%s'",
                             objectName, targetFilePath), e);
         }
-        String digestAsHexString = BaseEncoding.base16().lowerCase().encode(digest);
-        blob.setLength(contentLength)
-                .setETag(digestAsHexString)
-                .setChecksum(digestAsHexString)
-                .setChecksumAlgorithm(SupportedChecksumAlgorithm.ALG_XXHASH_64);
-        if (!userDefinedAttributes.isEmpty()) {
-            // 如果有用户自定义属性，写入到文件属性中
-            attributeHandler.writeUserDefinedAttributes(targetFilePath, userDefinedAttributes);
+    }
+
+    /**
+     * 只读取数据并计算 xxHash64 摘要，不写入任何内容
+     *
+     * @return 数据长度和十六进制摘要
+     */
+    private Pair<Long, String> digest(Payload<?> payload, String objectName) throws IOErrorOccursException {
+        MessageDigest messageDigest = new XXHash64MessageDigest();
+        try (DigestInputStream digestInputStream = new DigestInputStream(payload.stream(), messageDigest)) {
+            long contentLength = digestInputStream.transferTo(OutputStream.nullOutputStream());
+            return Pair.of(contentLength, BaseEncoding.base16().lowerCase().encode(messageDigest.digest()));
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to read blob data of '%s'", objectName), e);
         }
+    }
+
+    private void writeAttributes(Path targetFilePath, String digestAsHexString, String readableName, String contentType,
+                                 Map<String, String> userDefinedAttributes, Map<String, String> storageAttributes) {
         // 写入 metadata
         Map<String, String> metadataAttributes = new HashMap<>();
         metadataAttributes.put(IAttributeHandler.ATTR_ETAG, digestAsHexString);
@@ -262,35 +890,140 @@ public class FileSystemBlobStore extends BlobStore {
         metadataAttributes.put(IAttributeHandler.ATTR_CHECKSUM_ALGORITHM, SupportedChecksumAlgorithm.ALG_XXHASH_64);
         metadataAttributes.put(IAttributeHandler.ATTR_READABLE_FILENAME, readableName);
         metadataAttributes.put(IAttributeHandler.ATTR_CONTENT_TYPE, contentType);
-        attributeHandler.writeMetadataAttributes(targetFilePath, metadataAttributes);
-        return blob;
+        // 去重模式和分块模式下描述数据位置的属性
+        metadataAttributes.putAll(storageAttributes);
+        // 元数据和用户自定义属性一起写入，由实现合并写入操作
+        attributeHandler.writeAttributes(targetFilePath, metadataAttributes, userDefinedAttributes);
+    }
+
+    /**
+     * 读取对象文件引用的内容标识符，对象文件不存在或不是引用文件时返回 null
+     */
+    private String contentReference(Path filePath) {
+        if (!Files.isRegularFile(filePath)) {
+            return null;
+        }
+        return IAttributeHandler.parseContentRef(attributeHandler.readMetadataAttributes(filePath)).orElse(null);
+    }
+
+    /**
+     * 基础目录中是否可能存在引用文件或清单文件。从未启用去重和分块时不需要读取扩展属性，
+     * 部分平台上读取扩展属性需要启动外部进程
+     */
+    private boolean mayContainIndirectObjects() {
+        if (!indirectObjectsPossible && (contentStore.exists() || chunkStore.exists())) {
+            // 其他实例在同一目录中启用了去重或分块
+            indirectObjectsPossible = true;
+        }
+        return indirectObjectsPossible;
+    }
+
+    /**
+     * 检查对象文件是否是去重模式下的引用文件或分块模式下的清单文件
+     */
+    private boolean isIndirect(Path filePath) {
+        if (!Files.isRegularFile(filePath)) {
+            return false;
+        }
+        Map<String, String> metadata = attributeHandler.readMetadataAttributes(filePath);
+        return IAttributeHandler.parseContentRef(metadata).isPresent()
+                || IAttributeHandler.parseContentManifest(metadata).isPresent();
+    }
+
+    /**
+     * 删除对象文件，如果是引用文件则同时释放对内容的引用；清单文件引用的块由回收工具处理
+     */
+    private void deleteObjectFile(Path filePath, String objectName) throws GeneralPolyStashException {
+        Lock lock = objectFileLocks.get(filePath);
+        lock.lock();
+        try {
+            String contentRef = mayContainIndirectObjects() ? contentReference(filePath) : null;
+            try {
+                Files.deleteIfExists(filePath);
+            } catch (IOException e) {
+                throw new IOErrorOccursException(
+                        String.format("Failed to delete blob file '%s' at path '%s'", objectName, filePath), e);
+            }
+            if (contentRef != null) {
+                contentStore.release(contentRef);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
     }
 
     @Override
     public Blob stat(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false);
+        if (packed != null) {
+            return packed;
+        }
         Path filePath = objectCheck(objectName, true);
         return get(filePath, false)
                 .setObjectName(cleanObjectName(filePath));
     }
 
+    /**
+     * 对象不存在时返回空值，不构造异常
+     */
+    @Override
+    public Optional<Blob> tryStat(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false);
+        if (packed != null) {
+            return Optional.of(packed);
+        }
+        Path filePath = findObjectPath(objectName);
+        if (filePath == null) {
+            return Optional.empty();
+        }
+        return Optional.of(get(filePath, false)
+                .setObjectName(cleanObjectName(filePath)));
+    }
+
+    /**
+     * 对象不存在时返回空值，不构造异常
+     */
+    @Override
+    public Optional<Blob> tryGet(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, true);
+        if (packed != null) {
+            return Optional.of(packed);
+        }
+        Path filePath = findObjectPath(objectName);
+        if (filePath == null) {
+            return Optional.empty();
+        }
+        return Optional.of(get(filePath, true)
+                .setObjectName(cleanObjectName(filePath)));
+    }
+
     @Override
     public boolean exist(String objectName) throws GeneralPolyStashException {
-        try {
-            objectCheck(objectName, true);
-        } catch (BlobNotFoundException e) {
-            return false;
+        if (packStore != null && packStore.contains(packKey(objectName))) {
+            return true;
         }
-        // 其他原因导致的异常会立即抛出，如果没有抛出异常，说明对象存在
-        return true;
+        // 其他原因导致的异常会立即抛出
+        return findObjectPath(objectName) != null;
     }
 
     @Override
     public void remove(String objectName, boolean silent) throws GeneralPolyStashException {
         Path targetPath;
         try {
-            targetPath = objectCheck(objectName, true);
-        } catch (BlobNotFoundException e) {
-            return; // 如果对象不存在，直接返回
+            if (packStore != null && packStore.remove(packKey(objectName))) {
+                return;
+            }
+            targetPath = findObjectPath(objectName);
+            if (targetPath == null) {
+                return; // 如果对象不存在，直接返回
+            }
         } catch (Exception ex) {
             if (!silent) {
                 // 如果不是静默模式，抛出异常
@@ -299,29 +1032,143 @@ public class FileSystemBlobStore extends BlobStore {
             return;
         }
         try {
-            Files.delete(targetPath);
-        } catch (IOException e) {
+            deleteObjectFile(targetPath, objectName);
+        } catch (GeneralPolyStashException e) {
             if (!silent) {
-                throw new IOErrorOccursException(
-                        String.format("Failed to delete blob file '%s' at path '%s'", objectName, targetPath),
-                        e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 在异步接口的执行器中并行删除对象，同时删除的对象数不超过异步接口的并发上限
+     */
+    @Override
+    public List<RemoveResult> removeAll(Iterable<String> objectNames) {
+        BoundedAsyncExecutor executor = asyncExecutor();
+        List<RemoveResult> failures = new ArrayList<>();
+        List<Pair<String, CompletableFuture<Void>>> window = new ArrayList<>(REMOVE_BATCH_SIZE);
+        for (String objectName : objectNames) {
+            window.add(Pair.of(objectName, executor.submit(() -> {
+                remove(objectName, false);
+                return null;
+            })));
+            // 分批等待，避免一次性提交所有对象
+            if (window.size() == REMOVE_BATCH_SIZE) {
+                awaitRemovals(window, failures);
+                window.clear();
+            }
+        }
+        awaitRemovals(window, failures);
+        return failures;
+    }
+
+    private void awaitRemovals(List<Pair<String, CompletableFuture<Void>>> removals, List<RemoveResult> failures) {
+        for (Pair<String, CompletableFuture<Void>> removal : removals) {
+            try {
+                removal.getRight().join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                GeneralPolyStashException exception = cause instanceof GeneralPolyStashException polyStashException
+                        ? polyStashException
+                        : new IOErrorOccursException(String.format("Failed to remove blob '%s'", removal.getLeft()), cause);
+                failures.add(new RemoveResult(removal.getLeft(), exception));
             }
         }
     }
 
+    /**
+     * 直接遍历前缀目录和打包存储的索引得到对象名称，不读取对象的元数据
+     */
+    @Override
+    public List<RemoveResult> removePrefix(String prefix) throws GeneralPolyStashException {
+        Path targetPath = prefixCheck(prefix);
+        List<String> objectNames = new ArrayList<>();
+        if (packStore != null) {
+            objectNames.addAll(packStore.keys(this.baseDir.relativize(targetPath.normalize()).toString().replace("\\", "/"), true));
+        }
+        if (Files.isDirectory(targetPath)) {
+            for (Path filePath : listFiles(prefix, targetPath, ListOptions.withDefault())) {
+                objectNames.add(cleanObjectName(filePath));
+            }
+        }
+        return removeAll(objectNames);
+    }
+
+    /**
+     * 保存打包存储的索引并关闭段文件，停止后台线程
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        chunkStore.close();
+        if (packStore != null) {
+            packStore.close();
+        }
+    }
+
     @Override
     public Object _raw() {
         throw new UnsupportedOperationException("Raw blob store access is not supported in FileSystemBlobStore implementation.");
     }
 
-    private Blob get(Path filePath, boolean acquirePayload) {
+    private Blob get(Path filePath, boolean acquirePayload) throws GeneralPolyStashException {
         Map<String, String> metadata = attributeHandler.readMetadataAttributes(filePath);
         Map<String, String> userDefinedAttributes = attributeHandler.readUserDefinedAttributes(filePath);
         File file = filePath.toFile();
+        // 去重模式下对象文件只是引用，数据位于内容存储中
+        Optional<String> contentRef = IAttributeHandler.parseContentRef(metadata);
+        File dataFile = file;
+        if (IAttributeHandler.parseContentManifest(metadata).isPresent()) {
+            return getChunked(filePath, metadata, userDefinedAttributes, acquirePayload);
+        }
+        if (contentRef.isPresent()) {
+            dataFile = contentStore.resolve(contentRef.get()).toFile();
+            if (!dataFile.isFile()) {
+                throw new DataCorruptionException(
+                        String.format("Content '%s' referenced by '%s' is missing", contentRef.get(), filePath));
+            }
+        }
         Blob blob = new Blob()
                 .setRepeatable(true)
                 .setLastModified(Instant.ofEpochMilli(file.lastModified()))
-                .setLength(file.length())
+                .setLength(dataFile.length())
+                .setETag(IAttributeHandler.parseETag(metadata).orElse(null))
+                .setReadableName(IAttributeHandler.parseReadableFilename(metadata).orElse(null))
+                .setContentType(IAttributeHandler.parseContentType(metadata).orElse(null))
+                .setChecksum(IAttributeHandler.parseChecksum(metadata).orElse(null))
+                .setChecksumAlgorithm(IAttributeHandler.parseChecksumAlgorithm(metadata).orElse(null))
+                .setUserDefinedAttributes(userDefinedAttributes);
+        if (acquirePayload) {
+            blob.setPayload(new FilePayload(dataFile));
+        }
+        return blob;
+    }
+
+    /**
+     * 读取分块模式下保存的对象，数据长度取自扩展属性，只有获取数据时才读取块清单
+     */
+    private Blob getChunked(Path filePath, Map<String, String> metadata, Map<String, String> userDefinedAttributes,
+                            boolean acquirePayload) throws GeneralPolyStashException {
+        if (!FileSystemChunkStore.MANIFEST_VERSION.equals(IAttributeHandler.parseContentManifest(metadata).get())) {
+            throw new DataCorruptionException(
+                    String.format("Unsupported chunk manifest version of '%s'", filePath));
+        }
+        Optional<Long> contentLength = IAttributeHandler.parseContentLength(metadata);
+        FileSystemChunkedPayload payload = null;
+        // 缺少长度属性时同样需要读取清单
+        if (acquirePayload || contentLength.isEmpty()) {
+            try {
+                payload = new FileSystemChunkedPayload(filePath, chunkStore, FileSystemChunkStore.readManifest(filePath));
+            } catch (IOException e) {
+                throw new DataCorruptionException(
+                        String.format("Failed to read chunk manifest of '%s'", filePath), e);
+            }
+        }
+        Blob blob = new Blob()
+                .setRepeatable(true)
+                .setLastModified(Instant.ofEpochMilli(filePath.toFile().lastModified()))
+                .setLength(payload != null ? payload.length() : contentLength.get())
                 .setETag(IAttributeHandler.parseETag(metadata).orElse(null))
                 .setReadableName(IAttributeHandler.parseReadableFilename(metadata).orElse(null))
                 .setContentType(IAttributeHandler.parseContentType(metadata).orElse(null))
@@ -329,7 +1176,7 @@ public class FileSystemBlobStore extends BlobStore {
                 .setChecksumAlgorithm(IAttributeHandler.parseChecksumAlgorithm(metadata).orElse(null))
                 .setUserDefinedAttributes(userDefinedAttributes);
         if (acquirePayload) {
-            blob.setPayload(new FilePayload(file));
+            blob.setPayload(payload);
         }
         return blob;
     }
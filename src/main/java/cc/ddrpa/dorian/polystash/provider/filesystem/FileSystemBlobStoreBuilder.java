@@ -1,20 +1,25 @@
 package cc.ddrpa.dorian.polystash.provider.filesystem;
 
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
 import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
 import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
 import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import cc.ddrpa.dorian.polystash.utils.chunking.FastCDCChunker;
 import cc.ddrpa.dorian.polystash.utils.filesystem.IAttributeHandler;
 import cc.ddrpa.dorian.polystash.utils.filesystem.NOPHandler;
 import cc.ddrpa.dorian.polystash.utils.filesystem.UserDefinedFileAttributeViewHandler;
 import cc.ddrpa.dorian.polystash.utils.filesystem.XATTRHandler;
+import cc.ddrpa.dorian.polystash.utils.naming.ObjectNameGenerators;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Objects;
 
 /**
  * 文件系统 BlobStore 构建器，用于创建基于本地文件系统的存储实例。
@@ -27,6 +32,10 @@ import java.nio.file.Paths;
  *   <li>自动目录创建和管理</li>
  *   <li>文件属性扩展支持（用户定义属性、XATTR 等）</li>
  *   <li>路径安全验证</li>
+ *   <li>可选的哈希分片目录布局</li>
+ *   <li>可选的内容去重</li>
+ *   <li>可选的内容定义分块存储</li>
+ *   <li>可选的小对象打包存储</li>
  *   <li>跨平台兼容性</li>
  * </ul>
  *
@@ -44,6 +53,8 @@ public class FileSystemBlobStoreBuilder implements BlobStoreBuilder {
 
     private String blobStoreName;
     private FileSystemBlobStoreProperties properties;
+    private ObjectNameGenerator objectNameGenerator;
+    private int asyncConcurrency = BlobStore.DEFAULT_ASYNC_CONCURRENCY;
 
     /**
      * 设置 BlobStore 的名称。
@@ -74,6 +85,9 @@ public class FileSystemBlobStoreBuilder implements BlobStoreBuilder {
         FileSystemBlobStoreProperties properties = FileSystemBlobStoreProperties.validate(blobStoreName,
                 fullBlobStoreProperties);
         this.properties = properties;
+        this.objectNameGenerator = ObjectNameGenerators.create(fullBlobStoreProperties.getNameGenerator(),
+                fullBlobStoreProperties.getExtra());
+        this.asyncConcurrency = Objects.requireNonNullElse(fullBlobStoreProperties.getAsyncConcurrency(), BlobStore.DEFAULT_ASYNC_CONCURRENCY);
         return this;
     }
 
@@ -88,7 +102,7 @@ public class FileSystemBlobStoreBuilder implements BlobStoreBuilder {
      * </ul>
      * <p>
      * 如果基础目录不存在，将自动创建。如果基础目录路径指向文件而不是目录，
-     * 将抛出 OperationNotSupportedException。
+     * 将抛出 OperationNotSupportedException。启用去重模式或分块模式但文件系统不支持扩展属性时同样如此。
      *
      * @return 配置完成的 FileSystemBlobStore 实例
      * @throws GeneralPolyStashException      当构建过程失败时抛出
@@ -117,7 +131,28 @@ public class FileSystemBlobStoreBuilder implements BlobStoreBuilder {
         } else {
             attributeHandler = new NOPHandler();
         }
-        return new FileSystemBlobStore(blobStoreName, baseDir, attributeHandler);
+        if (properties.isDedup() && attributeHandler instanceof NOPHandler) {
+            // 去重模式依赖扩展属性区分引用文件和普通文件
+            throw new OperationNotSupportedException(
+                    String.format("dedup for FileSystemBlobStore '%s' without extended attribute support at %s", blobStoreName, baseDir));
+        }
+        if (properties.isChunking() && attributeHandler instanceof NOPHandler) {
+            // 分块模式依赖扩展属性区分清单文件和普通文件
+            throw new OperationNotSupportedException(
+                    String.format("chunking for FileSystemBlobStore '%s' without extended attribute support at %s", blobStoreName, baseDir));
+        }
+        FileSystemShardLayout layout = FileSystemShardLayout.of(properties.getShardDepth(), properties.getShardWidth());
+        FileSystemBlobStore blobStore = new FileSystemBlobStore(blobStoreName, baseDir, attributeHandler, layout,
+                properties.isDedup(), properties.isChunking(), properties.getChunkSize());
+        // 关闭打包后仍然需要读取已经打包的对象
+        if (properties.getPackThreshold() > 0 || FileSystemPackStore.exists(baseDir)) {
+            blobStore.openPackStore(properties.getPackThreshold(), properties.getPackSegmentSize());
+        }
+        if (objectNameGenerator != null) {
+            blobStore.replaceObjectNameGenerator(objectNameGenerator);
+        }
+        blobStore.limitAsyncConcurrency(asyncConcurrency);
+        return blobStore;
     }
 
     /**
@@ -135,5 +170,43 @@ public class FileSystemBlobStoreBuilder implements BlobStoreBuilder {
             throw new IllegalArgumentException(
                     String.format("文件系统 BlobStore '%s' 缺少必需的 'baseDir' 配置", blobStoreName));
         }
+        // 取值范围由 FileSystemShardLayout 检查，未设置的属性使用默认值
+        Integer shardDepth = properties.getShardDepth();
+        Integer shardWidth = properties.getShardWidth();
+        try {
+            FileSystemShardLayout.of(shardDepth == null ? 0 : shardDepth,
+                    shardWidth == null ? FileSystemShardLayout.FLAT.getWidth() : shardWidth);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 的 'shardDepth' 配置必须在 0 到 %d 之间，'shardWidth' 配置必须在 1 到 %d 之间",
+                            blobStoreName, FileSystemShardLayout.MAX_DEPTH, FileSystemShardLayout.MAX_WIDTH), e);
+        }
+        if (Boolean.TRUE.equals(properties.getDedup()) && Boolean.TRUE.equals(properties.getChunking())) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 不能同时启用 'dedup' 和 'chunking'", blobStoreName));
+        }
+        int chunkSize = Objects.requireNonNullElse(properties.getChunkSize(), FileSystemChunkStore.DEFAULT_AVERAGE_CHUNK_SIZE);
+        if (chunkSize < FastCDCChunker.MIN_AVERAGE_SIZE || chunkSize > FastCDCChunker.MAX_AVERAGE_SIZE
+                || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 的 'chunkSize' 配置必须是 %d 到 %d 之间的 2 的幂",
+                            blobStoreName, FastCDCChunker.MIN_AVERAGE_SIZE, FastCDCChunker.MAX_AVERAGE_SIZE));
+        }
+        int packThreshold = Objects.requireNonNullElse(properties.getPackThreshold(), 0);
+        long packSegmentSize = Objects.requireNonNullElse(properties.getPackSegmentSize(), FileSystemPackStore.DEFAULT_SEGMENT_SIZE);
+        if (packThreshold < 0 || packThreshold > FileSystemPackStore.MAX_THRESHOLD) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 的 'packThreshold' 配置必须在 0 到 %d 之间", blobStoreName, FileSystemPackStore.MAX_THRESHOLD));
+        }
+        if (packSegmentSize < FileSystemPackStore.MIN_SEGMENT_SIZE || packSegmentSize < 2L * packThreshold) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 的 'packSegmentSize' 配置不能小于 %d，且不能小于 'packThreshold' 的两倍",
+                            blobStoreName, FileSystemPackStore.MIN_SEGMENT_SIZE));
+        }
+        int asyncConcurrency = Objects.requireNonNullElse(properties.getAsyncConcurrency(), BlobStore.DEFAULT_ASYNC_CONCURRENCY);
+        if (asyncConcurrency < 1 || asyncConcurrency > BlobStore.MAX_ASYNC_CONCURRENCY) {
+            throw new IllegalArgumentException(
+                    String.format("文件系统 BlobStore '%s' 的 'asyncConcurrency' 配置必须在 1 到 %d 之间", blobStoreName, BlobStore.MAX_ASYNC_CONCURRENCY));
+        }
     }
 }
\ No newline at end of file
@@ -14,6 +14,34 @@ public class FileSystemBlobStoreProperties implements BlobStoreProperties {
      */
     private String qualifier;
     private String baseDir;
+    /**
+     * 分片目录的层级数，0 表示不分片
+     */
+    private int shardDepth = 0;
+    /**
+     * 每级分片目录名的十六进制字符数
+     */
+    private int shardWidth = 2;
+    /**
+     * 是否启用去重模式
+     */
+    private boolean dedup = false;
+    /**
+     * 是否启用分块存储模式
+     */
+    private boolean chunking = false;
+    /**
+     * 分块存储模式下的平均块长度
+     */
+    private int chunkSize = 512 * 1024;
+    /**
+     * 小对象打包阈值，0 表示不打包
+     */
+    private int packThreshold = 0;
+    /**
+     * 小对象打包模式下单个段文件的最大长度
+     */
+    private long packSegmentSize = 256L * 1024 * 1024;
 
     /**
      * NEED_CHECK 配置检查
@@ -30,6 +58,23 @@ public class FileSystemBlobStoreProperties implements BlobStoreProperties {
         }
         FileSystemBlobStoreProperties properties = new FileSystemBlobStoreProperties();
         properties.setBaseDir(fullProperties.getBaseDir());
+        if (fullProperties.getShardDepth() != null) {
+            properties.setShardDepth(fullProperties.getShardDepth());
+        }
+        if (fullProperties.getShardWidth() != null) {
+            properties.setShardWidth(fullProperties.getShardWidth());
+        }
+        properties.setDedup(Boolean.TRUE.equals(fullProperties.getDedup()));
+        properties.setChunking(Boolean.TRUE.equals(fullProperties.getChunking()));
+        if (fullProperties.getChunkSize() != null) {
+            properties.setChunkSize(fullProperties.getChunkSize());
+        }
+        if (fullProperties.getPackThreshold() != null) {
+            properties.setPackThreshold(fullProperties.getPackThreshold());
+        }
+        if (fullProperties.getPackSegmentSize() != null) {
+            properties.setPackSegmentSize(fullProperties.getPackSegmentSize());
+        }
         return properties;
     }
 
@@ -59,17 +104,73 @@ public class FileSystemBlobStoreProperties implements BlobStoreProperties {
         this.baseDir = baseDir;
     }
 
+    public int getShardDepth() {
+        return shardDepth;
+    }
+
+    public void setShardDepth(int shardDepth) {
+        this.shardDepth = shardDepth;
+    }
+
+    public int getShardWidth() {
+        return shardWidth;
+    }
+
+    public void setShardWidth(int shardWidth) {
+        this.shardWidth = shardWidth;
+    }
+
+    public boolean isDedup() {
+        return dedup;
+    }
+
+    public void setDedup(boolean dedup) {
+        this.dedup = dedup;
+    }
+
+    public boolean isChunking() {
+        return chunking;
+    }
+
+    public void setChunking(boolean chunking) {
+        this.chunking = chunking;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getPackThreshold() {
+        return packThreshold;
+    }
+
+    public void setPackThreshold(int packThreshold) {
+        this.packThreshold = packThreshold;
+    }
+
+    public long getPackSegmentSize() {
+        return packSegmentSize;
+    }
+
+    public void setPackSegmentSize(long packSegmentSize) {
+        this.packSegmentSize = packSegmentSize;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FileSystemBlobStoreProperties that = (FileSystemBlobStoreProperties) o;
-        return primary == that.primary && Objects.equals(qualifier, that.qualifier) && Objects.equals(baseDir, that.baseDir);
+        return primary == that.primary && Objects.equals(qualifier, that.qualifier) && Objects.equals(baseDir, that.baseDir) && shardDepth == that.shardDepth && shardWidth == that.shardWidth && dedup == that.dedup && chunking == that.chunking && chunkSize == that.chunkSize && packThreshold == that.packThreshold && packSegmentSize == that.packSegmentSize;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(primary, qualifier, baseDir);
+        return Objects.hash(primary, qualifier, baseDir, shardDepth, shardWidth, dedup, chunking, chunkSize, packThreshold, packSegmentSize);
     }
 
     @Override
@@ -78,6 +179,13 @@ public class FileSystemBlobStoreProperties implements BlobStoreProperties {
                 "primary=" + primary +
                 ", qualifier='" + qualifier + '\'' +
                 ", baseDir='" + baseDir + '\'' +
+                ", shardDepth=" + shardDepth +
+                ", shardWidth=" + shardWidth +
+                ", dedup=" + dedup +
+                ", chunking=" + chunking +
+                ", chunkSize=" + chunkSize +
+                ", packThreshold=" + packThreshold +
+                ", packSegmentSize=" + packSegmentSize +
                 '}';
     }
 }
\ No newline at end of file
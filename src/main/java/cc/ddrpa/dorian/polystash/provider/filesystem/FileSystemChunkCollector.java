@@ -0,0 +1,185 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.utils.filesystem.IAttributeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * 分块存储的垃圾回收工具，删除不再被任何对象清单引用的块。
+ * <p>
+ * 回收分为两个阶段：先遍历所有对象，收集块清单中引用的块（标记）；
+ * 再遍历块目录，删除未被引用且修改时间早于 {@code 回收开始时间 - 宽限期} 的块（清除）。
+ * <p>
+ * 回收期间存储可以继续提供服务：写入时复用已有的块会刷新其修改时间，
+ * 因此在标记之后才被引用的块不会被删除。宽限期应当大于单次写入的最长耗时。
+ * 标记期间被删除的对象和目录直接跳过，其他原因无法读取清单时放弃本次回收。
+ */
+public class FileSystemChunkCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemChunkCollector.class);
+
+    private final Path baseDir;
+    private final FileSystemChunkStore chunkStore;
+    private final IAttributeHandler attributeHandler;
+
+    FileSystemChunkCollector(Path baseDir, FileSystemChunkStore chunkStore, IAttributeHandler attributeHandler) {
+        this.baseDir = baseDir;
+        this.chunkStore = chunkStore;
+        this.attributeHandler = attributeHandler;
+    }
+
+    /**
+     * 为指定的 FileSystemBlobStore 创建回收工具
+     *
+     * @param blobStore 目标存储
+     * @return 回收工具
+     */
+    public static FileSystemChunkCollector forBlobStore(FileSystemBlobStore blobStore) {
+        return new FileSystemChunkCollector(blobStore.getBaseDir(), blobStore.getChunkStore(),
+                blobStore.getAttributeHandler());
+    }
+
+    /**
+     * 执行一次垃圾回收
+     *
+     * @param gracePeriod 宽限期，修改时间在此期间内的块即使未被引用也会保留
+     * @return 回收结果
+     * @throws GeneralPolyStashException 遍历目录失败时抛出，此时不会删除任何块
+     */
+    public Report collect(Duration gracePeriod) throws GeneralPolyStashException {
+        Instant threshold = Instant.now().minus(gracePeriod);
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        Set<String> referenced = new HashSet<>();
+        long[] manifests = {0};
+        try {
+            Files.walkFileTree(baseDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // 跳过存储内部使用的保留目录
+                    return baseDir.relativize(dir).startsWith(FileSystemContentStore.RESERVED_DIR)
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path filePath, BasicFileAttributes attrs) throws IOException {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    Map<String, String> metadata = attributeHandler.readMetadataAttributes(filePath);
+                    if (IAttributeHandler.parseContentManifest(metadata).isEmpty()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        FileSystemChunkStore.readManifest(filePath)
+                                .forEach(chunk -> referenced.add(chunk.hash()));
+                        manifests[0]++;
+                    } catch (NoSuchFileException e) {
+                        // 遍历期间被删除的对象不再引用任何块
+                    } catch (IOException e) {
+                        // 无法读取的清单可能引用了任何块，放弃本次清除
+                        throw new IOException(String.format("Failed to read chunk manifest '%s'", filePath), e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                    if (e instanceof NoSuchFileException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    // 遍历期间被删除的目录中的对象同样不再引用任何块
+                    if (e == null || e instanceof NoSuchFileException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            throw new IOErrorOccursException(
+                    String.format("IO error occurred while scanning chunk manifests under '%s', collection aborted", baseDir), e);
+        }
+
+        long scanned = 0;
+        long removed = 0;
+        long reclaimedBytes = 0;
+        Path chunksDir = chunkStore.getChunksDir();
+        if (Files.isDirectory(chunksDir)) {
+            try (Stream<Path> walkStream = Files.walk(chunksDir)) {
+                Iterator<Path> iterator = walkStream
+                        .filter(Files::isRegularFile)
+                        .filter(path -> FileSystemChunkStore.isChunkFileName(path.getFileName().toString()))
+                        .iterator();
+                while (iterator.hasNext()) {
+                    Path chunkPath = iterator.next();
+                    scanned++;
+                    String hash = chunkPath.getFileName().toString();
+                    if (referenced.contains(hash)) {
+                        continue;
+                    }
+                    Lock lock = chunkStore.lockFor(hash);
+                    lock.lock();
+                    try {
+                        // 持有锁后重新检查修改时间，写入线程可能刚刚复用了这个块
+                        if (!Files.getLastModifiedTime(chunkPath).toInstant().isAfter(threshold)) {
+                            long size = Files.size(chunkPath);
+                            Files.delete(chunkPath);
+                            removed++;
+                            reclaimedBytes += size;
+                        }
+                    } catch (IOException e) {
+                        failures.put(baseDir.relativize(chunkPath).toString(), e);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                throw new IOErrorOccursException(
+                        String.format("IO error occurred while sweeping chunks under '%s'", chunksDir), e);
+            }
+        }
+        Report report = new Report(manifests[0], scanned, removed, reclaimedBytes, Map.copyOf(failures));
+        logger.info("Chunk collection under '{}' finished: {}", baseDir, report);
+        return report;
+    }
+
+    /**
+     * 回收结果
+     *
+     * @param manifests      扫描到的块清单数
+     * @param scanned        扫描到的块数
+     * @param removed        被删除的块数
+     * @param reclaimedBytes 释放的字节数
+     * @param failures       删除失败的块（相对于 baseDir 的路径）及原因
+     */
+    public record Report(long manifests, long scanned, long removed, long reclaimedBytes,
+                         Map<String, Exception> failures) {
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+    }
+}
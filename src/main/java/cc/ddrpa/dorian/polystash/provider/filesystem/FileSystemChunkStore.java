@@ -0,0 +1,386 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.utils.chunking.FastCDCChunker;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Striped;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+/**
+ * 文件系统分块存储，为分块模式保存按内容定义切分的数据块。
+ * <p>
+ * 数据由 {@link FastCDCChunker} 切分，每个块按 SHA-256 摘要存放在
+ * {@code <baseDir>/.polystash/chunks/ab/cd/<sha256>} 中，相同的块只保存一次。
+ * 对象文件是一份清单（manifest），按顺序列出组成对象的块及其长度。
+ * <p>
+ * 块的摘要计算和写入在有界的线程池中并行执行，同时在途的块数受到限制，
+ * 内存占用不超过 {@code 在途块数 × 最大块长度}。读取时按顺序返回块数据，
+ * 并预先加载后续若干个块。
+ * <p>
+ * 块没有引用计数，由 {@link FileSystemChunkCollector} 通过标记-清除回收。
+ * 写入时复用已有的块会刷新其修改时间，回收只删除超过宽限期的块，
+ * 并与写入共享按摘要划分的分段锁，避免删除正在被引用的块。
+ */
+class FileSystemChunkStore {
+
+    static final String MANIFEST_HEADER = "polystash-chunk-manifest 1";
+    static final String MANIFEST_VERSION = "1";
+    static final int DEFAULT_AVERAGE_CHUNK_SIZE = 512 * 1024;
+    static final int DEFAULT_PARALLELISM = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    static final int DEFAULT_READ_AHEAD = 4;
+
+    private static final Pattern CHUNK_HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final Path chunksDir;
+    private final Path tempDir;
+    private final int averageChunkSize;
+    private final int parallelism;
+    private final int readAhead;
+    private final Striped<Lock> locks = Striped.lock(256);
+    private volatile ExecutorService executor;
+
+    /**
+     * 构造函数
+     *
+     * @param baseDir          存储根目录
+     * @param averageChunkSize 平均块长度
+     * @param parallelism      并行计算摘要和读写块的线程数
+     * @param readAhead        读取时预先加载的块数
+     */
+    FileSystemChunkStore(Path baseDir, int averageChunkSize, int parallelism, int readAhead) {
+        Path reservedDir = baseDir.resolve(FileSystemContentStore.RESERVED_DIR);
+        this.chunksDir = reservedDir.resolve("chunks");
+        this.tempDir = reservedDir.resolve("tmp");
+        this.averageChunkSize = averageChunkSize;
+        this.parallelism = parallelism;
+        this.readAhead = readAhead;
+    }
+
+    Path getChunksDir() {
+        return chunksDir;
+    }
+
+    /**
+     * 是否已经写入过数据块，块目录在第一次写入时创建
+     */
+    boolean exists() {
+        return Files.isDirectory(chunksDir);
+    }
+
+    Lock lockFor(String hash) {
+        return locks.get(hash);
+    }
+
+    /**
+     * 获取块的存放路径
+     *
+     * @param hash 块的 SHA-256 摘要
+     * @return 块文件路径
+     * @throws IllegalArgumentException 当摘要格式无效时抛出
+     */
+    Path chunkPath(String hash) {
+        if (!CHUNK_HASH_PATTERN.matcher(hash).matches()) {
+            throw new IllegalArgumentException(String.format("Invalid chunk hash '%s'", hash));
+        }
+        return chunksDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * 检查文件名是否为块文件
+     */
+    static boolean isChunkFileName(String fileName) {
+        return CHUNK_HASH_PATTERN.matcher(fileName).matches();
+    }
+
+    private ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    current = Executors.newFixedThreadPool(parallelism, runnable -> {
+                        Thread thread = new Thread(runnable, "polystash-chunk-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 停止读写块使用的线程池
+     */
+    void close() {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * 将数据切分为块并写入存储，已经存在的块不会重复写入。
+     *
+     * @param inputStream 数据，由调用方负责关闭
+     * @return 按顺序排列的块
+     * @throws IOException 读取数据或写入块失败时抛出
+     */
+    List<ChunkRef> write(InputStream inputStream) throws IOException {
+        FastCDCChunker chunker = new FastCDCChunker(inputStream, averageChunkSize);
+        // 限制在途的块数，避免读取速度远快于写入速度时占用大量内存
+        Semaphore inflight = new Semaphore(parallelism * 2);
+        List<Future<ChunkRef>> futures = new ArrayList<>();
+        try {
+            byte[] chunk;
+            while ((chunk = chunker.next()) != null) {
+                inflight.acquire();
+                byte[] data = chunk;
+                try {
+                    futures.add(executor().submit(() -> {
+                        try {
+                            return writeChunk(data);
+                        } finally {
+                            inflight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inflight.release();
+                    throw e;
+                }
+            }
+            List<ChunkRef> chunks = new ArrayList<>(futures.size());
+            for (Future<ChunkRef> future : futures) {
+                chunks.add(future.get());
+            }
+            return chunks;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new InterruptedIOException("Interrupted while writing chunks");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to write chunk", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private ChunkRef writeChunk(byte[] data) throws IOException {
+        String hash = sha256(data, data.length);
+        Path chunkPath = chunkPath(hash);
+        Lock lock = lockFor(hash);
+        lock.lock();
+        try {
+            if (Files.isRegularFile(chunkPath) && Files.size(chunkPath) == data.length) {
+                // 刷新修改时间，防止正在进行的回收删除这个块
+                Files.setLastModifiedTime(chunkPath, FileTime.fromMillis(System.currentTimeMillis()));
+                return new ChunkRef(hash, data.length);
+            }
+            Files.createDirectories(chunkPath.getParent());
+            Files.createDirectories(tempDir);
+            Path tempFile = tempDir.resolve(UUID.randomUUID().toString());
+            try {
+                Files.write(tempFile, data);
+                Files.move(tempFile, chunkPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return new ChunkRef(hash, data.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] readChunk(ChunkRef chunkRef) throws IOException {
+        byte[] data = Files.readAllBytes(chunkPath(chunkRef.hash()));
+        if (data.length != chunkRef.length() || !sha256(data, data.length).equals(chunkRef.hash())) {
+            throw new IOException(String.format("Chunk '%s' is corrupted", chunkRef.hash()));
+        }
+        return data;
+    }
+
+    /**
+     * 按顺序读取块数据，并预先加载后续的块
+     *
+     * @param chunks 按顺序排列的块
+     * @return 输入流
+     */
+    InputStream open(List<ChunkRef> chunks) {
+        return new ChunkInputStream(chunks.iterator());
+    }
+
+    /**
+     * 写入清单文件
+     */
+    static void writeManifest(Path manifestPath, List<ChunkRef> chunks) throws IOException {
+        StringBuilder builder = new StringBuilder(MANIFEST_HEADER).append('\n');
+        for (ChunkRef chunk : chunks) {
+            builder.append(chunk.hash()).append(' ').append(chunk.length()).append('\n');
+        }
+        Files.writeString(manifestPath, builder, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 读取清单文件
+     */
+    static List<ChunkRef> readManifest(Path manifestPath) throws IOException {
+        List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.US_ASCII);
+        if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_HEADER)) {
+            throw new IOException(String.format("Invalid chunk manifest '%s'", manifestPath));
+        }
+        List<ChunkRef> chunks = new ArrayList<>(lines.size() - 1);
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int index = line.indexOf(' ');
+            try {
+                String hash = line.substring(0, index);
+                if (!isChunkFileName(hash)) {
+                    throw new IOException(String.format("Invalid chunk hash '%s' in manifest '%s'", hash, manifestPath));
+                }
+                chunks.add(new ChunkRef(hash, Integer.parseInt(line.substring(index + 1))));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IOException(String.format("Invalid line '%s' in chunk manifest '%s'", line, manifestPath), e);
+            }
+        }
+        return chunks;
+    }
+
+    private static String sha256(byte[] data, int length) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(data, 0, length);
+            return BaseEncoding.base16().lowerCase().encode(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * 清单中的一个块
+     *
+     * @param hash   块的 SHA-256 摘要
+     * @param length 块长度
+     */
+    record ChunkRef(String hash, int length) {
+    }
+
+    /**
+     * 按顺序返回块数据的输入流，后台线程预先加载后续的块
+     */
+    private class ChunkInputStream extends InputStream {
+
+        private final Iterator<ChunkRef> chunkIterator;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] current = new byte[0];
+        private int position = 0;
+        private boolean closed = false;
+
+        ChunkInputStream(Iterator<ChunkRef> chunkIterator) {
+            this.chunkIterator = chunkIterator;
+        }
+
+        private void schedule() {
+            while (pending.size() < Math.max(readAhead, 1) && chunkIterator.hasNext()) {
+                ChunkRef chunkRef = chunkIterator.next();
+                pending.addLast(executor().submit(() -> readChunk(chunkRef)));
+            }
+        }
+
+        /**
+         * 当前块读完时切换到下一个块，没有更多数据时返回 false
+         */
+        private boolean advance() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (position >= current.length) {
+                schedule();
+                Future<byte[]> next = pending.pollFirst();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.get();
+                    position = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading chunk");
+                } catch (ExecutionException | CancellationException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    if (cause instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    throw new IOException("Failed to read chunk", cause);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!advance()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current.length - position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 分块模式下的对象载荷，内容是对象的块清单文件。
+ * <p>
+ * 块列表在获取对象时读取，之后对象被替换也不影响本载荷。每次调用 {@link #stream()}
+ * 都按顺序返回各个块的数据并预先加载后续的块，读取时会校验每个块的长度和摘要。
+ */
+public class FileSystemChunkedPayload extends Payload<Path> {
+
+    private final FileSystemChunkStore chunkStore;
+    private final List<FileSystemChunkStore.ChunkRef> chunks;
+    private final long length;
+
+    FileSystemChunkedPayload(Path manifestPath, FileSystemChunkStore chunkStore,
+                             List<FileSystemChunkStore.ChunkRef> chunks) {
+        super(manifestPath);
+        this.chunkStore = chunkStore;
+        this.chunks = List.copyOf(chunks);
+        this.length = chunks.stream().mapToLong(FileSystemChunkStore.ChunkRef::length).sum();
+    }
+
+    /**
+     * 对象的数据长度
+     */
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public InputStream stream() {
+        return chunkStore.open(chunks);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+}
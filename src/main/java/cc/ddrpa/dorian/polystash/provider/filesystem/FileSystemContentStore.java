@@ -0,0 +1,233 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.DataCorruptionException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+/**
+ * 文件系统内容寻址存储，为去重模式保存每份内容的唯一物理副本。
+ * <p>
+ * 内容按 xxHash64 摘要存放在 {@code <baseDir>/.polystash/cas/ab/cd/<hash>} 中，
+ * 每份内容旁边有一个 {@code <hash>.refs} 文件记录引用计数。
+ * xxHash64 不是密码学哈希，因此摘要相同时会逐字节比较内容，
+ * 内容不同的碰撞条目依次使用 {@code <hash>-1}、{@code <hash>-2} 等名称。
+ * <p>
+ * 同一摘要下的所有操作通过分段锁串行化。引用计数总是先增加后减少：
+ * 进程崩溃时最坏的结果是某份内容无法被回收，而不会丢失仍被引用的内容。
+ */
+class FileSystemContentStore {
+
+    /**
+     * 存储内部使用的保留目录，位于 baseDir 下，不能作为对象名称的一部分
+     */
+    static final String RESERVED_DIR = ".polystash";
+
+    private static final Pattern CONTENT_ID_PATTERN = Pattern.compile("^[0-9a-f]{16}(-[1-9][0-9]*)?$");
+    private static final String REFS_SUFFIX = ".refs";
+
+    private final Path casDir;
+    private final Path tempDir;
+    private final Striped<Lock> locks = Striped.lock(256);
+
+    FileSystemContentStore(Path baseDir) {
+        Path reservedDir = baseDir.resolve(RESERVED_DIR);
+        this.casDir = reservedDir.resolve("cas");
+        this.tempDir = reservedDir.resolve("tmp");
+    }
+
+    /**
+     * 是否已经收录过内容，内容目录在第一次收录时创建
+     */
+    boolean exists() {
+        return Files.isDirectory(casDir);
+    }
+
+    /**
+     * 创建一个用于写入数据的临时文件，与内容存放在同一文件系统中以便原子移动
+     */
+    Path createTempFile() throws IOErrorOccursException {
+        try {
+            Files.createDirectories(tempDir);
+            return tempDir.resolve(UUID.randomUUID().toString());
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to create temporary directory '%s'", tempDir), e);
+        }
+    }
+
+    /**
+     * 获取内容标识符对应的数据文件
+     *
+     * @param contentId 内容标识符
+     * @return 数据文件路径
+     * @throws DataCorruptionException 当内容标识符格式无效时抛出
+     */
+    Path resolve(String contentId) throws DataCorruptionException {
+        if (contentId == null || !CONTENT_ID_PATTERN.matcher(contentId).matches()) {
+            throw new DataCorruptionException(
+                    String.format("Invalid content reference '%s'", contentId));
+        }
+        return casDir.resolve(contentId.substring(0, 2))
+                .resolve(contentId.substring(2, 4))
+                .resolve(contentId);
+    }
+
+    /**
+     * 尝试为可重复读取的数据找到已有的相同内容并增加引用计数，找到时不需要写入任何数据
+     *
+     * @param hash    数据的 xxHash64 摘要
+     * @param length  数据长度
+     * @param payload 可重复读取的数据
+     * @return 已有内容的标识符，不存在相同内容时返回 null
+     */
+    String acquireExisting(String hash, long length, Payload<?> payload) throws GeneralPolyStashException {
+        Lock lock = locks.get(hash);
+        lock.lock();
+        try {
+            for (int n = 0; ; n++) {
+                String contentId = contentId(hash, n);
+                Path candidate = resolve(contentId);
+                if (!Files.exists(candidate)) {
+                    return null;
+                }
+                if (Files.size(candidate) == length && sameContent(payload, candidate)) {
+                    incrementReferences(candidate);
+                    return contentId;
+                }
+            }
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to look up content with hash '%s'", hash), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 将临时文件中的数据加入存储：已有相同内容时增加其引用计数并删除临时文件，
+     * 否则把临时文件移动为新的内容条目。
+     *
+     * @param tempFile 保存数据的临时文件，调用后不再可用
+     * @param hash     数据的 xxHash64 摘要
+     * @return 内容标识符
+     */
+    String acquire(Path tempFile, String hash) throws GeneralPolyStashException {
+        Lock lock = locks.get(hash);
+        lock.lock();
+        try {
+            long length = Files.size(tempFile);
+            for (int n = 0; ; n++) {
+                String contentId = contentId(hash, n);
+                Path candidate = resolve(contentId);
+                if (!Files.exists(candidate)) {
+                    Files.createDirectories(candidate.getParent());
+                    writeReferences(candidate, 1);
+                    Files.move(tempFile, candidate, StandardCopyOption.ATOMIC_MOVE);
+                    return contentId;
+                }
+                if (Files.size(candidate) == length && Files.mismatch(tempFile, candidate) == -1L) {
+                    incrementReferences(candidate);
+                    Files.delete(tempFile);
+                    return contentId;
+                }
+            }
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to store content with hash '%s'", hash), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 减少内容的引用计数，计数归零时删除内容
+     *
+     * @param contentId 内容标识符
+     */
+    void release(String contentId) throws GeneralPolyStashException {
+        Path contentPath = resolve(contentId);
+        Lock lock = locks.get(hashOf(contentId));
+        lock.lock();
+        try {
+            long references = readReferences(contentPath) - 1;
+            if (references > 0) {
+                writeReferences(contentPath, references);
+            } else {
+                Files.deleteIfExists(contentPath);
+                Files.deleteIfExists(refsPath(contentPath));
+            }
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to release content '%s'", contentId), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 读取内容的引用计数，内容不存在时返回 0
+     */
+    long references(String contentId) throws GeneralPolyStashException {
+        try {
+            return readReferences(resolve(contentId));
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to read references of content '%s'", contentId), e);
+        }
+    }
+
+    private static String contentId(String hash, int n) {
+        return n == 0 ? hash : hash + "-" + n;
+    }
+
+    private static String hashOf(String contentId) {
+        int index = contentId.indexOf('-');
+        return index < 0 ? contentId : contentId.substring(0, index);
+    }
+
+    private static boolean sameContent(Payload<?> payload, Path candidate) throws IOException {
+        try (InputStream expected = payload.stream();
+             InputStream actual = Files.newInputStream(candidate)) {
+            return IOUtils.contentEquals(expected, actual);
+        }
+    }
+
+    private static Path refsPath(Path contentPath) {
+        return contentPath.resolveSibling(contentPath.getFileName() + REFS_SUFFIX);
+    }
+
+    private void incrementReferences(Path contentPath) throws IOException {
+        writeReferences(contentPath, readReferences(contentPath) + 1);
+    }
+
+    private static long readReferences(Path contentPath) throws IOException {
+        try {
+            return Long.parseLong(Files.readString(refsPath(contentPath), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Corrupted reference count file for '%s'", contentPath), e);
+        }
+    }
+
+    private void writeReferences(Path contentPath, long references) throws IOException {
+        Files.createDirectories(tempDir);
+        Path tempRefs = tempDir.resolve(UUID.randomUUID() + REFS_SUFFIX);
+        Files.writeString(tempRefs, Long.toString(references), StandardCharsets.US_ASCII);
+        Files.move(tempRefs, refsPath(contentPath), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,812 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.core.exception.DataCorruptionException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 文件系统小对象打包存储，参考 Haystack 的设计将小对象追加写入大的段文件。
+ * <p>
+ * 每个对象是段文件中的一条记录，记录包含对象名称、元数据、用户自定义属性和数据，
+ * 并以 CRC32C 校验和结尾。内存中的索引记录每个对象所在的段和偏移量，
+ * 读取对象只需要一次定位读取，不需要打开文件或读取扩展属性。
+ * <p>
+ * 删除和覆盖通过追加墓碑记录或新记录完成，旧记录成为垃圾；
+ * 已封存的段中垃圾比例超过阈值时，后台线程把其中仍然有效的记录复制到活动段，再删除旧段。
+ * <p>
+ * 索引在关闭和压缩后保存为快照，快照记录了已覆盖的日志位置。启动时先加载快照，
+ * 再重放快照之后追加的记录；快照缺失或无效时从头扫描所有段。
+ * 末尾因进程崩溃而不完整的记录会被截断。
+ * <p>
+ * 打开时对打包目录中的锁文件加排他锁，同一目录只能由一个存储实例写入，
+ * 其他进程或同一进程中的其他实例打开时立即失败。
+ */
+class FileSystemPackStore implements Closeable {
+
+    static final long DEFAULT_SEGMENT_SIZE = 256L * 1024 * 1024;
+    static final int MAX_THRESHOLD = 16 * 1024 * 1024;
+    static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * 已封存的段中垃圾比例超过该值时触发压缩
+     */
+    static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemPackStore.class);
+
+    private static final int RECORD_MAGIC = 0x50534b31;
+    private static final int SNAPSHOT_MAGIC = 0x50534b49;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    /**
+     * magic(4) + type(1) + lastModified(8) + keyLength(4) + metadataLength(4) + dataLength(4)
+     */
+    private static final int HEADER_LENGTH = 25;
+    private static final int CHECKSUM_LENGTH = 4;
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("^(\\d{10})\\.pack$");
+    private static final String SNAPSHOT_FILE = "index";
+    private static final String LOCK_FILE = "lock";
+
+    private final Path packsDir;
+    private final long segmentSize;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> channels = new ConcurrentSkipListMap<>();
+    private final Map<Integer, AtomicLong> liveBytes = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final ExecutorService compactionExecutor;
+    /**
+     * 打包目录的排他锁，随存储一起释放
+     */
+    private final FileLock directoryLock;
+    private int activeSegment;
+    private long activePosition;
+    private volatile boolean closed = false;
+
+    /**
+     * 打开或创建打包存储，加载索引
+     *
+     * @param baseDir     存储根目录
+     * @param segmentSize 段文件的最大长度，超过后写入新的段
+     */
+    FileSystemPackStore(Path baseDir, long segmentSize) throws GeneralPolyStashException {
+        this.packsDir = baseDir.resolve(FileSystemContentStore.RESERVED_DIR).resolve("packs");
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(packsDir);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to open pack store at '%s'", packsDir), e);
+        }
+        this.directoryLock = lockDirectory(packsDir);
+        try {
+            load();
+        } catch (IOException e) {
+            closeChannels();
+            releaseDirectoryLock();
+            throw new IOErrorOccursException(
+                    String.format("Failed to open pack store at '%s'", packsDir), e);
+        }
+        this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "polystash-pack-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 对打包目录加排他锁，其他进程或同一进程中的其他实例已经持有锁时立即失败
+     */
+    private static FileLock lockDirectory(Path packsDir) throws IOErrorOccursException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(packsDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 同一进程中的其他实例持有锁
+                lock = null;
+            }
+            if (lock == null) {
+                channel.close();
+                throw new IOErrorOccursException(
+                        String.format("Pack store at '%s' is already opened by another process or blob store instance", packsDir));
+            }
+            return lock;
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to lock pack store at '%s'", packsDir), e);
+        }
+    }
+
+    private void releaseDirectoryLock() {
+        try {
+            // 关闭通道同时释放锁
+            directoryLock.channel().close();
+        } catch (IOException e) {
+            logger.warn("Failed to release lock of pack store '{}': {}", packsDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 检查存储根目录下是否存在打包存储
+     */
+    static boolean exists(Path baseDir) {
+        return Files.isDirectory(baseDir.resolve(FileSystemContentStore.RESERVED_DIR).resolve("packs"));
+    }
+
+    boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * 列举指定前缀下的对象名称
+     *
+     * @param prefix    规范化的前缀，空字符串表示全部
+     * @param recursive 是否包含子目录中的对象
+     */
+    List<String> keys(String prefix, boolean recursive) {
+        String directory = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        List<String> keys = new ArrayList<>();
+        for (String key : index.keySet()) {
+            if (key.startsWith(directory) && (recursive || key.indexOf('/', directory.length()) < 0)) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * 追加写入一个对象
+     *
+     * @param key                   规范化的对象名称
+     * @param metadata              元数据
+     * @param userDefinedAttributes 用户自定义属性
+     * @param data                  数据
+     * @return 对象的修改时间
+     */
+    long put(String key, Map<String, String> metadata, Map<String, String> userDefinedAttributes, byte[] data)
+            throws GeneralPolyStashException {
+        long lastModified = System.currentTimeMillis();
+        ByteBuffer record = encode(TYPE_PUT, key, lastModified, encodeAttributes(metadata, userDefinedAttributes), data);
+        Entry previous;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            Entry entry = append(record);
+            previous = index.put(key, entry);
+            release(previous);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to append blob '%s' to pack store '%s'", key, packsDir), e);
+        } finally {
+            writeLock.unlock();
+        }
+        if (previous != null) {
+            scheduleCompaction(previous.segment());
+        }
+        return lastModified;
+    }
+
+    /**
+     * 删除一个对象，对象不存在时不做任何操作
+     *
+     * @return 对象是否存在
+     */
+    boolean remove(String key) throws GeneralPolyStashException {
+        if (!index.containsKey(key)) {
+            return false;
+        }
+        Entry previous;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            previous = index.get(key);
+            if (previous == null) {
+                return false;
+            }
+            // 墓碑只用于重放，从写入起就计为垃圾
+            release(append(encode(TYPE_DELETE, key, System.currentTimeMillis(), new byte[0], new byte[0])));
+            index.remove(key);
+            release(previous);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to remove blob '%s' from pack store '%s'", key, packsDir), e);
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleCompaction(previous.segment());
+        return true;
+    }
+
+    /**
+     * 读取一个对象，只需要一次定位读取
+     *
+     * @return 对象，不存在时返回 null
+     */
+    PackedObject read(String key) throws GeneralPolyStashException {
+        // 压缩可能在读取期间移动记录并关闭旧段，此时按新的位置重试
+        for (int attempt = 0; ; attempt++) {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            try {
+                FileChannel channel = openChannel(entry.segment());
+                if (channel == null) {
+                    throw new ClosedChannelException();
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+                readFully(channel, buffer, entry.offset());
+                Record record = decode(buffer);
+                if (record == null || record.type() != TYPE_PUT || !record.key().equals(key)) {
+                    throw new DataCorruptionException(
+                            String.format("Corrupted pack record for blob '%s' in segment %d at offset %d",
+                                    key, entry.segment(), entry.offset()));
+                }
+                return record.toPackedObject();
+            } catch (ClosedByInterruptException e) {
+                throw new IOErrorOccursException(
+                        String.format("Interrupted while reading blob '%s' from pack store '%s'", key, packsDir), e);
+            } catch (ClosedChannelException | NoSuchFileException e) {
+                if (closed || attempt >= 3 || index.get(key) == entry) {
+                    throw new IOErrorOccursException(
+                            String.format("Pack segment %d of blob '%s' is not available", entry.segment(), key), e);
+                }
+            } catch (IOException e) {
+                throw new IOErrorOccursException(
+                        String.format("Failed to read blob '%s' from pack store '%s'", key, packsDir), e);
+            }
+        }
+    }
+
+    /**
+     * 压缩垃圾比例不低于指定值的已封存段
+     *
+     * @param garbageRatio 垃圾比例阈值，0 表示压缩所有包含垃圾的段
+     * @return 释放的字节数
+     */
+    long compact(double garbageRatio) throws GeneralPolyStashException {
+        long reclaimed = 0;
+        for (int segment : compactionCandidates(garbageRatio)) {
+            reclaimed += compactSegment(segment);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 产生垃圾的段是已封存的段且垃圾比例超过阈值时，在后台执行压缩；已有压缩任务等待执行时不重复提交
+     */
+    private void scheduleCompaction(int segment) {
+        if (closed || segment == activeSegment || garbageRatio(segment) < COMPACTION_GARBAGE_RATIO
+                || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        compactionExecutor.execute(() -> {
+            compactionScheduled.set(false);
+            try {
+                long reclaimed = compact(COMPACTION_GARBAGE_RATIO);
+                logger.debug("Pack compaction under '{}' reclaimed {} bytes", packsDir, reclaimed);
+            } catch (GeneralPolyStashException e) {
+                if (!closed) {
+                    logger.warn("Pack compaction under '{}' failed: {}", packsDir, e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private List<Integer> compactionCandidates(double garbageRatio) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int segment : channels.keySet()) {
+            if (segment != activeSegment && garbageRatio(segment) >= garbageRatio) {
+                candidates.add(segment);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 计算段中垃圾所占的比例，空段的比例为 1，没有垃圾或段不可用时为 0
+     */
+    private double garbageRatio(int segment) {
+        FileChannel channel = channels.get(segment);
+        if (channel == null) {
+            return 0;
+        }
+        try {
+            long size = channel.size();
+            long live = liveBytes.getOrDefault(segment, new AtomicLong()).get();
+            if (size == 0) {
+                return 1;
+            }
+            return size > live ? (double) (size - live) / size : 0;
+        } catch (IOException e) {
+            // 段正在被压缩或已关闭
+            return 0;
+        }
+    }
+
+    private long compactSegment(int segment) throws GeneralPolyStashException {
+        FileChannel channel = channels.get(segment);
+        if (channel == null) {
+            return 0;
+        }
+        try {
+            long size = channel.size();
+            // 最早的段之前不再有记录，其中的墓碑可以丢弃
+            boolean oldest = channels.keySet().iterator().next() == segment;
+            long position = 0;
+            while (position < size) {
+                ByteBuffer record = readRecordAt(channel, position, size);
+                if (record == null) {
+                    break;
+                }
+                Record decoded = decode(record.duplicate());
+                long offset = position;
+                position += record.capacity();
+                writeLock.lock();
+                try {
+                    ensureOpen();
+                    if (decoded.type() == TYPE_PUT) {
+                        Entry current = index.get(decoded.key());
+                        if (current != null && current.segment() == segment && current.offset() == offset) {
+                            Entry moved = append(record.rewind());
+                            index.put(decoded.key(), moved);
+                        }
+                    } else if (!oldest && !index.containsKey(decoded.key())) {
+                        // 之后重新写入的对象已经覆盖了墓碑，移到活动段末尾会排在新记录之后
+                        release(append(record.rewind()));
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            writeLock.lock();
+            try {
+                ensureOpen();
+                // 先保存指向新位置的索引快照，再删除旧段
+                writeSnapshot();
+                channels.remove(segment);
+                liveBytes.remove(segment);
+                channel.close();
+                Files.deleteIfExists(segmentPath(segment));
+            } finally {
+                writeLock.unlock();
+            }
+            return size;
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to compact pack segment %d under '%s'", segment, packsDir), e);
+        }
+    }
+
+    /**
+     * 保存索引快照，关闭所有段文件
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // 不中断正在执行的压缩，中断会关闭它正在读写的通道；压缩在下一条记录处发现存储已关闭并退出
+            compactionExecutor.shutdown();
+            try {
+                writeSnapshot();
+            } finally {
+                closeChannels();
+                releaseDirectoryLock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private void closeChannels() {
+        for (FileChannel channel : channels.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        channels.clear();
+    }
+
+    private void release(Entry entry) {
+        if (entry != null) {
+            liveBytes.computeIfAbsent(entry.segment(), k -> new AtomicLong()).addAndGet(-entry.length());
+        }
+    }
+
+    /**
+     * 在活动段末尾追加一条记录，调用方需要持有写锁
+     */
+    private Entry append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (activePosition > 0 && activePosition + length > segmentSize) {
+            // 活动段已满，封存后写入新的段
+            activeSegment++;
+            activePosition = 0;
+            channels.put(activeSegment, openSegment(activeSegment));
+        }
+        FileChannel channel = openChannel(activeSegment);
+        long offset = activePosition;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        activePosition = position;
+        liveBytes.computeIfAbsent(activeSegment, k -> new AtomicLong()).addAndGet(length);
+        return new Entry(activeSegment, offset, length);
+    }
+
+    /**
+     * 获取段文件的通道。线程在读写时被中断会关闭整个通道，此时重新打开
+     *
+     * @return 通道，段已被压缩删除时返回 null
+     */
+    private FileChannel openChannel(int segment) throws IOException {
+        FileChannel channel = channels.get(segment);
+        if (channel == null || channel.isOpen() || closed) {
+            return channel;
+        }
+        writeLock.lock();
+        try {
+            channel = channels.get(segment);
+            if (channel != null && !channel.isOpen() && !closed) {
+                channel = openSegment(segment);
+                channels.put(segment, channel);
+            }
+            return channel;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(int segment) {
+        return packsDir.resolve(String.format("%010d.pack", segment));
+    }
+
+    private void load() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(packsDir)) {
+            stream.forEach(path -> {
+                Matcher matcher = SEGMENT_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        Collections.sort(segments);
+        if (segments.isEmpty()) {
+            segments.add(1);
+        }
+        for (int segment : segments) {
+            channels.put(segment, openSegment(segment));
+        }
+        int replaySegment = segments.get(0);
+        long replayPosition = 0;
+        Snapshot snapshot = readSnapshot();
+        if (snapshot != null && channels.containsKey(snapshot.segment())
+                && snapshot.entries().values().stream().allMatch(entry -> channels.containsKey(entry.segment()))) {
+            index.putAll(snapshot.entries());
+            replaySegment = snapshot.segment();
+            replayPosition = snapshot.position();
+        } else if (snapshot != null) {
+            logger.warn("Ignoring stale pack index snapshot under '{}', rebuilding from segments", packsDir);
+        }
+        int lastSegment = segments.get(segments.size() - 1);
+        for (int segment : segments) {
+            if (segment < replaySegment) {
+                continue;
+            }
+            long start = segment == replaySegment ? replayPosition : 0;
+            long end = replay(segment, start);
+            FileChannel channel = channels.get(segment);
+            if (end < channel.size()) {
+                if (segment == lastSegment) {
+                    logger.warn("Truncating incomplete record at offset {} of pack segment {} under '{}'", end, segment, packsDir);
+                    channel.truncate(end);
+                } else {
+                    logger.warn("Skipping invalid record at offset {} of pack segment {} under '{}'", end, segment, packsDir);
+                }
+            }
+        }
+        for (Entry entry : index.values()) {
+            liveBytes.computeIfAbsent(entry.segment(), k -> new AtomicLong()).addAndGet(entry.length());
+        }
+        activeSegment = lastSegment;
+        activePosition = channels.get(lastSegment).size();
+    }
+
+    /**
+     * 从指定位置开始重放段中的记录，返回最后一条有效记录的结束位置
+     */
+    private long replay(int segment, long start) throws IOException {
+        FileChannel channel = channels.get(segment);
+        long size = channel.size();
+        long position = start;
+        while (position < size) {
+            ByteBuffer buffer = readRecordAt(channel, position, size);
+            if (buffer == null) {
+                break;
+            }
+            Record record = decode(buffer);
+            if (record.type() == TYPE_PUT) {
+                index.put(record.key(), new Entry(segment, position, buffer.capacity()));
+            } else {
+                index.remove(record.key());
+            }
+            position += buffer.capacity();
+        }
+        return position;
+    }
+
+    /**
+     * 读取指定位置的完整记录并校验，记录不完整或无效时返回 null
+     */
+    private static ByteBuffer readRecordAt(FileChannel channel, long position, long size) throws IOException {
+        if (position + HEADER_LENGTH + CHECKSUM_LENGTH > size) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(channel, header, position);
+        if (header.getInt() != RECORD_MAGIC) {
+            return null;
+        }
+        header.position(13);
+        long keyLength = header.getInt();
+        long metadataLength = header.getInt();
+        long dataLength = header.getInt();
+        if (keyLength < 0 || metadataLength < 0 || dataLength < 0) {
+            return null;
+        }
+        long length = HEADER_LENGTH + keyLength + metadataLength + dataLength + CHECKSUM_LENGTH;
+        if (length > Integer.MAX_VALUE || position + length > size) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate((int) length);
+        readFully(channel, record, position);
+        return decode(record.duplicate()) == null ? null : record;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException(String.format("Unexpected end of pack segment at offset %d", position));
+            }
+        }
+        buffer.flip();
+    }
+
+    private static ByteBuffer encode(byte type, String key, long lastModified, byte[] metadata, byte[] data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + keyBytes.length + metadata.length + data.length + CHECKSUM_LENGTH);
+        buffer.putInt(RECORD_MAGIC)
+                .put(type)
+                .putLong(lastModified)
+                .putInt(keyBytes.length)
+                .putInt(metadata.length)
+                .putInt(data.length)
+                .put(keyBytes)
+                .put(metadata)
+                .put(data);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * 解析并校验一条记录，校验和不匹配时返回 null
+     */
+    private static Record decode(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (length < HEADER_LENGTH + CHECKSUM_LENGTH) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length - CHECKSUM_LENGTH);
+        if ((int) crc.getValue() != buffer.getInt(buffer.position() + length - CHECKSUM_LENGTH)) {
+            return null;
+        }
+        buffer.getInt();
+        byte type = buffer.get();
+        long lastModified = buffer.getLong();
+        byte[] key = new byte[buffer.getInt()];
+        byte[] metadata = new byte[buffer.getInt()];
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(key).get(metadata).get(data);
+        return new Record(type, new String(key, StandardCharsets.UTF_8), lastModified, metadata, data);
+    }
+
+    private static byte[] encodeAttributes(Map<String, String> metadata, Map<String, String> userDefinedAttributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeMap(out, metadata);
+            writeMap(out, userDefinedAttributes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        Map<String, String> nonNull = new LinkedHashMap<>();
+        map.forEach((k, v) -> {
+            if (k != null && v != null) {
+                nonNull.put(k, v);
+            }
+        });
+        out.writeInt(nonNull.size());
+        for (Map.Entry<String, String> entry : nonNull.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 保存索引快照，调用方需要持有写锁
+     */
+    private void writeSnapshot() throws IOException {
+        Path tempFile = packsDir.resolve(UUID.randomUUID() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(activeSegment);
+            out.writeLong(activePosition);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().segment());
+                out.writeLong(entry.getValue().offset());
+                out.writeInt(entry.getValue().length());
+            }
+            out.writeInt(SNAPSHOT_MAGIC);
+        }
+        Files.move(tempFile, packsDir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Snapshot readSnapshot() {
+        Path snapshotFile = packsDir.resolve(SNAPSHOT_FILE);
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return null;
+            }
+            int segment = in.readInt();
+            long position = in.readLong();
+            int size = in.readInt();
+            Map<String, Entry> entries = new ConcurrentHashMap<>(Math.max(16, size * 4 / 3));
+            for (int i = 0; i < size; i++) {
+                entries.put(readString(in), new Entry(in.readInt(), in.readLong(), in.readInt()));
+            }
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return null;
+            }
+            return new Snapshot(segment, position, entries);
+        } catch (IOException e) {
+            logger.warn("Failed to read pack index snapshot '{}': {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 索引条目
+     *
+     * @param segment 段编号
+     * @param offset  记录在段中的偏移量
+     * @param length  记录长度
+     */
+    private record Entry(int segment, long offset, int length) {
+    }
+
+    private record Snapshot(int segment, long position, Map<String, Entry> entries) {
+    }
+
+    private record Record(byte type, String key, long lastModified, byte[] attributes, byte[] data) {
+
+        PackedObject toPackedObject() throws IOException {
+            try (DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(attributes))) {
+                return new PackedObject(lastModified, readMap(in), readMap(in), data);
+            }
+        }
+    }
+
+    /**
+     * 打包存储中的对象
+     *
+     * @param lastModified          修改时间
+     * @param metadata              元数据
+     * @param userDefinedAttributes 用户自定义属性
+     * @param data                  数据
+     */
+    record PackedObject(long lastModified, Map<String, String> metadata, Map<String, String> userDefinedAttributes,
+                        byte[] data) {
+    }
+}
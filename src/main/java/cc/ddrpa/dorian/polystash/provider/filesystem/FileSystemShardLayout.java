@@ -0,0 +1,167 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.utils.digest.NameHash;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 文件系统分片布局，描述对象名称与磁盘路径之间的映射关系。
+ * <p>
+ * 当同一个前缀下存放大量对象时，单个目录中的条目数会迅速膨胀，
+ * ext4 / XFS 等文件系统的查找和遍历性能都会显著下降。分片布局会在文件名之前
+ * 插入若干级由文件名哈希派生的目录，例如对象 {@code avatars/<uuid>} 实际存放在
+ * {@code avatars/ab/cd/<uuid>}。
+ * <p>
+ * 分片对调用方是透明的：对象名称保持不变，只有磁盘上的存放位置发生变化。
+ * 分片目录由文件名的 xxHash64 派生，与名称的格式无关，即使是按时间递增的 ID
+ * 也能均匀分布。
+ * <p>
+ * 深度为 0 时表示不分片（扁平布局），这也是历史版本使用的布局。
+ */
+public final class FileSystemShardLayout {
+
+    /**
+     * 扁平布局，对象直接存放在前缀目录下。
+     */
+    public static final FileSystemShardLayout FLAT = new FileSystemShardLayout(0, 2);
+
+    /**
+     * 允许的最大分片层级。
+     */
+    public static final int MAX_DEPTH = 4;
+
+    /**
+     * 每级分片目录名允许的最大字符数。
+     */
+    public static final int MAX_WIDTH = 4;
+
+    private final int depth;
+    private final int width;
+
+    private FileSystemShardLayout(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+    }
+
+    /**
+     * 创建分片布局。
+     *
+     * @param depth 分片目录的层级数，0 表示不分片
+     * @param width 每级分片目录名的十六进制字符数，例如 2 表示每级最多 256 个目录
+     * @return 分片布局
+     * @throws IllegalArgumentException 当参数超出允许范围时抛出
+     */
+    public static FileSystemShardLayout of(int depth, int width) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException(
+                    String.format("Shard depth must be between 0 and %d, but got %d", MAX_DEPTH, depth));
+        }
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException(
+                    String.format("Shard width must be between 1 and %d, but got %d", MAX_WIDTH, width));
+        }
+        if (depth == 0) {
+            return FLAT;
+        }
+        return new FileSystemShardLayout(depth, width);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 是否为扁平布局
+     */
+    public boolean isFlat() {
+        return depth == 0;
+    }
+
+    /**
+     * 将对象名称（相对于 baseDir 的路径）转换为磁盘上的存放路径（同样相对于 baseDir）。
+     *
+     * @param objectPath 已规范化的对象路径
+     * @return 磁盘上的相对存放路径
+     */
+    public Path toStoragePath(Path objectPath) {
+        if (isFlat() || objectPath.getNameCount() == 0) {
+            return objectPath;
+        }
+        Path fileName = objectPath.getFileName();
+        Path parent = objectPath.getParent();
+        String hash = NameHash.hex(fileName.toString());
+        Path shardDir = parent == null ? Path.of(shardSegment(hash, 0)) : parent.resolve(shardSegment(hash, 0));
+        for (int i = 1; i < depth; i++) {
+            shardDir = shardDir.resolve(shardSegment(hash, i));
+        }
+        return shardDir.resolve(fileName);
+    }
+
+    /**
+     * 将磁盘上的存放路径（相对于 baseDir）还原为对象名称。
+     * <p>
+     * 如果文件位于与其文件名匹配的分片目录中，去掉分片目录；
+     * 否则认为该文件是按扁平布局存放的历史对象，原样返回。
+     *
+     * @param storagePath 磁盘上的相对存放路径
+     * @return 对象路径
+     */
+    public Path toObjectPath(Path storagePath) {
+        int nameCount = storagePath.getNameCount();
+        if (isFlat() || nameCount <= depth) {
+            return storagePath;
+        }
+        String hash = NameHash.hex(storagePath.getFileName().toString());
+        for (int i = 0; i < depth; i++) {
+            String segment = storagePath.getName(nameCount - 1 - depth + i).toString();
+            if (!segment.equals(shardSegment(hash, i))) {
+                return storagePath;
+            }
+        }
+        Path fileNamePath = storagePath.getFileName();
+        if (nameCount == depth + 1) {
+            return fileNamePath;
+        }
+        return storagePath.subpath(0, nameCount - 1 - depth).resolve(fileNamePath);
+    }
+
+    /**
+     * 检查存放路径是否已经位于本布局要求的位置
+     */
+    public boolean isInPlace(Path storagePath) {
+        return toStoragePath(toObjectPath(storagePath)).equals(storagePath);
+    }
+
+    /**
+     * 从文件名的哈希中截取指定层级的分片目录名
+     */
+    private String shardSegment(String hash, int level) {
+        return hash.substring(level * width, (level + 1) * width);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileSystemShardLayout that = (FileSystemShardLayout) o;
+        return depth == that.depth && width == that.width;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(depth, width);
+    }
+
+    @Override
+    public String toString() {
+        return "FileSystemShardLayout{" +
+                "depth=" + depth +
+                ", width=" + width +
+                '}';
+    }
+}
@@ -0,0 +1,177 @@
+package cc.ddrpa.dorian.polystash.provider.filesystem;
+
+import cc.ddrpa.dorian.polystash.core.exception.AccessDeniedException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 文件系统分片布局迁移工具，将已有的文件从一种分片布局移动到另一种分片布局。
+ * <p>
+ * 典型用法是在为已有的 FileSystemBlobStore 启用分片之后，把扁平布局下的历史文件
+ * 移动到分片目录中。迁移期间 FileSystemBlobStore 可以继续提供服务：
+ * 它会同时查找分片路径和扁平路径。
+ * <p>
+ * 迁移使用同一文件系统内的原子重命名，文件的扩展属性会随文件一起移动。
+ * 文件以流式方式遍历，并在有界的线程池中并行移动，同时在途的任务数受到限制，
+ * 因此即使目录中有数百万个文件也不会占用大量内存。
+ */
+public class FileSystemShardMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemShardMigrator.class);
+
+    private final Path baseDir;
+    private final FileSystemShardLayout sourceLayout;
+    private final FileSystemShardLayout targetLayout;
+    private final int parallelism;
+
+    /**
+     * 构造函数
+     *
+     * @param baseDir      存储根目录
+     * @param sourceLayout 文件当前使用的布局，扁平布局下的历史文件总能被识别
+     * @param targetLayout 迁移后使用的布局
+     * @param parallelism  并行移动文件的线程数
+     */
+    public FileSystemShardMigrator(Path baseDir, FileSystemShardLayout sourceLayout,
+                                   FileSystemShardLayout targetLayout, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Parallelism must be positive, but got %d", parallelism));
+        }
+        this.baseDir = baseDir.toAbsolutePath().normalize();
+        this.sourceLayout = sourceLayout;
+        this.targetLayout = targetLayout;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 为指定的 FileSystemBlobStore 创建迁移工具，迁移目标为该存储当前使用的布局。
+     *
+     * @param blobStore    目标存储
+     * @param sourceLayout 文件当前使用的布局
+     * @param parallelism  并行移动文件的线程数
+     * @return 迁移工具
+     */
+    public static FileSystemShardMigrator forBlobStore(FileSystemBlobStore blobStore,
+                                                       FileSystemShardLayout sourceLayout,
+                                                       int parallelism) {
+        return new FileSystemShardMigrator(blobStore.getBaseDir(), sourceLayout, blobStore.getLayout(), parallelism);
+    }
+
+    /**
+     * 迁移指定前缀下的所有文件。
+     *
+     * @param prefix 需要迁移的前缀，空字符串表示整个存储
+     * @return 迁移结果
+     * @throws GeneralPolyStashException 当前缀无效或遍历目录失败时抛出
+     */
+    public Report migrate(String prefix) throws GeneralPolyStashException {
+        Path targetPath = baseDir.resolve(prefix).normalize();
+        if (!targetPath.startsWith(baseDir)) {
+            throw new AccessDeniedException(
+                    String.format("Access denied: migrate path '%s' is outside of base directory '%s'", targetPath, baseDir));
+        }
+        if (!Files.isDirectory(targetPath)) {
+            return new Report(0, 0, 0, Collections.emptyMap());
+        }
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong moved = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        // 限制在途任务数，避免一次性把所有文件提交到队列中
+        Semaphore inflight = new Semaphore(parallelism * 64);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (Stream<Path> walkStream = Files.walk(targetPath)) {
+            // 跳过存储内部使用的保留目录
+            Iterator<Path> iterator = walkStream
+                    .filter(path -> !baseDir.relativize(path).startsWith(FileSystemContentStore.RESERVED_DIR))
+                    .filter(Files::isRegularFile)
+                    .iterator();
+            while (iterator.hasNext()) {
+                Path filePath = iterator.next();
+                scanned.incrementAndGet();
+                inflight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        if (moveIfNecessary(filePath)) {
+                            moved.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.put(baseDir.relativize(filePath).toString(), e);
+                    } finally {
+                        inflight.release();
+                    }
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IOErrorOccursException(
+                    String.format("IO error occurred while walking through directory '%s' at path '%s'", prefix, targetPath), e);
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Report report = new Report(scanned.get(), moved.get(), skipped.get(), Map.copyOf(failures));
+        logger.info("Shard migration of prefix '{}' under '{}' finished: {}", prefix, baseDir, report);
+        return report;
+    }
+
+    private boolean moveIfNecessary(Path filePath) throws IOException {
+        Path storagePath = baseDir.relativize(filePath);
+        // 已经按目标布局存放的文件（例如上一次迁移的结果）保持不动
+        if (targetLayout.isInPlace(storagePath)) {
+            return false;
+        }
+        Path objectPath = sourceLayout.toObjectPath(storagePath);
+        Path targetStoragePath = targetLayout.toStoragePath(objectPath);
+        if (targetStoragePath.equals(storagePath)) {
+            return false;
+        }
+        Path targetFilePath = baseDir.resolve(targetStoragePath);
+        // 不覆盖任何已有文件，ATOMIC_MOVE 在部分平台上会直接替换目标文件
+        if (Files.exists(targetFilePath)) {
+            throw new FileAlreadyExistsException(targetFilePath.toString());
+        }
+        Files.createDirectories(targetFilePath.getParent());
+        Files.move(filePath, targetFilePath, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * 迁移结果
+     *
+     * @param scanned  扫描到的文件数
+     * @param moved    被移动的文件数
+     * @param skipped  已经位于目标位置、无需移动的文件数
+     * @param failures 移动失败的文件（相对于 baseDir 的路径）及原因
+     */
+    public record Report(long scanned, long moved, long skipped, Map<String, Exception> failures) {
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.AsyncBlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
+import cc.ddrpa.dorian.polystash.utils.http.ContentDisposition;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsV2Response;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import io.minio.messages.Prefix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * S3BlobStore 的异步接口，基于 MinioAsyncClient 发起请求，等待响应期间不占用线程，
+ * 少量线程即可同时发起大量请求。
+ * <p>
+ * 返回的 CompletableFuture 以 {@link GeneralPolyStashException} 异常结束，对象不存在时为 {@link BlobNotFoundException}。
+ * 同时执行的操作数不超过 BlobStore 设置的上限，取消返回的 CompletableFuture 时立即释放名额，已经发出的请求不会中止。
+ * <p>
+ * 需要阻塞读写的功能仍然通过同步接口完成，并在独立的线程中执行，包括：启用小对象打包时的所有操作、
+ * 启用并行下载时的 get，以及长度未知或需要分片上传的 put；没有通过构建器创建的 S3BlobStore 不持有
+ * MinioAsyncClient，所有操作都通过同步接口完成。单个请求上传的数据需要计算签名，在调用线程中读入内存。
+ */
+public class S3AsyncBlobStore implements AsyncBlobStore {
+
+    /**
+     * S3 单次列举最多返回 1000 个对象
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3AsyncBlobStore.class);
+
+    private final S3BlobStore blobStore;
+    private final AsyncClient client;
+    private final String bucket;
+    private final String region;
+    private final BoundedAsyncExecutor executor;
+
+    /**
+     * @param asyncClient    与 S3BlobStore 使用相同配置创建的客户端，为 null 时所有操作通过同步接口完成
+     * @param executor       限制并发数的执行器，由 S3BlobStore 负责关闭
+     */
+    S3AsyncBlobStore(S3BlobStore blobStore, MinioAsyncClient asyncClient, String bucket, String region, BoundedAsyncExecutor executor) {
+        this.blobStore = blobStore;
+        this.client = asyncClient == null ? null : new AsyncClient(asyncClient);
+        this.bucket = bucket;
+        this.region = region;
+        this.executor = executor;
+    }
+
+    /**
+     * 异步获取对象
+     *
+     * @see S3BlobStore#get(String)
+     */
+    @Override
+    public CompletableFuture<Blob> get(String objectName) {
+        if (client == null || blobStore.isPackingEnabled() || blobStore.isParallelDownloadEnabled() || blobStore.isSingleFlightEnabled()) {
+            return executor.submit(() -> blobStore.get(objectName), S3AsyncBlobStore::closePayload);
+        }
+        return executor.submitAsync(() -> execute(() -> client.getObject(GetObjectArgs.builder()
+                                .bucket(bucket)
+                                .object(objectName)
+                                .build()),
+                        res -> blobStore.readAhead(blobStore.fromGetObjectResponse(res), res),
+                        String.format("Failed to get object '%s' from bucket '%s'", objectName, bucket)),
+                S3AsyncBlobStore::closePayload);
+    }
+
+    /**
+     * 异步获取对象的元数据
+     *
+     * @see S3BlobStore#stat(String)
+     */
+    @Override
+    public CompletableFuture<Blob> stat(String objectName) {
+        if (client == null || blobStore.isPackingEnabled() || blobStore.isSingleFlightEnabled()) {
+            return executor.submit(() -> blobStore.stat(objectName));
+        }
+        return executor.submitAsync(() -> statObject(objectName));
+    }
+
+    /**
+     * 异步判断对象是否存在
+     */
+    @Override
+    public CompletableFuture<Boolean> exist(String objectName) {
+        if (client == null || blobStore.isPackingEnabled() || blobStore.isLookupFilterEnabled()) {
+            return executor.submit(() -> blobStore.exist(objectName));
+        }
+        return executor.submitAsync(() -> statObject(objectName).handle((blob, throwable) -> {
+            if (throwable == null) {
+                return true;
+            }
+            Throwable cause = unwrap(throwable);
+            if (cause instanceof BlobNotFoundException) {
+                return false;
+            }
+            throw new CompletionException(cause);
+        }));
+    }
+
+    private CompletableFuture<Blob> statObject(String objectName) {
+        return execute(() -> client.statObject(StatObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .build()),
+                blobStore::fromStatObjectResponse,
+                String.format("Failed to get object metadata for '%s' from bucket '%s'", objectName, bucket));
+    }
+
+    /**
+     * 异步上传对象，对象名称由前缀和名称生成器生成
+     *
+     * @see S3BlobStore#put(String, String, Payload, Map, String)
+     */
+    @Override
+    public CompletableFuture<Blob> put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) {
+        if (!isSingleRequest(payload)) {
+            return executor.submit(() -> blobStore.put(prefix, readableName, payload, userDefinedAttributes, contentType));
+        }
+        String objectName;
+        try {
+            objectName = blobStore.generateObjectName(prefix, payload);
+        } catch (GeneralPolyStashException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return save(objectName, readableName, payload, userDefinedAttributes, contentType);
+    }
+
+    /**
+     * 异步上传或覆盖对象
+     *
+     * @see S3BlobStore#putOrReplace(String, String, Payload, Map, String)
+     */
+    @Override
+    public CompletableFuture<Blob> putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) {
+        if (!isSingleRequest(payload)) {
+            return executor.submit(() -> blobStore.putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType));
+        }
+        return save(objectName, readableName, payload, userDefinedAttributes, contentType);
+    }
+
+    /**
+     * 数据能否以单个请求上传，打包和分片上传需要阻塞读取数据
+     */
+    private boolean isSingleRequest(Payload<?> payload) {
+        return client != null && !blobStore.isPackingEnabled() && !blobStore.isLookupFilterEnabled() && payload.length() >= 0 && !blobStore.requiresMultipartUpload(payload);
+    }
+
+    private CompletableFuture<Blob> save(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) {
+        String message = String.format("Failed to put object '%s' to bucket '%s'", objectName, bucket);
+        long length = payload.length();
+        // SDK 在公共线程池中读取数据流，而且请求可能排队等待，先在调用线程中读入内存
+        byte[] data;
+        try (InputStream inputStream = payload.stream()) {
+            data = inputStream.readNBytes((int) length);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new IOErrorOccursException(message, e));
+        }
+        Map<String, String> headers = Map.of("Content-Disposition", ContentDisposition.attachment(readableName));
+        return executor.submitAsync(() -> {
+            CompletableFuture<Blob> result = execute(() -> {
+                        var argsBuilder = PutObjectArgs.builder();
+                        if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
+                            argsBuilder.userMetadata(userDefinedAttributes);
+                        }
+                        return client.putObject(argsBuilder
+                                .bucket(bucket)
+                                .object(objectName)
+                                .contentType(contentType)
+                                .headers(headers)
+                                .stream(new ByteArrayInputStream(data), data.length, -1)
+                                .build());
+                    },
+                    response -> blobStore.fromWriteResult(objectName, readableName, userDefinedAttributes, contentType,
+                            new S3BlobStore.WriteResult(response, length)),
+                    message);
+            // 请求失败时对象也可能已经写入
+            result = result.whenComplete((blob, throwable) -> blobStore.forgetInFlight(objectName));
+            if (blobStore.isStatAfterPut()) {
+                return result.thenCompose(blob -> statObject(objectName));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 异步删除对象
+     *
+     * @see S3BlobStore#remove(String, boolean)
+     */
+    @Override
+    public CompletableFuture<Void> remove(String objectName, boolean silent) {
+        if (client == null || blobStore.isPackingEnabled() || blobStore.isLookupFilterEnabled()) {
+            return executor.submit(() -> {
+                blobStore.remove(objectName, silent);
+                return null;
+            });
+        }
+        return executor.submitAsync(() -> {
+            CompletableFuture<Void> result = execute(() -> client.removeObject(RemoveObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectName)
+                            .build()),
+                    Function.identity(),
+                    String.format("Failed to remove object '%s' from bucket '%s'", objectName, bucket));
+            return result.whenComplete((ignored, throwable) -> blobStore.forgetInFlight(objectName)).exceptionally(throwable -> {
+                Throwable cause = unwrap(throwable);
+                // 与同步接口一致，对象不存在时不抛出异常
+                if (silent || cause instanceof BlobNotFoundException) {
+                    return null;
+                }
+                throw new CompletionException(cause);
+            });
+        });
+    }
+
+    /**
+     * 异步列举一页对象。
+     * <p>
+     * 返回 S3 的原始列举结果：非递归列举时目录作为 Blob 返回，哈希字符对应的目录不会展开，
+     * 也不包含打包存储中的对象，需要完整结果时使用 {@link S3BlobStore#list(String, ListOptions)}
+     *
+     * @param continuationToken 上一页返回的 {@link ListPage#nextContinuationToken()}，第一页为 null
+     * @param maxKeys           每页最多返回的对象数，不超过 {@value #MAX_PAGE_SIZE}
+     */
+    public CompletableFuture<ListPage> listPage(String prefix, ListOptions listOptions, String continuationToken, int maxKeys) {
+        if (maxKeys < 1 || maxKeys > MAX_PAGE_SIZE) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    String.format("Page size must be between 1 and %d, but got %d", MAX_PAGE_SIZE, maxKeys)));
+        }
+        if (client == null) {
+            return CompletableFuture.failedFuture(new OperationNotSupportedException("listPage without MinioAsyncClient"));
+        }
+        String delimiter = listOptions.recursive() ? null : listOptions.delimiter();
+        return executor.submitAsync(() -> execute(() -> client.listPage(bucket, region, delimiter, prefix, continuationToken, maxKeys),
+                response -> {
+                    List<Blob> blobs = new ArrayList<>();
+                    for (Item item : response.result().contents()) {
+                        if (blobStore.isPackingEnabled() && S3PackStore.isReserved(item.objectName())) {
+                            continue;
+                        }
+                        blobs.add(blobStore.fromItem(item));
+                    }
+                    for (Prefix commonPrefix : response.result().commonPrefixes()) {
+                        blobs.add(blobStore.fromItem(commonPrefix.toItem()));
+                    }
+                    String nextToken = response.result().isTruncated() ? response.result().nextContinuationToken() : null;
+                    return new ListPage(blobs, nextToken);
+                },
+                String.format("Failed to list objects with prefix '%s' in bucket '%s'", prefix, bucket)));
+    }
+
+    /**
+     * 发起异步请求，把 S3 的错误转换为 {@link GeneralPolyStashException}
+     */
+    private <R, T> CompletableFuture<T> execute(AsyncCall<R> call, Function<R, T> mapper, String message) {
+        CompletableFuture<R> future;
+        try {
+            future = call.execute();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(translate(e, message));
+        }
+        return future.handle((response, throwable) -> {
+            if (throwable != null) {
+                throw new CompletionException(translate(unwrap(throwable), message));
+            }
+            return mapper.apply(response);
+        });
+    }
+
+    /**
+     * SDK 返回的异常可能被多层 CompletionException 包裹
+     */
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private static GeneralPolyStashException translate(Throwable cause, String message) {
+        if (cause instanceof GeneralPolyStashException e) {
+            return e;
+        }
+        if (cause instanceof ErrorResponseException e) {
+            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                return new BlobNotFoundException(e.errorResponse().message(), e);
+            }
+            return new IOErrorOccursException(e.errorResponse().message(), e);
+        }
+        return new IOErrorOccursException(message, cause);
+    }
+
+    /**
+     * 关闭取消之后才读取到的对象的数据流
+     */
+    private static void closePayload(Blob blob) {
+        if (blob.getPayload() == null) {
+            return;
+        }
+        try {
+            blob.getPayload().close();
+        } catch (IOException e) {
+            logger.debug("Failed to close payload of discarded blob '{}'", blob.getObjectName(), e);
+        }
+    }
+
+    /**
+     * 一页列举结果
+     *
+     * @param blobs                 列举到的对象，没有 payload
+     * @param nextContinuationToken 获取下一页的令牌，没有更多结果时为 null
+     */
+    public record ListPage(List<Blob> blobs, String nextContinuationToken) {
+
+        /**
+         * 是否还有下一页
+         */
+        public boolean hasMore() {
+            return nextContinuationToken != null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall<R> {
+        CompletableFuture<R> execute() throws Exception;
+    }
+
+    /**
+     * 分页列举的 API 在 MinIO SDK 中是 protected 方法，通过子类调用
+     */
+    private static class AsyncClient extends MinioAsyncClient {
+
+        private AsyncClient(MinioAsyncClient client) {
+            super(client);
+        }
+
+        private CompletableFuture<ListObjectsV2Response> listPage(String bucket, String region, String delimiter, String prefix, String continuationToken, int maxKeys) throws Exception {
+            return listObjectsV2Async(bucket, region, delimiter, null, null, maxKeys, prefix, continuationToken, false, false, null, null);
+        }
+    }
+}
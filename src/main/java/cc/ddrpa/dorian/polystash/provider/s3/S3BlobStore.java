@@ -2,52 +2,155 @@ package cc.ddrpa.dorian.polystash.provider.s3;
 
 import cc.ddrpa.dorian.polystash.core.blob.Blob;
 import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.ConditionalResult;
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.blobstore.ReadCondition;
 import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
 import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
+import cc.ddrpa.dorian.polystash.core.exception.PreconditionFailedException;
 import cc.ddrpa.dorian.polystash.utils.StringPool;
+import cc.ddrpa.dorian.polystash.utils.concurrent.BoundedAsyncExecutor;
+import cc.ddrpa.dorian.polystash.utils.digest.NameHash;
 import cc.ddrpa.dorian.polystash.utils.http.ContentDisposition;
 import cc.ddrpa.dorian.polystash.utils.http.URIManipulation;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.Striped;
 import io.minio.*;
 import io.minio.GetPresignedObjectUrlArgs.Builder;
 import io.minio.errors.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import okhttp3.Headers;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 
 public class S3BlobStore extends BlobStore {
 
     // 预签名 URL 的过期时间默认为 7 天，与 MinIO 保持一致
     private static final int DEFAULT_PRESIGNED_URL_EXPIRATION_IN_SECONDS = 7 * 24 * 60 * 60;
+    /**
+     * 允许插入的最大哈希字符数
+     */
+    public static final int MAX_KEY_ENTROPY_LENGTH = 4;
+    /**
+     * 长度未知的数据流按该长度分片上传，S3 要求除最后一个分片外不小于 5 MiB
+     */
+    private static final long DEFAULT_PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * 批量判断对象是否存在时，同一目录下的对象不少于该数量才改用列举请求
+     */
+    private static final int LIST_LOOKUP_THRESHOLD = 8;
+    /**
+     * 同时预读的数据流数量上限，超过时新的数据流不预读
+     */
+    static final int MAX_READ_AHEAD_STREAMS = 64;
+    /**
+     * 以列举代替逐个查询时，最多检查的对象数为待查询对象数的倍数
+     */
+    private static final int LIST_LOOKUP_SCAN_FACTOR = 16;
     private final String bucket;
     private final MinioClient minioClient;
     private final String delimiter;
+    /**
+     * 生成对象名称时在前缀之后插入的哈希字符数，0 表示不插入
+     */
+    private final int keyEntropyLength;
+    private final Pattern entropyBucketPattern;
+    private S3PackStore packStore;
+    private int packThreshold = 0;
+    private S3MultipartUploader multipartUploader;
+    private S3ParallelDownloader parallelDownloader;
+    private ExecutorService readAheadExecutor;
+    private MinioAsyncClient asyncClient;
+    private String region;
+    private int readAheadSize = 0;
+    /**
+     * 上传后是否额外发起一次 stat 请求获取对象的元数据
+     */
+    private boolean statAfterPut = false;
+    private S3SingleFlight singleFlight;
+    private S3NegativeCache negativeCache;
+    private S3BloomFilter bloomFilter;
+    private final AtomicBoolean bloomFilterSeeding = new AtomicBoolean(false);
+    /**
+     * 打包的对象没有对应的 S3 对象，条件检查和写入在按对象名称划分的锁内进行
+     */
+    private final Striped<Lock> conditionalWriteLocks = Striped.lock(256);
 
     public S3BlobStore(String blobStoreName, String endpoint, String bucket, MinioClient minioClient) {
+        this(blobStoreName, endpoint, bucket, minioClient, 0);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param keyEntropyLength 生成对象名称时在前缀之后插入的哈希字符数，例如 2 表示生成 prefix/7f/id 形式的名称；
+     *                         S3 兼容存储按键前缀划分请求吞吐量，插入哈希字符可以把同一业务前缀下的写入分散到多个分区
+     */
+    public S3BlobStore(String blobStoreName, String endpoint, String bucket, MinioClient minioClient, int keyEntropyLength) {
         super(new S3BlobStoreContext(blobStoreName, endpoint, bucket));
+        if (keyEntropyLength < 0 || keyEntropyLength > MAX_KEY_ENTROPY_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("Key entropy length must be between 0 and %d, but got %d", MAX_KEY_ENTROPY_LENGTH, keyEntropyLength));
+        }
         this.bucket = bucket;
         this.delimiter = "/";
         this.minioClient = minioClient;
+        this.keyEntropyLength = keyEntropyLength;
+        this.entropyBucketPattern = Pattern.compile("^[0-9a-f]{" + Math.max(keyEntropyLength, 1) + "}$");
         replacePublicAccessIdentifierHandler((context, objectName) -> {
             S3BlobStoreContext blobStoreContext = (S3BlobStoreContext) context;
             return URIManipulation.uri(blobStoreContext.getEndpoint(), blobStoreContext.getBucket(),
@@ -55,31 +158,276 @@ public class S3BlobStore extends BlobStore {
         });
     }
 
+    public int getKeyEntropyLength() {
+        return keyEntropyLength;
+    }
+
+    /**
+     * 启用小对象打包，长度不超过阈值的对象会合并成打包对象上传，索引在第一次使用时加载。
+     * <p>
+     * 已经打包的对象只能通过启用了打包的实例访问，关闭打包前需要把这些对象重新写入。
+     *
+     * @param packThreshold 打包阈值
+     * @param flushSize     缓冲的数据达到该长度后立即上传
+     * @param flushInterval 写入在缓冲区中等待的最长时间
+     */
+    void openPackStore(int packThreshold, int flushSize, Duration flushInterval) {
+        this.packStore = new S3PackStore(minioClient, bucket, flushSize, flushInterval);
+        this.packThreshold = packThreshold;
+    }
+
+    /**
+     * 启用并行分片上传，长度未知或超过一个分片的对象拆分成多个分片同时上传
+     *
+     * @param asyncClient  与 minioClient 使用相同配置创建的客户端
+     * @param partSize     分片长度
+     * @param concurrency  同时上传的分片数
+     * @param bufferBudget 所有上传同时占用的分片缓冲区总长度上限
+     */
+    void openMultipartUploader(MinioAsyncClient asyncClient, String region, int partSize, int concurrency, long bufferBudget) {
+        this.multipartUploader = new S3MultipartUploader(asyncClient, bucket, region, partSize, concurrency, bufferBudget);
+    }
+
+    /**
+     * 启用并行下载，超过一个分块的对象按范围切分成多个分块同时下载
+     *
+     * @param chunkSize   分块长度
+     * @param concurrency 同时下载的分块数
+     */
+    void openParallelDownloader(int chunkSize, int concurrency) {
+        this.parallelDownloader = new S3ParallelDownloader(minioClient, bucket, chunkSize, concurrency);
+    }
+
+    /**
+     * 启用预读，get 返回的数据流由后台线程持续读取，调用方处理数据期间连接不会停顿。
+     * 后台线程不超过 {@link #MAX_READ_AHEAD_STREAMS} 个，线程用尽时新的数据流直接返回响应，不排队等待
+     *
+     * @param readAheadSize 每个数据流的预读缓冲区长度
+     */
+    void openReadAhead(int readAheadSize) {
+        this.readAheadSize = readAheadSize;
+        this.readAheadExecutor = new ThreadPoolExecutor(0, MAX_READ_AHEAD_STREAMS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "polystash-s3-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启用基于 MinioAsyncClient 的异步接口，未启用时异步接口在独立的线程中调用同步接口
+     *
+     * @param asyncClient 与 minioClient 使用相同配置创建的客户端
+     */
+    void openAsync(MinioAsyncClient asyncClient, String region) {
+        this.asyncClient = asyncClient;
+        this.region = region;
+    }
+
+    /**
+     * 启用请求合并，同一对象同时进行的 stat 共用一次请求，同时进行的 get 共用一次下载，
+     * 下载的数据由所有调用方从共享缓冲区读取
+     */
+    void openSingleFlight() {
+        this.singleFlight = new S3SingleFlight();
+    }
+
+    /**
+     * 启用不存在记录，确认不存在的对象在有效期内直接回答不存在
+     *
+     * @param ttl     记录的有效期
+     * @param maxSize 最多保存的记录数
+     */
+    void openNegativeCache(Duration ttl, int maxSize) {
+        this.negativeCache = new S3NegativeCache(ttl, maxSize);
+    }
+
+    /**
+     * 启用布隆过滤器，过滤器在第一次查询时由后台线程通过列举前缀初始化
+     *
+     * @param prefix             过滤器覆盖的名称前缀
+     * @param expectedInsertions 预计的对象数
+     * @param refreshInterval    过滤器过期后重新列举前缀的间隔，0 表示不会过期
+     */
+    void openBloomFilter(String prefix, int expectedInsertions, Duration refreshInterval) {
+        this.bloomFilter = new S3BloomFilter(prefix, expectedInsertions, refreshInterval);
+    }
+
+    /**
+     * 上传后是否额外发起一次 stat 请求，默认根据上传请求和响应构建返回的对象
+     */
+    void setStatAfterPut(boolean statAfterPut) {
+        this.statAfterPut = statAfterPut;
+    }
+
+    /**
+     * 获取异步接口，通过构建器创建时请求在等待响应期间不占用线程
+     */
     @Override
-    public Iterable<BlobResult> list(String prefix, ListOptions listOptions) {
-        ListObjectsArgs args = ListObjectsArgs.builder()
-                .bucket(bucket)
-                .prefix(prefix)
-                .delimiter(listOptions.delimiter())
-                .recursive(listOptions.recursive())
-                .build();
-        Iterable<Result<Item>> items = minioClient.listObjects(args);
+    public S3AsyncBlobStore async() {
+        return (S3AsyncBlobStore) super.async();
+    }
+
+    @Override
+    protected S3AsyncBlobStore createAsyncBlobStore(BoundedAsyncExecutor executor) {
+        return new S3AsyncBlobStore(this, asyncClient, bucket, region, executor);
+    }
+
+    boolean isPackingEnabled() {
+        return packStore != null;
+    }
+
+    boolean isParallelDownloadEnabled() {
+        return parallelDownloader != null;
+    }
+
+    /**
+     * 是否启用了不存在记录或布隆过滤器，启用时写入和删除需要经过同步接口以更新过滤器
+     */
+    boolean isLookupFilterEnabled() {
+        return negativeCache != null || bloomFilter != null;
+    }
+
+    boolean isSingleFlightEnabled() {
+        return singleFlight != null;
+    }
+
+    boolean isStatAfterPut() {
+        return statAfterPut;
+    }
+
+    /**
+     * 数据是否需要分片上传，未启用并行分片上传时与 SDK 的单请求上限一致
+     */
+    boolean requiresMultipartUpload(Payload<?> payload) {
+        if (multipartUploader != null) {
+            return multipartUploader.accepts(payload);
+        }
+        return payload.length() < 0 || payload.length() > DEFAULT_PART_SIZE;
+    }
+
+    /**
+     * 获取分片上传缓冲区的使用情况
+     *
+     * @return 使用情况，未启用并行分片上传时返回 null
+     */
+    public S3UploadBufferPool.Stats getUploadBufferStats() {
+        return multipartUploader == null ? null : multipartUploader.getBufferPool().stats();
+    }
+
+    /**
+     * 获取小对象打包阈值，0 表示未启用打包
+     */
+    public int getPackThreshold() {
+        return packThreshold;
+    }
+
+    /**
+     * 压缩垃圾超过一半的打包对象，回收删除和覆盖产生的垃圾。
+     * <p>
+     * 压缩会读取并重新上传打包对象中仍然有效的数据，应当定期调用，并且只在一个实例上执行。
+     *
+     * @return 释放的字节数，未启用打包时返回 0
+     * @throws GeneralPolyStashException 压缩失败时抛出
+     */
+    public long compactPacks() throws GeneralPolyStashException {
+        return compactPacks(S3PackStore.COMPACTION_GARBAGE_RATIO);
+    }
+
+    /**
+     * 压缩垃圾比例达到阈值的打包对象
+     *
+     * @param garbageRatio 垃圾比例阈值，0 表示压缩所有包含垃圾的打包对象
+     * @return 释放的字节数，未启用打包时返回 0
+     * @throws GeneralPolyStashException 压缩失败时抛出
+     */
+    public long compactPacks(double garbageRatio) throws GeneralPolyStashException {
+        return packStore == null ? 0 : packStore.compact(garbageRatio);
+    }
+
+    @Override
+    public Iterable<BlobResult> list(String prefix, ListOptions listOptions) throws GeneralPolyStashException {
+        Iterable<Result<Item>> items = listItems(prefix, listOptions);
+        // 打包的对象没有对应的 S3 对象，在列举结果之后补充
+        Set<String> packedKeys = packStore == null
+                ? Collections.emptySet()
+                : new LinkedHashSet<>(packStore.keys(prefix));
+        List<String> listedPackedKeys = packedKeys.stream()
+                .filter(key -> listOptions.recursive() || isDirectChild(prefix, key))
+                .toList();
+        // 非递归列举时，哈希字符对应的目录会作为公共前缀返回，需要展开其中的对象
+        boolean expandEntropyBuckets = keyEntropyLength > 0 && !listOptions.recursive();
         return new Iterable<>() {
             @NotNull
             @Override
             public Iterator<BlobResult> iterator() {
                 return new Iterator<>() {
                     private final Iterator<Result<Item>> itemIterator = items.iterator();
+                    private Iterator<Result<Item>> bucketIterator = Collections.emptyIterator();
+                    // 正在展开的哈希字符目录，其中不是按哈希放置的条目说明这是真实的子目录
+                    private Result<Item> bucketDir;
+                    private String bucketSegment;
+                    private final Iterator<String> packedKeyIterator = listedPackedKeys.iterator();
+                    private Result<Item> pending;
+                    private String pendingPackedKey;
 
                     @Override
                     public boolean hasNext() {
-                        return itemIterator.hasNext();
+                        while (pending == null && pendingPackedKey == null) {
+                            if (bucketIterator.hasNext()) {
+                                Result<Item> result = bucketIterator.next();
+                                if (isEntropyPlaced(result, bucketSegment)) {
+                                    pending = result;
+                                } else if (bucketDir != null) {
+                                    // 真实的子目录只作为公共前缀返回一次
+                                    pending = bucketDir;
+                                    bucketDir = null;
+                                }
+                            } else if (itemIterator.hasNext()) {
+                                Result<Item> result = itemIterator.next();
+                                String bucketPrefix = expandEntropyBuckets ? entropyBucketPrefix(result) : null;
+                                if (bucketPrefix == null) {
+                                    pending = result;
+                                } else {
+                                    bucketDir = result;
+                                    bucketSegment = lastSegment(bucketPrefix);
+                                    bucketIterator = listItems(bucketPrefix, listOptions).iterator();
+                                }
+                            } else if (packedKeyIterator.hasNext()) {
+                                pendingPackedKey = packedKeyIterator.next();
+                            } else {
+                                return false;
+                            }
+                            if (pending != null && isHidden(pending, packedKeys)) {
+                                pending = null;
+                            }
+                        }
+                        return true;
                     }
 
                     @Override
                     public BlobResult next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        if (pending == null) {
+                            String packedKey = pendingPackedKey;
+                            pendingPackedKey = null;
+                            try {
+                                Blob blob = getPacked(packedKey, false, false);
+                                if (blob == null) {
+                                    return new BlobResult(new BlobNotFoundException(
+                                            String.format("Blob not found: packed object '%s' was removed while listing", packedKey)));
+                                }
+                                return new BlobResult(blob);
+                            } catch (GeneralPolyStashException e) {
+                                return new BlobResult(e);
+                            }
+                        }
+                        Result<Item> result = pending;
+                        pending = null;
                         try {
-                            Item s3Object = itemIterator.next().get();
+                            Item s3Object = result.get();
                             return new BlobResult(fromItem(s3Object));
                         } catch (ServerException | InsufficientDataException |
                                  ErrorResponseException |
@@ -91,57 +439,650 @@ public class S3BlobStore extends BlobStore {
                     }
                 };
             }
-        };
+        };
+    }
+
+    private Iterable<Result<Item>> listItems(String prefix, ListOptions listOptions) {
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .delimiter(listOptions.delimiter())
+                .recursive(listOptions.recursive())
+                .build();
+        return minioClient.listObjects(args);
+    }
+
+    /**
+     * 是否需要从列举结果中隐藏，包括打包存储内部使用的对象，以及被打包对象覆盖的同名对象
+     */
+    private boolean isHidden(Result<Item> result, Set<String> packedKeys) {
+        if (packStore == null) {
+            return false;
+        }
+        try {
+            String objectName = result.get().objectName();
+            return S3PackStore.isReserved(objectName) || packedKeys.contains(objectName);
+        } catch (Exception e) {
+            // 交给调用方处理
+            return false;
+        }
+    }
+
+    /**
+     * 打包的对象在非递归列举时是否位于前缀的当前层级，按哈希字符放置的对象会被展开
+     */
+    private boolean isDirectChild(String prefix, String key) {
+        String remaining = key.substring(prefix.length());
+        int index = remaining.indexOf(delimiter);
+        if (index < 0) {
+            return true;
+        }
+        return keyEntropyLength > 0
+                && isEntropyPlaced(remaining.substring(0, index), remaining.substring(index + delimiter.length()));
+    }
+
+    /**
+     * 如果列举结果是名称符合哈希字符格式的公共前缀，返回该前缀，否则返回 null。
+     * 同名的真实子目录同样符合格式，需要在展开时通过 {@link #isEntropyPlaced(Result, String)} 区分
+     */
+    private String entropyBucketPrefix(Result<Item> result) {
+        Item item;
+        try {
+            item = result.get();
+        } catch (Exception e) {
+            // 交给调用方处理
+            return null;
+        }
+        if (!item.isDir()) {
+            return null;
+        }
+        String dirName = item.objectName();
+        return entropyBucketPattern.matcher(lastSegment(dirName)).matches() ? dirName : null;
+    }
+
+    /**
+     * 公共前缀的最后一级目录名
+     */
+    private String lastSegment(String dirName) {
+        String trimmed = dirName.endsWith(delimiter) ? dirName.substring(0, dirName.length() - delimiter.length()) : dirName;
+        return trimmed.substring(trimmed.lastIndexOf(delimiter) + 1);
+    }
+
+    /**
+     * 哈希字符目录中的列举结果是否是按生成规则放置的对象，即目录名等于对象名称哈希的前几个字符。
+     * 无法读取的结果交给调用方处理
+     */
+    private boolean isEntropyPlaced(Result<Item> result, String segment) {
+        Item item;
+        try {
+            item = result.get();
+        } catch (Exception e) {
+            return true;
+        }
+        if (item.isDir()) {
+            return false;
+        }
+        String objectName = item.objectName();
+        return isEntropyPlaced(segment, objectName.substring(objectName.lastIndexOf(delimiter) + delimiter.length()));
+    }
+
+    private boolean isEntropyPlaced(String segment, String name) {
+        return segment.length() == keyEntropyLength
+                && !name.contains(delimiter)
+                && NameHash.hex(name).startsWith(segment);
+    }
+
+    @Override
+    public Blob get(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, true, false);
+        if (packed != null) {
+            return packed;
+        }
+        if (singleFlight != null) {
+            return singleFlight.get(objectName, () -> getRemote(objectName));
+        }
+        return getRemote(objectName);
+    }
+
+    /**
+     * 从存储服务下载对象，对象不存在时再检查其他实例写入的打包对象
+     */
+    private Blob getRemote(String objectName) throws GeneralPolyStashException {
+        Blob packed;
+        try {
+            if (parallelDownloader != null) {
+                return getChunked(objectName);
+            }
+            GetObjectResponse res = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .build());
+            return readAhead(fromGetObjectResponse(res), res);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                // 对象可能由其他实例打包写入
+                packed = getPacked(objectName, true, true);
+                if (packed != null) {
+                    return packed;
+                }
+                throw new BlobNotFoundException(e.errorResponse().message(), e);
+            } else {
+                throw new IOErrorOccursException(e.errorResponse().message(), e);
+            }
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Unexpected error occurred while getting object '%s' from bucket '%s'", objectName, bucket), e);
+        }
+    }
+
+    /**
+     * 并行下载对象。第一个请求只读取第一个分块，同时从 Content-Range 中获得对象长度，
+     * 不超过一个分块的对象只需要这一个请求，更大的对象由 {@link S3ParallelDownloader} 并行下载其余分块
+     */
+    private Blob getChunked(String objectName) throws Exception {
+        GetObjectResponse res;
+        try {
+            res = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .offset(0L)
+                    .length((long) parallelDownloader.getChunkSize())
+                    .build());
+        } catch (ErrorResponseException e) {
+            if (!e.errorResponse().code().equalsIgnoreCase("InvalidRange")) {
+                throw e;
+            }
+            // 空对象不能按范围读取
+            res = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .build());
+            return fromGetObjectResponse(res);
+        }
+        Blob blob = fromGetObjectResponse(res);
+        long length = parseContentRangeLength(res.headers().get("Content-Range"));
+        if (length < 0) {
+            // 服务端忽略了 Range 头，响应中已经是整个对象
+            return readAhead(blob, res);
+        }
+        blob.setLength(length);
+        if (length <= parallelDownloader.getChunkSize()) {
+            return readAhead(blob, res);
+        }
+        // 其余分块已经由下载线程提前读取，不需要再预读
+        return blob.setPayload(new InputStreamPayload(parallelDownloader.stream(objectName, res.headers().get("ETag"), length, res)));
+    }
+
+    /**
+     * 启用预读时用预读数据流包装响应，长度已知且小于预读长度的对象只分配对象长度的缓冲区
+     */
+    Blob readAhead(Blob blob, InputStream inputStream) {
+        if (readAheadExecutor == null || blob.getLength() == 0) {
+            return blob;
+        }
+        int bufferSize = blob.getLength() > 0 ? (int) Math.min(readAheadSize, blob.getLength()) : readAheadSize;
+        try {
+            return blob.setPayload(new InputStreamPayload(new S3ReadAheadInputStream(inputStream, bufferSize, readAheadExecutor)));
+        } catch (RejectedExecutionException e) {
+            // 预读线程已经用尽或者存储已经关闭，直接返回响应
+            return blob;
+        }
+    }
+
+    /**
+     * 从形如 bytes 0-8388607/20971520 的 Content-Range 中解析对象长度
+     *
+     * @return 对象长度，没有 Content-Range 或长度未知时返回 -1
+     */
+    private static long parseContentRangeLength(String contentRange) {
+        if (StringUtils.isBlank(contentRange)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 把对象下载到本地文件，已有的文件会被覆盖。
+     * <p>
+     * 启用并行下载时，超过一个分块的对象按范围切分，由多个连接同时下载并按偏移量直接写入文件；
+     * 否则以单个请求顺序写入。下载失败时删除不完整的文件
+     *
+     * @param objectName 对象名称
+     * @param target     本地文件路径
+     * @return 对象的元数据，没有 payload
+     * @throws BlobNotFoundException 如果指定的对象不存在，抛出此异常
+     */
+    public Blob download(String objectName, Path target) throws GeneralPolyStashException {
+        Blob blob = stat(objectName);
+        // 打包的对象没有对应的 S3 对象，只能通过打包存储读取
+        boolean packed = packStore != null && packStore.lookup(objectName) != null;
+        if (parallelDownloader != null && !packed && blob.getLength() > parallelDownloader.getChunkSize()) {
+            parallelDownloader.download(objectName, blob.getETag(), blob.getLength(), target);
+            return blob;
+        }
+        try (InputStream inputStream = get(objectName).getPayload().stream()) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ignored) {
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to download object '%s' from bucket '%s' to '%s'", objectName, bucket, target), e);
+        }
+        return blob;
+    }
+
+    /**
+     * 列举布隆过滤器覆盖的前缀，把其中的对象名称加入过滤器，完成后过滤器开始回答查询。
+     * <p>
+     * 未调用时过滤器在第一次查询时由后台线程初始化，初始化之前的查询照常发起请求；
+     * 过滤器过期后同样在查询时由后台线程重新列举，期间的查询照常发起请求。
+     *
+     * @return 加入过滤器的名称数，未启用布隆过滤器时返回 0
+     * @throws GeneralPolyStashException 列举失败时抛出，过滤器保持未初始化或过期状态
+     */
+    public long seedBloomFilter() throws GeneralPolyStashException {
+        if (bloomFilter == null) {
+            return 0;
+        }
+        String prefix = bloomFilter.getPrefix();
+        // 列举开始之后其他实例写入的对象可能不在结果中，有效期从列举开始时计算
+        long startedAt = System.currentTimeMillis();
+        long count = 0;
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .prefix(prefix)
+                    .recursive(true)
+                    .build())) {
+                bloomFilter.add(result.get().objectName());
+                count++;
+            }
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to list objects with prefix '%s' in bucket '%s' to seed bloom filter", prefix, bucket), e);
+        }
+        if (packStore != null) {
+            for (String objectName : packStore.keys(prefix)) {
+                bloomFilter.add(objectName);
+                count++;
+            }
+        }
+        bloomFilter.markSeeded(startedAt);
+        return count;
+    }
+
+    /**
+     * 通过不存在记录和布隆过滤器判断对象是否确定不存在，布隆过滤器尚未初始化或已经过期时在后台开始列举
+     */
+    private boolean isKnownAbsent(String objectName) {
+        if (negativeCache != null && negativeCache.isAbsent(objectName)) {
+            return true;
+        }
+        if (bloomFilter == null) {
+            return false;
+        }
+        if (!bloomFilter.isSeeded() && bloomFilterSeeding.compareAndSet(false, true)) {
+            // 失败时在下一次查询时重试，成功后在过滤器过期时再次列举
+            asyncExecutor().submit(this::seedBloomFilter).whenComplete((count, e) -> bloomFilterSeeding.set(false));
+        }
+        return bloomFilter.isAbsent(objectName);
+    }
+
+    @Override
+    public Blob put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        String objectName = generateObjectName(prefix, payload);
+        return save(objectName, readableName, payload, userDefinedAttributes, contentType, false);
+    }
+
+    @Override
+    public Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        return save(objectName, readableName, payload, userDefinedAttributes, contentType, true);
+    }
+
+    /**
+     * 保存对象，上传前把名称加入布隆过滤器，上传结束后移除不存在记录
+     *
+     * @param replace 是否可能覆盖已有的对象，新生成的对象名称不需要清理同名的旧对象
+     */
+    private Blob save(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType, boolean replace) throws GeneralPolyStashException {
+        if (bloomFilter != null) {
+            bloomFilter.add(objectName);
+        }
+        try {
+            return saveObject(objectName, readableName, payload, userDefinedAttributes, contentType, replace);
+        } finally {
+            // 上传失败时对象也可能已经写入
+            if (negativeCache != null) {
+                negativeCache.invalidate(objectName);
+            }
+            forgetInFlight(objectName);
+        }
+    }
+
+    /**
+     * 写入或删除对象后调用，之后的 get 和 stat 不再加入写入之前开始的合并请求
+     */
+    void forgetInFlight(String objectName) {
+        if (singleFlight != null) {
+            singleFlight.forget(objectName);
+        }
+    }
+
+    private Blob saveObject(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType, boolean replace) throws GeneralPolyStashException {
+        // 长度已知且超过阈值的数据不需要预读
+        if (packStore != null && packThreshold > 0 && payload.length() <= packThreshold) {
+            // 最多读取阈值加一个字节，判断数据是否足够小
+            InputStream inputStream = null;
+            try {
+                inputStream = payload.stream();
+                byte[] head = inputStream.readNBytes(packThreshold + 1);
+                if (head.length <= packThreshold) {
+                    inputStream.close();
+                    return savePacked(objectName, readableName, head, userDefinedAttributes, contentType, replace);
+                }
+                if (payload.isRepeatable()) {
+                    inputStream.close();
+                } else {
+                    // 不可重复读取的数据需要拼接已经读取的部分
+                    payload = new InputStreamPayload(new SequenceInputStream(new ByteArrayInputStream(head), inputStream));
+                }
+            } catch (IOException e) {
+                IOUtils.closeQuietly(inputStream);
+                throw new IOErrorOccursException(
+                        String.format("Failed to read blob data of '%s'", objectName), e);
+            }
+        }
+        WriteResult result;
+        if (multipartUploader != null && multipartUploader.accepts(payload)) {
+            result = multipartUploader.upload(objectName, readableName, payload, userDefinedAttributes, contentType);
+        } else if (payload instanceof FilePayload filePayload) {
+            result = uploadFile(objectName, readableName, filePayload, userDefinedAttributes, contentType);
+        } else {
+            result = putStream(objectName, readableName, payload, userDefinedAttributes, contentType);
+        }
+        if (packStore != null) {
+            // 覆盖打包存储中的旧对象
+            packStore.remove(objectName);
+        }
+        if (statAfterPut) {
+            return stat(objectName);
+        }
+        return fromWriteResult(objectName, readableName, userDefinedAttributes, contentType, result);
+    }
+
+    /**
+     * 以携带 {@code If-None-Match: *} 的 PUT 请求上传，对象已经存在时 S3 返回 412。
+     * 要求存储服务支持条件写入，不支持的服务会忽略条件直接覆盖
+     */
+    @Override
+    public Blob putIfAbsent(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        if (packStore == null) {
+            return saveConditional(objectName, readableName, payload, userDefinedAttributes, contentType, "If-None-Match", "*");
+        }
+        Lock lock = conditionalWriteLocks.get(objectName);
+        lock.lock();
+        try {
+            if (getPacked(objectName, false, true) != null) {
+                throw new PreconditionFailedException(
+                        String.format("Precondition failed: object '%s' already exists in bucket '%s'", objectName, bucket));
+            }
+            return saveConditional(objectName, readableName, payload, userDefinedAttributes, contentType, "If-None-Match", "*");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 以携带 {@code If-Match} 的 PUT 请求上传，对象不存在或 ETag 不同时 S3 返回 412。
+     * 打包的对象没有对应的 S3 对象，只在当前实例内比较 ETag 后覆盖，与当前实例的其他条件写入互斥
+     */
+    @Override
+    public Blob putIfMatch(String objectName, String eTag, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        if (packStore == null) {
+            return saveIfMatch(objectName, eTag, readableName, payload, userDefinedAttributes, contentType);
+        }
+        Lock lock = conditionalWriteLocks.get(objectName);
+        lock.lock();
+        try {
+            return saveIfMatch(objectName, eTag, readableName, payload, userDefinedAttributes, contentType);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Blob saveIfMatch(String objectName, String eTag, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false, true);
+        if (packed != null) {
+            // If-Match 与 If-None-Match 使用相同的 ETag 比较规则
+            if (!ReadCondition.ifNoneMatch(eTag).isNotModified(packed)) {
+                throw new PreconditionFailedException(
+                        String.format("Precondition failed: ETag of object '%s' is '%s', expected '%s'", objectName, packed.getETag(), eTag));
+            }
+            return save(objectName, readableName, payload, userDefinedAttributes, contentType, true);
+        }
+        String trimmed = eTag.trim();
+        String condition = trimmed.equals("*") || trimmed.startsWith("\"") ? trimmed : "\"" + trimmed + "\"";
+        return saveConditional(objectName, readableName, payload, userDefinedAttributes, contentType, "If-Match", condition);
+    }
+
+    /**
+     * 条件写入，与 {@link #save} 一样维护布隆过滤器和不存在记录
+     */
+    private Blob saveConditional(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType,
+                                 String conditionHeader, String condition) throws GeneralPolyStashException {
+        if (bloomFilter != null) {
+            bloomFilter.add(objectName);
+        }
+        try {
+            WriteResult result = putConditional(objectName, readableName, payload, userDefinedAttributes, contentType, conditionHeader, condition);
+            if (statAfterPut) {
+                return stat(objectName);
+            }
+            return fromWriteResult(objectName, readableName, userDefinedAttributes, contentType, result);
+        } finally {
+            if (negativeCache != null) {
+                negativeCache.invalidate(objectName);
+            }
+            forgetInFlight(objectName);
+        }
+    }
+
+    /**
+     * 以单个 PUT 请求上传并携带条件。分片上传的条件只在完成请求时判断，因此条件写入不经过打包和分片上传，
+     * 单个请求最多上传 5 GiB。SDK 按分片长度在内存中缓冲数据流，超过 5 MiB 或长度未知的数据流先写入临时文件，
+     * 文件数据由 SDK 直接从文件中读取
+     */
+    private WriteResult putConditional(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType,
+                                       String conditionHeader, String condition) throws GeneralPolyStashException {
+        Path spooled = null;
+        try {
+            long length = payload.length();
+            if (length > ObjectWriteArgs.MAX_PART_SIZE) {
+                throw new OperationNotSupportedException(
+                        String.format("conditional put of object '%s' larger than %d bytes", objectName, ObjectWriteArgs.MAX_PART_SIZE));
+            }
+            if (!(payload instanceof FilePayload) && (length < 0 || length > DEFAULT_PART_SIZE)) {
+                spooled = Files.createTempFile("polystash-conditional-put-", ".tmp");
+                try (InputStream inputStream = payload.stream()) {
+                    length = Files.copy(inputStream, spooled, StandardCopyOption.REPLACE_EXISTING);
+                }
+                payload = new FilePayload(spooled.toFile());
+                if (length > ObjectWriteArgs.MAX_PART_SIZE) {
+                    throw new OperationNotSupportedException(
+                            String.format("conditional put of object '%s' larger than %d bytes", objectName, ObjectWriteArgs.MAX_PART_SIZE));
+                }
+            }
+            Map<String, String> headers = Map.of("Content-Disposition", ContentDisposition.attachment(readableName),
+                    conditionHeader, condition);
+            if (payload instanceof FilePayload filePayload) {
+                var argsBuilder = UploadObjectArgs.builder();
+                if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
+                    argsBuilder.userMetadata(userDefinedAttributes);
+                }
+                argsBuilder.bucket(bucket)
+                        .object(objectName)
+                        .contentType(contentType)
+                        .headers(headers)
+                        // 分片长度不小于文件长度，SDK 以单个请求上传
+                        .filename(filePayload.file().getPath(), Math.max(length, ObjectWriteArgs.MIN_MULTIPART_SIZE));
+                return new WriteResult(minioClient.uploadObject(argsBuilder.build()), length);
+            }
+            var argsBuilder = PutObjectArgs.builder();
+            if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
+                argsBuilder.userMetadata(userDefinedAttributes);
+            }
+            try (InputStream inputStream = payload.stream()) {
+                argsBuilder.bucket(bucket)
+                        .object(objectName)
+                        .contentType(contentType)
+                        .headers(headers)
+                        // 分片长度不小于对象长度，SDK 以单个请求上传
+                        .stream(inputStream, length, Math.max(length, ObjectWriteArgs.MIN_MULTIPART_SIZE));
+                return new WriteResult(minioClient.putObject(argsBuilder.build()), length);
+            }
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            // 同一对象的条件写入同时进行时 S3 可能返回 409 ConditionalRequestConflict
+            if (code.equalsIgnoreCase("PreconditionFailed") || code.equalsIgnoreCase("ConditionalRequestConflict")) {
+                throw new PreconditionFailedException(
+                        String.format("Precondition failed: %s '%s' does not hold for object '%s' in bucket '%s'", conditionHeader, condition, objectName, bucket), e);
+            }
+            throw new IOErrorOccursException(e.errorResponse().message(), e);
+        } catch (GeneralPolyStashException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to put object '%s' to bucket '%s'", objectName, bucket), e);
+        } finally {
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException ignored) {
+                    // 临时文件删除失败不影响上传结果
+                }
+            }
+        }
     }
 
-    @Override
-    public Blob get(String objectName) throws GeneralPolyStashException {
-        try {
-            GetObjectResponse res = minioClient.getObject(GetObjectArgs.builder()
-                    .bucket(bucket)
+    /**
+     * 以数据流上传对象。长度已知时由 SDK 按长度计算分片，不超过 5 MiB 的数据以单个携带 Content-Length 的请求上传；
+     * 长度未知时按 5 MiB 的分片缓冲数据流
+     */
+    private WriteResult putStream(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        long length = payload.length();
+        var argsBuilder = PutObjectArgs.builder();
+        if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
+            argsBuilder.userMetadata(userDefinedAttributes);
+        }
+        // 长度未知时统计实际上传的字节数
+        try (CountingInputStream inputStream = new CountingInputStream(payload.stream())) {
+            argsBuilder.bucket(bucket)
                     .object(objectName)
-                    .build());
-            return fromGetObjectResponse(res);
-        } catch (ErrorResponseException e) {
-            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
-                throw new BlobNotFoundException(e.errorResponse().message(), e);
+                    .contentType(contentType)
+                    .headers(Map.of("Content-Disposition", ContentDisposition.attachment(readableName)));
+            if (length >= 0) {
+                argsBuilder.stream(inputStream, length, -1);
             } else {
-                throw new IOErrorOccursException(e.errorResponse().message(), e);
+                argsBuilder.stream(inputStream, -1, DEFAULT_PART_SIZE);
             }
+            ObjectWriteResponse response = minioClient.putObject(argsBuilder.build());
+            return new WriteResult(response, inputStream.getCount());
         } catch (Exception e) {
             throw new IOErrorOccursException(
-                    String.format("Unexpected error occurred while getting object '%s' from bucket '%s'", objectName, bucket), e);
+                    String.format("Failed to put object '%s' to bucket '%s'", objectName, bucket), e);
         }
     }
 
-    @Override
-    public Blob put(String prefix, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
-        String objectName = generateObjectName(prefix);
-        return putOrReplace(objectName, readableName, payload, userDefinedAttributes, contentType);
-    }
-
-    @Override
-    public Blob putOrReplace(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
-        var argsBuilder = PutObjectArgs.builder();
+    /**
+     * 按路径上传文件，SDK 直接从文件中读取各个分片，不需要通过数据流缓冲
+     */
+    private WriteResult uploadFile(String objectName, String readableName, FilePayload payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        var argsBuilder = UploadObjectArgs.builder();
         if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
             argsBuilder.userMetadata(userDefinedAttributes);
         }
-        try (InputStream inputStream = payload.stream()) {
+        try {
             argsBuilder.bucket(bucket)
                     .object(objectName)
                     .contentType(contentType)
                     .headers(Map.of("Content-Disposition", ContentDisposition.attachment(readableName)))
-                    .stream(inputStream, -1, 5 * 1024 * 1024);
-            minioClient.putObject(argsBuilder.build());
+                    .filename(payload.file().getPath());
+            UploadObjectArgs args = argsBuilder.build();
+            return new WriteResult(minioClient.uploadObject(args), args.objectSize());
         } catch (Exception e) {
             throw new IOErrorOccursException(
-                    String.format("Failed to put object '%s' to bucket '%s'", objectName, bucket), e);
+                    String.format("Failed to upload file '%s' as object '%s' to bucket '%s'", payload.file(), objectName, bucket), e);
+        }
+    }
+
+    /**
+     * 把小对象写入打包存储，ETag 与单次 PUT 上传时 S3 返回的 ETag 相同
+     */
+    private Blob savePacked(String objectName, String readableName, byte[] data, Map<String, String> userDefinedAttributes, String contentType, boolean replace) throws GeneralPolyStashException {
+        String eTag;
+        try {
+            eTag = BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOErrorOccursException("MD5 algorithm is not available", e);
+        }
+        // 已经打包的对象没有同名的 S3 对象：打包时删除过，之后写入的 S3 对象会留下墓碑记录
+        boolean packedBefore = replace && packStore.lookup(objectName) != null;
+        S3PackStore.Entry entry = packStore.put(objectName, contentType, readableName, eTag, userDefinedAttributes, data);
+        if (replace && !packedBefore) {
+            // 打包的对象会遮蔽同名的 S3 对象，删除旧对象避免之后重新出现
+            removeObject(objectName, false);
+        }
+        return fromPackEntry(objectName, entry);
+    }
+
+    /**
+     * 从打包存储中读取对象
+     *
+     * @param refresh 未命中时是否加载其他实例新写入的打包对象
+     * @return 对象，未启用打包或对象不在打包存储中时返回 null
+     */
+    private Blob getPacked(String objectName, boolean acquirePayload, boolean refresh) throws GeneralPolyStashException {
+        if (packStore == null) {
+            return null;
+        }
+        S3PackStore.Entry entry = refresh ? packStore.lookupOrRefresh(objectName) : packStore.lookup(objectName);
+        if (entry == null) {
+            return null;
+        }
+        Blob blob = fromPackEntry(objectName, entry);
+        if (acquirePayload) {
+            InputStream inputStream = packStore.open(objectName);
+            if (inputStream == null) {
+                return null;
+            }
+            blob.setPayload(new InputStreamPayload(inputStream));
         }
-        return stat(objectName);
+        return blob;
     }
 
     @Override
     public Blob stat(String objectName) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false, false);
+        if (packed != null) {
+            return packed;
+        }
+        if (singleFlight != null) {
+            return singleFlight.stat(objectName, () -> statRemote(objectName));
+        }
+        return statRemote(objectName);
+    }
+
+    /**
+     * 从存储服务查询对象的元数据，对象不存在时再检查其他实例写入的打包对象
+     */
+    private Blob statRemote(String objectName) throws GeneralPolyStashException {
+        Blob packed;
         try {
             StatObjectArgs args = StatObjectArgs.builder()
                     .bucket(bucket)
@@ -150,6 +1091,10 @@ public class S3BlobStore extends BlobStore {
             return fromStatObjectResponse(minioClient.statObject(args));
         } catch (ErrorResponseException e) {
             if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                packed = getPacked(objectName, false, true);
+                if (packed != null) {
+                    return packed;
+                }
                 throw new BlobNotFoundException(e.errorResponse().message(), e);
             } else {
                 throw new IOErrorOccursException(e.errorResponse().message(), e);
@@ -162,39 +1107,420 @@ public class S3BlobStore extends BlobStore {
         }
     }
 
+    /**
+     * 以携带 If-None-Match 或 If-Modified-Since 的 GET 请求条件读取对象，对象未变化时服务端返回 304，不传输数据。
+     * 条件读取不经过并行下载和请求合并，打包的对象在本地判断条件
+     */
+    @Override
+    public ConditionalResult get(String objectName, ReadCondition condition) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false, false);
+        if (packed != null) {
+            return getPacked(objectName, condition);
+        }
+        try {
+            GetObjectResponse res = minioClient.getObject(withCondition(GetObjectArgs.builder(), condition)
+                    .bucket(bucket)
+                    .object(objectName)
+                    .build());
+            return ConditionalResult.modified(objectName, readAhead(fromGetObjectResponse(res), res));
+        } catch (ServerException e) {
+            if (e.statusCode() == 304) {
+                return ConditionalResult.notModified(objectName);
+            }
+            throw new IOErrorOccursException(
+                    String.format("Unexpected error occurred while getting object '%s' from bucket '%s'", objectName, bucket), e);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                // 对象可能由其他实例打包写入
+                packed = getPacked(objectName, false, true);
+                if (packed != null) {
+                    return getPacked(objectName, condition);
+                }
+                throw new BlobNotFoundException(e.errorResponse().message(), e);
+            }
+            throw new IOErrorOccursException(e.errorResponse().message(), e);
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Unexpected error occurred while getting object '%s' from bucket '%s'", objectName, bucket), e);
+        }
+    }
+
+    /**
+     * 以携带 If-None-Match 或 If-Modified-Since 的 HEAD 请求条件获取对象的元数据
+     */
+    @Override
+    public ConditionalResult stat(String objectName, ReadCondition condition) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false, false);
+        if (packed != null) {
+            return condition.isNotModified(packed)
+                    ? ConditionalResult.notModified(objectName)
+                    : ConditionalResult.modified(objectName, packed);
+        }
+        try {
+            StatObjectResponse res = minioClient.statObject(withCondition(StatObjectArgs.builder(), condition)
+                    .bucket(bucket)
+                    .object(objectName)
+                    .build());
+            return ConditionalResult.modified(objectName, fromStatObjectResponse(res));
+        } catch (ServerException e) {
+            if (e.statusCode() == 304) {
+                return ConditionalResult.notModified(objectName);
+            }
+            throw new IOErrorOccursException(
+                    String.format("S3 operation failed while getting object metadata for '%s' from bucket '%s'", objectName, bucket), e);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                packed = getPacked(objectName, false, true);
+                if (packed != null) {
+                    return condition.isNotModified(packed)
+                            ? ConditionalResult.notModified(objectName)
+                            : ConditionalResult.modified(objectName, packed);
+                }
+                throw new BlobNotFoundException(e.errorResponse().message(), e);
+            }
+            throw new IOErrorOccursException(e.errorResponse().message(), e);
+        } catch (InsufficientDataException | IOException | NoSuchAlgorithmException | InvalidKeyException |
+                 InvalidResponseException | XmlParserException | InternalException e) {
+            throw new IOErrorOccursException(
+                    String.format("S3 operation failed while getting object metadata for '%s' from bucket '%s'", objectName, bucket), e);
+        }
+    }
+
+    /**
+     * 在本地判断打包对象的读取条件，对象变化时再读取数据
+     */
+    private ConditionalResult getPacked(String objectName, ReadCondition condition) throws GeneralPolyStashException {
+        Blob packed = getPacked(objectName, false, false);
+        if (packed != null && condition.isNotModified(packed)) {
+            return ConditionalResult.notModified(objectName);
+        }
+        return ConditionalResult.modified(objectName, get(objectName));
+    }
+
+    /**
+     * 把读取条件转换为请求头，两个条件都提供时只发送 If-None-Match，与 HTTP 的规则一致
+     */
+    private static <B extends ObjectConditionalReadArgs.Builder<B, ?>> B withCondition(B builder, ReadCondition condition) {
+        if (condition.ifNoneMatch() != null) {
+            return builder.notMatchETag(condition.ifNoneMatch());
+        }
+        if (condition.ifModifiedSince() != null) {
+            return builder.modifiedSince(ZonedDateTime.ofInstant(condition.ifModifiedSince(), ZoneOffset.UTC));
+        }
+        return builder;
+    }
+
     @Override
     public void remove(String objectName, boolean silent) throws GeneralPolyStashException {
+        try {
+            removePackedOrObject(objectName, silent);
+        } finally {
+            forgetInFlight(objectName);
+        }
+    }
+
+    private void removePackedOrObject(String objectName, boolean silent) throws GeneralPolyStashException {
+        long stamp = negativeCache == null ? 0 : negativeCache.stamp(objectName);
+        if (packStore != null) {
+            try {
+                if (packStore.remove(objectName)) {
+                    recordAbsent(objectName, stamp);
+                    return;
+                }
+            } catch (GeneralPolyStashException e) {
+                if (!silent) {
+                    throw e;
+                }
+                return;
+            }
+        }
+        if (removeObject(objectName, silent)) {
+            recordAbsent(objectName, stamp);
+        }
+    }
+
+    /**
+     * 记录已经删除或确认不存在的对象
+     *
+     * @param stamp 删除或查询开始前取得的版本号
+     */
+    private void recordAbsent(String objectName, long stamp) {
+        if (negativeCache != null) {
+            negativeCache.recordAbsent(objectName, stamp);
+        }
+    }
+
+    /**
+     * 批量删除对象，打包存储中的对象的墓碑记录一起上传，其余对象每 {@value #REMOVE_BATCH_SIZE} 个通过一次批量删除请求删除
+     */
+    @Override
+    public List<RemoveResult> removeAll(Iterable<String> objectNames) throws GeneralPolyStashException {
+        List<RemoveResult> failures = new ArrayList<>();
+        Set<String> packed = Collections.emptySet();
+        if (packStore != null) {
+            List<String> names = new ArrayList<>();
+            objectNames.forEach(names::add);
+            objectNames = names;
+            Map<String, Long> stamps = new HashMap<>();
+            if (negativeCache != null) {
+                names.forEach(objectName -> stamps.put(objectName, negativeCache.stamp(objectName)));
+            }
+            List<RemoveResult> packedResults;
+            try {
+                packedResults = packStore.removeAll(names);
+            } catch (GeneralPolyStashException e) {
+                // 打包存储的索引无法加载时无法判断对象的位置
+                names.forEach(objectName -> failures.add(new RemoveResult(objectName, e)));
+                return failures;
+            }
+            packed = new HashSet<>();
+            for (RemoveResult result : packedResults) {
+                packed.add(result.getObjectName());
+                forgetInFlight(result.getObjectName());
+                if (result.isRemoved()) {
+                    recordAbsent(result.getObjectName(), stamps.getOrDefault(result.getObjectName(), 0L));
+                } else {
+                    failures.add(result);
+                }
+            }
+        }
+        List<String> batch = new ArrayList<>(REMOVE_BATCH_SIZE);
+        for (String objectName : objectNames) {
+            if (packed.contains(objectName)) {
+                continue;
+            }
+            batch.add(objectName);
+            if (batch.size() == REMOVE_BATCH_SIZE) {
+                removeBatch(batch, failures);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            removeBatch(batch, failures);
+        }
+        return failures;
+    }
+
+    private void removeBatch(List<String> objectNames, List<RemoveResult> failures) {
+        List<DeleteObject> objects = objectNames.stream().map(DeleteObject::new).toList();
+        long[] stamps = new long[objectNames.size()];
+        if (negativeCache != null) {
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = negativeCache.stamp(objectNames.get(i));
+            }
+        }
+        Set<String> failed = new LinkedHashSet<>();
+        try {
+            // 结果需要遍历才会真正发出请求，S3 只返回删除失败的对象，不存在的对象视为删除成功
+            for (Result<DeleteError> result : minioClient.removeObjects(RemoveObjectsArgs.builder()
+                    .bucket(bucket)
+                    .objects(objects)
+                    .build())) {
+                DeleteError error = result.get();
+                if (error.code().equalsIgnoreCase("NoSuchKey")) {
+                    continue;
+                }
+                failed.add(error.objectName());
+                failures.add(new RemoveResult(error.objectName(), new IOErrorOccursException(
+                        String.format("Failed to remove object '%s' from bucket '%s': %s %s", error.objectName(), bucket, error.code(), error.message()))));
+            }
+            for (int i = 0; i < stamps.length; i++) {
+                if (!failed.contains(objectNames.get(i))) {
+                    recordAbsent(objectNames.get(i), stamps[i]);
+                }
+            }
+        } catch (Exception e) {
+            // 整个请求失败时无法确定哪些对象已经删除，其余对象都视为删除失败
+            IOErrorOccursException exception = new IOErrorOccursException(
+                    String.format("Failed to remove %d objects from bucket '%s'", objectNames.size(), bucket), e);
+            for (String objectName : objectNames) {
+                if (!failed.contains(objectName)) {
+                    failures.add(new RemoveResult(objectName, exception));
+                }
+            }
+        } finally {
+            objectNames.forEach(this::forgetInFlight);
+        }
+    }
+
+    /**
+     * 删除 S3 对象
+     *
+     * @return 对象已经删除或原本不存在时返回 true，静默模式下删除失败时返回 false
+     */
+    private boolean removeObject(String objectName, boolean silent) throws GeneralPolyStashException {
         try {
             minioClient.removeObject(RemoveObjectArgs.builder()
                     .bucket(bucket)
                     .object(objectName)
                     .build());
+            return true;
         } catch (ErrorResponseException e) {
             // 如果抛出的错误是「不存在该对象」，则忽略异常
-            if (!e.errorResponse().code().equalsIgnoreCase("NoSuchKey") && !silent) {
+            if (e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                return true;
+            }
+            if (!silent) {
                 throw new IOErrorOccursException(e.errorResponse().message(), e);
             }
+            return false;
         } catch (InsufficientDataException | InternalException | InvalidKeyException |
                  InvalidResponseException | NoSuchAlgorithmException | ServerException |
                  XmlParserException | IOException e) {
             if (silent) {
-                return;
+                return false;
             }
             throw new IOErrorOccursException(
                     String.format("S3 operation failed while removing object '%s' from bucket '%s'", objectName, bucket), e);
         }
     }
 
+    /**
+     * 获取对象的元数据，对象不存在时返回空值。启用不存在记录或布隆过滤器时确定不存在的对象不发起请求
+     */
+    @Override
+    public Optional<Blob> tryStat(String objectName) throws GeneralPolyStashException {
+        if (isKnownAbsent(objectName)) {
+            return Optional.empty();
+        }
+        long stamp = negativeCache == null ? 0 : negativeCache.stamp(objectName);
+        try {
+            return Optional.of(stat(objectName));
+        } catch (BlobNotFoundException e) {
+            recordAbsent(objectName, stamp);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 获取对象，对象不存在时返回空值。启用不存在记录或布隆过滤器时确定不存在的对象不发起请求
+     */
+    @Override
+    public Optional<Blob> tryGet(String objectName) throws GeneralPolyStashException {
+        if (isKnownAbsent(objectName)) {
+            return Optional.empty();
+        }
+        long stamp = negativeCache == null ? 0 : negativeCache.stamp(objectName);
+        try {
+            return Optional.of(get(objectName));
+        } catch (BlobNotFoundException e) {
+            recordAbsent(objectName, stamp);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 判断对象是否存在，启用不存在记录或布隆过滤器时确定不存在的对象不发起请求
+     */
     @Override
     public boolean exist(String objectName) throws GeneralPolyStashException {
+        if (isKnownAbsent(objectName)) {
+            return false;
+        }
+        long stamp = negativeCache == null ? 0 : negativeCache.stamp(objectName);
         try {
             Blob blob = stat(objectName);
             return Objects.nonNull(blob);
         } catch (BlobNotFoundException e) {
+            recordAbsent(objectName, stamp);
             return false;
         }
     }
 
+    /**
+     * 批量判断对象是否存在。
+     * <p>
+     * 同一目录下的对象不少于 {@value #LIST_LOOKUP_THRESHOLD} 个时，从其中字典序最小的名称开始列举该目录，
+     * 以少量列举请求代替逐个 HEAD 请求；目录中夹杂的其他对象过多时提前停止列举，未覆盖的对象仍然并发逐个查询。
+     */
+    @Override
+    public List<Boolean> existAll(List<String> objectNames) throws GeneralPolyStashException {
+        Boolean[] results = new Boolean[objectNames.size()];
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        Map<String, NavigableSet<String>> directories = new LinkedHashMap<>();
+        for (int i = 0; i < objectNames.size(); i++) {
+            String objectName = objectNames.get(i);
+            if (packStore != null && packStore.lookup(objectName) != null) {
+                results[i] = true;
+                continue;
+            }
+            if (isKnownAbsent(objectName)) {
+                results[i] = false;
+                continue;
+            }
+            positions.computeIfAbsent(objectName, key -> new ArrayList<>()).add(i);
+            int index = objectName.lastIndexOf(delimiter);
+            String directory = index < 0 ? "" : objectName.substring(0, index + delimiter.length());
+            directories.computeIfAbsent(directory, key -> new TreeSet<>()).add(objectName);
+        }
+        Map<String, Boolean> resolved = new HashMap<>();
+        for (Map.Entry<String, NavigableSet<String>> directory : directories.entrySet()) {
+            if (directory.getValue().size() >= LIST_LOOKUP_THRESHOLD) {
+                listDirectory(directory.getKey(), directory.getValue(), resolved);
+            }
+        }
+        List<String> remaining = positions.keySet().stream()
+                .filter(objectName -> !resolved.containsKey(objectName))
+                .toList();
+        List<Boolean> remainingResults = super.existAll(remaining);
+        for (int i = 0; i < remaining.size(); i++) {
+            resolved.put(remaining.get(i), remainingResults.get(i));
+        }
+        positions.forEach((objectName, indexes) -> indexes.forEach(index -> results[index] = resolved.get(objectName)));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 非递归列举目录，从最小的名称开始直到越过最大的名称或检查的对象数达到上限，记录已覆盖范围内的对象是否存在
+     */
+    private void listDirectory(String directory, NavigableSet<String> objectNames, Map<String, Boolean> resolved)
+            throws GeneralPolyStashException {
+        String first = objectNames.first();
+        String last = objectNames.last();
+        if (first.length() <= directory.length()) {
+            return;
+        }
+        int budget = objectNames.size() * LIST_LOOKUP_SCAN_FACTOR;
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(directory)
+                .delimiter(delimiter)
+                // 去掉最后一个字符得到的名称排在 first 之前
+                .startAfter(first.substring(0, first.length() - 1))
+                .maxKeys(Math.min(budget, 1000))
+                .build();
+        String bound = last;
+        int checked = 0;
+        try {
+            for (Result<Item> result : minioClient.listObjects(args)) {
+                Item item = result.get();
+                if (item.isDir()) {
+                    continue;
+                }
+                String objectName = item.objectName();
+                if (objectName.compareTo(last) > 0) {
+                    break;
+                }
+                if (objectNames.contains(objectName)) {
+                    resolved.put(objectName, true);
+                }
+                if (++checked >= budget) {
+                    bound = objectName;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // 列举失败时已经确认存在的对象仍然有效，其余对象改为逐个查询
+            return;
+        }
+        for (String objectName : objectNames.headSet(bound, true)) {
+            if (!resolved.containsKey(objectName)) {
+                // 其他实例新写入的打包对象不在本地索引中
+                resolved.put(objectName, packStore != null && packStore.lookupOrRefresh(objectName) != null);
+            }
+        }
+    }
+
     /**
      * 获取一个预签名的 URL，用于访问对象
      *
@@ -378,6 +1704,30 @@ public class S3BlobStore extends BlobStore {
         return this.minioClient;
     }
 
+    /**
+     * 上传打包存储中缓冲的数据，停止后台线程
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (packStore != null) {
+            packStore.close();
+        }
+        if (multipartUploader != null) {
+            multipartUploader.close();
+        }
+        if (parallelDownloader != null) {
+            parallelDownloader.close();
+        }
+        if (readAheadExecutor != null) {
+            // 正在预读的数据流会在读完缓冲的数据后失败
+            readAheadExecutor.shutdownNow();
+        }
+        if (singleFlight != null) {
+            singleFlight.close();
+        }
+    }
+
 //    /**
 //     * 构造访问指定对象的公开 URL，当对象的 Prefix 或 Bucket 为 public-read 时可用
 //     * <pre>Example: {@code
@@ -401,7 +1751,7 @@ public class S3BlobStore extends BlobStore {
 //     * @return
 //     */
 
-    private String generateObjectName(String prefix) {
+    String generateObjectName(String prefix, Payload<?> payload) throws GeneralPolyStashException {
         // clean delimiter at the start and end of prefix
         if (prefix.startsWith(delimiter)) {
             prefix = prefix.substring(1);
@@ -409,10 +1759,15 @@ public class S3BlobStore extends BlobStore {
         if (prefix.endsWith(delimiter)) {
             prefix = prefix.substring(0, prefix.length() - 1);
         }
+        String generatedName = objectNameGenerator.generate(payload);
+        if (keyEntropyLength > 0) {
+            // 在前缀之后插入由名称哈希派生的字符，例如 prefix/7f/id
+            generatedName = NameHash.hex(generatedName).substring(0, keyEntropyLength) + delimiter + generatedName;
+        }
         if (StringUtils.isBlank(prefix)) {
-            return UUID.randomUUID().toString();
+            return generatedName;
         } else {
-            return prefix + delimiter + UUID.randomUUID();
+            return prefix + delimiter + generatedName;
         }
     }
 
@@ -422,14 +1777,15 @@ public class S3BlobStore extends BlobStore {
      * @param s3StatResp
      * @return
      */
-    private Blob fromStatObjectResponse(StatObjectResponse s3StatResp) {
+    Blob fromStatObjectResponse(StatObjectResponse s3StatResp) {
         Blob blob = new Blob()
                 .setObjectName(s3StatResp.object())
                 .setLastModified(s3StatResp.lastModified().toInstant())
                 .setContentType(s3StatResp.contentType())
                 .setLength(s3StatResp.size())
                 .setLength(s3StatResp.size())
-                .setContentType(s3StatResp.contentType());
+                .setContentType(s3StatResp.contentType())
+                .setVersionId(s3StatResp.versionId());
         String originalETag = s3StatResp.etag();
         // MinIO 返回的 ETag 可能被双引号包裹
         blob.setETag(originalETag.replaceAll("\"", StringPool.EMPTY));
@@ -454,18 +1810,73 @@ public class S3BlobStore extends BlobStore {
         return blob;
     }
 
+    /**
+     * 从上传请求的参数和响应构建 S3Blob，没有 payload。
+     * <p>
+     * 响应中没有最后修改时间，使用响应的 Date 头代替，与存储记录的时间可能相差几秒；
+     * 与 stat 返回的结果一致，用户自定义属性的名称转换为小写
+     */
+    Blob fromWriteResult(String objectName, String readableName, Map<String, String> userDefinedAttributes, String contentType, WriteResult result) {
+        ObjectWriteResponse response = result.response();
+        Blob blob = new Blob()
+                .setObjectName(objectName)
+                .setContentType(StringUtils.isBlank(contentType) ? "application/octet-stream" : contentType)
+                .setLength(result.length())
+                .setVersionId(response.versionId());
+        if (StringUtils.isNotBlank(response.etag())) {
+            // MinIO 返回的 ETag 可能被双引号包裹
+            blob.setETag(response.etag().replaceAll("\"", StringPool.EMPTY));
+        }
+        try {
+            blob.setLastModified(ZonedDateTime.parse(response.headers().get("Date"), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (Exception ignored) {
+        }
+        if (userDefinedAttributes != null && !userDefinedAttributes.isEmpty()) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            userDefinedAttributes.forEach((key, value) -> attributes.put(key.toLowerCase(Locale.ROOT), value));
+            blob.setUserDefinedAttributes(attributes);
+        }
+        if (StringUtils.isNotBlank(readableName)) {
+            blob.setReadableName(readableName);
+        }
+        return blob;
+    }
+
+    /**
+     * 从打包存储的索引项构建 S3Blob，没有 payload
+     */
+    private Blob fromPackEntry(String objectName, S3PackStore.Entry entry) {
+        Blob blob = new Blob()
+                .setObjectName(objectName)
+                .setLastModified(Instant.ofEpochMilli(entry.lastModified()))
+                .setContentType(entry.contentType())
+                .setLength(entry.length())
+                .setETag(entry.eTag());
+        if (!entry.userDefinedAttributes().isEmpty()) {
+            blob.setUserDefinedAttributes(entry.userDefinedAttributes());
+        }
+        if (StringUtils.isNotBlank(entry.readableName())) {
+            blob.setReadableName(entry.readableName());
+        }
+        return blob;
+    }
+
     /**
      * 从 list 方法中返回的 Item 构建 S3Blob，没有 payload, content-type, content-disposition
      *
      * @param s3ItemResp
      * @return
      */
-    private Blob fromItem(Item s3ItemResp) {
+    Blob fromItem(Item s3ItemResp) {
         Blob blob = new Blob()
                 .setObjectName(s3ItemResp.objectName())
                 .setETag(s3ItemResp.etag())
-                .setLastModified(s3ItemResp.lastModified().toInstant())
-                .setLength(s3ItemResp.size());
+                .setLength(s3ItemResp.size())
+                .setVersionId(s3ItemResp.versionId());
+        // 非递归列举返回的目录没有最后修改时间
+        if (!s3ItemResp.isDir()) {
+            blob.setLastModified(s3ItemResp.lastModified().toInstant());
+        }
         Map<String, String> userMetadata = s3ItemResp.userMetadata();
         if (Objects.nonNull(userMetadata) && !userMetadata.isEmpty()) {
             blob.setUserDefinedAttributes(userMetadata);
@@ -480,10 +1891,11 @@ public class S3BlobStore extends BlobStore {
      * @return
      * @throws IOException
      */
-    private Blob fromGetObjectResponse(GetObjectResponse s3GetResp) {
+    Blob fromGetObjectResponse(GetObjectResponse s3GetResp) {
         Headers headers = s3GetResp.headers();
         Blob blob = new Blob()
                 .setObjectName(s3GetResp.object())
+                .setVersionId(headers.get("x-amz-version-id"))
                 .setPayload(new InputStreamPayload(s3GetResp));
         String etag = headers.get("ETag");
         if (StringUtils.isNotBlank(etag)) {
@@ -510,4 +1922,13 @@ public class S3BlobStore extends BlobStore {
         }
         return blob;
     }
+
+    /**
+     * 上传请求的结果
+     *
+     * @param response S3 返回的响应
+     * @param length   实际上传的字节数
+     */
+    record WriteResult(ObjectWriteResponse response, long length) {
+    }
 }
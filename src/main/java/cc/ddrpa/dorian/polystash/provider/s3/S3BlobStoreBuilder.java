@@ -2,10 +2,21 @@ package cc.ddrpa.dorian.polystash.provider.s3;
 
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
 import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import cc.ddrpa.dorian.polystash.utils.naming.ObjectNameGenerators;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 public class S3BlobStoreBuilder implements BlobStoreBuilder {
 
     public static final String TYPE = "s3";
@@ -16,6 +27,25 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
     private String accessKey;
     private String secretKey;
     private String region;
+    private int keyEntropyLength;
+    private int packThreshold;
+    private int packFlushSize = S3PackStore.DEFAULT_FLUSH_SIZE;
+    private Duration packFlushInterval = S3PackStore.DEFAULT_FLUSH_INTERVAL;
+    private int uploadPartSize = S3MultipartUploader.DEFAULT_PART_SIZE;
+    private int uploadConcurrency = S3MultipartUploader.DEFAULT_CONCURRENCY;
+    private long uploadBufferBudget = S3UploadBufferPool.DEFAULT_BUDGET;
+    private boolean statAfterPut;
+    private int downloadChunkSize = S3ParallelDownloader.DEFAULT_CHUNK_SIZE;
+    private int downloadConcurrency = S3ParallelDownloader.DEFAULT_CONCURRENCY;
+    private int readAheadSize;
+    private boolean singleFlight;
+    private Duration negativeCacheTtl = Duration.ZERO;
+    private int negativeCacheSize = S3NegativeCache.DEFAULT_MAX_SIZE;
+    private String bloomFilterPrefix;
+    private int bloomFilterExpectedInsertions = S3BloomFilter.DEFAULT_EXPECTED_INSERTIONS;
+    private Duration bloomFilterRefreshInterval = S3BloomFilter.DEFAULT_REFRESH_INTERVAL;
+    private int asyncConcurrency = BlobStore.DEFAULT_ASYNC_CONCURRENCY;
+    private ObjectNameGenerator objectNameGenerator;
 
     @Override
     public BlobStoreBuilder name(String blobStoreName) {
@@ -32,17 +62,71 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
         this.accessKey = properties.getAccessKey();
         this.secretKey = properties.getSecretKey();
         this.region = properties.getRegion();
+        this.keyEntropyLength = properties.getKeyEntropyLength();
+        this.packThreshold = properties.getPackThreshold();
+        this.packFlushSize = properties.getPackFlushSize();
+        this.packFlushInterval = properties.getPackFlushInterval();
+        this.uploadPartSize = properties.getUploadPartSize();
+        this.uploadConcurrency = properties.getUploadConcurrency();
+        this.uploadBufferBudget = properties.getUploadBufferBudget();
+        this.statAfterPut = properties.isStatAfterPut();
+        this.downloadChunkSize = properties.getDownloadChunkSize();
+        this.downloadConcurrency = properties.getDownloadConcurrency();
+        this.readAheadSize = properties.getReadAheadSize();
+        this.singleFlight = properties.isSingleFlight();
+        this.negativeCacheTtl = properties.getNegativeCacheTtl();
+        this.negativeCacheSize = properties.getNegativeCacheSize();
+        this.bloomFilterPrefix = properties.getBloomFilterPrefix();
+        this.bloomFilterExpectedInsertions = properties.getBloomFilterExpectedInsertions();
+        this.bloomFilterRefreshInterval = properties.getBloomFilterRefreshInterval();
+        this.asyncConcurrency = Objects.requireNonNullElse(fullBlobStoreProperties.getAsyncConcurrency(), BlobStore.DEFAULT_ASYNC_CONCURRENCY);
+        this.objectNameGenerator = ObjectNameGenerators.create(fullBlobStoreProperties.getNameGenerator(),
+                fullBlobStoreProperties.getExtra());
         return this;
     }
 
     @Override
     public BlobStore build() {
+        OkHttpClient httpClient = newHttpClient(Math.max(asyncConcurrency, uploadConcurrency));
         MinioClient minioClient = MinioClient.builder()
                 .endpoint(endpoint)
                 .region(region)
                 .credentials(accessKey, secretKey)
+                .httpClient(httpClient)
+                .build();
+        S3BlobStore blobStore = new S3BlobStore(blobStoreName, endpoint, bucket, minioClient, keyEntropyLength);
+        if (objectNameGenerator != null) {
+            blobStore.replaceObjectNameGenerator(objectNameGenerator);
+        }
+        if (packThreshold > 0) {
+            blobStore.openPackStore(packThreshold, packFlushSize, packFlushInterval);
+        }
+        MinioAsyncClient asyncClient = MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .region(region)
+                .credentials(accessKey, secretKey)
+                .httpClient(httpClient)
                 .build();
-        return new S3BlobStore(blobStoreName, endpoint, bucket, minioClient);
+        blobStore.openMultipartUploader(asyncClient, region, uploadPartSize, uploadConcurrency, uploadBufferBudget);
+        blobStore.openAsync(asyncClient, region);
+        blobStore.setStatAfterPut(statAfterPut);
+        if (downloadConcurrency > 1) {
+            blobStore.openParallelDownloader(downloadChunkSize, downloadConcurrency);
+        }
+        if (readAheadSize > 0) {
+            blobStore.openReadAhead(readAheadSize);
+        }
+        if (singleFlight) {
+            blobStore.openSingleFlight();
+        }
+        if (!negativeCacheTtl.isZero()) {
+            blobStore.openNegativeCache(negativeCacheTtl, negativeCacheSize);
+        }
+        if (bloomFilterPrefix != null) {
+            blobStore.openBloomFilter(bloomFilterPrefix, bloomFilterExpectedInsertions, bloomFilterRefreshInterval);
+        }
+        blobStore.limitAsyncConcurrency(asyncConcurrency);
+        return blobStore;
     }
 
     /**
@@ -77,6 +161,78 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
         this.region = region;
     }
 
+    public void setKeyEntropyLength(int keyEntropyLength) {
+        this.keyEntropyLength = keyEntropyLength;
+    }
+
+    public void setPackThreshold(int packThreshold) {
+        this.packThreshold = packThreshold;
+    }
+
+    public void setPackFlushSize(int packFlushSize) {
+        this.packFlushSize = packFlushSize;
+    }
+
+    public void setPackFlushInterval(Duration packFlushInterval) {
+        this.packFlushInterval = packFlushInterval;
+    }
+
+    public void setUploadPartSize(int uploadPartSize) {
+        this.uploadPartSize = uploadPartSize;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    public void setUploadBufferBudget(long uploadBufferBudget) {
+        this.uploadBufferBudget = uploadBufferBudget;
+    }
+
+    public void setStatAfterPut(boolean statAfterPut) {
+        this.statAfterPut = statAfterPut;
+    }
+
+    public void setDownloadChunkSize(int downloadChunkSize) {
+        this.downloadChunkSize = downloadChunkSize;
+    }
+
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = downloadConcurrency;
+    }
+
+    public void setReadAheadSize(int readAheadSize) {
+        this.readAheadSize = readAheadSize;
+    }
+
+    public void setSingleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public void setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
+    public void setNegativeCacheSize(int negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+    }
+
+    public void setBloomFilterPrefix(String bloomFilterPrefix) {
+        this.bloomFilterPrefix = bloomFilterPrefix;
+    }
+
+    public void setBloomFilterExpectedInsertions(int bloomFilterExpectedInsertions) {
+        this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+    }
+
+    public void setBloomFilterRefreshInterval(Duration bloomFilterRefreshInterval) {
+        this.bloomFilterRefreshInterval = bloomFilterRefreshInterval;
+    }
+
+    public void setObjectNameGenerator(ObjectNameGenerator objectNameGenerator) {
+        this.objectNameGenerator = objectNameGenerator;
+    }
+
     @Override
     public void validate(FullBlobStoreProperties properties) {
         // S3 存储验证
@@ -98,6 +254,99 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
             throw new IllegalArgumentException(
                     String.format("S3 BlobStore '%s' 缺少认证信息，需要提供 credentials 文件或 accessKey + secretKey", blobStoreName));
         }
+        if (properties.getKeyEntropyLength() != null
+                && (properties.getKeyEntropyLength() < 0 || properties.getKeyEntropyLength() > S3BlobStore.MAX_KEY_ENTROPY_LENGTH)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'keyEntropyLength' 配置必须在 0 到 %d 之间", blobStoreName, S3BlobStore.MAX_KEY_ENTROPY_LENGTH));
+        }
+        int threshold = properties.getPackThreshold() == null ? 0 : properties.getPackThreshold();
+        if (threshold < 0 || threshold > S3PackStore.MAX_THRESHOLD) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'packThreshold' 配置必须在 0 到 %d 之间", blobStoreName, S3PackStore.MAX_THRESHOLD));
+        }
+        if (properties.getPackFlushSize() != null
+                && (properties.getPackFlushSize() < threshold || properties.getPackFlushSize() > S3PackStore.MAX_FLUSH_SIZE)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'packFlushSize' 配置必须在 packThreshold 到 %d 之间", blobStoreName, S3PackStore.MAX_FLUSH_SIZE));
+        }
+        if (properties.getPackFlushInterval() != null && properties.getPackFlushInterval().isNegative()) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'packFlushInterval' 配置不能为负数", blobStoreName));
+        }
+        if (properties.getUploadPartSize() != null
+                && (properties.getUploadPartSize() < S3MultipartUploader.MIN_PART_SIZE || properties.getUploadPartSize() > S3MultipartUploader.MAX_PART_SIZE)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'uploadPartSize' 配置必须在 %d 到 %d 之间", blobStoreName, S3MultipartUploader.MIN_PART_SIZE, S3MultipartUploader.MAX_PART_SIZE));
+        }
+        if (properties.getUploadConcurrency() != null
+                && (properties.getUploadConcurrency() < 1 || properties.getUploadConcurrency() > S3MultipartUploader.MAX_CONCURRENCY)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'uploadConcurrency' 配置必须在 1 到 %d 之间", blobStoreName, S3MultipartUploader.MAX_CONCURRENCY));
+        }
+        int partSize = properties.getUploadPartSize() == null ? S3MultipartUploader.DEFAULT_PART_SIZE : properties.getUploadPartSize();
+        if (properties.getUploadBufferBudget() != null && properties.getUploadBufferBudget() < partSize) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'uploadBufferBudget' 配置不能小于 uploadPartSize", blobStoreName));
+        }
+        if (properties.getDownloadChunkSize() != null
+                && (properties.getDownloadChunkSize() < S3ParallelDownloader.MIN_CHUNK_SIZE || properties.getDownloadChunkSize() > S3ParallelDownloader.MAX_CHUNK_SIZE)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'downloadChunkSize' 配置必须在 %d 到 %d 之间", blobStoreName, S3ParallelDownloader.MIN_CHUNK_SIZE, S3ParallelDownloader.MAX_CHUNK_SIZE));
+        }
+        if (properties.getDownloadConcurrency() != null
+                && (properties.getDownloadConcurrency() < 1 || properties.getDownloadConcurrency() > S3ParallelDownloader.MAX_CONCURRENCY)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'downloadConcurrency' 配置必须在 1 到 %d 之间", blobStoreName, S3ParallelDownloader.MAX_CONCURRENCY));
+        }
+        if (properties.getReadAheadSize() != null && properties.getReadAheadSize() != 0
+                && (properties.getReadAheadSize() < S3ReadAheadInputStream.MIN_SIZE || properties.getReadAheadSize() > S3ReadAheadInputStream.MAX_SIZE)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'readAheadSize' 配置必须为 0 或在 %d 到 %d 之间", blobStoreName, S3ReadAheadInputStream.MIN_SIZE, S3ReadAheadInputStream.MAX_SIZE));
+        }
+        if (properties.getNegativeCacheTtl() != null
+                && (properties.getNegativeCacheTtl().isNegative() || properties.getNegativeCacheTtl().compareTo(S3NegativeCache.MAX_TTL) > 0)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'negativeCacheTtl' 配置必须在 0 到 %s 之间", blobStoreName, S3NegativeCache.MAX_TTL));
+        }
+        if (properties.getNegativeCacheSize() != null && properties.getNegativeCacheSize() < 1) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'negativeCacheSize' 配置必须大于 0", blobStoreName));
+        }
+        if (properties.getBloomFilterExpectedInsertions() != null
+                && (properties.getBloomFilterExpectedInsertions() < 1 || properties.getBloomFilterExpectedInsertions() > S3BloomFilter.MAX_EXPECTED_INSERTIONS)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'bloomFilterExpectedInsertions' 配置必须在 1 到 %d 之间", blobStoreName, S3BloomFilter.MAX_EXPECTED_INSERTIONS));
+        }
+        if (properties.getBloomFilterRefreshInterval() != null && properties.getBloomFilterRefreshInterval().isNegative()) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'bloomFilterRefreshInterval' 配置不能为负数", blobStoreName));
+        }
+        if (properties.getAsyncConcurrency() != null
+                && (properties.getAsyncConcurrency() < 1 || properties.getAsyncConcurrency() > BlobStore.MAX_ASYNC_CONCURRENCY)) {
+            throw new IllegalArgumentException(
+                    String.format("S3 BlobStore '%s' 的 'asyncConcurrency' 配置必须在 1 到 %d 之间", blobStoreName, BlobStore.MAX_ASYNC_CONCURRENCY));
+        }
+    }
+
+    /**
+     * 创建同步客户端和异步客户端共用的 HTTP 客户端，超时等设置与 MinIO 的默认客户端一致。
+     * <p>
+     * OkHttp 默认只保留 5 个空闲连接，异步请求对同一主机最多并发 5 个，批量操作时会反复建立连接或排队，
+     * 因此连接池和单主机并发数按异步接口和分片上传的并发上限设置。
+     *
+     * @param maxConnections 预期同时使用的最大连接数
+     */
+    static OkHttpClient newHttpClient(int maxConnections) {
+        int connections = Math.max(maxConnections, 5);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(connections, 64));
+        dispatcher.setMaxRequestsPerHost(connections);
+        long timeout = TimeUnit.MINUTES.toMillis(5);
+        return HttpUtils.newDefaultHttpClient(timeout, timeout, timeout)
+                .newBuilder()
+                .connectionPool(new ConnectionPool(connections, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .build();
     }
 
     public static class MinIOBuilder {
@@ -107,6 +356,24 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
         private String accessKey;
         private String secretKey;
         private String region;
+        private int keyEntropyLength;
+        private int packThreshold;
+        private int packFlushSize = S3PackStore.DEFAULT_FLUSH_SIZE;
+        private Duration packFlushInterval = S3PackStore.DEFAULT_FLUSH_INTERVAL;
+        private int uploadPartSize = S3MultipartUploader.DEFAULT_PART_SIZE;
+        private int uploadConcurrency = S3MultipartUploader.DEFAULT_CONCURRENCY;
+        private long uploadBufferBudget = S3UploadBufferPool.DEFAULT_BUDGET;
+        private boolean statAfterPut;
+        private int downloadChunkSize = S3ParallelDownloader.DEFAULT_CHUNK_SIZE;
+        private int downloadConcurrency = S3ParallelDownloader.DEFAULT_CONCURRENCY;
+        private int readAheadSize;
+        private boolean singleFlight;
+        private Duration negativeCacheTtl = Duration.ZERO;
+        private int negativeCacheSize = S3NegativeCache.DEFAULT_MAX_SIZE;
+        private String bloomFilterPrefix;
+        private int bloomFilterExpectedInsertions = S3BloomFilter.DEFAULT_EXPECTED_INSERTIONS;
+        private Duration bloomFilterRefreshInterval = S3BloomFilter.DEFAULT_REFRESH_INTERVAL;
+        private int asyncConcurrency = BlobStore.DEFAULT_ASYNC_CONCURRENCY;
 
         public MinIOBuilder(String blobStoreName) {
             this.blobStoreName = blobStoreName;
@@ -133,13 +400,170 @@ public class S3BlobStoreBuilder implements BlobStoreBuilder {
             return this;
         }
 
+        /**
+         * 生成对象名称时在前缀之后插入的哈希字符数
+         */
+        public MinIOBuilder keyEntropyLength(int keyEntropyLength) {
+            this.keyEntropyLength = keyEntropyLength;
+            return this;
+        }
+
+        /**
+         * 启用小对象打包，不超过阈值的对象合并成打包对象上传
+         *
+         * @param packThreshold 打包阈值（字节）
+         * @param flushSize     缓冲的数据达到该长度后立即上传
+         * @param flushInterval 写入在缓冲区中等待的最长时间
+         */
+        public MinIOBuilder pack(int packThreshold, int flushSize, Duration flushInterval) {
+            this.packThreshold = packThreshold;
+            this.packFlushSize = flushSize;
+            this.packFlushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * 并行分片上传的配置，长度未知或超过一个分片的对象拆分成多个分片同时上传
+         *
+         * @param partSize    分片长度（字节），不能小于 5 MiB
+         * @param concurrency 同时上传的分片数
+         */
+        public MinIOBuilder multipartUpload(int partSize, int concurrency) {
+            this.uploadPartSize = partSize;
+            this.uploadConcurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 所有上传同时占用的分片缓冲区总长度上限，用尽时读取下一个分片的线程阻塞
+         *
+         * @param bufferBudget 缓冲区总长度（字节），不能小于分片长度
+         */
+        public MinIOBuilder uploadBufferBudget(long bufferBudget) {
+            this.uploadBufferBudget = bufferBudget;
+            return this;
+        }
+
+        /**
+         * 上传后是否额外发起一次 stat 请求获取对象的元数据
+         */
+        public MinIOBuilder statAfterPut(boolean statAfterPut) {
+            this.statAfterPut = statAfterPut;
+            return this;
+        }
+
+        /**
+         * 启用并行下载，超过一个分块的对象按范围切分成多个分块同时下载
+         *
+         * @param chunkSize   分块长度（字节），取值 1 MiB 到 256 MiB
+         * @param concurrency 同时下载的分块数，1 表示不启用并行下载
+         */
+        public MinIOBuilder parallelDownload(int chunkSize, int concurrency) {
+            this.downloadChunkSize = chunkSize;
+            this.downloadConcurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 启用预读，读取对象时由后台线程持续读取响应
+         *
+         * @param readAheadSize 每个数据流的预读缓冲区长度（字节），取值 64 KiB 到 64 MiB，0 表示不预读
+         */
+        public MinIOBuilder readAhead(int readAheadSize) {
+            this.readAheadSize = readAheadSize;
+            return this;
+        }
+
+        /**
+         * 是否合并同一对象的并发 stat 和 get 请求
+         */
+        public MinIOBuilder singleFlight(boolean singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        /**
+         * 启用不存在记录，确认不存在的对象在有效期内直接回答不存在
+         *
+         * @param ttl     记录的有效期，0 表示不记录
+         * @param maxSize 最多记录的对象数
+         */
+        public MinIOBuilder negativeCache(Duration ttl, int maxSize) {
+            this.negativeCacheTtl = ttl;
+            this.negativeCacheSize = maxSize;
+            return this;
+        }
+
+        /**
+         * 启用布隆过滤器，前缀下确定不存在的对象不发起请求
+         *
+         * @param prefix             过滤器覆盖的名称前缀，空字符串表示整个存储桶
+         * @param expectedInsertions 预计的对象数
+         */
+        public MinIOBuilder bloomFilter(String prefix, int expectedInsertions) {
+            return bloomFilter(prefix, expectedInsertions, S3BloomFilter.DEFAULT_REFRESH_INTERVAL);
+        }
+
+        /**
+         * 启用布隆过滤器，前缀下确定不存在的对象不发起请求
+         *
+         * @param prefix             过滤器覆盖的名称前缀，空字符串表示整个存储桶
+         * @param expectedInsertions 预计的对象数
+         * @param refreshInterval    过滤器过期后重新列举前缀的间隔，0 表示不会过期，只适用于前缀下的对象都由当前实例写入的场景
+         */
+        public MinIOBuilder bloomFilter(String prefix, int expectedInsertions, Duration refreshInterval) {
+            this.bloomFilterPrefix = prefix;
+            this.bloomFilterExpectedInsertions = expectedInsertions;
+            this.bloomFilterRefreshInterval = refreshInterval;
+            return this;
+        }
+
+        /**
+         * 异步接口同时执行的最大操作数
+         */
+        public MinIOBuilder asyncConcurrency(int asyncConcurrency) {
+            this.asyncConcurrency = asyncConcurrency;
+            return this;
+        }
+
         public S3BlobStore build() {
+            OkHttpClient httpClient = newHttpClient(Math.max(asyncConcurrency, uploadConcurrency));
             MinioClient minioClient = MinioClient.builder()
                     .endpoint(endpoint)
                     .region(region)
                     .credentials(accessKey, secretKey)
+                    .httpClient(httpClient)
+                    .build();
+            S3BlobStore blobStore = new S3BlobStore(blobStoreName, endpoint, bucket, minioClient, keyEntropyLength);
+            if (packThreshold > 0) {
+                blobStore.openPackStore(packThreshold, packFlushSize, packFlushInterval);
+            }
+            MinioAsyncClient asyncClient = MinioAsyncClient.builder()
+                    .endpoint(endpoint)
+                    .region(region)
+                    .credentials(accessKey, secretKey)
+                    .httpClient(httpClient)
                     .build();
-            return new S3BlobStore(blobStoreName, endpoint, bucket, minioClient);
+            blobStore.openMultipartUploader(asyncClient, region, uploadPartSize, uploadConcurrency, uploadBufferBudget);
+            blobStore.openAsync(asyncClient, region);
+            blobStore.setStatAfterPut(statAfterPut);
+            if (downloadConcurrency > 1) {
+                blobStore.openParallelDownloader(downloadChunkSize, downloadConcurrency);
+            }
+            if (readAheadSize > 0) {
+                blobStore.openReadAhead(readAheadSize);
+            }
+            if (singleFlight) {
+                blobStore.openSingleFlight();
+            }
+            if (!negativeCacheTtl.isZero()) {
+                blobStore.openNegativeCache(negativeCacheTtl, negativeCacheSize);
+            }
+            if (bloomFilterPrefix != null) {
+                blobStore.openBloomFilter(bloomFilterPrefix, bloomFilterExpectedInsertions, bloomFilterRefreshInterval);
+            }
+            blobStore.limitAsyncConcurrency(asyncConcurrency);
+            return blobStore;
         }
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.Objects;
 
 public class S3BlobStoreProperties implements BlobStoreProperties {
@@ -37,6 +38,74 @@ public class S3BlobStoreProperties implements BlobStoreProperties {
      * Bucket name of bucket
      */
     private String bucket;
+    /**
+     * Count of hash-derived characters inserted after prefix of generated object names
+     */
+    private int keyEntropyLength = 0;
+    /**
+     * Objects no longer than this threshold are packed together, 0 means packing is disabled
+     */
+    private int packThreshold = 0;
+    /**
+     * Buffered bytes that trigger uploading a pack immediately
+     */
+    private int packFlushSize = S3PackStore.DEFAULT_FLUSH_SIZE;
+    /**
+     * Longest time a write waits in the buffer before the pack is uploaded
+     */
+    private Duration packFlushInterval = S3PackStore.DEFAULT_FLUSH_INTERVAL;
+    /**
+     * Part size of parallel multipart uploads
+     */
+    private int uploadPartSize = S3MultipartUploader.DEFAULT_PART_SIZE;
+    /**
+     * Count of parts uploaded concurrently
+     */
+    private int uploadConcurrency = S3MultipartUploader.DEFAULT_CONCURRENCY;
+    /**
+     * Total size of part buffers held by all uploads at the same time
+     */
+    private long uploadBufferBudget = S3UploadBufferPool.DEFAULT_BUDGET;
+    /**
+     * Whether to send an extra stat request after each upload
+     */
+    private boolean statAfterPut = false;
+    /**
+     * Chunk size of parallel ranged downloads
+     */
+    private int downloadChunkSize = S3ParallelDownloader.DEFAULT_CHUNK_SIZE;
+    /**
+     * Count of chunks downloaded concurrently, 1 means parallel download is disabled
+     */
+    private int downloadConcurrency = S3ParallelDownloader.DEFAULT_CONCURRENCY;
+    /**
+     * Read-ahead buffer size of each object stream, 0 means read-ahead is disabled
+     */
+    private int readAheadSize = 0;
+    /**
+     * Whether concurrent stat and get requests of the same object are coalesced
+     */
+    private boolean singleFlight = false;
+    /**
+     * How long a confirmed miss is answered locally, zero means the negative cache is disabled
+     */
+    private Duration negativeCacheTtl = Duration.ZERO;
+    /**
+     * Max count of confirmed misses kept by the negative cache
+     */
+    private int negativeCacheSize = S3NegativeCache.DEFAULT_MAX_SIZE;
+    /**
+     * Name prefix covered by the bloom filter, null means the bloom filter is disabled
+     */
+    private String bloomFilterPrefix;
+    /**
+     * Expected count of object names added to the bloom filter
+     */
+    private int bloomFilterExpectedInsertions = S3BloomFilter.DEFAULT_EXPECTED_INSERTIONS;
+    /**
+     * How long the bloom filter answers after a listing starts, zero means it never expires
+     */
+    private Duration bloomFilterRefreshInterval = S3BloomFilter.DEFAULT_REFRESH_INTERVAL;
 
     /**
      * NEED_CHECK 配置检查
@@ -68,6 +137,55 @@ public class S3BlobStoreProperties implements BlobStoreProperties {
             properties.setRegion(fullProperties.getRegion());
         }
         properties.setBucket(fullProperties.getBucket());
+        if (fullProperties.getKeyEntropyLength() != null) {
+            properties.setKeyEntropyLength(fullProperties.getKeyEntropyLength());
+        }
+        if (fullProperties.getPackThreshold() != null) {
+            properties.setPackThreshold(fullProperties.getPackThreshold());
+        }
+        if (fullProperties.getPackFlushSize() != null) {
+            properties.setPackFlushSize(fullProperties.getPackFlushSize());
+        }
+        if (fullProperties.getPackFlushInterval() != null) {
+            properties.setPackFlushInterval(fullProperties.getPackFlushInterval());
+        }
+        if (fullProperties.getUploadPartSize() != null) {
+            properties.setUploadPartSize(fullProperties.getUploadPartSize());
+        }
+        if (fullProperties.getUploadConcurrency() != null) {
+            properties.setUploadConcurrency(fullProperties.getUploadConcurrency());
+        }
+        if (fullProperties.getUploadBufferBudget() != null) {
+            properties.setUploadBufferBudget(fullProperties.getUploadBufferBudget());
+        }
+        if (fullProperties.getStatAfterPut() != null) {
+            properties.setStatAfterPut(fullProperties.getStatAfterPut());
+        }
+        if (fullProperties.getDownloadChunkSize() != null) {
+            properties.setDownloadChunkSize(fullProperties.getDownloadChunkSize());
+        }
+        if (fullProperties.getDownloadConcurrency() != null) {
+            properties.setDownloadConcurrency(fullProperties.getDownloadConcurrency());
+        }
+        if (fullProperties.getReadAheadSize() != null) {
+            properties.setReadAheadSize(fullProperties.getReadAheadSize());
+        }
+        if (fullProperties.getSingleFlight() != null) {
+            properties.setSingleFlight(fullProperties.getSingleFlight());
+        }
+        if (fullProperties.getNegativeCacheTtl() != null) {
+            properties.setNegativeCacheTtl(fullProperties.getNegativeCacheTtl());
+        }
+        if (fullProperties.getNegativeCacheSize() != null) {
+            properties.setNegativeCacheSize(fullProperties.getNegativeCacheSize());
+        }
+        properties.setBloomFilterPrefix(fullProperties.getBloomFilterPrefix());
+        if (fullProperties.getBloomFilterExpectedInsertions() != null) {
+            properties.setBloomFilterExpectedInsertions(fullProperties.getBloomFilterExpectedInsertions());
+        }
+        if (fullProperties.getBloomFilterRefreshInterval() != null) {
+            properties.setBloomFilterRefreshInterval(fullProperties.getBloomFilterRefreshInterval());
+        }
         properties.setQualifier(qualifier);
         return properties;
     }
@@ -130,17 +248,153 @@ public class S3BlobStoreProperties implements BlobStoreProperties {
         this.bucket = bucket;
     }
 
+    public int getKeyEntropyLength() {
+        return keyEntropyLength;
+    }
+
+    public void setKeyEntropyLength(int keyEntropyLength) {
+        this.keyEntropyLength = keyEntropyLength;
+    }
+
+    public int getPackThreshold() {
+        return packThreshold;
+    }
+
+    public void setPackThreshold(int packThreshold) {
+        this.packThreshold = packThreshold;
+    }
+
+    public int getPackFlushSize() {
+        return packFlushSize;
+    }
+
+    public void setPackFlushSize(int packFlushSize) {
+        this.packFlushSize = packFlushSize;
+    }
+
+    public Duration getPackFlushInterval() {
+        return packFlushInterval;
+    }
+
+    public void setPackFlushInterval(Duration packFlushInterval) {
+        this.packFlushInterval = packFlushInterval;
+    }
+
+    public int getUploadPartSize() {
+        return uploadPartSize;
+    }
+
+    public void setUploadPartSize(int uploadPartSize) {
+        this.uploadPartSize = uploadPartSize;
+    }
+
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    public long getUploadBufferBudget() {
+        return uploadBufferBudget;
+    }
+
+    public void setUploadBufferBudget(long uploadBufferBudget) {
+        this.uploadBufferBudget = uploadBufferBudget;
+    }
+
+    public boolean isStatAfterPut() {
+        return statAfterPut;
+    }
+
+    public void setStatAfterPut(boolean statAfterPut) {
+        this.statAfterPut = statAfterPut;
+    }
+
+    public int getDownloadChunkSize() {
+        return downloadChunkSize;
+    }
+
+    public void setDownloadChunkSize(int downloadChunkSize) {
+        this.downloadChunkSize = downloadChunkSize;
+    }
+
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = downloadConcurrency;
+    }
+
+    public int getReadAheadSize() {
+        return readAheadSize;
+    }
+
+    public void setReadAheadSize(int readAheadSize) {
+        this.readAheadSize = readAheadSize;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    public void setSingleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public Duration getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    public void setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
+    public int getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    public void setNegativeCacheSize(int negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+    }
+
+    public String getBloomFilterPrefix() {
+        return bloomFilterPrefix;
+    }
+
+    public void setBloomFilterPrefix(String bloomFilterPrefix) {
+        this.bloomFilterPrefix = bloomFilterPrefix;
+    }
+
+    public int getBloomFilterExpectedInsertions() {
+        return bloomFilterExpectedInsertions;
+    }
+
+    public void setBloomFilterExpectedInsertions(int bloomFilterExpectedInsertions) {
+        this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+    }
+
+    public Duration getBloomFilterRefreshInterval() {
+        return bloomFilterRefreshInterval;
+    }
+
+    public void setBloomFilterRefreshInterval(Duration bloomFilterRefreshInterval) {
+        this.bloomFilterRefreshInterval = bloomFilterRefreshInterval;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         S3BlobStoreProperties that = (S3BlobStoreProperties) o;
-        return primary == that.primary && Objects.equals(qualifier, that.qualifier) && Objects.equals(endpoint, that.endpoint) && Objects.equals(region, that.region) && Objects.equals(accessKey, that.accessKey) && Objects.equals(secretKey, that.secretKey) && Objects.equals(bucket, that.bucket);
+        return primary == that.primary && Objects.equals(qualifier, that.qualifier) && Objects.equals(endpoint, that.endpoint) && Objects.equals(region, that.region) && Objects.equals(accessKey, that.accessKey) && Objects.equals(secretKey, that.secretKey) && Objects.equals(bucket, that.bucket) && keyEntropyLength == that.keyEntropyLength && packThreshold == that.packThreshold && packFlushSize == that.packFlushSize && Objects.equals(packFlushInterval, that.packFlushInterval) && uploadPartSize == that.uploadPartSize && uploadConcurrency == that.uploadConcurrency && uploadBufferBudget == that.uploadBufferBudget && statAfterPut == that.statAfterPut && downloadChunkSize == that.downloadChunkSize && downloadConcurrency == that.downloadConcurrency && readAheadSize == that.readAheadSize && singleFlight == that.singleFlight && Objects.equals(negativeCacheTtl, that.negativeCacheTtl) && negativeCacheSize == that.negativeCacheSize && Objects.equals(bloomFilterPrefix, that.bloomFilterPrefix) && bloomFilterExpectedInsertions == that.bloomFilterExpectedInsertions && Objects.equals(bloomFilterRefreshInterval, that.bloomFilterRefreshInterval);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(primary, qualifier, endpoint, region, accessKey, secretKey, bucket);
+        return Objects.hash(primary, qualifier, endpoint, region, accessKey, secretKey, bucket, keyEntropyLength, packThreshold, packFlushSize, packFlushInterval, uploadPartSize, uploadConcurrency, uploadBufferBudget, statAfterPut, downloadChunkSize, downloadConcurrency, readAheadSize, singleFlight, negativeCacheTtl, negativeCacheSize, bloomFilterPrefix, bloomFilterExpectedInsertions, bloomFilterRefreshInterval);
     }
 
     @Override
@@ -152,6 +406,23 @@ public class S3BlobStoreProperties implements BlobStoreProperties {
                 ", accessKey='" + accessKey + '\'' +
                 ", secretKey='" + secretKey + '\'' +
                 ", bucket='" + bucket + '\'' +
+                ", keyEntropyLength=" + keyEntropyLength +
+                ", packThreshold=" + packThreshold +
+                ", packFlushSize=" + packFlushSize +
+                ", packFlushInterval=" + packFlushInterval +
+                ", uploadPartSize=" + uploadPartSize +
+                ", uploadConcurrency=" + uploadConcurrency +
+                ", uploadBufferBudget=" + uploadBufferBudget +
+                ", statAfterPut=" + statAfterPut +
+                ", downloadChunkSize=" + downloadChunkSize +
+                ", downloadConcurrency=" + downloadConcurrency +
+                ", readAheadSize=" + readAheadSize +
+                ", singleFlight=" + singleFlight +
+                ", negativeCacheTtl=" + negativeCacheTtl +
+                ", negativeCacheSize=" + negativeCacheSize +
+                ", bloomFilterPrefix='" + bloomFilterPrefix + '\'' +
+                ", bloomFilterExpectedInsertions=" + bloomFilterExpectedInsertions +
+                ", bloomFilterRefreshInterval=" + bloomFilterRefreshInterval +
                 '}';
     }
 }
\ No newline at end of file
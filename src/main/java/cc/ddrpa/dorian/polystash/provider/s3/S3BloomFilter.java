@@ -0,0 +1,112 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.utils.digest.NameHash;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 指定前缀下对象名称的布隆过滤器，判断对象确定不存在时不需要发起请求。
+ * <p>
+ * 过滤器由前缀的列举结果初始化，通过同一个存储写入的对象在上传前加入过滤器；
+ * 布隆过滤器不支持删除，删除的对象仍然视为可能存在。初始化完成之前过滤器不回答任何查询。
+ * <p>
+ * 其他实例在列举开始之后写入的对象不在过滤器中。距离上次列举开始超过刷新间隔后过滤器过期，
+ * 不再回答查询，直到重新列举前缀并把结果加入过滤器，因此其他实例写入的对象最多在一个刷新间隔内被判断为不存在。
+ * 刷新间隔为 0 时过滤器不会过期，只适用于前缀下的对象都由当前实例写入的场景。
+ */
+class S3BloomFilter {
+
+    static final int DEFAULT_EXPECTED_INSERTIONS = 1_000_000;
+    static final int MAX_EXPECTED_INSERTIONS = 100_000_000;
+    static final double FALSE_POSITIVE_RATE = 0.01;
+    static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(5);
+
+    private final String prefix;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long refreshIntervalMillis;
+    private volatile boolean seeded = false;
+    private volatile long seededAt = 0;
+
+    /**
+     * @param prefix             过滤器覆盖的名称前缀，空字符串表示整个存储桶
+     * @param expectedInsertions 预计的对象数，超过后误判率上升，但不会把存在的对象判断为不存在
+     * @param refreshInterval    过滤器的有效期，从列举开始时计算，0 表示不会过期
+     */
+    S3BloomFilter(String prefix, int expectedInsertions, Duration refreshInterval) {
+        this.prefix = prefix;
+        this.refreshIntervalMillis = refreshInterval.toMillis();
+        long bitCount = (long) Math.ceil(-expectedInsertions * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (bitCount + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 名称是否在过滤器覆盖的前缀下
+     */
+    boolean covers(String objectName) {
+        return objectName.startsWith(prefix);
+    }
+
+    /**
+     * 过滤器是否已经初始化且没有过期
+     */
+    boolean isSeeded() {
+        return seeded && (refreshIntervalMillis == 0 || System.currentTimeMillis() - seededAt < refreshIntervalMillis);
+    }
+
+    /**
+     * 列举结果已经全部加入过滤器，开始回答查询。
+     * 重新列举时结果加入原有的过滤器，当前实例写入的对象仍然保留
+     *
+     * @param listingStartedAt 列举开始的时间，有效期从此时开始计算
+     */
+    void markSeeded(long listingStartedAt) {
+        this.seededAt = listingStartedAt;
+        this.seeded = true;
+    }
+
+    /**
+     * 把对象名称加入过滤器，不在前缀下的名称被忽略
+     */
+    void add(String objectName) {
+        if (!covers(objectName)) {
+            return;
+        }
+        long hash = NameHash.hash64(objectName);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            long mask = 1L << index;
+            bits.getAndAccumulate((int) (index >>> 6), mask, (current, bit) -> current | bit);
+        }
+    }
+
+    /**
+     * 对象是否确定不存在，只有初始化完成且没有过期时前缀下的名称才可能返回 true
+     */
+    boolean isAbsent(String objectName) {
+        if (!isSeeded() || !covers(objectName)) {
+            return false;
+        }
+        long hash = NameHash.hash64(objectName);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
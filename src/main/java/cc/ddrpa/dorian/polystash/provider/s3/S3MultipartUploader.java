@@ -0,0 +1,472 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.utils.http.ContentDisposition;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Part;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * S3 并行分片上传，把大对象切分成多个分片，通过多个连接同时上传。
+ * <p>
+ * 文件的各个分片由上传线程按位置直接从文件中读取；数据流只能顺序读取，由调用线程依次读取分片交给上传线程，
+ * 正在上传的分片不超过 concurrency 个，因此单次上传占用的缓冲区不超过 concurrency + 1 个分片。
+ * 分片缓冲区从 {@link S3UploadBufferPool} 中申请，所有上传占用的缓冲区总长度不超过预算，预算用尽时读取下一个分片的线程阻塞。
+ * <p>
+ * 每个分片失败后单独重试，重试次数用尽后中止整个分片上传，不会在存储中留下未完成的分片。
+ * 长度未知的数据流如果不足一个分片，以单个 PUT 请求上传。
+ */
+class S3MultipartUploader implements Closeable {
+
+    /**
+     * S3 要求除最后一个分片外，分片不小于 5 MiB
+     */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    static final int MAX_PART_SIZE = 1024 * 1024 * 1024;
+    static final int DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+    static final int DEFAULT_CONCURRENCY = 4;
+    static final int MAX_CONCURRENCY = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartUploader.class);
+
+    private static final int MAX_PART_COUNT = 10000;
+    /**
+     * 长度未知的数据流先读取这么多数据，不足时以单个 PUT 请求上传，不占用分片缓冲区
+     */
+    private static final int PROBE_SIZE = 64 * 1024;
+    private static final int MAX_PART_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    /**
+     * 可以重试的 S3 错误码，其他错误（例如权限不足、分片上传已被中止）重试也不会成功
+     */
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of(
+            "InternalError", "ServiceUnavailable", "SlowDown", "RequestTimeout", "RequestTimeTooSkewed");
+
+    private final MultipartClient client;
+    private final String bucket;
+    private final String region;
+    private final int partSize;
+    private final int concurrency;
+    private final S3UploadBufferPool bufferPool;
+    private final ExecutorService executor;
+
+    /**
+     * @param asyncClient  与 S3BlobStore 使用相同配置创建的客户端
+     * @param partSize     分片长度，长度已知的对象分片数超过 10000 时会自动增大
+     * @param concurrency  同时上传的分片数
+     * @param bufferBudget 所有上传同时占用的分片缓冲区总长度上限
+     */
+    S3MultipartUploader(MinioAsyncClient asyncClient, String bucket, String region, int partSize, int concurrency, long bufferBudget) {
+        this.client = new MultipartClient(asyncClient);
+        this.bucket = bucket;
+        this.region = region;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.bufferPool = new S3UploadBufferPool(bufferBudget, partSize, concurrency + 1);
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "polystash-s3-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    int getPartSize() {
+        return partSize;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    S3UploadBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * 是否需要分片上传，长度已知且不超过一个分片的数据以单个请求上传更快
+     */
+    boolean accepts(Payload<?> payload) {
+        return payload.length() < 0 || payload.length() > partSize;
+    }
+
+    /**
+     * 上传对象，返回时对象已经完整写入
+     */
+    S3BlobStore.WriteResult upload(String objectName, String readableName, Payload<?> payload, Map<String, String> userDefinedAttributes, String contentType) throws GeneralPolyStashException {
+        Multimap<String, String> headers = LinkedListMultimap.create();
+        headers.put("Content-Type", StringUtils.isBlank(contentType) ? "application/octet-stream" : contentType);
+        headers.put("Content-Disposition", ContentDisposition.attachment(readableName));
+        if (userDefinedAttributes != null) {
+            userDefinedAttributes.forEach((key, value) -> headers.put("x-amz-meta-" + key, value));
+        }
+        if (payload instanceof FilePayload filePayload) {
+            return uploadFile(objectName, filePayload, headers);
+        }
+        return uploadStream(objectName, payload, headers);
+    }
+
+    private S3BlobStore.WriteResult uploadFile(String objectName, FilePayload payload, Multimap<String, String> headers) throws GeneralPolyStashException {
+        try (FileChannel channel = FileChannel.open(payload.file().toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            // 分片数不能超过 10000，超大文件按 MiB 对齐增大分片
+            long minPartSize = (length + MAX_PART_COUNT - 1) / MAX_PART_COUNT;
+            long filePartSize = Math.max(partSize, (minPartSize + 0xFFFFF) & ~0xFFFFFL);
+            if (filePartSize > MAX_PART_SIZE || filePartSize > bufferPool.getBudget()) {
+                throw new IOErrorOccursException(String.format(
+                        "File '%s' of %d bytes is too large to be uploaded in %d parts", payload.file(), length, MAX_PART_COUNT));
+            }
+            int partCount = (int) Math.max(1, (length + filePartSize - 1) / filePartSize);
+            Upload upload = begin(objectName, headers);
+            Semaphore inFlight = new Semaphore(concurrency);
+            try {
+                for (int i = 0; i < partCount && !upload.failed.get(); i++) {
+                    long offset = i * filePartSize;
+                    int size = (int) Math.min(filePartSize, length - offset);
+                    inFlight.acquire();
+                    byte[] buffer;
+                    try {
+                        buffer = bufferPool.acquire(size);
+                    } catch (InterruptedException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                    // 文件分片在上传线程中读取，FileChannel 的按位置读取可以并发执行
+                    upload.submit(i + 1, buffer, data -> readFully(channel, data, offset, size), inFlight);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                upload.abort(e);
+                throw new IOErrorOccursException(
+                        String.format("Interrupted while uploading file '%s' as object '%s'", payload.file(), objectName), e);
+            }
+            return new S3BlobStore.WriteResult(upload.complete(), length);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to read file '%s' for object '%s'", payload.file(), objectName), e);
+        }
+    }
+
+    private S3BlobStore.WriteResult uploadStream(String objectName, Payload<?> payload, Multimap<String, String> headers) throws GeneralPolyStashException {
+        byte[] buffer = null;
+        try (InputStream inputStream = payload.stream()) {
+            // 先读取一小段数据，小对象不需要占用分片缓冲区
+            byte[] head = inputStream.readNBytes(PROBE_SIZE);
+            if (head.length < PROBE_SIZE) {
+                return new S3BlobStore.WriteResult(putObject(objectName, head, head.length, headers), head.length);
+            }
+            buffer = bufferPool.acquire(partSize);
+            System.arraycopy(head, 0, buffer, 0, head.length);
+            int length = head.length + inputStream.readNBytes(buffer, head.length, partSize - head.length);
+            if (length < partSize) {
+                return new S3BlobStore.WriteResult(putObject(objectName, buffer, length, headers), length);
+            }
+            Upload upload = begin(objectName, headers);
+            // 限制尚未上传完成的分片数，读取下一个分片时最多缓冲 concurrency + 1 个分片
+            Semaphore inFlight = new Semaphore(concurrency);
+            int partNumber = 1;
+            long totalLength = 0;
+            try {
+                while (length > 0) {
+                    if (partNumber > MAX_PART_COUNT) {
+                        throw new IOErrorOccursException(String.format(
+                                "Stream of object '%s' exceeds %d parts of %d bytes", objectName, MAX_PART_COUNT, partSize));
+                    }
+                    inFlight.acquire();
+                    if (upload.failed.get()) {
+                        inFlight.release();
+                        break;
+                    }
+                    int partLength = length;
+                    totalLength += length;
+                    upload.submit(partNumber++, buffer, data -> partLength, inFlight);
+                    // 缓冲区已经交给上传线程
+                    buffer = null;
+                    buffer = bufferPool.acquire(partSize);
+                    length = inputStream.readNBytes(buffer, 0, partSize);
+                }
+            } catch (IOException | InterruptedException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                upload.abort(e);
+                throw new IOErrorOccursException(String.format("Failed to read blob data of '%s'", objectName), e);
+            } catch (GeneralPolyStashException e) {
+                upload.abort(e);
+                throw e;
+            }
+            return new S3BlobStore.WriteResult(upload.complete(), totalLength);
+        } catch (IOException e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to read blob data of '%s'", objectName), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOErrorOccursException(
+                    String.format("Interrupted while waiting for upload buffer of object '%s'", objectName), e);
+        } finally {
+            if (buffer != null) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private ObjectWriteResponse putObject(String objectName, byte[] data, int length, Multimap<String, String> headers) throws GeneralPolyStashException {
+        try {
+            Multimap<String, String> extraHeaders = LinkedListMultimap.create(headers);
+            String contentType = extraHeaders.removeAll("Content-Type").iterator().next();
+            return client.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .object(objectName)
+                    .contentType(contentType)
+                    .headers(extraHeaders)
+                    .stream(new ByteArrayInputStream(data, 0, length), length, -1)
+                    .build()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOErrorOccursException(
+                    String.format("Interrupted while putting object '%s' to bucket '%s'", objectName, bucket), e);
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to put object '%s' to bucket '%s'", objectName, bucket), e);
+        }
+    }
+
+    private Upload begin(String objectName, Multimap<String, String> headers) throws GeneralPolyStashException {
+        try {
+            return new Upload(objectName, client.create(bucket, region, objectName, headers));
+        } catch (Exception e) {
+            throw new IOErrorOccursException(
+                    String.format("Failed to create multipart upload of object '%s' in bucket '%s'", objectName, bucket), e);
+        }
+    }
+
+    private static int readFully(FileChannel channel, byte[] data, long offset, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException(String.format("File was truncated while reading %d bytes at %d", size, offset));
+            }
+        }
+        return size;
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof ErrorResponseException errorResponseException) {
+            return RETRYABLE_ERROR_CODES.contains(errorResponseException.errorResponse().code());
+        }
+        return !(e instanceof InterruptedException);
+    }
+
+    /**
+     * 停止上传线程，正在进行的上传会失败并被中止
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for multipart uploads to bucket '{}' to stop", bucket);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartReader {
+        /**
+         * 把分片数据读入缓冲区
+         *
+         * @return 分片长度
+         */
+        int read(byte[] buffer) throws IOException;
+    }
+
+    /**
+     * 一次分片上传
+     */
+    private class Upload {
+        private final String objectName;
+        private final String uploadId;
+        private final List<Future<Part>> parts = new ArrayList<>();
+        private final AtomicBoolean failed = new AtomicBoolean(false);
+
+        private Upload(String objectName, String uploadId) {
+            this.objectName = objectName;
+            this.uploadId = uploadId;
+        }
+
+        /**
+         * 提交一个分片，分片上传结束后归还缓冲区并释放许可
+         */
+        private void submit(int partNumber, byte[] buffer, PartReader reader, Semaphore permit) {
+            try {
+                parts.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(partNumber, buffer, reader);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        bufferPool.release(buffer);
+                        permit.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                // 上传线程已经停止，在合并分片时统一处理
+                bufferPool.release(buffer);
+                permit.release();
+                failed.set(true);
+                parts.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        private Part uploadPart(int partNumber, byte[] buffer, PartReader reader) throws Exception {
+            // 其他分片已经失败时不再上传
+            if (failed.get()) {
+                return null;
+            }
+            int length = reader.read(buffer);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    String eTag = client.uploadPart(bucket, region, objectName, buffer, length, uploadId, partNumber);
+                    return new Part(partNumber, eTag);
+                } catch (Exception e) {
+                    if (attempt >= MAX_PART_ATTEMPTS || !isRetryable(e) || failed.get()) {
+                        throw e;
+                    }
+                    logger.debug("Retrying part {} of object '{}' in bucket '{}'", partNumber, objectName, bucket, e);
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                }
+            }
+        }
+
+        /**
+         * 等待所有分片上传完成后合并分片，任何分片失败时中止上传
+         */
+        private ObjectWriteResponse complete() throws GeneralPolyStashException {
+            Part[] uploaded = new Part[parts.size()];
+            Exception failure = null;
+            for (int i = 0; i < parts.size(); i++) {
+                try {
+                    uploaded[i] = parts.get(i).get();
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.set(true);
+                    failure = e;
+                    break;
+                }
+            }
+            if (failure == null) {
+                try {
+                    return client.complete(bucket, region, objectName, uploadId, uploaded);
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+            abort(failure);
+            throw new IOErrorOccursException(
+                    String.format("Failed to upload object '%s' to bucket '%s' in %d parts", objectName, bucket, parts.size()), failure);
+        }
+
+        /**
+         * 等待正在上传的分片结束后中止上传，在中止之后完成的分片仍然会占用存储空间
+         */
+        private void abort(Exception cause) {
+            failed.set(true);
+            for (Future<Part> part : parts) {
+                try {
+                    part.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ignored) {
+                    // 失败原因已经记录
+                }
+            }
+            try {
+                client.abort(bucket, region, objectName, uploadId);
+            } catch (Exception e) {
+                logger.warn("Failed to abort multipart upload '{}' of object '{}' in bucket '{}'", uploadId, objectName, bucket, e);
+            }
+            logger.debug("Aborted multipart upload '{}' of object '{}' in bucket '{}'", uploadId, objectName, bucket, cause);
+        }
+    }
+
+    /**
+     * 分片上传的 API 在 MinIO SDK 中是 protected 方法，通过子类调用。
+     * 使用异步版本并等待结果，同步版本在 SDK 中已经废弃
+     */
+    private static class MultipartClient extends MinioAsyncClient {
+
+        private MultipartClient(MinioAsyncClient client) {
+            super(client);
+        }
+
+        private String create(String bucket, String region, String objectName, Multimap<String, String> headers) throws Exception {
+            return await(createMultipartUploadAsync(bucket, region, objectName, headers, null)).result().uploadId();
+        }
+
+        private String uploadPart(String bucket, String region, String objectName, byte[] data, int length, String uploadId, int partNumber) throws Exception {
+            return await(uploadPartAsync(bucket, region, objectName, data, length, uploadId, partNumber, null, null)).etag();
+        }
+
+        private ObjectWriteResponse complete(String bucket, String region, String objectName, String uploadId, Part[] parts) throws Exception {
+            return await(completeMultipartUploadAsync(bucket, region, objectName, uploadId, parts, null, null));
+        }
+
+        private void abort(String bucket, String region, String objectName, String uploadId) throws Exception {
+            await(abortMultipartUploadAsync(bucket, region, objectName, uploadId, null, null));
+        }
+
+        /**
+         * 等待请求完成，抛出请求失败的原因，与同步版本保持一致以便判断是否重试
+         */
+        private static <T> T await(CompletableFuture<T> future) throws Exception {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
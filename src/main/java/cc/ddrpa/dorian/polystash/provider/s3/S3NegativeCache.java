@@ -0,0 +1,106 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 记录最近确认不存在的对象名称，在有效期内直接回答不存在，不再发起请求。
+ * <p>
+ * 通过同一个存储写入对象时立即移除对应的记录；其他实例写入的对象在记录过期之前不可见，
+ * 因此有效期应当较短。查询与写入同时进行时，查询开始前取得的版本号在写入后失效，
+ * 过时的查询结果不会被记录。
+ */
+class S3NegativeCache {
+
+    static final int DEFAULT_MAX_SIZE = 10000;
+    static final Duration MAX_TTL = Duration.ofMinutes(10);
+
+    /**
+     * 版本号按名称的哈希值分组，写入只使同组名称的查询结果失效
+     */
+    private static final int STRIPES = 64;
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Long> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    /**
+     * @param ttl     记录的有效期
+     * @param maxSize 最多保存的记录数，超过时先清理过期的记录，仍然超过时随机淘汰
+     */
+    S3NegativeCache(Duration ttl, int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 查询开始前获取名称所在分组的版本号，之后通过 {@link #recordAbsent(String, long)} 记录查询结果
+     */
+    long stamp(String objectName) {
+        return stamps.get(stripe(objectName));
+    }
+
+    /**
+     * 对象是否确定不存在
+     */
+    boolean isAbsent(String objectName) {
+        Long deadline = entries.get(objectName);
+        if (deadline == null) {
+            return false;
+        }
+        if (System.nanoTime() - deadline < 0) {
+            return true;
+        }
+        entries.remove(objectName, deadline);
+        return false;
+    }
+
+    /**
+     * 记录对象不存在，查询期间同组名称有过写入时放弃记录
+     *
+     * @param stamp 查询开始前取得的版本号
+     */
+    void recordAbsent(String objectName, long stamp) {
+        if (stamps.get(stripe(objectName)) != stamp) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(objectName, System.nanoTime() + ttlNanos);
+        // 写入可能在检查版本号之后、放入记录之前完成，再次检查避免留下过时的记录
+        if (stamps.get(stripe(objectName)) != stamp) {
+            entries.remove(objectName);
+        }
+    }
+
+    /**
+     * 对象已经写入，移除记录并使正在进行的查询结果失效
+     */
+    void invalidate(String objectName) {
+        stamps.incrementAndGet(stripe(objectName));
+        entries.remove(objectName);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(deadline -> now - deadline >= 0);
+        Iterator<String> iterator = entries.keySet().iterator();
+        int excess = entries.size() - maxSize + 1;
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static int stripe(String objectName) {
+        return (objectName.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+}
@@ -0,0 +1,832 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
+import cc.ddrpa.dorian.polystash.core.exception.DataCorruptionException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * S3 小对象打包存储，把一段时间内写入的小对象合并成一个打包对象上传，减少请求次数。
+ * <p>
+ * 打包对象以索引开头，索引记录每个对象的名称、元数据和数据在打包对象中的位置，之后依次是各个对象的数据。
+ * 内存中保存所有打包对象的索引，查询元数据不需要发起请求，读取数据时按范围读取打包对象中的对应部分。
+ * <p>
+ * 写入先进入缓冲区，缓冲的数据达到 flushSize 或者等待超过 flushInterval 后合并上传，
+ * 上传成功后写入才返回，因此打包不会降低持久性；上传期间到达的写入会合并到下一个打包对象中。
+ * 上传、压缩和加载索引都在同一个后台线程中执行，打包对象的名称按时间递增，重放索引的顺序与写入顺序一致。
+ * <p>
+ * 删除和覆盖以墓碑记录的形式写入新的打包对象，旧数据成为垃圾，由 {@link #compact(double)} 回收。
+ * 墓碑记录指明被删除的记录所在的打包对象，只有该打包对象仍然存在时才需要在压缩时保留。
+ * <p>
+ * 其他实例新写入的打包对象在查询未命中时加载；命中时索引最多落后 {@link #MAX_STALENESS_MILLIS}，
+ * 超过后先加载新的打包对象再回答查询，因此其他实例的删除和覆盖最迟在这段时间后可见。
+ * 加载时列举全部打包对象与已知的打包对象比较，出现排在已知打包对象之前的新打包对象，
+ * 或者已知的打包对象被其他实例压缩删除时，从头重新加载索引，保证记录按写入顺序重放。
+ * 压缩应当只在一个实例上执行。
+ */
+class S3PackStore implements Closeable {
+
+    static final String PACKS_PREFIX = ".polystash/packs/";
+    static final int MAX_THRESHOLD = 4 * 1024 * 1024;
+    static final int DEFAULT_FLUSH_SIZE = 8 * 1024 * 1024;
+    static final int MAX_FLUSH_SIZE = 64 * 1024 * 1024;
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+
+    /**
+     * 打包对象中垃圾比例超过该值时才会被压缩
+     */
+    static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3PackStore.class);
+
+    private static final int PACK_MAGIC = 0x50535031;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    /**
+     * 首次读取打包对象头部的长度，索引更长时再读取剩余部分
+     */
+    private static final int HEADER_PROBE_LENGTH = 64 * 1024;
+    /**
+     * S3 要求分片不小于 5 MiB，打包对象以单个请求上传
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * 查询未命中时加载新打包对象的最小间隔
+     */
+    private static final long REFRESH_INTERVAL_MILLIS = 1000;
+    /**
+     * 查询命中时索引允许落后的最长时间
+     */
+    static final long MAX_STALENESS_MILLIS = 5000;
+    private static final Pattern PACK_PATTERN = Pattern.compile("^" + Pattern.quote(PACKS_PREFIX) + "\\d{13}-[0-9a-f]{8}\\.pack$");
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final NavigableMap<String, PackInfo> packs = new ConcurrentSkipListMap<>();
+    /**
+     * 索引损坏而跳过的打包对象，重新加载索引之前不再读取
+     */
+    private final Set<String> corruptedPacks = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+    private final Object batchLock = new Object();
+    private List<Pending> batch = new ArrayList<>();
+    private long batchBytes = 0;
+    private boolean flushScheduled = false;
+    private volatile boolean loaded = false;
+    private volatile long lastRefresh = 0;
+    private long lastPackMillis = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * 创建打包存储，索引在第一次使用时加载
+     *
+     * @param flushSize     缓冲的数据达到该长度后立即上传
+     * @param flushInterval 写入在缓冲区中等待的最长时间，0 表示只合并上传期间到达的写入
+     */
+    S3PackStore(MinioClient minioClient, String bucket, int flushSize, Duration flushInterval) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "polystash-s3-pack");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 是否是打包存储内部使用的对象
+     */
+    static boolean isReserved(String objectName) {
+        return objectName.startsWith(PACKS_PREFIX);
+    }
+
+    /**
+     * 查询打包的对象，未命中时不会加载其他实例写入的打包对象，索引落后超过 {@link #MAX_STALENESS_MILLIS} 时先加载
+     *
+     * @return 对象的索引项，不在打包存储中时返回 null
+     */
+    Entry lookup(String key) throws GeneralPolyStashException {
+        ensureFresh();
+        return index.get(key);
+    }
+
+    /**
+     * 查询打包的对象，未命中时加载其他实例新写入的打包对象后再次查询
+     *
+     * @return 对象的索引项，不在打包存储中时返回 null
+     */
+    Entry lookupOrRefresh(String key) throws GeneralPolyStashException {
+        Entry entry = lookup(key);
+        if (entry == null && System.currentTimeMillis() - lastRefresh >= REFRESH_INTERVAL_MILLIS) {
+            refreshIfOlderThan(REFRESH_INTERVAL_MILLIS);
+            entry = index.get(key);
+        }
+        return entry;
+    }
+
+    /**
+     * 列举以指定字符串开头的对象名称，按字典序排列
+     */
+    List<String> keys(String prefix) throws GeneralPolyStashException {
+        ensureFresh();
+        return index.keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * 写入对象，在包含该对象的打包对象上传成功后返回
+     *
+     * @return 对象的索引项
+     */
+    Entry put(String key, String contentType, String readableName, String eTag,
+              Map<String, String> userDefinedAttributes, byte[] data) throws GeneralPolyStashException {
+        ensureLoaded();
+        Pending pending = new Pending(TYPE_PUT, key, System.currentTimeMillis(), contentType, readableName, eTag,
+                userDefinedAttributes == null ? Collections.emptyMap() : Map.copyOf(userDefinedAttributes), data,
+                new CompletableFuture<>());
+        return await(enqueue(pending), "put packed object");
+    }
+
+    /**
+     * 删除对象，在墓碑记录上传成功后返回
+     *
+     * @return 对象不在打包存储中时返回 false
+     */
+    boolean remove(String key) throws GeneralPolyStashException {
+        if (lookup(key) == null) {
+            return false;
+        }
+        Pending pending = new Pending(TYPE_DELETE, key, System.currentTimeMillis(), null, null, null,
+                Collections.emptyMap(), new byte[0], new CompletableFuture<>());
+        await(enqueue(pending), "remove packed object");
+        return true;
+    }
+
+    /**
+     * 批量删除对象，先把所有墓碑记录加入缓冲区再一起等待上传，墓碑记录通常合并在同一个打包对象中
+     *
+     * @return 打包存储中的对象的删除结果，不在打包存储中的对象没有对应的结果
+     */
+    List<RemoveResult> removeAll(Collection<String> keys) throws GeneralPolyStashException {
+        ensureFresh();
+        Map<String, CompletableFuture<Entry>> pendingResults = new LinkedHashMap<>();
+        List<RemoveResult> results = new ArrayList<>();
+        for (String key : keys) {
+            if (!index.containsKey(key) || pendingResults.containsKey(key)) {
+                continue;
+            }
+            Pending pending = new Pending(TYPE_DELETE, key, System.currentTimeMillis(), null, null, null,
+                    Collections.emptyMap(), new byte[0], new CompletableFuture<>());
+            try {
+                pendingResults.put(key, enqueue(pending));
+            } catch (GeneralPolyStashException e) {
+                results.add(new RemoveResult(key, e));
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<Entry>> pending : pendingResults.entrySet()) {
+            try {
+                await(pending.getValue(), "remove packed object");
+                results.add(new RemoveResult(pending.getKey()));
+            } catch (GeneralPolyStashException e) {
+                results.add(new RemoveResult(pending.getKey(), e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 按范围读取对象的数据。打包对象被压缩后，会重新加载索引并重试一次
+     *
+     * @return 数据流，对象不在打包存储中时返回 null
+     */
+    InputStream open(String key) throws GeneralPolyStashException {
+        for (int attempt = 0; ; attempt++) {
+            Entry entry = lookup(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.length() == 0) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            try {
+                return minioClient.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(entry.pack())
+                        .offset(entry.offset())
+                        .length((long) entry.length())
+                        .build());
+            } catch (ErrorResponseException e) {
+                if (attempt == 0 && e.errorResponse().code().equalsIgnoreCase("NoSuchKey")) {
+                    // 打包对象可能已经被其他实例压缩，重新加载索引
+                    await(executor.submit(() -> {
+                        load();
+                        return null;
+                    }), "reload pack index");
+                    continue;
+                }
+                throw new IOErrorOccursException(e.errorResponse().message(), e);
+            } catch (Exception e) {
+                throw new IOErrorOccursException(
+                        String.format("Failed to read packed object '%s' from '%s'", key, entry.pack()), e);
+            }
+        }
+    }
+
+    /**
+     * 压缩垃圾比例达到阈值的打包对象，把其中仍然有效的记录合并写入新的打包对象，再删除旧的打包对象
+     *
+     * @param garbageRatio 垃圾比例阈值，0 表示压缩所有包含垃圾的打包对象
+     * @return 释放的字节数
+     */
+    long compact(double garbageRatio) throws GeneralPolyStashException {
+        ensureLoaded();
+        return await(executor.submit(() -> doCompact(garbageRatio)), "compact packs");
+    }
+
+    /**
+     * 上传缓冲区中的数据，停止后台线程
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (batchLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        executor.execute(this::flush);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for pending packs of bucket '{}' to be uploaded", bucket);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Entry> enqueue(Pending pending) throws GeneralPolyStashException {
+        synchronized (batchLock) {
+            if (closed) {
+                throw new IOErrorOccursException(
+                        String.format("Pack store of bucket '%s' is closed", bucket));
+            }
+            batch.add(pending);
+            batchBytes += pending.data().length;
+            if (batchBytes >= flushSize) {
+                executor.execute(this::flush);
+                flushScheduled = true;
+            } else if (!flushScheduled) {
+                executor.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+                flushScheduled = true;
+            }
+        }
+        return pending.result();
+    }
+
+    private void ensureLoaded() throws GeneralPolyStashException {
+        if (!loaded) {
+            await(executor.submit(() -> {
+                if (!loaded) {
+                    load();
+                }
+                return null;
+            }), "load pack index");
+        }
+    }
+
+    /**
+     * 加载索引，索引落后超过 {@link #MAX_STALENESS_MILLIS} 时加载其他实例新写入的打包对象
+     */
+    private void ensureFresh() throws GeneralPolyStashException {
+        ensureLoaded();
+        if (System.currentTimeMillis() - lastRefresh >= MAX_STALENESS_MILLIS) {
+            refreshIfOlderThan(MAX_STALENESS_MILLIS);
+        }
+    }
+
+    /**
+     * 在后台线程中加载新的打包对象，排队期间已经由其他请求加载过时跳过
+     */
+    private void refreshIfOlderThan(long intervalMillis) throws GeneralPolyStashException {
+        await(executor.submit(() -> {
+            if (System.currentTimeMillis() - lastRefresh >= intervalMillis) {
+                refresh();
+            }
+            return null;
+        }), "refresh pack index");
+    }
+
+    private <T> T await(Future<T> future, String action) throws GeneralPolyStashException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOErrorOccursException(
+                    String.format("Interrupted while waiting to %s in bucket '%s'", action, bucket), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GeneralPolyStashException cause) {
+                throw cause;
+            }
+            throw new IOErrorOccursException(
+                    String.format("Failed to %s in bucket '%s'", action, bucket), e.getCause());
+        }
+    }
+
+    /**
+     * 把缓冲区中的写入和删除合并为一个打包对象上传，只在后台线程中执行
+     */
+    private void flush() {
+        List<Pending> pendingList;
+        synchronized (batchLock) {
+            pendingList = batch;
+            batch = new ArrayList<>();
+            batchBytes = 0;
+            flushScheduled = false;
+        }
+        if (pendingList.isEmpty()) {
+            return;
+        }
+        try {
+            if (!loaded) {
+                load();
+            }
+            String packName = nextPackName();
+            List<PackRecord> records = new ArrayList<>();
+            // 每个请求对应的记录位置，已经不存在的对象的删除请求不需要写入记录，位置为 -1
+            int[] positions = new int[pendingList.size()];
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            // 同一批次中先写入再删除的对象，墓碑记录指向本次上传的打包对象
+            Map<String, String> shadow = new HashMap<>();
+            for (int i = 0; i < pendingList.size(); i++) {
+                Pending pending = pendingList.get(i);
+                positions[i] = -1;
+                if (pending.type() == TYPE_PUT) {
+                    positions[i] = records.size();
+                    records.add(new PackRecord(TYPE_PUT, pending.key(), pending.lastModified(), data.size(),
+                            pending.data().length, pending.contentType(), pending.readableName(), pending.eTag(),
+                            pending.userDefinedAttributes(), null));
+                    data.write(pending.data());
+                    shadow.put(pending.key(), packName);
+                } else {
+                    Entry current = index.get(pending.key());
+                    String target = shadow.containsKey(pending.key())
+                            ? shadow.get(pending.key())
+                            : current == null ? null : current.pack();
+                    if (target != null) {
+                        positions[i] = records.size();
+                        records.add(new PackRecord(TYPE_DELETE, pending.key(), pending.lastModified(), 0, 0,
+                                null, null, null, Collections.emptyMap(), target));
+                    }
+                    shadow.put(pending.key(), null);
+                }
+            }
+            List<Entry> entries = records.isEmpty()
+                    ? Collections.emptyList()
+                    : upload(packName, records, data.toByteArray());
+            for (int i = 0; i < pendingList.size(); i++) {
+                pendingList.get(i).result().complete(positions[i] < 0 ? null : entries.get(positions[i]));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to upload pack to bucket '{}'", bucket, e);
+            pendingList.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 编码并上传打包对象，然后更新索引，只在后台线程中执行
+     *
+     * @param records 记录，偏移量相对于数据部分的开头
+     * @param data    数据部分
+     * @return 与记录一一对应的索引项，墓碑记录对应 null
+     */
+    private List<Entry> upload(String packName, List<PackRecord> records, byte[] data) throws Exception {
+        byte[] header = encodeHeader(records);
+        byte[] body = new byte[header.length + data.length];
+        System.arraycopy(header, 0, body, 0, header.length);
+        System.arraycopy(data, 0, body, header.length, data.length);
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(packName)
+                .contentType("application/octet-stream")
+                .stream(new ByteArrayInputStream(body), body.length, Math.max(body.length, MIN_PART_SIZE))
+                .build());
+        List<PackRecord> absolute = records.stream()
+                .map(record -> record.withOffset(header.length + record.offset()))
+                .toList();
+        return apply(packName, body.length, absolute);
+    }
+
+    /**
+     * 按顺序应用打包对象中的记录，只在后台线程中执行
+     * <p>
+     * 墓碑记录只删除仍然位于目标打包对象中的对象，压缩时复制到新打包对象的墓碑不会删除之后重新写入的对象。
+     */
+    private List<Entry> apply(String packName, long size, List<PackRecord> records) {
+        PackInfo info = new PackInfo(size);
+        packs.put(packName, info);
+        List<Entry> entries = new ArrayList<>(records.size());
+        for (PackRecord record : records) {
+            if (record.type() == TYPE_PUT) {
+                Entry entry = new Entry(packName, record.offset(), record.length(), record.lastModified(),
+                        record.contentType(), record.readableName(), record.eTag(), record.userDefinedAttributes());
+                info.dataBytes += record.length();
+                info.liveBytes += record.length();
+                release(index.put(record.key(), entry));
+                entries.add(entry);
+            } else {
+                info.tombstones.add(new Tombstone(record.key(), record.target(), record.lastModified()));
+                Entry current = index.get(record.key());
+                if (current != null && current.pack().equals(record.target())) {
+                    index.remove(record.key());
+                    release(current);
+                }
+                entries.add(null);
+            }
+        }
+        return entries;
+    }
+
+    private void release(Entry previous) {
+        if (previous != null) {
+            PackInfo info = packs.get(previous.pack());
+            if (info != null) {
+                info.liveBytes -= previous.length();
+            }
+        }
+    }
+
+    /**
+     * 从头加载所有打包对象的索引，只在后台线程中执行
+     */
+    private void load() throws Exception {
+        index.clear();
+        packs.clear();
+        corruptedPacks.clear();
+        for (Map.Entry<String, Long> pack : listPacks().entrySet()) {
+            loadPack(pack.getKey(), pack.getValue());
+        }
+        loaded = true;
+        lastRefresh = System.currentTimeMillis();
+        logger.debug("Loaded {} packed objects from {} packs in bucket '{}'", index.size(), packs.size(), bucket);
+    }
+
+    /**
+     * 加载其他实例新写入的打包对象，只在后台线程中执行
+     * <p>
+     * 其他实例的时钟可能落后，新打包对象的名称不一定排在已知的打包对象之后；
+     * 这类打包对象或者已知打包对象被删除时无法按顺序增量重放，从头重新加载。
+     */
+    private void refresh() throws Exception {
+        if (!loaded) {
+            load();
+            return;
+        }
+        Map<String, Long> listed = listPacks();
+        String last = packs.isEmpty() ? null : packs.lastKey();
+        boolean reload = !listed.keySet().containsAll(packs.keySet());
+        Map<String, Long> added = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> pack : listed.entrySet()) {
+            if (!packs.containsKey(pack.getKey()) && !corruptedPacks.contains(pack.getKey())) {
+                reload |= last != null && pack.getKey().compareTo(last) < 0;
+                added.put(pack.getKey(), pack.getValue());
+            }
+        }
+        if (reload) {
+            logger.debug("Reloading pack index of bucket '{}' for out-of-order or removed packs", bucket);
+            load();
+            return;
+        }
+        for (Map.Entry<String, Long> pack : added.entrySet()) {
+            loadPack(pack.getKey(), pack.getValue());
+        }
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * 列举所有打包对象，按名称排序
+     */
+    private Map<String, Long> listPacks() throws Exception {
+        ListObjectsArgs.Builder builder = ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(PACKS_PREFIX)
+                .recursive(true);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Result<Item> item : minioClient.listObjects(builder.build())) {
+            Item s3Object = item.get();
+            if (PACK_PATTERN.matcher(s3Object.objectName()).matches()) {
+                result.put(s3Object.objectName(), s3Object.size());
+            }
+        }
+        return result;
+    }
+
+    private void loadPack(String packName, long size) throws Exception {
+        List<PackRecord> records;
+        try {
+            records = readHeader(packName);
+        } catch (DataCorruptionException e) {
+            logger.warn("Skipped corrupted pack '{}' in bucket '{}'", packName, bucket, e);
+            corruptedPacks.add(packName);
+            return;
+        }
+        apply(packName, size, records);
+        // 新写入的打包对象必须排在已有的打包对象之后
+        lastPackMillis = Math.max(lastPackMillis, Long.parseLong(
+                packName.substring(PACKS_PREFIX.length(), PACKS_PREFIX.length() + 13)));
+    }
+
+    private String nextPackName() {
+        lastPackMillis = Math.max(System.currentTimeMillis(), lastPackMillis + 1);
+        return String.format("%s%013d-%s.pack", PACKS_PREFIX, lastPackMillis, instanceId);
+    }
+
+    private byte[] readRange(String packName, long offset, long length) throws Exception {
+        try (GetObjectResponse response = minioClient.getObject(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(packName)
+                .offset(offset)
+                .length(length)
+                .build())) {
+            return response.readAllBytes();
+        }
+    }
+
+    /**
+     * 打包对象格式：magic(4) + indexLength(4) + index + crc32c(4) + data
+     */
+    private static byte[] encodeHeader(List<PackRecord> records) throws IOException {
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(indexBytes)) {
+            out.writeInt(records.size());
+            for (PackRecord record : records) {
+                out.writeByte(record.type());
+                out.writeUTF(record.key());
+                out.writeLong(record.lastModified());
+                if (record.type() == TYPE_PUT) {
+                    out.writeLong(record.offset());
+                    out.writeInt(record.length());
+                    out.writeUTF(Objects.requireNonNullElse(record.contentType(), ""));
+                    out.writeUTF(Objects.requireNonNullElse(record.readableName(), ""));
+                    out.writeUTF(Objects.requireNonNullElse(record.eTag(), ""));
+                    out.writeInt(record.userDefinedAttributes().size());
+                    for (Map.Entry<String, String> attribute : record.userDefinedAttributes().entrySet()) {
+                        out.writeUTF(attribute.getKey());
+                        out.writeUTF(attribute.getValue());
+                    }
+                } else {
+                    out.writeUTF(record.target());
+                }
+            }
+        }
+        byte[] indexArray = indexBytes.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(indexArray);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(indexArray.length + 12);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(indexArray.length);
+            out.write(indexArray);
+            out.writeInt((int) crc.getValue());
+        }
+        return header.toByteArray();
+    }
+
+    /**
+     * 读取打包对象头部的索引
+     *
+     * @return 记录，偏移量是在打包对象中的绝对位置
+     */
+    private List<PackRecord> readHeader(String packName) throws Exception {
+        byte[] head = readRange(packName, 0, HEADER_PROBE_LENGTH);
+        if (head.length < 8) {
+            throw new DataCorruptionException(String.format("Pack '%s' is too short", packName));
+        }
+        DataInputStream probe = new DataInputStream(new ByteArrayInputStream(head));
+        if (probe.readInt() != PACK_MAGIC) {
+            throw new DataCorruptionException(String.format("Pack '%s' has an invalid magic number", packName));
+        }
+        int indexLength = probe.readInt();
+        if (indexLength < 4) {
+            throw new DataCorruptionException(String.format("Pack '%s' has an invalid index length", packName));
+        }
+        long headerLength = 8L + indexLength + 4;
+        if (head.length < headerLength) {
+            byte[] rest = readRange(packName, head.length, headerLength - head.length);
+            byte[] full = Arrays.copyOf(head, head.length + rest.length);
+            System.arraycopy(rest, 0, full, head.length, rest.length);
+            head = full;
+        }
+        if (head.length < headerLength) {
+            throw new DataCorruptionException(String.format("Pack '%s' has a truncated index", packName));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(head, 8, indexLength);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(head, 8, indexLength + 4));
+        in.skipBytes(indexLength);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new DataCorruptionException(String.format("Pack '%s' has a corrupted index", packName));
+        }
+        in = new DataInputStream(new ByteArrayInputStream(head, 8, indexLength));
+        int count = in.readInt();
+        List<PackRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            String key = in.readUTF();
+            long lastModified = in.readLong();
+            if (type == TYPE_PUT) {
+                long offset = headerLength + in.readLong();
+                int length = in.readInt();
+                String contentType = in.readUTF();
+                String readableName = in.readUTF();
+                String eTag = in.readUTF();
+                int attributeCount = in.readInt();
+                Map<String, String> attributes = new LinkedHashMap<>();
+                for (int j = 0; j < attributeCount; j++) {
+                    attributes.put(in.readUTF(), in.readUTF());
+                }
+                records.add(new PackRecord(TYPE_PUT, key, lastModified, offset, length,
+                        contentType.isEmpty() ? null : contentType, readableName.isEmpty() ? null : readableName,
+                        eTag, Collections.unmodifiableMap(attributes), null));
+            } else if (type == TYPE_DELETE) {
+                records.add(new PackRecord(TYPE_DELETE, key, lastModified, 0, 0, null, null, null,
+                        Collections.emptyMap(), in.readUTF()));
+            } else {
+                throw new DataCorruptionException(
+                        String.format("Pack '%s' contains a record of unknown type %d", packName, type));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 执行压缩，只在后台线程中执行
+     */
+    private long doCompact(double garbageRatio) throws Exception {
+        Map<String, List<Map.Entry<String, Entry>>> liveByPack = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            liveByPack.computeIfAbsent(entry.getValue().pack(), pack -> new ArrayList<>()).add(entry);
+        }
+        long reclaimed = 0;
+        List<String> sources = new ArrayList<>();
+        List<PackRecord> records = new ArrayList<>();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (String packName : new ArrayList<>(packs.keySet())) {
+            PackInfo info = packs.get(packName);
+            List<Map.Entry<String, Entry>> live = liveByPack.getOrDefault(packName, Collections.emptyList());
+            // 目标打包对象在本次压缩中会先于当前打包对象被删除，对应的墓碑记录不再需要
+            List<String> removing = sources;
+            List<Tombstone> tombstones = info.tombstones.stream()
+                    .filter(tombstone -> !tombstone.target().equals(packName) && packs.containsKey(tombstone.target())
+                            && !removing.contains(tombstone.target()))
+                    .toList();
+            long garbage = info.dataBytes - info.liveBytes;
+            boolean obsolete = live.isEmpty() && tombstones.isEmpty();
+            if (!obsolete && (garbage <= 0 || garbage < info.dataBytes * garbageRatio)) {
+                continue;
+            }
+            if (!records.isEmpty() && data.size() + info.liveBytes > flushSize) {
+                reclaimed += commitCompaction(sources, records, data.toByteArray());
+                sources = new ArrayList<>();
+                records = new ArrayList<>();
+                data.reset();
+            }
+            if (!live.isEmpty()) {
+                // 一次读取整个打包对象，复制其中仍然有效的数据
+                byte[] body = readRange(packName, 0, info.size);
+                for (Map.Entry<String, Entry> entry : live) {
+                    Entry value = entry.getValue();
+                    records.add(new PackRecord(TYPE_PUT, entry.getKey(), value.lastModified(), data.size(),
+                            value.length(), value.contentType(), value.readableName(), value.eTag(),
+                            value.userDefinedAttributes(), null));
+                    data.write(body, Math.toIntExact(value.offset()), value.length());
+                }
+            }
+            for (Tombstone tombstone : tombstones) {
+                records.add(new PackRecord(TYPE_DELETE, tombstone.key(), tombstone.lastModified(), 0, 0,
+                        null, null, null, Collections.emptyMap(), tombstone.target()));
+            }
+            sources.add(packName);
+        }
+        if (!sources.isEmpty()) {
+            reclaimed += commitCompaction(sources, records, data.toByteArray());
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 上传合并后的打包对象，再按从旧到新的顺序删除旧的打包对象。
+     * <p>
+     * 删除失败时立即停止，较新的打包对象中的墓碑记录仍然保留；旧打包对象中只剩垃圾，会在下次压缩时删除。
+     */
+    private long commitCompaction(List<String> sources, List<PackRecord> records, byte[] data) throws Exception {
+        long reclaimed = 0;
+        if (!records.isEmpty()) {
+            String packName = nextPackName();
+            upload(packName, records, data);
+            reclaimed -= packs.get(packName).size;
+        }
+        for (String source : sources) {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(source)
+                    .build());
+            reclaimed += packs.remove(source).size;
+        }
+        logger.info("Compacted {} packs in bucket '{}', reclaimed {} bytes", sources.size(), bucket, reclaimed);
+        return reclaimed;
+    }
+
+    /**
+     * 打包对象的索引项
+     *
+     * @param pack   所在的打包对象
+     * @param offset 数据在打包对象中的位置
+     * @param length 数据长度
+     */
+    record Entry(String pack, long offset, int length, long lastModified, String contentType,
+                 String readableName, String eTag, Map<String, String> userDefinedAttributes) {
+    }
+
+    private record PackRecord(byte type, String key, long lastModified, long offset, int length,
+                              String contentType, String readableName, String eTag,
+                              Map<String, String> userDefinedAttributes, String target) {
+
+        PackRecord withOffset(long offset) {
+            return new PackRecord(type, key, lastModified, offset, length, contentType, readableName, eTag,
+                    userDefinedAttributes, target);
+        }
+    }
+
+    private record Pending(byte type, String key, long lastModified, String contentType, String readableName,
+                           String eTag, Map<String, String> userDefinedAttributes, byte[] data,
+                           CompletableFuture<Entry> result) {
+    }
+
+    private record Tombstone(String key, String target, long lastModified) {
+    }
+
+    /**
+     * 打包对象的统计信息，只在后台线程中修改
+     */
+    private static class PackInfo {
+        private final long size;
+        private final List<Tombstone> tombstones = new ArrayList<>();
+        private long dataBytes = 0;
+        private long liveBytes = 0;
+
+        private PackInfo(long size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * S3 并行分块下载，把大对象按范围切分成多个分块，通过多个连接同时下载。
+ * <p>
+ * 返回数据流时，第一个分块直接读取探测请求的响应，其余分块由下载线程提前下载到内存中，再按顺序拼接；
+ * 每个数据流最多提前下载 concurrency 个分块，因此占用的内存不超过 concurrency 个分块。
+ * 下载到文件时，各个分块由下载线程按偏移量直接写入文件，不经过内存缓冲。
+ * <p>
+ * 所有分块请求都携带第一次请求得到的 ETag 作为条件，下载期间对象被覆盖时读取失败，不会拼接出新旧混合的数据。
+ * 每个分块失败后单独重试。
+ */
+class S3ParallelDownloader implements Closeable {
+
+    static final int MIN_CHUNK_SIZE = 1024 * 1024;
+    static final int MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    /**
+     * 默认只使用一个连接，即不启用并行下载
+     */
+    static final int DEFAULT_CONCURRENCY = 1;
+    static final int MAX_CONCURRENCY = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ParallelDownloader.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    /**
+     * 可以重试的 S3 错误码，其他错误（例如对象已被覆盖、权限不足）重试也不会成功
+     */
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of(
+            "InternalError", "ServiceUnavailable", "SlowDown", "RequestTimeout");
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private final int chunkSize;
+    private final int concurrency;
+    private final ExecutorService executor;
+
+    /**
+     * @param chunkSize   分块长度
+     * @param concurrency 同时下载的分块数
+     */
+    S3ParallelDownloader(MinioClient minioClient, String bucket, int chunkSize, int concurrency) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "polystash-s3-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 拼接对象的各个分块
+     *
+     * @param firstChunk 第一个分块的响应，由返回的数据流负责关闭
+     * @param eTag       对象的 ETag，后续分块只在对象未被覆盖时返回
+     * @param length     对象长度
+     * @return 按顺序读取整个对象的数据流
+     */
+    InputStream stream(String objectName, String eTag, long length, InputStream firstChunk) {
+        return new ChunkedInputStream(objectName, eTag, length, firstChunk);
+    }
+
+    /**
+     * 把对象下载到文件，返回时所有分块已经写入；下载失败时删除不完整的文件
+     */
+    void download(String objectName, String eTag, long length, Path target) throws GeneralPolyStashException {
+        int chunkCount = (int) Math.max(1, (length + chunkSize - 1) / chunkSize);
+        List<Future<?>> chunks = new ArrayList<>(chunkCount);
+        Exception failure = null;
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < chunkCount; i++) {
+                long offset = (long) i * chunkSize;
+                long size = Math.min(chunkSize, length - offset);
+                chunks.add(executor.submit(() -> {
+                    fetch(objectName, eTag, offset, size, inputStream -> writeFully(inputStream, channel, offset, size));
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (ExecutionException e) {
+            failure = e.getCause() instanceof Exception cause ? cause : e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (IOException | RejectedExecutionException e) {
+            failure = e;
+        }
+        if (failure == null) {
+            return;
+        }
+        chunks.forEach(chunk -> chunk.cancel(true));
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            logger.warn("Failed to delete incomplete download '{}' of object '{}'", target, objectName, e);
+        }
+        throw new IOErrorOccursException(
+                String.format("Failed to download object '%s' from bucket '%s' to '%s' in %d chunks", objectName, bucket, target, chunkCount), failure);
+    }
+
+    /**
+     * 下载一个分块，失败时重试
+     */
+    private <T> T fetch(String objectName, String eTag, long offset, long size, ChunkReader<T> reader) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try (GetObjectResponse response = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .offset(offset)
+                    .length(size)
+                    .matchETag(eTag)
+                    .build())) {
+                return reader.read(response);
+            } catch (Exception e) {
+                if (attempt >= MAX_CHUNK_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                logger.debug("Retrying chunk at {} of object '{}' in bucket '{}'", offset, objectName, bucket, e);
+                Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream, long size) throws IOException {
+        byte[] data = inputStream.readNBytes((int) size);
+        if (data.length < size) {
+            throw new EOFException(String.format("Chunk ended after %d of %d bytes", data.length, size));
+        }
+        return data;
+    }
+
+    private static Void writeFully(InputStream inputStream, FileChannel channel, long offset, long size) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long written = 0;
+        int read;
+        while (written < size && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, size - written))) >= 0) {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+            while (byteBuffer.hasRemaining()) {
+                // FileChannel 的按位置写入可以并发执行
+                written += channel.write(byteBuffer, offset + written);
+            }
+        }
+        if (written < size) {
+            throw new EOFException(String.format("Chunk ended after %d of %d bytes", written, size));
+        }
+        return null;
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof ErrorResponseException errorResponseException) {
+            return RETRYABLE_ERROR_CODES.contains(errorResponseException.errorResponse().code());
+        }
+        return !(e instanceof InterruptedException || e instanceof InterruptedIOException);
+    }
+
+    /**
+     * 停止下载线程，正在读取的数据流和文件下载会失败
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for parallel downloads from bucket '{}' to stop", bucket);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkReader<T> {
+        /**
+         * 从分块的响应中读取数据
+         */
+        T read(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * 按顺序拼接各个分块的数据流
+     */
+    private class ChunkedInputStream extends InputStream {
+        private final String objectName;
+        private final String eTag;
+        private final long length;
+        private final int chunkCount;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private int nextChunk = 1;
+        private InputStream current;
+        private long currentRemaining;
+        private boolean closed = false;
+
+        private ChunkedInputStream(String objectName, String eTag, long length, InputStream firstChunk) {
+            this.objectName = objectName;
+            this.eTag = eTag;
+            this.length = length;
+            this.chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+            this.current = firstChunk;
+            this.currentRemaining = Math.min(chunkSize, length);
+            while (pending.size() < concurrency && nextChunk < chunkCount) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            long offset = (long) nextChunk++ * chunkSize;
+            long size = Math.min(chunkSize, length - offset);
+            try {
+                pending.add(executor.submit(() -> fetch(objectName, eTag, offset, size, inputStream -> readFully(inputStream, size))));
+            } catch (RejectedExecutionException e) {
+                // 下载线程已经停止，读取到该分块时抛出
+                pending.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null) {
+                if (currentRemaining > 0) {
+                    int read = current.read(b, off, (int) Math.min(len, currentRemaining));
+                    if (read < 0) {
+                        throw new EOFException(String.format("Chunk of object '%s' ended %d bytes early", objectName, currentRemaining));
+                    }
+                    currentRemaining -= read;
+                    return read;
+                }
+                advance();
+            }
+            return -1;
+        }
+
+        /**
+         * 切换到下一个分块，同时安排下载之后的分块
+         */
+        private void advance() throws IOException {
+            current.close();
+            current = null;
+            Future<byte[]> chunk = pending.poll();
+            if (chunk == null) {
+                return;
+            }
+            if (nextChunk < chunkCount) {
+                schedule();
+            }
+            try {
+                byte[] data = chunk.get();
+                current = new ByteArrayInputStream(data);
+                currentRemaining = data.length;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(String.format("Interrupted while downloading object '%s'", objectName));
+            } catch (ExecutionException | CancellationException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException(String.format("Failed to download chunk of object '%s' from bucket '%s'", objectName, bucket), cause);
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current == null ? 0 : (int) Math.min(current.available(), currentRemaining);
+        }
+
+        /**
+         * 关闭数据流，取消尚未完成的分块
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.forEach(chunk -> chunk.cancel(true));
+            pending.clear();
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
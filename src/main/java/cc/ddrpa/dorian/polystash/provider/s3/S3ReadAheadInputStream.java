@@ -0,0 +1,170 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 预读数据流，由后台线程持续读取 S3 响应并写入固定长度的环形缓冲区。
+ * <p>
+ * 调用方处理数据期间后台线程继续读取，连接的接收窗口不会因为调用方停顿而耗尽；
+ * 缓冲区写满后后台线程阻塞，因此每个数据流占用的内存不超过缓冲区长度。
+ * 后台线程读取失败时，调用方读完已经缓冲的数据后收到该异常。
+ */
+class S3ReadAheadInputStream extends InputStream {
+
+    static final int MIN_SIZE = 64 * 1024;
+    static final int MAX_SIZE = 64 * 1024 * 1024;
+
+    private final InputStream source;
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final Condition writable = lock.newCondition();
+    private int readPosition = 0;
+    private int count = 0;
+    private boolean eof = false;
+    private boolean closed = false;
+    private IOException failure;
+
+    /**
+     * @param source     被预读的数据流，由该数据流负责关闭
+     * @param bufferSize 缓冲区长度
+     * @param executor   运行后台读取任务的线程池，每个数据流在读完之前占用一个线程
+     */
+    S3ReadAheadInputStream(InputStream source, int bufferSize, Executor executor) {
+        this.source = source;
+        this.buffer = new byte[bufferSize];
+        executor.execute(this::fill);
+    }
+
+    /**
+     * 后台读取任务，直接读入环形缓冲区的空闲部分，不需要额外复制
+     */
+    private void fill() {
+        try {
+            while (true) {
+                int writePosition;
+                int space;
+                lock.lock();
+                try {
+                    while (count == buffer.length && !closed) {
+                        writable.await();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    writePosition = (readPosition + count) % buffer.length;
+                    // 空闲部分可能跨过缓冲区末尾，每次只读取连续的一段
+                    space = Math.min(buffer.length - count, buffer.length - writePosition);
+                } finally {
+                    lock.unlock();
+                }
+                int read = source.read(buffer, writePosition, space);
+                lock.lock();
+                try {
+                    if (read < 0) {
+                        eof = true;
+                        return;
+                    }
+                    count += read;
+                } finally {
+                    readable.signalAll();
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            finish(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(new InterruptedIOException("Interrupted while reading ahead"));
+        }
+    }
+
+    private void finish(IOException e) {
+        lock.lock();
+        try {
+            // 关闭数据流导致的读取失败不需要报告
+            if (!closed) {
+                failure = e;
+            }
+            eof = true;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (count == 0 && !eof && !closed) {
+                readable.await();
+            }
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (count == 0) {
+                if (failure != null) {
+                    throw new IOException("Failed to read ahead", failure);
+                }
+                return -1;
+            }
+            int read = Math.min(len, Math.min(count, buffer.length - readPosition));
+            System.arraycopy(buffer, readPosition, b, off, read);
+            readPosition = (readPosition + read) % buffer.length;
+            count -= read;
+            writable.signalAll();
+            return read;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for read-ahead data");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭数据流，停止后台读取并关闭被预读的数据流
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            readable.signalAll();
+            writable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // 后台线程可能阻塞在读取中，关闭数据流使读取立即失败
+        source.close();
+    }
+}
@@ -0,0 +1,459 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.utils.concurrent.SingleFlight;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并同一对象的并发请求：同时进行的 stat 共用一次请求，同时进行的 get 共用一次下载。
+ * <p>
+ * 共用的下载由后台线程读取到共享缓冲区，每个调用方得到各自从头读取的数据流，读取速度互不影响。
+ * 缓冲区的前 {@value #MEMORY_THRESHOLD} 字节保存在内存中，其余部分写入临时文件，
+ * 下载结束且所有数据流关闭后释放；所有数据流在下载结束前关闭时中止下载。
+ * 只合并时间上重叠的请求，下载结束后的 get 会发起新的请求；写入或删除对象后调用 {@link #forget(String)}，
+ * 之后的请求不再加入写入之前开始的请求。
+ */
+class S3SingleFlight implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3SingleFlight.class);
+
+    /**
+     * 共享缓冲区保存在内存中的最大长度，超过的部分写入临时文件
+     */
+    static final int MEMORY_THRESHOLD = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final SingleFlight<String, Blob> stats = new SingleFlight<>();
+    private final ConcurrentHashMap<String, SharedDownload> downloads = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "polystash-s3-single-flight");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 获取对象的元数据，同一对象正在查询时等待其结果
+     */
+    Blob stat(String objectName, SingleFlight.Loader<Blob, GeneralPolyStashException> loader) throws GeneralPolyStashException {
+        return copyMetadata(stats.execute(objectName, loader));
+    }
+
+    /**
+     * 获取对象，同一对象正在下载时加入该下载，从共享缓冲区读取数据
+     */
+    Blob get(String objectName, SingleFlight.Loader<Blob, GeneralPolyStashException> loader) throws GeneralPolyStashException {
+        while (true) {
+            SharedDownload download = new SharedDownload(objectName);
+            SharedDownload existing = downloads.putIfAbsent(objectName, download);
+            if (existing == null) {
+                return lead(download, loader);
+            }
+            if (existing.join()) {
+                return follow(existing);
+            }
+            // 所有数据流已经关闭，下载正在释放
+            downloads.remove(objectName, existing);
+        }
+    }
+
+    /**
+     * 分离对象正在进行的 stat 和 get，已经加入的调用方继续读取原来的结果，之后的请求重新发起
+     */
+    void forget(String objectName) {
+        stats.forget(objectName);
+        downloads.remove(objectName);
+    }
+
+    /**
+     * 当前正在共用的下载数
+     */
+    int inFlightDownloads() {
+        return downloads.size();
+    }
+
+    private Blob lead(SharedDownload download, SingleFlight.Loader<Blob, GeneralPolyStashException> loader) throws GeneralPolyStashException {
+        download.join();
+        Blob blob;
+        try {
+            blob = loader.load();
+        } catch (GeneralPolyStashException | RuntimeException | Error e) {
+            downloads.remove(download.objectName, download);
+            download.fail(e);
+            throw e;
+        }
+        download.start(blob);
+        return follow(download);
+    }
+
+    private Blob follow(SharedDownload download) throws GeneralPolyStashException {
+        Blob metadata;
+        try {
+            metadata = download.awaitStarted();
+        } catch (GeneralPolyStashException | RuntimeException | Error e) {
+            download.release();
+            throw e;
+        }
+        return copyMetadata(metadata)
+                .setPayload(new InputStreamPayload(download.new Reader(), metadata.getLength()));
+    }
+
+    /**
+     * 每个调用方得到独立的 Blob，避免修改共享的实例
+     */
+    private static Blob copyMetadata(Blob blob) {
+        return new Blob()
+                .setObjectName(blob.getObjectName())
+                .setETag(blob.getETag())
+                .setVersionId(blob.getVersionId())
+                .setLastModified(blob.getLastModified())
+                .setLength(blob.getLength())
+                .setContentType(blob.getContentType())
+                .setReadableName(blob.getReadableName())
+                .setChecksum(blob.getChecksum())
+                .setChecksumAlgorithm(blob.getChecksumAlgorithm())
+                .setUserDefinedAttributes(new HashMap<>(blob.getUserDefinedAttributes()));
+    }
+
+    /**
+     * 中止正在进行的下载，停止后台线程
+     */
+    @Override
+    public void close() {
+        downloads.values().forEach(SharedDownload::abort);
+        executor.shutdownNow();
+    }
+
+    private final class SharedDownload {
+        private final String objectName;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private Blob metadata;
+        private Throwable failure;
+        private InputStream source;
+        private byte[] memory;
+        private FileChannel spill;
+        private long size = 0;
+        private boolean done = false;
+        private IOException error;
+        private int references = 0;
+        private boolean released = false;
+
+        private SharedDownload(String objectName) {
+            this.objectName = objectName;
+        }
+
+        /**
+         * 增加一个读取方，下载已经释放时返回 false
+         */
+        boolean join() {
+            lock.lock();
+            try {
+                if (released) {
+                    return false;
+                }
+                references++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 减少一个读取方，最后一个读取方离开时释放缓冲区，下载未结束时中止下载
+         */
+        void release() {
+            InputStream abandoned = null;
+            lock.lock();
+            try {
+                if (--references > 0 || released) {
+                    return;
+                }
+                released = true;
+                if (done) {
+                    free();
+                } else {
+                    abandoned = source;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (abandoned != null) {
+                // 后台线程读取失败后结束下载并释放缓冲区
+                IOUtils.closeQuietly(abandoned);
+            }
+            downloads.remove(objectName, this);
+        }
+
+        void fail(Throwable e) {
+            lock.lock();
+            try {
+                failure = e;
+                done = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void start(Blob blob) {
+            InputStream inputStream = blob.containsPayload() ? null : InputStream.nullInputStream();
+            try {
+                if (inputStream == null) {
+                    inputStream = blob.getPayload().stream();
+                }
+            } catch (IOException e) {
+                downloads.remove(objectName, this);
+                fail(new IOErrorOccursException(String.format("Failed to open stream of object '%s'", objectName), e));
+                return;
+            }
+            lock.lock();
+            try {
+                source = inputStream;
+                long length = blob.getLength();
+                memory = new byte[(int) (length >= 0 ? Math.min(length, MEMORY_THRESHOLD) : COPY_BUFFER_SIZE)];
+                metadata = blob;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                executor.execute(this::pump);
+            } catch (RejectedExecutionException e) {
+                finish(new IOException("Blob store has been closed", e));
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+
+        Blob awaitStarted() throws GeneralPolyStashException {
+            lock.lock();
+            try {
+                while (metadata == null && failure == null) {
+                    changed.awaitUninterruptibly();
+                }
+                if (failure instanceof GeneralPolyStashException polyStashException) {
+                    throw polyStashException;
+                }
+                if (failure instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                return metadata;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 在后台线程中把响应读入共享缓冲区
+         */
+        private void pump() {
+            try (InputStream inputStream = source) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    if (!append(buffer, read)) {
+                        break;
+                    }
+                }
+                finish(null);
+            } catch (IOException e) {
+                finish(e);
+            } finally {
+                downloads.remove(objectName, this);
+            }
+        }
+
+        /**
+         * 追加数据，前 {@value #MEMORY_THRESHOLD} 字节写入内存，其余写入临时文件
+         *
+         * @return 下载已经被放弃时返回 false
+         */
+        private boolean append(byte[] buffer, int length) throws IOException {
+            int offset = 0;
+            long position;
+            lock.lock();
+            try {
+                if (released) {
+                    return false;
+                }
+                if (size < MEMORY_THRESHOLD) {
+                    offset = (int) Math.min(length, MEMORY_THRESHOLD - size);
+                    int required = (int) size + offset;
+                    if (memory.length < required) {
+                        byte[] grown = new byte[Math.min(MEMORY_THRESHOLD, Math.max(required, memory.length * 2))];
+                        System.arraycopy(memory, 0, grown, 0, (int) size);
+                        memory = grown;
+                    }
+                    System.arraycopy(buffer, 0, memory, (int) size, offset);
+                    size += offset;
+                    changed.signalAll();
+                }
+                position = size;
+            } finally {
+                lock.unlock();
+            }
+            if (offset == length) {
+                return true;
+            }
+            if (spill == null) {
+                // 只有后台线程创建临时文件，读取方在 size 超过内存部分之后才会访问
+                Path spillPath = Files.createTempFile("polystash-single-flight-", ".tmp");
+                spill = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, length - offset);
+            long filePosition = position - MEMORY_THRESHOLD;
+            while (byteBuffer.hasRemaining()) {
+                filePosition += spill.write(byteBuffer, filePosition);
+            }
+            lock.lock();
+            try {
+                size += length - offset;
+                changed.signalAll();
+                return !released;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finish(IOException e) {
+            lock.lock();
+            try {
+                done = true;
+                error = e;
+                changed.signalAll();
+                if (released) {
+                    free();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 释放缓冲区，调用时必须持有锁
+         */
+        private void free() {
+            memory = null;
+            if (spill != null) {
+                try {
+                    spill.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to delete spill file of shared download '{}'", objectName, e);
+                }
+            }
+        }
+
+        void abort() {
+            InputStream inputStream;
+            lock.lock();
+            try {
+                inputStream = done ? null : source;
+            } finally {
+                lock.unlock();
+            }
+            if (inputStream != null) {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+
+        /**
+         * 从共享缓冲区读取数据的数据流，数据尚未下载时等待
+         */
+        private final class Reader extends InputStream {
+            private long position = 0;
+            private boolean closed = false;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                int read = read(single, 0, 1);
+                return read == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (len == 0) {
+                    return 0;
+                }
+                long available;
+                lock.lock();
+                try {
+                    while (position >= size && !done) {
+                        try {
+                            changed.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for shared download of '" + objectName + "'");
+                        }
+                    }
+                    if (position >= size) {
+                        if (error != null) {
+                            throw new IOException(String.format("Shared download of object '%s' failed", objectName), error);
+                        }
+                        return -1;
+                    }
+                    if (position < MEMORY_THRESHOLD) {
+                        int read = (int) Math.min(len, Math.min(size, MEMORY_THRESHOLD) - position);
+                        System.arraycopy(memory, (int) position, b, off, read);
+                        position += read;
+                        return read;
+                    }
+                    available = size - position;
+                } finally {
+                    lock.unlock();
+                }
+                // 已经写入的部分不会再改变，可以在锁外按位置读取
+                int read = spill.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position - MEMORY_THRESHOLD);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public int available() {
+                lock.lock();
+                try {
+                    return closed ? 0 : (int) Math.min(Integer.MAX_VALUE, Math.max(0, size - position));
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    release();
+                }
+            }
+        }
+    }
+}
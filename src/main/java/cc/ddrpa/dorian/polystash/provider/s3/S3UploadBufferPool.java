@@ -0,0 +1,132 @@
+package cc.ddrpa.dorian.polystash.provider.s3;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分片上传的缓冲区池，限制同一个 S3BlobStore 中所有上传同时占用的分片缓冲区总长度。
+ * <p>
+ * 缓冲区按分片长度复用，避免每个分片都在堆上分配一个新的大数组；预算用尽时申请缓冲区的线程会阻塞，
+ * 直到其他上传释放缓冲区，上传速度因此受到预算而不是堆大小的限制。
+ * 每次上传在任意时刻至少持有一个缓冲区，并且持有的缓冲区总能上传完成并释放，因此阻塞不会导致死锁。
+ */
+public class S3UploadBufferPool {
+
+    static final long DEFAULT_BUDGET = 256L * 1024 * 1024;
+
+    private final long budget;
+    private final int bufferSize;
+    private final int maxIdleBuffers;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private final Deque<byte[]> idleBuffers = new ArrayDeque<>();
+    private long usedBytes = 0;
+    private long peakBytes = 0;
+    private long acquired = 0;
+    private long waits = 0;
+    private long waitNanos = 0;
+
+    /**
+     * @param budget         缓冲区总长度上限
+     * @param bufferSize     复用的缓冲区长度，即分片长度
+     * @param maxIdleBuffers 最多保留的空闲缓冲区数，超出的缓冲区释放后交给 GC 回收
+     */
+    S3UploadBufferPool(long budget, int bufferSize, int maxIdleBuffers) {
+        this.budget = budget;
+        this.bufferSize = bufferSize;
+        this.maxIdleBuffers = maxIdleBuffers;
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    /**
+     * 申请缓冲区，预算不足时阻塞
+     *
+     * @param size 需要的长度，不能超过预算
+     * @return 长度不小于 size 的缓冲区，使用完毕后必须调用 {@link #release(byte[])} 归还
+     */
+    byte[] acquire(int size) throws InterruptedException {
+        int capacity = Math.max(size, bufferSize);
+        if (capacity > budget) {
+            throw new IllegalArgumentException(
+                    String.format("Buffer of %d bytes exceeds the upload buffer budget of %d bytes", capacity, budget));
+        }
+        lock.lockInterruptibly();
+        try {
+            if (usedBytes + capacity > budget) {
+                waits++;
+                long start = System.nanoTime();
+                try {
+                    while (usedBytes + capacity > budget) {
+                        released.await();
+                    }
+                } finally {
+                    waitNanos += System.nanoTime() - start;
+                }
+            }
+            usedBytes += capacity;
+            peakBytes = Math.max(peakBytes, usedBytes);
+            acquired++;
+            if (capacity == bufferSize && !idleBuffers.isEmpty()) {
+                return idleBuffers.pop();
+            }
+            // 空闲的缓冲区也占用预算，需要分配新的缓冲区时丢弃多余的空闲缓冲区
+            while (!idleBuffers.isEmpty() && usedBytes + (long) idleBuffers.size() * bufferSize > budget) {
+                idleBuffers.pop();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // 在锁外分配，避免阻塞其他线程
+        return new byte[capacity];
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    void release(byte[] buffer) {
+        lock.lock();
+        try {
+            usedBytes -= buffer.length;
+            if (buffer.length == bufferSize && idleBuffers.size() < maxIdleBuffers) {
+                idleBuffers.push(buffer);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取缓冲区的使用情况
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(budget, usedBytes, peakBytes, (long) idleBuffers.size() * bufferSize,
+                    acquired, waits, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓冲区的使用情况
+     *
+     * @param budget     缓冲区总长度上限
+     * @param usedBytes  正在使用的缓冲区长度
+     * @param peakBytes  使用过的最大缓冲区长度
+     * @param idleBytes  池中空闲的缓冲区长度，与正在使用的缓冲区一起计入预算
+     * @param acquired   申请缓冲区的次数
+     * @param waits      因为预算用尽而等待的次数
+     * @param waitMillis 等待的总时间
+     */
+    public record Stats(long budget, long usedBytes, long peakBytes, long idleBytes,
+                        long acquired, long waits, long waitMillis) {
+    }
+}
@@ -3,7 +3,11 @@ package cc.ddrpa.dorian.polystash.springboot.autoconfigure;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStoreBuilder;
 import org.apache.commons.lang3.tuple.Triple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -22,6 +26,7 @@ import java.util.Map;
  *   <li>注册和管理 BlobStore 实例</li>
  *   <li>维护主存储实例的引用</li>
  *   <li>提供组件查找和实例化服务</li>
+ *   <li>在应用关闭时关闭所有 BlobStore 实例</li>
  * </ul>
  * <p>
  * 支持两种注册方式：按别名注册和按类名注册，便于灵活配置和管理。
@@ -29,7 +34,9 @@ import java.util.Map;
  * @see BlobStore
  * @see BlobStoreBuilder
  */
-public class BlobStoreHolder {
+public class BlobStoreHolder implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreHolder.class);
 
     /**
      * 按别名记录的 BlobStoreBuilder 映射表。
@@ -187,4 +194,20 @@ public class BlobStoreHolder {
                         entry.getValue() == primaryBlobStore))
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * 关闭所有已注册的 BlobStore 实例。
+     * <p>
+     * 作为 Spring Bean 时在应用关闭时自动调用。某个实例关闭失败时记录日志并继续关闭其他实例。
+     */
+    @Override
+    public void close() {
+        for (BlobStore blobStore : blobStoreMap.values()) {
+            try {
+                blobStore.close();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to close BlobStore '{}': {}", blobStore.getBlobStoreName(), e.getMessage(), e);
+            }
+        }
+    }
+}
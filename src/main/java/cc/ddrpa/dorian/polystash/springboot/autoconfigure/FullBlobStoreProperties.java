@@ -1,5 +1,6 @@
 package cc.ddrpa.dorian.polystash.springboot.autoconfigure;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -24,6 +25,42 @@ public class FullBlobStoreProperties {
      */
     private String builder;
 
+    /**
+     * 对象名称生成器，用于 put 操作中生成新对象的名称
+     * 支持的值：
+     * - "uuid": 随机 UUID，默认值
+     * - "uuid-v7": 按时间排序的 UUIDv7
+     * - "ulid": 按时间排序的 ULID
+     * - "snowflake": Snowflake 风格的 ID，节点 ID 通过 extra.workerId 指定
+     * - "content-hash": 数据内容的 SHA-256 摘要
+     * - 自定义实现类的全限定名
+     */
+    private String nameGenerator;
+
+    /**
+     * 异步接口同时执行的最大操作数，默认值：64，取值 1 到 4096。
+     * 超过上限的异步操作排队等待
+     */
+    private Integer asyncConcurrency = 64;
+
+    /**
+     * 本地磁盘缓存目录，设置后在 BlobStore 前增加一层读取缓存，默认不启用。
+     * 最近读取的对象保存在该目录中，重启后仍然可用，目录不能与其他 BlobStore 共用
+     */
+    private String cacheDir;
+
+    /**
+     * 本地磁盘缓存的数据总长度上限（字节），默认值：1 GiB。
+     * 超出时淘汰最久未访问的对象，超过上限的单个对象不缓存
+     */
+    private Long cacheSize = 1024L * 1024 * 1024;
+
+    /**
+     * 本地磁盘缓存确认对象未变化后，在多长时间内不再发起条件读取，默认值：0，即每次读取都以 ETag 确认。
+     * 期间其他实例对对象的修改不可见
+     */
+    private Duration cacheRevalidateInterval = Duration.ZERO;
+
     /**
      * OSS
      * <p>
@@ -66,6 +103,14 @@ public class FullBlobStoreProperties {
      */
     private String bucket;
 
+    /**
+     * OSS
+     * <p>
+     * 生成对象名称时在前缀之后插入的哈希字符数，默认值：0，表示不插入。
+     * 例如设置为 2 时生成 prefix/7f/id 形式的名称，把同一前缀下的写入分散到多个分区
+     */
+    private Integer keyEntropyLength = 0;
+
     /**
      * FileSystem
      * <p>
@@ -73,6 +118,179 @@ public class FullBlobStoreProperties {
      */
     private String baseDir;
 
+    /**
+     * FileSystem
+     * <p>
+     * 分片目录的层级数，默认值：0，表示所有对象直接存放在前缀目录下。
+     * 启用后对象会存放在由文件名哈希派生的子目录中，例如 prefix/ab/cd/uuid，对象名称保持不变
+     */
+    private Integer shardDepth = 0;
+
+    /**
+     * FileSystem
+     * <p>
+     * 每级分片目录名的十六进制字符数，默认值：2，即每级最多 256 个目录
+     */
+    private Integer shardWidth = 2;
+
+    /**
+     * FileSystem
+     * <p>
+     * 是否启用去重模式，默认值：false。
+     * 启用后内容相同的对象只保存一份物理副本，要求文件系统支持扩展属性
+     */
+    private Boolean dedup = false;
+
+    /**
+     * FileSystem
+     * <p>
+     * 是否启用分块存储模式，默认值：false。
+     * 启用后对象按内容定义的边界切分为块，相同的块只保存一份，对象文件只保存块清单。
+     * 适合大量内容相近的大文件，不能与 dedup 同时启用，要求文件系统支持扩展属性
+     */
+    private Boolean chunking = false;
+
+    /**
+     * FileSystem
+     * <p>
+     * 分块存储模式下的平均块长度（字节），必须是 2 的幂，默认值：524288（512 KiB）。
+     * 实际块长度在平均值的 1/4 到 4 倍之间
+     */
+    private Integer chunkSize = 512 * 1024;
+
+    /**
+     * FileSystem / OSS
+     * <p>
+     * 小对象打包阈值（字节），默认值：0，表示不打包。
+     * 文件系统存储中不超过该长度的对象会追加写入段文件，而不是各自占用一个文件，不依赖扩展属性；
+     * S3 兼容存储中不超过该长度的对象会合并成打包对象上传，而不是各自发起一次 PUT 请求
+     */
+    private Integer packThreshold = 0;
+
+    /**
+     * FileSystem
+     * <p>
+     * 小对象打包模式下单个段文件的最大长度（字节），默认值：268435456（256 MiB）
+     */
+    private Long packSegmentSize = 256L * 1024 * 1024;
+
+    /**
+     * OSS
+     * <p>
+     * 小对象打包模式下缓冲的数据达到该长度（字节）后立即上传，默认值：8388608（8 MiB）
+     */
+    private Integer packFlushSize = 8 * 1024 * 1024;
+
+    /**
+     * OSS
+     * <p>
+     * 小对象打包模式下写入在缓冲区中等待的最长时间，默认值：50ms。
+     * 写入在打包对象上传成功后才返回，设置为 0 时只合并上一次上传期间到达的写入
+     */
+    private Duration packFlushInterval = Duration.ofMillis(50);
+
+    /**
+     * OSS
+     * <p>
+     * 并行分片上传的分片长度（字节），默认值：16777216（16 MiB），不能小于 5 MiB。
+     * 长度未知或超过该长度的对象会拆分成多个分片同时上传
+     */
+    private Integer uploadPartSize = 16 * 1024 * 1024;
+
+    /**
+     * OSS
+     * <p>
+     * 并行分片上传时同时上传的分片数，默认值：4。
+     * 上传数据流时最多缓冲 uploadConcurrency + 1 个分片
+     */
+    private Integer uploadConcurrency = 4;
+
+    /**
+     * OSS
+     * <p>
+     * 所有上传同时占用的分片缓冲区总长度（字节），默认值：268435456（256 MiB），不能小于 uploadPartSize。
+     * 缓冲区在上传之间复用，用尽时读取下一个分片的线程阻塞，直到其他上传释放缓冲区
+     */
+    private Long uploadBufferBudget = 256L * 1024 * 1024;
+
+    /**
+     * OSS
+     * <p>
+     * 上传后是否额外发起一次 stat 请求获取对象的元数据，默认值：false。
+     * 默认根据上传请求和响应构建返回的对象，其中的最后修改时间取自响应的 Date 头
+     */
+    private Boolean statAfterPut = false;
+
+    /**
+     * OSS
+     * <p>
+     * 并行下载的分块长度（字节），默认值：8388608（8 MiB），取值 1 MiB 到 256 MiB。
+     * 启用并行下载时，超过该长度的对象按范围切分成多个分块同时下载
+     */
+    private Integer downloadChunkSize = 8 * 1024 * 1024;
+
+    /**
+     * OSS
+     * <p>
+     * 并行下载时同时下载的分块数，默认值：1，即不启用并行下载。
+     * 读取数据流时每个数据流最多提前缓冲 downloadConcurrency 个分块
+     */
+    private Integer downloadConcurrency = 1;
+
+    /**
+     * OSS
+     * <p>
+     * 读取对象时每个数据流的预读缓冲区长度（字节），默认值：0，即不预读；启用时取值 64 KiB 到 64 MiB。
+     * 后台线程持续读取响应直到缓冲区写满，调用方处理数据期间连接不会停顿
+     */
+    private Integer readAheadSize = 0;
+
+    /**
+     * OSS
+     * <p>
+     * 是否合并同一对象的并发请求，默认值：false。
+     * 启用后同时进行的 stat 共用一次请求，同时进行的 get 共用一次下载
+     */
+    private Boolean singleFlight = false;
+
+    /**
+     * OSS
+     * <p>
+     * 确认不存在的对象在多长时间内直接回答不存在，默认值：0，即不记录。
+     * 通过同一个存储写入的对象立即可见，其他实例写入的对象在记录过期之前不可见
+     */
+    private Duration negativeCacheTtl = Duration.ZERO;
+
+    /**
+     * OSS
+     * <p>
+     * 最多记录的不存在的对象数，默认值：10000
+     */
+    private Integer negativeCacheSize = 10000;
+
+    /**
+     * OSS
+     * <p>
+     * 布隆过滤器覆盖的名称前缀，默认值：null，即不启用；空字符串表示整个存储桶。
+     * 过滤器由前缀的列举结果初始化，每隔 bloomFilterRefreshInterval 重新列举，其他实例写入的对象在此期间可能被判断为不存在
+     */
+    private String bloomFilterPrefix;
+
+    /**
+     * OSS
+     * <p>
+     * 布隆过滤器预计的对象数，默认值：1000000，按 1% 的误判率分配空间，每百万个对象约占用 1.2 MiB
+     */
+    private Integer bloomFilterExpectedInsertions = 1_000_000;
+
+    /**
+     * OSS
+     * <p>
+     * 布隆过滤器的有效期，从列举开始时计算，默认值：5m。过期后不再回答查询，直到重新列举前缀；
+     * 0 表示不会过期，只适用于前缀下的对象都由当前实例写入的场景
+     */
+    private Duration bloomFilterRefreshInterval = Duration.ofMinutes(5);
+
     /**
      * 允许添加额外的配置供自定义实现访问
      * 用于扩展配置，支持特定存储类型的额外参数
@@ -149,6 +367,15 @@ public class FullBlobStoreProperties {
         return this;
     }
 
+    public Integer getKeyEntropyLength() {
+        return keyEntropyLength;
+    }
+
+    public FullBlobStoreProperties setKeyEntropyLength(Integer keyEntropyLength) {
+        this.keyEntropyLength = keyEntropyLength;
+        return this;
+    }
+
     public String getBaseDir() {
         return baseDir;
     }
@@ -158,6 +385,249 @@ public class FullBlobStoreProperties {
         return this;
     }
 
+    public Integer getShardDepth() {
+        return shardDepth;
+    }
+
+    public FullBlobStoreProperties setShardDepth(Integer shardDepth) {
+        this.shardDepth = shardDepth;
+        return this;
+    }
+
+    public Integer getShardWidth() {
+        return shardWidth;
+    }
+
+    public FullBlobStoreProperties setShardWidth(Integer shardWidth) {
+        this.shardWidth = shardWidth;
+        return this;
+    }
+
+    public Boolean getDedup() {
+        return dedup;
+    }
+
+    public FullBlobStoreProperties setDedup(Boolean dedup) {
+        this.dedup = dedup;
+        return this;
+    }
+
+    public Boolean getChunking() {
+        return chunking;
+    }
+
+    public FullBlobStoreProperties setChunking(Boolean chunking) {
+        this.chunking = chunking;
+        return this;
+    }
+
+    public Integer getPackThreshold() {
+        return packThreshold;
+    }
+
+    public FullBlobStoreProperties setPackThreshold(Integer packThreshold) {
+        this.packThreshold = packThreshold;
+        return this;
+    }
+
+    public Long getPackSegmentSize() {
+        return packSegmentSize;
+    }
+
+    public FullBlobStoreProperties setPackSegmentSize(Long packSegmentSize) {
+        this.packSegmentSize = packSegmentSize;
+        return this;
+    }
+
+    public Integer getPackFlushSize() {
+        return packFlushSize;
+    }
+
+    public FullBlobStoreProperties setPackFlushSize(Integer packFlushSize) {
+        this.packFlushSize = packFlushSize;
+        return this;
+    }
+
+    public Duration getPackFlushInterval() {
+        return packFlushInterval;
+    }
+
+    public FullBlobStoreProperties setPackFlushInterval(Duration packFlushInterval) {
+        this.packFlushInterval = packFlushInterval;
+        return this;
+    }
+
+    public Integer getUploadPartSize() {
+        return uploadPartSize;
+    }
+
+    public FullBlobStoreProperties setUploadPartSize(Integer uploadPartSize) {
+        this.uploadPartSize = uploadPartSize;
+        return this;
+    }
+
+    public Integer getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public FullBlobStoreProperties setUploadConcurrency(Integer uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+        return this;
+    }
+
+    public Long getUploadBufferBudget() {
+        return uploadBufferBudget;
+    }
+
+    public FullBlobStoreProperties setUploadBufferBudget(Long uploadBufferBudget) {
+        this.uploadBufferBudget = uploadBufferBudget;
+        return this;
+    }
+
+    public Boolean getStatAfterPut() {
+        return statAfterPut;
+    }
+
+    public FullBlobStoreProperties setStatAfterPut(Boolean statAfterPut) {
+        this.statAfterPut = statAfterPut;
+        return this;
+    }
+
+    public Integer getDownloadChunkSize() {
+        return downloadChunkSize;
+    }
+
+    public FullBlobStoreProperties setDownloadChunkSize(Integer downloadChunkSize) {
+        this.downloadChunkSize = downloadChunkSize;
+        return this;
+    }
+
+    public Integer getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    public FullBlobStoreProperties setDownloadConcurrency(Integer downloadConcurrency) {
+        this.downloadConcurrency = downloadConcurrency;
+        return this;
+    }
+
+    public Integer getReadAheadSize() {
+        return readAheadSize;
+    }
+
+    public FullBlobStoreProperties setReadAheadSize(Integer readAheadSize) {
+        this.readAheadSize = readAheadSize;
+        return this;
+    }
+
+    public Boolean getSingleFlight() {
+        return singleFlight;
+    }
+
+    public FullBlobStoreProperties setSingleFlight(Boolean singleFlight) {
+        this.singleFlight = singleFlight;
+        return this;
+    }
+
+    public Duration getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    public FullBlobStoreProperties setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+        return this;
+    }
+
+    public Integer getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    public FullBlobStoreProperties setNegativeCacheSize(Integer negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+        return this;
+    }
+
+    public String getBloomFilterPrefix() {
+        return bloomFilterPrefix;
+    }
+
+    public FullBlobStoreProperties setBloomFilterPrefix(String bloomFilterPrefix) {
+        this.bloomFilterPrefix = bloomFilterPrefix;
+        return this;
+    }
+
+    public Integer getBloomFilterExpectedInsertions() {
+        return bloomFilterExpectedInsertions;
+    }
+
+    public FullBlobStoreProperties setBloomFilterExpectedInsertions(Integer bloomFilterExpectedInsertions) {
+        this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+        return this;
+    }
+
+    public Duration getBloomFilterRefreshInterval() {
+        return bloomFilterRefreshInterval;
+    }
+
+    public FullBlobStoreProperties setBloomFilterRefreshInterval(Duration bloomFilterRefreshInterval) {
+        this.bloomFilterRefreshInterval = bloomFilterRefreshInterval;
+        return this;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public FullBlobStoreProperties setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public Integer getAsyncConcurrency() {
+        return asyncConcurrency;
+    }
+
+    public FullBlobStoreProperties setAsyncConcurrency(Integer asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+        return this;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public FullBlobStoreProperties setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+        return this;
+    }
+
+    public Long getCacheSize() {
+        return cacheSize;
+    }
+
+    public FullBlobStoreProperties setCacheSize(Long cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public Duration getCacheRevalidateInterval() {
+        return cacheRevalidateInterval;
+    }
+
+    public FullBlobStoreProperties setCacheRevalidateInterval(Duration cacheRevalidateInterval) {
+        this.cacheRevalidateInterval = cacheRevalidateInterval;
+        return this;
+    }
+
+    public String getNameGenerator() {
+        return nameGenerator;
+    }
+
+    public FullBlobStoreProperties setNameGenerator(String nameGenerator) {
+        this.nameGenerator = nameGenerator;
+        return this;
+    }
+
     public String getBuilder() {
         return builder;
     }
@@ -181,12 +651,12 @@ public class FullBlobStoreProperties {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FullBlobStoreProperties that = (FullBlobStoreProperties) o;
-        return Objects.equals(qualifier, that.qualifier) && Objects.equals(endpoint, that.endpoint) && Objects.equals(region, that.region) && Objects.equals(accessKey, that.accessKey) && Objects.equals(secretKey, that.secretKey) && Objects.equals(credentials, that.credentials) && Objects.equals(bucket, that.bucket) && Objects.equals(baseDir, that.baseDir) && Objects.equals(builder, that.builder) && Objects.equals(extra, that.extra);
+        return Objects.equals(qualifier, that.qualifier) && Objects.equals(endpoint, that.endpoint) && Objects.equals(region, that.region) && Objects.equals(accessKey, that.accessKey) && Objects.equals(secretKey, that.secretKey) && Objects.equals(credentials, that.credentials) && Objects.equals(bucket, that.bucket) && Objects.equals(keyEntropyLength, that.keyEntropyLength) && Objects.equals(baseDir, that.baseDir) && Objects.equals(shardDepth, that.shardDepth) && Objects.equals(shardWidth, that.shardWidth) && Objects.equals(dedup, that.dedup) && Objects.equals(chunking, that.chunking) && Objects.equals(chunkSize, that.chunkSize) && Objects.equals(packThreshold, that.packThreshold) && Objects.equals(packSegmentSize, that.packSegmentSize) && Objects.equals(packFlushSize, that.packFlushSize) && Objects.equals(packFlushInterval, that.packFlushInterval) && Objects.equals(uploadPartSize, that.uploadPartSize) && Objects.equals(uploadConcurrency, that.uploadConcurrency) && Objects.equals(uploadBufferBudget, that.uploadBufferBudget) && Objects.equals(statAfterPut, that.statAfterPut) && Objects.equals(downloadChunkSize, that.downloadChunkSize) && Objects.equals(downloadConcurrency, that.downloadConcurrency) && Objects.equals(readAheadSize, that.readAheadSize) && Objects.equals(singleFlight, that.singleFlight) && Objects.equals(negativeCacheTtl, that.negativeCacheTtl) && Objects.equals(negativeCacheSize, that.negativeCacheSize) && Objects.equals(bloomFilterPrefix, that.bloomFilterPrefix) && Objects.equals(bloomFilterExpectedInsertions, that.bloomFilterExpectedInsertions) && Objects.equals(bloomFilterRefreshInterval, that.bloomFilterRefreshInterval) && Objects.equals(builder, that.builder) && Objects.equals(nameGenerator, that.nameGenerator) && Objects.equals(asyncConcurrency, that.asyncConcurrency) && Objects.equals(cacheDir, that.cacheDir) && Objects.equals(cacheSize, that.cacheSize) && Objects.equals(cacheRevalidateInterval, that.cacheRevalidateInterval) && Objects.equals(extra, that.extra);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(qualifier, endpoint, region, accessKey, secretKey, credentials, bucket, baseDir, builder, extra);
+        return Objects.hash(qualifier, endpoint, region, accessKey, secretKey, credentials, bucket, keyEntropyLength, baseDir, shardDepth, shardWidth, dedup, chunking, chunkSize, packThreshold, packSegmentSize, packFlushSize, packFlushInterval, uploadPartSize, uploadConcurrency, uploadBufferBudget, statAfterPut, downloadChunkSize, downloadConcurrency, readAheadSize, singleFlight, negativeCacheTtl, negativeCacheSize, bloomFilterPrefix, bloomFilterExpectedInsertions, bloomFilterRefreshInterval, builder, nameGenerator, asyncConcurrency, cacheDir, cacheSize, cacheRevalidateInterval, extra);
     }
 
     @Override
@@ -199,8 +669,36 @@ public class FullBlobStoreProperties {
                 ", secretKey='" + secretKey + '\'' +
                 ", credentials='" + credentials + '\'' +
                 ", bucket='" + bucket + '\'' +
+                ", keyEntropyLength=" + keyEntropyLength +
                 ", baseDir='" + baseDir + '\'' +
+                ", shardDepth=" + shardDepth +
+                ", shardWidth=" + shardWidth +
+                ", dedup=" + dedup +
+                ", chunking=" + chunking +
+                ", chunkSize=" + chunkSize +
+                ", packThreshold=" + packThreshold +
+                ", packSegmentSize=" + packSegmentSize +
+                ", packFlushSize=" + packFlushSize +
+                ", packFlushInterval=" + packFlushInterval +
+                ", uploadPartSize=" + uploadPartSize +
+                ", uploadConcurrency=" + uploadConcurrency +
+                ", uploadBufferBudget=" + uploadBufferBudget +
+                ", statAfterPut=" + statAfterPut +
+                ", downloadChunkSize=" + downloadChunkSize +
+                ", downloadConcurrency=" + downloadConcurrency +
+                ", readAheadSize=" + readAheadSize +
+                ", singleFlight=" + singleFlight +
+                ", negativeCacheTtl=" + negativeCacheTtl +
+                ", negativeCacheSize=" + negativeCacheSize +
+                ", bloomFilterPrefix='" + bloomFilterPrefix + '\'' +
+                ", bloomFilterExpectedInsertions=" + bloomFilterExpectedInsertions +
+                ", bloomFilterRefreshInterval=" + bloomFilterRefreshInterval +
                 ", builder='" + builder + '\'' +
+                ", nameGenerator='" + nameGenerator + '\'' +
+                ", asyncConcurrency=" + asyncConcurrency +
+                ", cacheDir='" + cacheDir + '\'' +
+                ", cacheSize=" + cacheSize +
+                ", cacheRevalidateInterval=" + cacheRevalidateInterval +
                 ", extra=" + extra +
                 '}';
     }
@@ -3,6 +3,7 @@ package cc.ddrpa.dorian.polystash.springboot.autoconfigure;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStoreBuilder;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.provider.cache.CachingBlobStore;
 import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
 import cc.ddrpa.dorian.polystash.provider.s3.S3BlobStoreBuilder;
 import org.slf4j.Logger;
@@ -13,7 +14,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.util.StringUtils;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.SortedMap;
 
 /**
@@ -130,6 +134,7 @@ public class PolyStashAutoConfiguration {
      *   <li>创建相应的 BlobStoreBuilder</li>
      *   <li>验证配置参数</li>
      *   <li>构建 BlobStore 实例</li>
+     *   <li>配置了 cacheDir 时增加本地磁盘缓存</li>
      *   <li>注册到 BlobStoreHolder</li>
      * </ul>
      *
@@ -159,10 +164,43 @@ public class PolyStashAutoConfiguration {
                 .name(blobStoreQualifier)
                 .properties(blobStoreProperties)
                 .build();
+        if (StringUtils.hasText(blobStoreProperties.getCacheDir())) {
+            blobStore = wrapWithCache(blobStoreQualifier, blobStore, blobStoreProperties);
+        }
         // 注册
         holder.registerBlobStore(blobStore, isPrimary);
     }
 
+    /**
+     * 在 BlobStore 前增加本地磁盘缓存。
+     *
+     * @param blobStoreQualifier  BlobStore 的限定符标识符
+     * @param blobStore           被缓存的 BlobStore 实例
+     * @param blobStoreProperties BlobStore 的配置属性
+     * @return 带有本地磁盘缓存的 BlobStore 实例
+     * @throws GeneralPolyStashException 当缓存目录无法使用时抛出
+     */
+    private BlobStore wrapWithCache(String blobStoreQualifier,
+                                    BlobStore blobStore,
+                                    FullBlobStoreProperties blobStoreProperties) throws GeneralPolyStashException {
+        long cacheSize = Objects.requireNonNullElse(blobStoreProperties.getCacheSize(), 1024L * 1024 * 1024);
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("BlobStore '%s' 的 'cacheSize' 配置必须大于 0", blobStoreQualifier));
+        }
+        Duration revalidateInterval = Objects.requireNonNullElse(blobStoreProperties.getCacheRevalidateInterval(), Duration.ZERO);
+        if (revalidateInterval.isNegative()) {
+            throw new IllegalArgumentException(
+                    String.format("BlobStore '%s' 的 'cacheRevalidateInterval' 配置不能为负数", blobStoreQualifier));
+        }
+        CachingBlobStore cachingBlobStore = new CachingBlobStore(blobStore,
+                Path.of(blobStoreProperties.getCacheDir()), cacheSize, revalidateInterval);
+        cachingBlobStore.limitAsyncConcurrency(
+                Objects.requireNonNullElse(blobStoreProperties.getAsyncConcurrency(), BlobStore.DEFAULT_ASYNC_CONCURRENCY));
+        logger.info("BlobStore '{}' 启用本地磁盘缓存: {}", blobStoreQualifier, blobStoreProperties.getCacheDir());
+        return cachingBlobStore;
+    }
+
     /**
      * 创建 BlobStoreBuilder 实例。
      * <p>
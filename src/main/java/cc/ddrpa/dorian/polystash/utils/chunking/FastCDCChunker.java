@@ -0,0 +1,142 @@
+package cc.ddrpa.dorian.polystash.utils.chunking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 基于 FastCDC 算法的内容定义分块器。
+ * <p>
+ * 按固定大小切分时，在文件开头插入一个字节就会让之后所有块的边界错位；
+ * 内容定义分块根据数据本身的滚动哈希（Gear hash）决定切分点，
+ * 局部修改只会影响附近的一两个块，其余块仍然可以被去重。
+ * <p>
+ * 实现要点：
+ * <ul>
+ *   <li>跳过最小块长度之前的切分点判断（cut-point skipping）</li>
+ *   <li>归一化分块：平均长度之前使用更严格的掩码，之后使用更宽松的掩码，使块长度集中在平均值附近</li>
+ *   <li>掩码取哈希的高位，高位受最近 64 个字节影响，低位只受最近几个字节影响</li>
+ * </ul>
+ * <p>
+ * Gear 表由固定种子的 {@link SplittableRandom} 生成，任何节点、任何版本都会得到相同的切分结果。
+ * 该类不是线程安全的。
+ */
+public class FastCDCChunker {
+
+    /**
+     * 允许的最小平均块长度
+     */
+    public static final int MIN_AVERAGE_SIZE = 4 * 1024;
+
+    /**
+     * 允许的最大平均块长度
+     */
+    public static final int MAX_AVERAGE_SIZE = 16 * 1024 * 1024;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x706f6c7973746173L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final InputStream inputStream;
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long maskS;
+    private final long maskL;
+    private final byte[] buffer;
+    private int length = 0;
+    private boolean eof = false;
+
+    /**
+     * 构造函数
+     *
+     * @param inputStream 需要分块的数据，由调用方负责关闭
+     * @param averageSize 期望的平均块长度，必须是 2 的幂；最小块长度为其 1/4，最大块长度为其 4 倍
+     */
+    public FastCDCChunker(InputStream inputStream, int averageSize) {
+        if (averageSize < MIN_AVERAGE_SIZE || averageSize > MAX_AVERAGE_SIZE || Integer.bitCount(averageSize) != 1) {
+            throw new IllegalArgumentException(
+                    String.format("Average chunk size must be a power of two between %d and %d, but got %d",
+                            MIN_AVERAGE_SIZE, MAX_AVERAGE_SIZE, averageSize));
+        }
+        this.inputStream = inputStream;
+        this.averageSize = averageSize;
+        this.minSize = averageSize / 4;
+        this.maxSize = maxSizeOf(averageSize);
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.maskS = highBitsMask(bits + 2);
+        this.maskL = highBitsMask(bits - 2);
+        this.buffer = new byte[maxSize];
+    }
+
+    /**
+     * 返回指定平均块长度下的最大块长度
+     */
+    public static int maxSizeOf(int averageSize) {
+        return averageSize * 4;
+    }
+
+    private static long highBitsMask(int bits) {
+        return ((1L << bits) - 1) << (Long.SIZE - bits);
+    }
+
+    /**
+     * 读取下一个块
+     *
+     * @return 块数据，数据读完时返回 null
+     * @throws IOException 读取数据失败时抛出
+     */
+    public byte[] next() throws IOException {
+        fill();
+        if (length == 0) {
+            return null;
+        }
+        int cut = cutPoint(buffer, length);
+        byte[] chunk = Arrays.copyOf(buffer, cut);
+        System.arraycopy(buffer, cut, buffer, 0, length - cut);
+        length -= cut;
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        while (!eof && length < maxSize) {
+            int read = inputStream.read(buffer, length, maxSize - length);
+            if (read < 0) {
+                eof = true;
+            } else {
+                length += read;
+            }
+        }
+    }
+
+    /**
+     * 在 data[0, n) 中寻找切分点，返回第一个块的长度
+     */
+    private int cutPoint(byte[] data, int n) {
+        if (n <= minSize) {
+            return n;
+        }
+        int normalSize = Math.min(averageSize, n);
+        long fingerprint = 0;
+        int i = minSize;
+        for (; i < normalSize; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[i] & 0xFF];
+            if ((fingerprint & maskS) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < n; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[i] & 0xFF];
+            if ((fingerprint & maskL) == 0) {
+                return i + 1;
+            }
+        }
+        return n;
+    }
+}
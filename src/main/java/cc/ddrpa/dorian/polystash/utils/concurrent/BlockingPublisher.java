@@ -0,0 +1,186 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 把阻塞的数据源适配为 {@link Flow.Publisher}，数据源只在订阅方请求数据时在执行器的线程中读取。
+ * <p>
+ * 每次订阅都会重新打开数据源；订阅方的信号按顺序发出，不会并发调用订阅方。
+ * 没有未满足的请求时不占用执行器的名额，取消订阅后在当前读取完成时关闭数据源。
+ *
+ * @param <T> 发出的元素类型
+ */
+public class BlockingPublisher<T> implements Flow.Publisher<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingPublisher.class);
+
+    private final BoundedAsyncExecutor executor;
+    private final Callable<? extends Source<T>> opener;
+    private final Function<Exception, ? extends Throwable> errorMapper;
+
+    /**
+     * @param opener      打开数据源，在执行器的线程中调用
+     * @param errorMapper 把打开或读取数据源时的异常转换为发给订阅方的异常
+     */
+    public BlockingPublisher(BoundedAsyncExecutor executor, Callable<? extends Source<T>> opener,
+                             Function<Exception, ? extends Throwable> errorMapper) {
+        this.executor = executor;
+        this.opener = opener;
+        this.errorMapper = errorMapper;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new BlockingSubscription(subscriber));
+    }
+
+    /**
+     * 阻塞的数据源
+     */
+    @FunctionalInterface
+    public interface Source<T> extends Closeable {
+        /**
+         * 读取下一个元素
+         *
+         * @return 下一个元素，没有更多元素时为 null
+         */
+        T next() throws Exception;
+
+        @Override
+        default void close() throws IOException {
+            // do nothing
+        }
+    }
+
+    private final class BlockingSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * 尚未处理的请求和取消信号数，从 0 变为正数的线程负责安排读取任务
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest;
+        // 以下字段只在读取任务中访问，读取任务不会并发执行
+        private Source<T> source;
+        private boolean done = false;
+
+        private BlockingSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested items must be positive, but got " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            executor.submit(() -> {
+                drain();
+                return null;
+            }).whenComplete((ignored, throwable) -> {
+                if (throwable != null && !done) {
+                    // 执行器已经关闭，读取任务没有运行
+                    done = true;
+                    closeSource();
+                    if (!cancelled) {
+                        subscriber.onError(throwable);
+                    }
+                }
+            });
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (!done) {
+                    emit();
+                }
+                missed = pending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void emit() {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                if (source == null) {
+                    source = opener.call();
+                }
+                while (demand.get() > 0 && !cancelled) {
+                    T item = source.next();
+                    if (item == null) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    demand.decrementAndGet();
+                }
+                if (cancelled) {
+                    finish();
+                }
+            } catch (Exception e) {
+                finish();
+                if (!cancelled) {
+                    subscriber.onError(errorMapper.apply(e));
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            closeSource();
+        }
+
+        private void closeSource() {
+            if (source == null) {
+                return;
+            }
+            try {
+                source.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close blocking source", e);
+            }
+            source = null;
+        }
+    }
+}
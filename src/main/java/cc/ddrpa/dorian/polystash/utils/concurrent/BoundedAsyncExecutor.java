@@ -0,0 +1,332 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 限制并发数的异步执行器，为每个任务创建一个线程，运行时支持虚拟线程（Java 21 及以上）时使用虚拟线程。
+ * <p>
+ * 同时执行的任务数超过上限后，新任务进入队列等待，不会阻塞提交任务的线程。
+ * 取消返回的 CompletableFuture 时，排队中的任务不再执行，执行中的阻塞任务被中断。
+ */
+public class BoundedAsyncExecutor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedAsyncExecutor.class);
+
+    private final String name;
+    private final int maxConcurrency;
+    private final boolean virtualThreads;
+    private final ExecutorService executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Task<?>> queue = new ArrayDeque<>();
+    private int running = 0;
+    private boolean closed = false;
+
+    /**
+     * @param name           线程名称
+     * @param maxConcurrency 同时执行的最大任务数
+     */
+    public BoundedAsyncExecutor(String name, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive, but got " + maxConcurrency);
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor(name);
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，编译目标为 Java 17，运行时不支持虚拟线程时返回 null
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 19 和 20 未启用预览特性时 ofVirtual 抛出 UnsupportedOperationException
+            return null;
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 是否在虚拟线程中执行任务
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 提交阻塞任务，任务在独立的线程中执行
+     *
+     * @see #submit(Callable, Consumer)
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        return submit(callable, null);
+    }
+
+    /**
+     * 提交阻塞任务，任务在独立的线程中执行。
+     * <p>
+     * 返回的 CompletableFuture 以任务抛出的异常结束；以 cancel(true) 取消时中断执行任务的线程。
+     *
+     * @param onDiscard 任务在取消之后才得到结果时用于释放结果的回调，例如关闭数据流，可以为 null
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable, Consumer<? super T> onDiscard) {
+        return enqueue(new BlockingTask<>(callable, onDiscard));
+    }
+
+    /**
+     * 提交非阻塞任务
+     *
+     * @see #submitAsync(Supplier, Consumer)
+     */
+    public <T> CompletableFuture<T> submitAsync(Supplier<CompletableFuture<T>> supplier) {
+        return submitAsync(supplier, null);
+    }
+
+    /**
+     * 提交非阻塞任务，取得执行名额后在独立的线程中调用 supplier 发起操作，直到其返回的 CompletableFuture 结束才释放名额。
+     * <p>
+     * 取消返回的 CompletableFuture 时同时取消 supplier 返回的 CompletableFuture，并立即释放名额。
+     *
+     * @param onDiscard 操作在取消之后才得到结果时用于释放结果的回调，可以为 null
+     */
+    public <T> CompletableFuture<T> submitAsync(Supplier<CompletableFuture<T>> supplier, Consumer<? super T> onDiscard) {
+        return enqueue(new AsyncTask<>(supplier, onDiscard));
+    }
+
+    private <T> CompletableFuture<T> enqueue(Task<T> task) {
+        boolean start = false;
+        lock.lock();
+        try {
+            if (closed) {
+                task.completeExceptionally(new RejectedExecutionException(
+                        String.format("Executor '%s' has been closed", name)));
+                return task;
+            }
+            if (running < maxConcurrency) {
+                running++;
+                start = true;
+            } else {
+                queue.add(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (start) {
+            dispatch(task);
+        }
+        return task;
+    }
+
+    private void dispatch(Task<?> task) {
+        try {
+            executor.execute(task::run);
+        } catch (RejectedExecutionException e) {
+            task.completeExceptionally(e);
+            release();
+        }
+    }
+
+    /**
+     * 释放一个执行名额，交给队列中下一个未取消的任务
+     */
+    private void release() {
+        Task<?> next = null;
+        lock.lock();
+        try {
+            while ((next = queue.poll()) != null && next.isDone()) {
+                // 排队期间已经取消的任务直接丢弃
+            }
+            if (next == null) {
+                running--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    /**
+     * 停止执行器，排队中的任务被取消，执行中的阻塞任务被中断
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.forEach(task -> task.cancel(false));
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for tasks of executor '{}' to stop", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private abstract static class Task<T> extends CompletableFuture<T> {
+        private final Consumer<? super T> onDiscard;
+
+        private Task(Consumer<? super T> onDiscard) {
+            this.onDiscard = onDiscard;
+        }
+
+        /**
+         * 在执行器的线程中运行，结束时必须释放执行名额
+         */
+        abstract void run();
+
+        /**
+         * 以任务的结果结束，已经取消时释放结果
+         */
+        void succeed(T value) {
+            if (!complete(value) && value != null && onDiscard != null) {
+                try {
+                    onDiscard.accept(value);
+                } catch (RuntimeException e) {
+                    logger.debug("Failed to discard result of cancelled task", e);
+                }
+            }
+        }
+    }
+
+    private final class BlockingTask<T> extends Task<T> {
+        private final Callable<T> callable;
+        private final Object runnerLock = new Object();
+        private Thread runner;
+
+        private BlockingTask(Callable<T> callable, Consumer<? super T> onDiscard) {
+            super(onDiscard);
+            this.callable = callable;
+        }
+
+        @Override
+        void run() {
+            try {
+                synchronized (runnerLock) {
+                    if (isDone()) {
+                        return;
+                    }
+                    runner = Thread.currentThread();
+                }
+                try {
+                    succeed(callable.call());
+                } catch (Throwable e) {
+                    completeExceptionally(e);
+                } finally {
+                    synchronized (runnerLock) {
+                        runner = null;
+                    }
+                    // 线程池中的线程会被复用，清除取消时设置的中断状态
+                    Thread.interrupted();
+                }
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning) {
+                synchronized (runnerLock) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+
+    private final class AsyncTask<T> extends Task<T> {
+        private final Supplier<CompletableFuture<T>> supplier;
+        private volatile CompletableFuture<T> operation;
+
+        private AsyncTask(Supplier<CompletableFuture<T>> supplier, Consumer<? super T> onDiscard) {
+            super(onDiscard);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void run() {
+            if (isDone()) {
+                release();
+                return;
+            }
+            CompletableFuture<T> started;
+            try {
+                started = supplier.get();
+            } catch (Throwable e) {
+                completeExceptionally(e);
+                release();
+                return;
+            }
+            operation = started;
+            started.whenComplete((value, throwable) -> {
+                release();
+                if (throwable == null) {
+                    succeed(value);
+                } else {
+                    completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable);
+                }
+            });
+            if (isCancelled()) {
+                // 发起操作期间被取消
+                started.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            CompletableFuture<T> started = operation;
+            if (cancelled && started != null) {
+                started.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 订阅 {@code Flow.Publisher<ByteBuffer>} 并以阻塞数据流的形式读取。
+ * <p>
+ * 最多向发布方请求 prefetch 个尚未读完的缓冲区，读完一个缓冲区后再请求下一个，
+ * 因此发布方的速度不会超过读取方，缓冲的数据量由发布方的缓冲区长度和 prefetch 决定。
+ * 关闭数据流时取消订阅。
+ */
+public class PublisherInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+
+    private final int prefetch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+    private Flow.Subscription subscription;
+    private boolean complete = false;
+    private boolean closed = false;
+    private Throwable failure;
+
+    /**
+     * @param prefetch 同时请求的缓冲区数
+     */
+    public PublisherInputStream(int prefetch) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("Prefetch must be positive, but got " + prefetch);
+        }
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        lock.lock();
+        try {
+            if (this.subscription != null || closed) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        } finally {
+            lock.unlock();
+        }
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        lock.lock();
+        try {
+            if (!closed) {
+                buffers.add(item);
+                readable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        lock.lock();
+        try {
+            failure = throwable;
+            complete = true;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        lock.lock();
+        try {
+            complete = true;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int consumed = 0;
+        int read;
+        lock.lock();
+        try {
+            while (true) {
+                ByteBuffer head = buffers.peek();
+                if (head != null && !head.hasRemaining()) {
+                    buffers.poll();
+                    consumed++;
+                    continue;
+                }
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (head != null) {
+                    read = Math.min(len, head.remaining());
+                    head.get(b, off, read);
+                    if (!head.hasRemaining()) {
+                        buffers.poll();
+                        consumed++;
+                    }
+                    break;
+                }
+                if (complete) {
+                    if (failure != null) {
+                        throw new IOException("Publisher failed", failure);
+                    }
+                    read = -1;
+                    break;
+                }
+                readable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for publisher");
+        } finally {
+            lock.unlock();
+        }
+        if (consumed > 0) {
+            // 在锁外请求，发布方可能在 request 中同步调用 onNext
+            subscription.request(consumed);
+        }
+        return read;
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            ByteBuffer head = buffers.peek();
+            return head == null ? 0 : head.remaining();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭数据流，尚未结束时取消订阅
+     */
+    @Override
+    public void close() {
+        Flow.Subscription toCancel;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffers.clear();
+            toCancel = complete ? null : subscription;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 合并相同键的并发调用：第一个调用方执行操作，同时到达的其他调用方等待并共用其结果或异常。
+ * <p>
+ * 只合并时间上重叠的调用，操作结束后到达的调用会重新执行，不缓存结果。
+ * 结果对象由所有调用方共享，可变对象需要由调用方复制后再修改。
+ *
+ * @param <K> 键的类型
+ * @param <V> 结果的类型
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 执行操作，相同的键已经有正在执行的操作时等待其结果
+     *
+     * @param key    操作的键
+     * @param loader 操作，只在没有正在执行的相同操作时调用
+     * @return 操作的结果
+     * @throws E 操作抛出的异常，等待方收到与执行方相同的异常实例
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Exception> V execute(K key, Loader<V, E> loader) throws E {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                // 同一个键的操作抛出的受检异常类型相同
+                throw (E) cause;
+            }
+        }
+        try {
+            V value = loader.load();
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * 不再让之后的调用加入该键正在执行的操作，已经在等待的调用方仍然得到其结果。
+     * 键对应的数据被修改后调用，之后的调用会重新执行操作，不会读到修改之前开始的操作的结果
+     */
+    public void forget(K key) {
+        calls.remove(key);
+    }
+
+    /**
+     * 当前正在执行的操作数
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    @FunctionalInterface
+    public interface Loader<V, E extends Exception> {
+        V load() throws E;
+    }
+}
@@ -0,0 +1,57 @@
+package cc.ddrpa.dorian.polystash.utils.digest;
+
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 名称哈希工具类，用于从对象名称中派生均匀分布的十六进制字符。
+ * <p>
+ * 分片目录、键前缀熵等场景需要一个与名称本身格式无关的稳定散列值：
+ * 即使名称是按时间递增的 ID，派生出的前缀也应均匀分布。
+ * 该类使用 xxHash64 计算名称 UTF-8 编码的哈希值，并以小写十六进制形式返回。
+ * <p>
+ * 注意：相同的名称在任何节点、任何时间都会得到相同的结果，
+ * 因此派生结果可以作为存储布局的一部分持久化。
+ */
+public class NameHash {
+
+    /**
+     * xxHash64 输出的十六进制字符数。
+     */
+    public static final int HEX_LENGTH = 16;
+
+    private static final long SEED = 0L;
+
+    private static final XXHash64 HASHER = XXHashFactory.fastestInstance().hash64();
+
+    private NameHash() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * 计算名称的 64 位哈希值。
+     *
+     * @param name 名称
+     * @return 64 位哈希值
+     */
+    public static long hash64(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return HASHER.hash(bytes, 0, bytes.length, SEED);
+    }
+
+    /**
+     * 返回名称哈希值的十六进制表示，固定 16 个字符。
+     *
+     * @param name 名称
+     * @return 小写十六进制字符串
+     */
+    public static String hex(String name) {
+        String hex = Long.toHexString(hash64(name));
+        if (hex.length() == HEX_LENGTH) {
+            return hex;
+        }
+        return "0".repeat(HEX_LENGTH - hex.length()) + hex;
+    }
+}
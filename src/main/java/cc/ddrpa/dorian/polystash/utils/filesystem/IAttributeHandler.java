@@ -59,6 +59,21 @@ public interface IAttributeHandler {
      */
     String ATTR_CHECKSUM_ALGORITHM = "checksum-algorithm";
 
+    /**
+     * 去重模式下对象文件引用的内容标识符，存在该属性时文件本身不包含数据
+     */
+    String ATTR_CONTENT_REF = "content-ref";
+
+    /**
+     * 分块模式下对象文件的清单格式版本，存在该属性时文件内容是块清单而不是数据
+     */
+    String ATTR_CONTENT_MANIFEST = "content-manifest";
+
+    /**
+     * 分块模式下对象的数据长度，避免获取元数据时解析块清单
+     */
+    String ATTR_CONTENT_LENGTH = "content-length";
+
     static Optional<String> parseETag(Map<String, String> metadata) {
         return Optional.ofNullable(metadata.get(ATTR_ETAG));
     }
@@ -84,6 +99,26 @@ public interface IAttributeHandler {
         return Optional.ofNullable(metadata.get(ATTR_CHECKSUM_ALGORITHM));
     }
 
+    static Optional<String> parseContentRef(Map<String, String> metadata) {
+        return Optional.ofNullable(metadata.get(ATTR_CONTENT_REF));
+    }
+
+    static Optional<String> parseContentManifest(Map<String, String> metadata) {
+        return Optional.ofNullable(metadata.get(ATTR_CONTENT_MANIFEST));
+    }
+
+    static Optional<Long> parseContentLength(Map<String, String> metadata) {
+        String contentLength = metadata.get(ATTR_CONTENT_LENGTH);
+        if (StringUtils.isBlank(contentLength)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(contentLength));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * 读取文件的元数据属性。
      * <p>
@@ -117,6 +152,23 @@ public interface IAttributeHandler {
      */
     void writeUserDefinedAttributes(Path filePath, Map<String, String> userDefinedAttributes);
 
+    /**
+     * 一次写入元数据属性和用户自定义属性。
+     * <p>
+     * 默认实现依次调用 writeUserDefinedAttributes 和 writeMetadataAttributes，
+     * 实现类可以重写此方法合并写入操作，减少每个文件的系统调用或进程启动次数。
+     *
+     * @param filePath              要设置属性的文件路径
+     * @param metadata              要设置的元数据键值对映射
+     * @param userDefinedAttributes 要设置的用户自定义属性键值对映射，可以为空
+     */
+    default void writeAttributes(Path filePath, Map<String, String> metadata, Map<String, String> userDefinedAttributes) {
+        if (!userDefinedAttributes.isEmpty()) {
+            writeUserDefinedAttributes(filePath, userDefinedAttributes);
+        }
+        writeMetadataAttributes(filePath, metadata);
+    }
+
     /**
      * 读取文件的用户自定义属性。
      * <p>
@@ -56,12 +56,30 @@ public class UserDefinedFileAttributeViewHandler implements IAttributeHandler {
         return getAttribute(filePath, rawAttributeName);
     }
 
+    /**
+     * 只获取一次属性视图，依次写入两类属性
+     */
+    @Override
+    public void writeAttributes(Path filePath, Map<String, String> metadata, Map<String, String> userDefinedAttributes) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
+        if (Objects.isNull(view)) {
+            logger.debug("UserDefinedFileAttributeView is not supported with path {}", filePath);
+            return;
+        }
+        setAttributes(view, filePath, USER_DEFINED_ATTRIBUTE_PREFIX, userDefinedAttributes);
+        setAttributes(view, filePath, METADATA_ATTRIBUTE_PREFIX, metadata);
+    }
+
     private void setAttributes(Path filePath, String attributePrefix, Map<String, String> attributes) {
         UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
         if (Objects.isNull(view)) {
             logger.debug("UserDefinedFileAttributeView is not supported with path {}", filePath);
             return;
         }
+        setAttributes(view, filePath, attributePrefix, attributes);
+    }
+
+    private void setAttributes(UserDefinedFileAttributeView view, Path filePath, String attributePrefix, Map<String, String> attributes) {
         for (Map.Entry<String, String> entry : attributes.entrySet()) {
             String key = entry.getKey();
             String value = entry.getValue();
@@ -8,7 +8,9 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -53,21 +55,34 @@ public class XATTRHandler implements IAttributeHandler {
         return getAttribute(filePath, rawAttributeName);
     }
 
+    /**
+     * 同时启动写入两类属性的所有 xattr 进程后再统一等待，每个文件的写入耗时接近一次进程启动
+     */
+    @Override
+    public void writeAttributes(Path filePath, Map<String, String> metadata, Map<String, String> userDefinedAttributes) {
+        List<Process> processes = new ArrayList<>();
+        startWrites(filePath, USER_DEFINED_ATTRIBUTE_PREFIX, userDefinedAttributes, processes);
+        startWrites(filePath, METADATA_ATTRIBUTE_PREFIX, metadata, processes);
+        awaitWrites(filePath, processes);
+    }
+
     private void setAttributes(Path filePath, String attributePrefix, Map<String, String> attributes) {
+        List<Process> processes = new ArrayList<>();
+        startWrites(filePath, attributePrefix, attributes, processes);
+        awaitWrites(filePath, processes);
+    }
+
+    private void startWrites(Path filePath, String attributePrefix, Map<String, String> attributes, List<Process> processes) {
         // 执行 xattr -w user.key value example.txt 设置文件 example.txt 的扩展属性
         attributes.forEach((key, value) -> {
             if (StringUtils.isBlank(value)) {
                 logger.debug("Value is blank, skip writing <{}> to {}", key, filePath);
+                return;
             }
             try {
-                Process process = new ProcessBuilder()
+                processes.add(new ProcessBuilder()
                         .command("/usr/bin/xattr", "-w", attributePrefix + key, value, filePath.toString())
-                        .start();
-                process.waitFor();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.debug("Interrupted while writing user defined attribute {} with value {} to path {}",
-                        key, value, filePath);
+                        .start());
             } catch (IOException e) {
                 logger.debug("Failed to write user defined attribute {} with value {} to path {}",
                         key, value, filePath);
@@ -75,6 +90,18 @@ public class XATTRHandler implements IAttributeHandler {
         });
     }
 
+    private void awaitWrites(Path filePath, List<Process> processes) {
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.debug("Interrupted while writing attributes to path {}", filePath);
+                return;
+            }
+        }
+    }
+
     private Map<String, String> getAttributes(Path filePath, String attributePrefix) {
         Process process;
         try {
@@ -0,0 +1,51 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
+import com.google.common.io.BaseEncoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 使用数据内容的 SHA-256 摘要作为对象名称。
+ * <p>
+ * 内容相同的对象会得到相同的名称，再次写入时会覆盖已有对象，
+ * 包括可读文件名、内容类型等元数据。
+ * <p>
+ * 计算摘要需要在写入之前完整读取一遍数据，因此只支持可重复读取的 payload，
+ * 例如 {@code ByteArrayPayload} 和 {@code FilePayload}。
+ */
+public class ContentHashNameGenerator implements ObjectNameGenerator {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public String generate(Payload<?> payload) throws GeneralPolyStashException {
+        if (!payload.isRepeatable()) {
+            throw new OperationNotSupportedException("content-hash object name for non-repeatable payload");
+        }
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new OperationNotSupportedException("SHA-256 digest", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = payload.stream();
+             DigestInputStream digestInputStream = new DigestInputStream(inputStream, messageDigest)) {
+            while (digestInputStream.read(buffer) != -1) {
+                // only digest
+            }
+        } catch (IOException e) {
+            throw new IOErrorOccursException("Failed to read payload while generating content-hash object name", e);
+        }
+        return BaseEncoding.base16().lowerCase().encode(messageDigest.digest());
+    }
+}
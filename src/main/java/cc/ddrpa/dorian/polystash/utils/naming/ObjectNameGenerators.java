@@ -0,0 +1,108 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+import cc.ddrpa.dorian.polystash.utils.digest.NameHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+
+/**
+ * 对象名称生成器工厂，根据配置创建 {@link ObjectNameGenerator} 实例。
+ * <p>
+ * 支持的取值：
+ * <ul>
+ *   <li>{@code uuid}：随机 UUID，默认值</li>
+ *   <li>{@code uuid-v7}：按时间排序的 UUIDv7</li>
+ *   <li>{@code ulid}：按时间排序的 ULID</li>
+ *   <li>{@code snowflake}：Snowflake 风格的 64 位 ID，节点 ID 通过 extra 中的 {@code workerId} 指定</li>
+ *   <li>{@code content-hash}：数据内容的 SHA-256 摘要</li>
+ *   <li>自定义实现类的全限定名，该类需要提供无参构造函数</li>
+ * </ul>
+ */
+public class ObjectNameGenerators {
+
+    public static final String UUID = "uuid";
+    public static final String UUID_V7 = "uuid-v7";
+    public static final String ULID = "ulid";
+    public static final String SNOWFLAKE = "snowflake";
+    public static final String CONTENT_HASH = "content-hash";
+
+    /**
+     * extra 配置中用于指定 Snowflake 节点 ID 的键
+     */
+    public static final String EXTRA_WORKER_ID = "workerId";
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectNameGenerators.class);
+
+    private ObjectNameGenerators() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * 根据配置创建对象名称生成器
+     *
+     * @param type  生成器类型或自定义实现类的全限定名，为空时使用随机 UUID
+     * @param extra 额外配置
+     * @return 对象名称生成器
+     * @throws IllegalArgumentException 当配置无效时抛出
+     */
+    public static ObjectNameGenerator create(String type, Map<String, String> extra) {
+        if (!StringUtils.hasText(type)) {
+            return new RandomUUIDNameGenerator();
+        }
+        return switch (type.trim().toLowerCase()) {
+            case UUID -> new RandomUUIDNameGenerator();
+            case UUID_V7 -> new UUIDv7NameGenerator();
+            case ULID -> new ULIDNameGenerator();
+            case SNOWFLAKE -> new SnowflakeNameGenerator(resolveWorkerId(extra));
+            case CONTENT_HASH -> new ContentHashNameGenerator();
+            default -> instantiate(type.trim());
+        };
+    }
+
+    private static ObjectNameGenerator instantiate(String className) {
+        try {
+            Class<?> generatorClass = Class.forName(className);
+            if (!ObjectNameGenerator.class.isAssignableFrom(generatorClass)) {
+                throw new IllegalArgumentException(
+                        String.format("类 '%s' 不是 ObjectNameGenerator 的实现", className));
+            }
+            return (ObjectNameGenerator) generatorClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(
+                    String.format("未知的对象名称生成器: '%s'", className), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                    String.format("创建对象名称生成器实例失败: '%s'", className), e);
+        }
+    }
+
+    /**
+     * 读取 Snowflake 节点 ID，未配置时由主机名和进程 ID 派生
+     */
+    private static long resolveWorkerId(Map<String, String> extra) {
+        String configured = extra == null ? null : extra.get(EXTRA_WORKER_ID);
+        if (StringUtils.hasText(configured)) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        String.format("无效的 Snowflake 节点 ID: '%s'", configured), e);
+            }
+        }
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hostName = "unknown";
+        }
+        long workerId = NameHash.hash64(hostName + "@" + ProcessHandle.current().pid()) & SnowflakeNameGenerator.MAX_WORKER_ID;
+        logger.warn("未配置 Snowflake 节点 ID，根据主机名和进程 ID 派生为 {}，多节点部署时请通过 extra.{} 显式指定",
+                workerId, EXTRA_WORKER_ID);
+        return workerId;
+    }
+}
@@ -0,0 +1,21 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+
+import java.util.UUID;
+
+/**
+ * 使用 {@link UUID#randomUUID()} 生成对象名称，这是历史版本的默认行为。
+ * <p>
+ * randomUUID 依赖共享的 SecureRandom 实例，在高并发写入时会出现竞争；
+ * 随机名称也无法保持写入顺序。对此敏感的场景可以改用
+ * {@link UUIDv7NameGenerator} 或 {@link ULIDNameGenerator}。
+ */
+public class RandomUUIDNameGenerator implements ObjectNameGenerator {
+
+    @Override
+    public String generate(Payload<?> payload) {
+        return UUID.randomUUID().toString();
+    }
+}
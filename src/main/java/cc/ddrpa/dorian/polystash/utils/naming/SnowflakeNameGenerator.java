@@ -0,0 +1,91 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成 Snowflake 风格的 64 位 ID 作为对象名称。
+ * <p>
+ * ID 由 41 位毫秒时间戳（自 2024-01-01T00:00:00Z 起）、10 位节点 ID 和
+ * 12 位序列号组成，以十进制字符串表示。只要各节点使用不同的节点 ID，
+ * 生成的名称就全局唯一，并且同一节点上严格递增。
+ * <p>
+ * 状态保存在一个 {@link AtomicLong} 中，通过 CAS 更新，不需要加锁。
+ * 同一毫秒内的序列号用尽或系统时钟回拨时，会沿用上一次的时间戳继续递增，
+ * 而不是等待时钟追上。
+ */
+public class SnowflakeNameGenerator implements ObjectNameGenerator {
+
+    /**
+     * 2024-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1704067200000L;
+
+    /**
+     * 节点 ID 的最大值
+     */
+    public static final long MAX_WORKER_ID = (1L << 10) - 1;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + 10;
+
+    private final long workerId;
+    /**
+     * 高位为上一次使用的时间戳，低 12 位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param workerId 节点 ID，取值 0 到 1023
+     */
+    public SnowflakeNameGenerator(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException(
+                    String.format("Worker id must be between 0 and %d, but got %d", MAX_WORKER_ID, workerId));
+        }
+        this.workerId = workerId;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    @Override
+    public String generate(Payload<?> payload) {
+        return Long.toString(nextId());
+    }
+
+    /**
+     * 生成下一个 ID
+     */
+    public long nextId() {
+        while (true) {
+            long previous = state.get();
+            long previousTimestamp = previous >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+            long timestamp;
+            long sequence;
+            if (now > previousTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                timestamp = previousTimestamp;
+                sequence = (previous & SEQUENCE_MASK) + 1;
+                if (sequence > SEQUENCE_MASK) {
+                    // 序列号用尽，借用下一毫秒
+                    timestamp++;
+                    sequence = 0;
+                }
+            }
+            if (state.compareAndSet(previous, (timestamp << SEQUENCE_BITS) | sequence)) {
+                return (timestamp << TIMESTAMP_SHIFT) | (workerId << WORKER_ID_SHIFT) | sequence;
+            }
+        }
+    }
+}
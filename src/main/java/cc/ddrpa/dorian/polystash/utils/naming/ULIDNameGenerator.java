@@ -0,0 +1,50 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 生成 ULID（Universally Unique Lexicographically Sortable Identifier）作为对象名称。
+ * <p>
+ * ULID 由 48 位毫秒时间戳和 80 位随机数组成，使用 Crockford Base32 编码为
+ * 26 个字符。与 UUID 相比更短，且字典序与生成时间一致。
+ * 随机位来自 {@link ThreadLocalRandom}，不会在线程之间产生竞争。
+ * <p>
+ * 注意：ThreadLocalRandom 不是密码学安全的随机数生成器，
+ * 如果对象名称本身需要作为不可猜测的访问凭证，请使用 {@link RandomUUIDNameGenerator}。
+ */
+public class ULIDNameGenerator implements ObjectNameGenerator {
+
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    @Override
+    public String generate(Payload<?> payload) {
+        return next();
+    }
+
+    /**
+     * 生成一个 ULID
+     */
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timestamp = System.currentTimeMillis();
+        // 80 位随机数拆分为高 16 位和低 64 位
+        long randomHigh = random.nextLong() & 0xFFFFL;
+        long randomLow = random.nextLong();
+        char[] chars = new char[26];
+        // 时间戳占 10 个字符（50 位，最高 2 位为 0）
+        for (int i = 9; i >= 0; i--) {
+            chars[i] = ENCODING[(int) (timestamp & 0x1F)];
+            timestamp >>>= 5;
+        }
+        // 随机数占 16 个字符，从低位开始每 5 位编码一个字符
+        for (int i = 25; i >= 10; i--) {
+            chars[i] = ENCODING[(int) (randomLow & 0x1F)];
+            randomLow = (randomLow >>> 5) | (randomHigh << 59);
+            randomHigh >>>= 5;
+        }
+        return new String(chars);
+    }
+}
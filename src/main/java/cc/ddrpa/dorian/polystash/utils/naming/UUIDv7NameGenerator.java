@@ -0,0 +1,38 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.payload.Payload;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 生成 RFC 9562 定义的 UUIDv7 作为对象名称。
+ * <p>
+ * UUIDv7 的高 48 位为 Unix 毫秒时间戳，其余为随机位，
+ * 因此名称按生成时间大致有序，列举结果和索引结构都能保持局部性。
+ * 随机位来自 {@link ThreadLocalRandom}，不会在线程之间产生竞争。
+ * <p>
+ * 注意：ThreadLocalRandom 不是密码学安全的随机数生成器，
+ * 如果对象名称本身需要作为不可猜测的访问凭证，请使用 {@link RandomUUIDNameGenerator}。
+ */
+public class UUIDv7NameGenerator implements ObjectNameGenerator {
+
+    @Override
+    public String generate(Payload<?> payload) {
+        return next().toString();
+    }
+
+    /**
+     * 生成一个 UUIDv7
+     */
+    public static UUID next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timestamp = System.currentTimeMillis();
+        // 48 位时间戳 + 4 位版本号 + 12 位随机数
+        long msb = (timestamp << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        // 2 位变体 + 62 位随机数
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -2,14 +2,20 @@ package cc.ddrpa.dorian.polystash.blobstore;
 
 import cc.ddrpa.dorian.polystash.core.blob.Blob;
 import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.ConditionalResult;
+import cc.ddrpa.dorian.polystash.core.blob.PutEntry;
+import cc.ddrpa.dorian.polystash.core.blob.PutResult;
+import cc.ddrpa.dorian.polystash.core.blob.RemoveResult;
 import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.MultipartFilePayload;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.blobstore.ReadCondition;
 import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.PreconditionFailedException;
 import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStore;
 import cc.ddrpa.dorian.polystash.provider.s3.S3BlobStore;
 import org.junit.jupiter.api.Test;
@@ -20,6 +26,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -207,6 +214,72 @@ public abstract class AbstractBlobStoreTests {
         assertThrows(BlobNotFoundException.class, () -> getBlobStore().get("nonexistent-file.txt"));
     }
 
+    @Test
+    void tryLookupTest() throws GeneralPolyStashException, IOException {
+        assertTrue(getBlobStore().tryStat("text/nonexistent-file.txt").isEmpty());
+        assertTrue(getBlobStore().tryGet("text/nonexistent-file.txt").isEmpty());
+        byte[] content = "try lookup".getBytes(StandardCharsets.UTF_8);
+        Blob blob = getBlobStore().put("text/", "try-lookup.txt",
+                new ByteArrayPayload(content), Collections.emptyMap(), "text/plain");
+        assertEquals("try-lookup.txt", getBlobStore().tryStat(blob.getObjectName()).orElseThrow().getReadableName());
+        try (InputStream inputStream = getBlobStore().tryGet(blob.getObjectName()).orElseThrow().getPayload().stream()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        getBlobStore().remove(blob.getObjectName(), false);
+        assertTrue(getBlobStore().tryStat(blob.getObjectName()).isEmpty());
+        // 对象不存在是常见的查询结果，不记录调用栈
+        BlobNotFoundException e = assertThrows(BlobNotFoundException.class, () -> getBlobStore().stat(blob.getObjectName()));
+        assertEquals(0, e.getStackTrace().length);
+    }
+
+    @Test
+    void conditionalReadTest() throws GeneralPolyStashException, IOException {
+        byte[] content = "conditional read".getBytes(StandardCharsets.UTF_8);
+        Blob blob = getBlobStore().put("text/", "conditional-read.txt",
+                new ByteArrayPayload(content), Collections.emptyMap(), "text/plain");
+        Blob stat = getBlobStore().stat(blob.getObjectName());
+
+        ConditionalResult notModified = getBlobStore().get(blob.getObjectName(), ReadCondition.ifNoneMatch(stat.getETag()));
+        assertFalse(notModified.isModified());
+        assertNull(notModified.getBlob());
+        assertFalse(getBlobStore().stat(blob.getObjectName(), ReadCondition.ifModifiedSince(stat.getLastModified())).isModified());
+
+        ConditionalResult modified = getBlobStore().get(blob.getObjectName(), ReadCondition.ifNoneMatch("\"stale-etag\""));
+        assertTrue(modified.isModified());
+        try (InputStream inputStream = modified.getBlob().getPayload().stream()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        assertTrue(getBlobStore().stat(blob.getObjectName(),
+                ReadCondition.ifModifiedSince(stat.getLastModified().minusSeconds(60))).isModified());
+        getBlobStore().remove(blob.getObjectName(), false);
+        assertThrows(BlobNotFoundException.class,
+                () -> getBlobStore().get(blob.getObjectName(), ReadCondition.ifNoneMatch(stat.getETag())));
+    }
+
+    @Test
+    void conditionalWriteTest() throws GeneralPolyStashException, IOException {
+        String objectName = "text/conditional-write-" + UUID.randomUUID() + ".txt";
+        Blob created = getBlobStore().putIfAbsent(objectName, "conditional-write.txt",
+                new ByteArrayPayload("first".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        assertThrows(PreconditionFailedException.class, () -> getBlobStore().putIfAbsent(objectName, "conditional-write.txt",
+                new ByteArrayPayload("second".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain"));
+
+        String eTag = getBlobStore().stat(objectName).getETag();
+        assertEquals(created.getETag(), eTag);
+        Blob swapped = getBlobStore().putIfMatch(objectName, eTag, "conditional-write.txt",
+                new ByteArrayPayload("third".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        assertNotEquals(eTag, swapped.getETag());
+        // 以过期的 ETag 写入失败，对象保持不变
+        assertThrows(PreconditionFailedException.class, () -> getBlobStore().putIfMatch(objectName, eTag, "conditional-write.txt",
+                new ByteArrayPayload("fourth".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain"));
+        try (InputStream inputStream = getBlobStore().get(objectName).getPayload().stream()) {
+            assertEquals("third", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        getBlobStore().remove(objectName, false);
+        assertThrows(PreconditionFailedException.class, () -> getBlobStore().putIfMatch(objectName, "*", "conditional-write.txt",
+                new ByteArrayPayload("fifth".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain"));
+    }
+
     @Test
     void deepDirectoryCreationTest() throws GeneralPolyStashException, IOException {
         File avatarFile = new File("Awa-Subaru.png");
@@ -252,6 +325,102 @@ public abstract class AbstractBlobStoreTests {
         assertDoesNotThrow(() -> getBlobStore().remove("nonexistent-file.txt", true));
     }
 
+    @Test
+    void removeAllTest() throws GeneralPolyStashException {
+        List<String> objectNames = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Blob blob = getBlobStore().put(i % 2 == 0 ? "batch-remove" : "batch-remove/nested",
+                    "batch-" + i + ".txt",
+                    new ByteArrayPayload(("Batch remove " + i).getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptyMap(),
+                    "text/plain");
+            objectNames.add(blob.getObjectName());
+        }
+        // 不存在的对象不视为失败
+        List<RemoveResult> failures = getBlobStore().removeAll(
+                List.of(objectNames.get(0), objectNames.get(1), "batch-remove/nonexistent-file.txt"));
+        assertTrue(failures.isEmpty());
+        assertFalse(getBlobStore().exist(objectNames.get(0)));
+        assertFalse(getBlobStore().exist(objectNames.get(1)));
+        assertTrue(getBlobStore().exist(objectNames.get(2)));
+        // 删除前缀下的其余对象，包括子目录中的对象
+        failures = getBlobStore().removePrefix("batch-remove");
+        assertTrue(failures.isEmpty());
+        for (String objectName : objectNames) {
+            assertFalse(getBlobStore().exist(objectName));
+        }
+    }
+
+    @Test
+    void putAllTest() throws GeneralPolyStashException, IOException {
+        List<PutEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(new PutEntry((i % 2 == 0 ? "batch-put/even/" : "batch-put/odd/") + "file-" + i + ".txt",
+                    "file-" + i + ".txt",
+                    new ByteArrayPayload(("Batch put " + i).getBytes(StandardCharsets.UTF_8)),
+                    Map.of("index", String.valueOf(i)),
+                    "text/plain"));
+        }
+        if (getBlobStore() instanceof FileSystemBlobStore) {
+            // 越过 baseDir 的对象上传失败，不影响其他对象
+            entries.add(new PutEntry("../batch-put-outside.txt", "outside.txt",
+                    new ByteArrayPayload("Outside".getBytes(StandardCharsets.UTF_8)), null, "text/plain"));
+        }
+        List<PutResult> reported = Collections.synchronizedList(new ArrayList<>());
+        List<PutResult> failures = getBlobStore().putAll(entries, reported::add);
+
+        assertEquals(entries.size(), reported.size());
+        assertEquals(entries.size() - 50, failures.size());
+        for (PutResult failure : failures) {
+            assertFalse(failure.isStored());
+            assertThrows(GeneralPolyStashException.class, failure::get);
+        }
+        Blob fetched = getBlobStore().get("batch-put/odd/file-7.txt");
+        assertEquals("file-7.txt", fetched.getReadableName());
+        assertEquals("7", fetched.getUserDefinedAttributes().get("index"));
+        try (var payload = fetched.getPayload()) {
+            assertEquals("Batch put 7", new String(payload.stream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(getBlobStore().removePrefix("batch-put").isEmpty());
+    }
+
+    @Test
+    void batchLookupTest() throws Exception {
+        List<String> objectNames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Blob blob = getBlobStore().put("batch-lookup",
+                    "lookup-" + i + ".txt",
+                    new ByteArrayPayload(("Batch lookup " + i).getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptyMap(),
+                    "text/plain");
+            objectNames.add(blob.getObjectName());
+        }
+        // 结果与输入顺序一致，不存在的对象不影响其他对象
+        List<String> queried = new ArrayList<>(objectNames);
+        queried.add(3, "batch-lookup/nonexistent-file.txt");
+        queried.add(objectNames.get(0));
+
+        List<Boolean> exists = getBlobStore().existAll(queried);
+        assertEquals(queried.size(), exists.size());
+        for (int i = 0; i < queried.size(); i++) {
+            assertEquals(i != 3, exists.get(i));
+        }
+
+        List<BlobResult> stats = getBlobStore().statAll(queried);
+        assertEquals(queried.size(), stats.size());
+        assertFalse(stats.get(3).isSuccess());
+        assertInstanceOf(BlobNotFoundException.class, stats.get(3).getException());
+        assertEquals("lookup-3.txt", stats.get(4).get().getReadableName());
+
+        List<BlobResult> blobs = getBlobStore().getAll(List.of(objectNames.get(2), objectNames.get(1)));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(blobs.get(i).isSuccess());
+            try (var payload = blobs.get(i).get().getPayload()) {
+                assertEquals("Batch lookup " + (2 - i), new String(payload.stream().readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
     @Test
     void specialCharactersTest() throws GeneralPolyStashException {
         // 测试文件名包含特殊字符
@@ -0,0 +1,92 @@
+package cc.ddrpa.dorian.polystash.blobstore.cache;
+
+import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.provider.cache.CachingBlobStore;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingBlobStoreTests extends AbstractBlobStoreTests {
+    private static BlobStore blobStore;
+
+    @Override
+    protected BlobStore getBlobStore() throws GeneralPolyStashException {
+        if (Objects.isNull(blobStore)) {
+            blobStore = new CachingBlobStore(newFileSystemStore("filesystem-storage/test-cached"),
+                    Path.of("filesystem-storage/test-cache"), 16L * 1024 * 1024, Duration.ZERO);
+        }
+        return blobStore;
+    }
+
+    private static BlobStore newFileSystemStore(String baseDir) throws GeneralPolyStashException {
+        return new FileSystemBlobStoreBuilder()
+                .name("local-cached")
+                .properties(new FullBlobStoreProperties("fs").setBaseDir(baseDir))
+                .build();
+    }
+
+    private static String read(Blob blob) throws IOException {
+        try (InputStream inputStream = blob.getPayload().stream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void cacheSurvivesRestartTest(@TempDir Path tempDir) throws GeneralPolyStashException, IOException {
+        String baseDir = tempDir.resolve("cached").toString();
+        Path cacheDir = tempDir.resolve("cache");
+        BlobStore origin = newFileSystemStore(baseDir);
+        CachingBlobStore cached = new CachingBlobStore(origin, cacheDir, 64, Duration.ofHours(1));
+        // 同一缓存目录只能由一个缓存使用
+        BlobStore other = origin;
+        assertThrows(IOErrorOccursException.class, () -> new CachingBlobStore(other, cacheDir, 64, Duration.ofHours(1)));
+        Blob blob = cached.putOrReplace("cached/a.txt", "a.txt",
+                new ByteArrayPayload("version 1".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        assertEquals("version 1", read(cached.get(blob.getObjectName())));
+        assertEquals(1, cached.getCachedCount());
+        assertEquals(9, cached.getCachedBytes());
+        // 超过预算的对象不缓存，其余对象按最久未访问淘汰
+        cached.putOrReplace("cached/large.bin", "large.bin", new ByteArrayPayload(new byte[65]), Collections.emptyMap(), "application/octet-stream");
+        assertEquals(65, cached.get("cached/large.bin").getLength());
+        assertEquals(1, cached.getCachedCount());
+        for (int i = 0; i < 8; i++) {
+            cached.putOrReplace("cached/small-" + i, "small", new ByteArrayPayload(new byte[10]), Collections.emptyMap(), "application/octet-stream");
+            cached.get("cached/small-" + i).getPayload().close();
+        }
+        assertTrue(cached.getCachedBytes() <= 64);
+        assertEquals("version 1", read(cached.get(blob.getObjectName())));
+        cached.close();
+
+        // 重启后索引仍然可用，绕过缓存的修改通过 ETag 确认发现
+        origin = newFileSystemStore(baseDir);
+        origin.putOrReplace("cached/a.txt", "a.txt",
+                new ByteArrayPayload("version 2!".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        CachingBlobStore restarted = new CachingBlobStore(origin, cacheDir, 64, Duration.ofHours(1));
+        assertTrue(restarted.getCachedCount() > 0);
+        assertEquals("version 2!", read(restarted.get("cached/a.txt")));
+        assertEquals("version 2!", read(restarted.get("cached/a.txt")));
+        // 通过缓存删除的对象立即不可见
+        restarted.remove("cached/a.txt", false);
+        assertThrows(BlobNotFoundException.class, () -> restarted.get("cached/a.txt"));
+        assertTrue(restarted.removePrefix("cached").isEmpty());
+        assertEquals(0, restarted.getCachedCount());
+        restarted.close();
+    }
+}
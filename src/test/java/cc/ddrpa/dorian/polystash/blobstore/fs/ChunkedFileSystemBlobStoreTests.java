@@ -0,0 +1,172 @@
+package cc.ddrpa.dorian.polystash.blobstore.fs;
+
+import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStore;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemChunkCollector;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemChunkedPayload;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import cc.ddrpa.dorian.polystash.utils.chunking.FastCDCChunker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedFileSystemBlobStoreTests extends AbstractBlobStoreTests {
+    private static BlobStore blobStore;
+
+    @Override
+    protected BlobStore getBlobStore() throws GeneralPolyStashException {
+        if (Objects.isNull(blobStore)) {
+            blobStore = new FileSystemBlobStoreBuilder()
+                    .name("local-chunking")
+                    .properties(
+                            new FullBlobStoreProperties("fs")
+                                    .setBaseDir("filesystem-storage/test-chunking")
+                                    .setChunking(true)
+                                    .setChunkSize(4096))
+                    .build();
+        }
+        return blobStore;
+    }
+
+    private static FileSystemBlobStore newStore(Path baseDir) throws GeneralPolyStashException {
+        return FileSystemStoreFixtures.newStore(baseDir, properties -> properties.setChunking(true).setChunkSize(4096));
+    }
+
+    private static List<Path> listChunks(Path baseDir) throws IOException {
+        Path chunksDir = baseDir.resolve(".polystash/chunks");
+        if (!Files.exists(chunksDir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> stream = Files.walk(chunksDir)) {
+            return stream.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    @Test
+    void chunkerBoundaryTest() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        new Random(7).nextBytes(data);
+        FastCDCChunker chunker = new FastCDCChunker(new ByteArrayInputStream(data), 8192);
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] chunk;
+        while ((chunk = chunker.next()) != null) {
+            chunks.add(chunk);
+        }
+        assertEquals(data.length, chunks.stream().mapToInt(c -> c.length).sum());
+        // 除最后一块外，块长度都在最小值和最大值之间
+        for (byte[] c : chunks.subList(0, chunks.size() - 1)) {
+            assertTrue(c.length >= 8192 / 4 && c.length <= FastCDCChunker.maxSizeOf(8192));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new FastCDCChunker(new ByteArrayInputStream(data), 5000));
+    }
+
+    @Test
+    void nearIdenticalContentSharesChunksTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        FileSystemBlobStore store = newStore(baseDir);
+        byte[] original = new byte[512 * 1024];
+        new Random(42).nextBytes(original);
+        // 在开头插入几个字节，按固定长度切分时之后所有块都会错位
+        byte[] modified = new byte[original.length + 3];
+        modified[0] = 1;
+        modified[1] = 2;
+        modified[2] = 3;
+        System.arraycopy(original, 0, modified, 3, original.length);
+
+        Blob first = store.put("images", "v1.img", new ByteArrayPayload(original), Collections.emptyMap(), "application/octet-stream");
+        int chunksAfterFirst = listChunks(baseDir).size();
+        Blob second = store.put("images", "v2.img", new InputStreamPayload(new ByteArrayInputStream(modified)), Collections.emptyMap(), "application/octet-stream");
+        int newChunks = listChunks(baseDir).size() - chunksAfterFirst;
+        assertTrue(chunksAfterFirst > 10);
+        assertTrue(newChunks <= 2, "expected at most 2 new chunks, got " + newChunks);
+
+        assertEquals(modified.length, store.stat(second.getObjectName()).getLength());
+        Blob fetched = store.get(first.getObjectName());
+        assertInstanceOf(FileSystemChunkedPayload.class, fetched.getPayload());
+        assertEquals(original.length, fetched.getLength());
+        try (InputStream inputStream = fetched.getPayload().stream()) {
+            assertArrayEquals(original, inputStream.readAllBytes());
+        }
+        try (InputStream inputStream = store.get(second.getObjectName()).getPayload().stream()) {
+            assertArrayEquals(modified, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void collectUnreferencedChunksTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        FileSystemBlobStore store = newStore(baseDir);
+        byte[] kept = new byte[64 * 1024];
+        byte[] dropped = new byte[64 * 1024];
+        new Random(1).nextBytes(kept);
+        new Random(2).nextBytes(dropped);
+        Blob keptBlob = store.put("dumps", "kept.bin", new ByteArrayPayload(kept), Collections.emptyMap(), "application/octet-stream");
+        Blob droppedBlob = store.put("dumps", "dropped.bin", new ByteArrayPayload(dropped), Collections.emptyMap(), "application/octet-stream");
+        int total = listChunks(baseDir).size();
+        store.remove(droppedBlob.getObjectName(), false);
+
+        // 宽限期内的块不会被删除
+        FileSystemChunkCollector collector = FileSystemChunkCollector.forBlobStore(store);
+        FileSystemChunkCollector.Report report = collector.collect(Duration.ofHours(1));
+        assertEquals(0, report.removed());
+        assertEquals(total, listChunks(baseDir).size());
+
+        report = collector.collect(Duration.ZERO);
+        assertTrue(report.isSuccess());
+        assertEquals(1, report.manifests());
+        assertTrue(report.removed() > 0);
+        assertEquals(total - report.removed(), listChunks(baseDir).size());
+        try (InputStream inputStream = store.get(keptBlob.getObjectName()).getPayload().stream()) {
+            assertArrayEquals(kept, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void corruptedChunkTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        FileSystemBlobStore store = newStore(baseDir);
+        byte[] content = new byte[32 * 1024];
+        new Random(3).nextBytes(content);
+        Blob blob = store.put("dumps", "a.bin", new ByteArrayPayload(content), Collections.emptyMap(), "application/octet-stream");
+        Path chunk = listChunks(baseDir).get(0);
+        byte[] chunkData = Files.readAllBytes(chunk);
+        chunkData[0] ^= 1;
+        Files.write(chunk, chunkData);
+        try (InputStream inputStream = store.get(blob.getObjectName()).getPayload().stream()) {
+            assertThrows(IOException.class, inputStream::readAllBytes);
+        }
+    }
+
+    @Test
+    void dedupAndChunkingExclusiveTest() {
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStoreBuilder()
+                .name("local-chunking-invalid")
+                .validate(new FullBlobStoreProperties("fs")
+                        .setBaseDir("filesystem-storage/test-chunking")
+                        .setDedup(true)
+                        .setChunking(true)));
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStoreBuilder()
+                .name("local-chunking-invalid")
+                .validate(new FullBlobStoreProperties("fs")
+                        .setBaseDir("filesystem-storage/test-chunking")
+                        .setChunking(true)
+                        .setChunkSize(5000)));
+    }
+}
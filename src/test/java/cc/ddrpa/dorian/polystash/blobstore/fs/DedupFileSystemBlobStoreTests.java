@@ -0,0 +1,149 @@
+package cc.ddrpa.dorian.polystash.blobstore.fs;
+
+import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.exception.AccessDeniedException;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupFileSystemBlobStoreTests extends AbstractBlobStoreTests {
+    private static BlobStore blobStore;
+
+    @Override
+    protected BlobStore getBlobStore() throws GeneralPolyStashException {
+        if (Objects.isNull(blobStore)) {
+            blobStore = new FileSystemBlobStoreBuilder()
+                    .name("local-dedup")
+                    .properties(
+                            new FullBlobStoreProperties("fs")
+                                    .setBaseDir("filesystem-storage/test-dedup")
+                                    .setDedup(true))
+                    .build();
+        }
+        return blobStore;
+    }
+
+    private static long countContents(Path baseDir) throws IOException {
+        Path casDir = baseDir.resolve(".polystash/cas");
+        if (!Files.exists(casDir)) {
+            return 0;
+        }
+        try (Stream<Path> stream = Files.walk(casDir)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(".refs"))
+                    .count();
+        }
+    }
+
+    @Test
+    void duplicateContentStoredOnceTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        BlobStore store = FileSystemStoreFixtures.newStore(baseDir, properties -> properties.setDedup(true));
+        byte[] content = "duplicated attachment".getBytes(StandardCharsets.UTF_8);
+        Blob first = store.put("attachments", "a.txt", new ByteArrayPayload(content), Collections.emptyMap(), "text/plain");
+        Blob second = store.put("attachments", "b.txt", new ByteArrayPayload(content), Collections.emptyMap(), "text/plain");
+        // 不可重复读取的数据先写入临时文件，再与已有内容比较
+        Blob third = store.put("attachments", "c.txt", new InputStreamPayload(new ByteArrayInputStream(content)), Collections.emptyMap(), "text/plain");
+        assertNotEquals(first.getObjectName(), second.getObjectName());
+        assertEquals(1, countContents(baseDir));
+
+        // 每个对象保留各自的元数据
+        assertEquals("a.txt", store.stat(first.getObjectName()).getReadableName());
+        assertEquals("c.txt", store.stat(third.getObjectName()).getReadableName());
+        assertEquals(content.length, store.stat(second.getObjectName()).getLength());
+        try (InputStream inputStream = store.get(third.getObjectName()).getPayload().stream()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+
+        // 删除部分引用后内容仍然可读，删除全部引用后内容被回收
+        store.remove(first.getObjectName(), false);
+        store.remove(second.getObjectName(), false);
+        assertEquals(1, countContents(baseDir));
+        try (InputStream inputStream = store.get(third.getObjectName()).getPayload().stream()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        store.remove(third.getObjectName(), false);
+        assertEquals(0, countContents(baseDir));
+    }
+
+    @Test
+    void replaceReleasesPreviousContentTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        BlobStore store = FileSystemStoreFixtures.newStore(baseDir, properties -> properties.setDedup(true));
+        Blob blob = store.put("text", "v1.txt",
+                new ByteArrayPayload("version 1".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        store.putOrReplace(blob.getObjectName(), "v2.txt",
+                new ByteArrayPayload("version 2".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        assertEquals(1, countContents(baseDir));
+        Blob fetched = store.get(blob.getObjectName());
+        assertEquals("v2.txt", fetched.getReadableName());
+        try (InputStream inputStream = fetched.getPayload().stream()) {
+            assertEquals("version 2", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void concurrentReplaceAndRemoveTest(@TempDir Path baseDir) throws Exception {
+        BlobStore store = FileSystemStoreFixtures.newStore(baseDir, properties -> properties.setDedup(true));
+        byte[] shared = "shared content".getBytes(StandardCharsets.UTF_8);
+        Blob keeper = store.put("text", "keeper.txt", new ByteArrayPayload(shared), Collections.emptyMap(), "text/plain");
+        // 同一对象的并发覆盖和删除不能重复释放旧引用，否则共享的内容会被提前删除
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int worker = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        if ((worker + j) % 2 == 0) {
+                            store.putOrReplace("text/contended.txt", "contended.txt",
+                                    new ByteArrayPayload(shared), Collections.emptyMap(), "text/plain");
+                        } else {
+                            store.remove("text/contended.txt", false);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (InputStream inputStream = store.get(keeper.getObjectName()).getPayload().stream()) {
+            assertArrayEquals(shared, inputStream.readAllBytes());
+        }
+        store.remove("text/contended.txt", false);
+        store.remove(keeper.getObjectName(), false);
+        assertEquals(0, countContents(baseDir));
+    }
+
+    @Test
+    void reservedDirectoryTest() {
+        assertThrows(AccessDeniedException.class, () -> getBlobStore().stat(".polystash/cas"));
+        assertThrows(AccessDeniedException.class, () -> getBlobStore().put(".polystash", "a.txt",
+                new ByteArrayPayload(new byte[]{1}), Collections.emptyMap(), "text/plain"));
+    }
+}
@@ -4,19 +4,31 @@ import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
 import cc.ddrpa.dorian.polystash.core.blob.Blob;
 import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
 import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.AsyncBlobStore;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.blobstore.ReactiveBlobStore;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
 import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
 import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
 import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 class FileSystemBlobStoreTests extends AbstractBlobStoreTests {
     private static BlobStore blobStore;
@@ -68,4 +80,92 @@ class FileSystemBlobStoreTests extends AbstractBlobStoreTests {
         // xxh64sum filesystem-storage/fake-195m-file.bin
         logger.info("blob checksum: {}", blob.getChecksum());
     }
-}
\ No newline at end of file
+
+    @Test
+    void asyncApiTest() throws GeneralPolyStashException {
+        AsyncBlobStore asyncStore = getBlobStore().async();
+        assertSame(asyncStore, getBlobStore().async());
+        List<CompletableFuture<Blob>> puts = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            puts.add(asyncStore.put("async",
+                    "async-" + i + ".txt",
+                    new ByteArrayPayload(("async payload " + i).getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptyMap(),
+                    "text/plain"));
+        }
+        for (int i = 0; i < puts.size(); i++) {
+            Blob blob = puts.get(i).join();
+            assertEquals(blob.getLength(), asyncStore.stat(blob.getObjectName()).join().getLength());
+            Blob fetched = asyncStore.get(blob.getObjectName()).join();
+            try (InputStream inputStream = fetched.getPayload().stream()) {
+                assertEquals("async payload " + i, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                fail(e);
+            }
+            asyncStore.remove(blob.getObjectName(), false).join();
+            assertFalse(asyncStore.exist(blob.getObjectName()).join());
+        }
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> asyncStore.stat("async/no-such-object").join());
+        assertInstanceOf(BlobNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    void reactiveApiTest() throws GeneralPolyStashException {
+        ReactiveBlobStore reactiveStore = getBlobStore().reactive();
+        byte[] data = new byte[300 * 1024];
+        new Random(42).nextBytes(data);
+        Blob source = getBlobStore().put("reactive", "source.bin", new ByteArrayPayload(data), Collections.emptyMap(), "application/octet-stream");
+        // 以一个对象的数据流作为另一个对象的上传数据
+        Blob copy = reactiveStore.putOrReplace("reactive/copy.bin", "copy.bin",
+                reactiveStore.get(source.getObjectName()), data.length, Collections.emptyMap(), "application/octet-stream").join();
+        assertEquals(data.length, copy.getLength());
+        List<ByteBuffer> chunks = collect(reactiveStore.get(copy.getObjectName())).join();
+        assertEquals(5, chunks.size());
+        ByteBuffer merged = ByteBuffer.allocate(data.length);
+        chunks.forEach(merged::put);
+        assertArrayEquals(data, merged.array());
+        List<String> names = collect(reactiveStore.list("reactive", ListOptions.withDefault())).join()
+                .stream().map(Blob::getObjectName).toList();
+        assertTrue(names.contains(copy.getObjectName()));
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> collect(reactiveStore.get("reactive/no-such-object")).join());
+        assertInstanceOf(BlobNotFoundException.class, exception.getCause());
+        getBlobStore().remove(source.getObjectName(), false);
+        getBlobStore().remove(copy.getObjectName(), false);
+    }
+
+    /**
+     * 每次请求一个元素，收集发布方的所有元素
+     */
+    private static <T> CompletableFuture<List<T>> collect(Flow.Publisher<T> publisher) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(items);
+            }
+        });
+        return result;
+    }
+}
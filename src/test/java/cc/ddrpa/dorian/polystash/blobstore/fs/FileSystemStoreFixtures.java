@@ -0,0 +1,31 @@
+package cc.ddrpa.dorian.polystash.blobstore.fs;
+
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStore;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+
+/**
+ * 文件系统存储测试共用的存储构建方法。需要独立目录的测试通过 {@code @TempDir} 传入基础目录，测试结束后目录被删除
+ */
+final class FileSystemStoreFixtures {
+
+    private FileSystemStoreFixtures() {
+    }
+
+    /**
+     * 在指定目录上创建存储
+     *
+     * @param baseDir    基础目录
+     * @param configurer 在基础配置上设置各个测试需要的选项
+     */
+    static FileSystemBlobStore newStore(Path baseDir, UnaryOperator<FullBlobStoreProperties> configurer) throws GeneralPolyStashException {
+        return (FileSystemBlobStore) new FileSystemBlobStoreBuilder()
+                .name("local-" + baseDir.getFileName())
+                .properties(configurer.apply(new FullBlobStoreProperties("fs").setBaseDir(baseDir.toString())))
+                .build();
+    }
+}
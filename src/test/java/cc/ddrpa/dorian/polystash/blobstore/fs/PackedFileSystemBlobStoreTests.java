@@ -0,0 +1,208 @@
+package cc.ddrpa.dorian.polystash.blobstore.fs;
+
+import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.IOErrorOccursException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStore;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedFileSystemBlobStoreTests extends AbstractBlobStoreTests {
+    private static BlobStore blobStore;
+
+    @Override
+    protected BlobStore getBlobStore() throws GeneralPolyStashException {
+        if (Objects.isNull(blobStore)) {
+            blobStore = new FileSystemBlobStoreBuilder()
+                    .name("local-packed")
+                    .properties(
+                            new FullBlobStoreProperties("fs")
+                                    .setBaseDir("filesystem-storage/test-packed")
+                                    .setPackThreshold(64 * 1024))
+                    .build();
+        }
+        return blobStore;
+    }
+
+    private static FileSystemBlobStore newStore(Path baseDir) throws GeneralPolyStashException {
+        return FileSystemStoreFixtures.newStore(baseDir, properties -> properties
+                .setPackThreshold(16 * 1024)
+                .setPackSegmentSize(1024L * 1024));
+    }
+
+    private static List<Path> listSegments(Path baseDir) throws IOException {
+        try (Stream<Path> stream = Files.list(baseDir.resolve(".polystash/packs"))) {
+            return stream.filter(path -> path.getFileName().toString().endsWith(".pack")).sorted().toList();
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void smallObjectsArePackedTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            Blob small = store.put("snippets", "small.json",
+                    new ByteArrayPayload("{\"ok\":true}".getBytes(StandardCharsets.UTF_8)), Map.of("source", "sensor-1"), "application/json");
+            // 超过阈值的不可重复读取数据仍然完整地保存为文件
+            byte[] large = randomBytes(64 * 1024, 1);
+            Blob big = store.put("snippets", "large.bin",
+                    new InputStreamPayload(new ByteArrayInputStream(large)), Collections.emptyMap(), "application/octet-stream");
+            assertFalse(Files.exists(baseDir.resolve(small.getObjectName())));
+            assertTrue(Files.isRegularFile(baseDir.resolve(big.getObjectName())));
+
+            Blob fetched = store.get(small.getObjectName());
+            assertEquals("small.json", fetched.getReadableName());
+            assertEquals("sensor-1", fetched.getUserDefinedAttributes().get("source"));
+            try (InputStream inputStream = store.get(big.getObjectName()).getPayload().stream()) {
+                assertArrayEquals(large, inputStream.readAllBytes());
+            }
+
+            // 对象在打包存储和文件之间切换时不会同时存在两份
+            store.putOrReplace(small.getObjectName(), "small.bin", new ByteArrayPayload(large), Collections.emptyMap(), "application/octet-stream");
+            assertTrue(Files.isRegularFile(baseDir.resolve(small.getObjectName())));
+            assertEquals(large.length, store.stat(small.getObjectName()).getLength());
+            store.putOrReplace(big.getObjectName(), "tiny.txt", new ByteArrayPayload(new byte[]{1, 2, 3}), Collections.emptyMap(), "text/plain");
+            assertFalse(Files.exists(baseDir.resolve(big.getObjectName())));
+            assertEquals(3, store.stat(big.getObjectName()).getLength());
+        }
+    }
+
+    @Test
+    void exclusiveDirectoryLockTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        Blob blob;
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            blob = store.put("locked", "a.txt", new ByteArrayPayload(new byte[]{1}), Collections.emptyMap(), "text/plain");
+            // 同一目录的第二个实例会与第一个实例交错追加记录，打开时立即失败
+            assertThrows(IOErrorOccursException.class, () -> newStore(baseDir));
+        }
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            assertEquals(1, store.stat(blob.getObjectName()).getLength());
+        }
+    }
+
+    @Test
+    void reopenAndCompactTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        List<Blob> blobs = new ArrayList<>();
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            for (int i = 0; i < 200; i++) {
+                blobs.add(store.put("telemetry", i + ".bin", new ByteArrayPayload(randomBytes(8 * 1024, i)),
+                        Collections.emptyMap(), "application/octet-stream"));
+            }
+            assertTrue(listSegments(baseDir).size() > 1);
+            for (int i = 0; i < 150; i++) {
+                store.remove(blobs.get(i).getObjectName(), false);
+            }
+        }
+
+        // 重新打开后从索引快照恢复
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            assertFalse(store.exist(blobs.get(0).getObjectName()));
+            assertTrue(store.exist(blobs.get(199).getObjectName()));
+            // 删除时可能已经在后台完成了部分压缩，这里只检查最终占用的空间
+            store.compactPacks();
+            long totalSize = 0;
+            for (Path segment : listSegments(baseDir)) {
+                totalSize += Files.size(segment);
+            }
+            assertTrue(totalSize < 1024 * 1024, "expected compacted segments, got " + totalSize + " bytes");
+            for (int i = 150; i < 200; i++) {
+                try (InputStream inputStream = store.get(blobs.get(i).getObjectName()).getPayload().stream()) {
+                    assertArrayEquals(randomBytes(8 * 1024, i), inputStream.readAllBytes());
+                }
+            }
+        }
+
+        // 没有快照时从段文件重建索引
+        Files.delete(baseDir.resolve(".polystash/packs/index"));
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            assertFalse(store.exist(blobs.get(10).getObjectName()));
+            int count = 0;
+            for (var ignored : store.list("telemetry", new ListOptions("/", true))) {
+                count++;
+            }
+            assertEquals(50, count);
+        }
+    }
+
+    @Test
+    void compactTombstoneOfRewrittenKeyTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException, InterruptedException {
+        String key = "telemetry/rewritten.bin";
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            int filler = 0;
+            while (listSegments(baseDir).size() < 2) {
+                store.put("kept", filler + ".bin", new ByteArrayPayload(randomBytes(8 * 1024, filler++)), Collections.emptyMap(), "application/octet-stream");
+            }
+            // 墓碑写入第二个段，之后在第三个段重新写入同名对象
+            store.putOrReplace(key, "rewritten.bin", new ByteArrayPayload(randomBytes(1024, 1)), Collections.emptyMap(), "application/octet-stream");
+            store.remove(key, false);
+            List<Blob> garbage = new ArrayList<>();
+            while (listSegments(baseDir).size() < 3) {
+                garbage.add(store.put("garbage", filler + ".bin", new ByteArrayPayload(randomBytes(8 * 1024, filler++)), Collections.emptyMap(), "application/octet-stream"));
+            }
+            store.putOrReplace(key, "rewritten.bin", new ByteArrayPayload(randomBytes(1024, 2)), Collections.emptyMap(), "application/octet-stream");
+            // 第二个段的垃圾超过一半后在后台压缩，第一个段仍然存在，墓碑不能直接丢弃
+            for (Blob blob : garbage) {
+                store.remove(blob.getObjectName(), false);
+            }
+            Path compacted = baseDir.resolve(".polystash/packs/0000000002.pack");
+            for (int i = 0; i < 100 && Files.exists(compacted); i++) {
+                Thread.sleep(50);
+            }
+            assertFalse(Files.exists(compacted));
+        }
+        // 压缩中途崩溃或快照无效时按段的顺序重放，重新写入的对象不能被墓碑删除
+        Files.delete(baseDir.resolve(".polystash/packs/index"));
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            try (InputStream inputStream = store.get(key).getPayload().stream()) {
+                assertArrayEquals(randomBytes(1024, 2), inputStream.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void truncatedTailTest(@TempDir Path baseDir) throws GeneralPolyStashException, IOException {
+        Blob blob;
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            blob = store.put("telemetry", "a.bin", new ByteArrayPayload(randomBytes(1024, 7)), Collections.emptyMap(), "application/octet-stream");
+        }
+        // 模拟写入记录时进程崩溃，段末尾只有半条记录
+        List<Path> segments = listSegments(baseDir);
+        Files.write(segments.get(segments.size() - 1), new byte[]{0x50, 0x53, 0x4b, 0x31, 1, 0, 0}, StandardOpenOption.APPEND);
+        Files.delete(baseDir.resolve(".polystash/packs/index"));
+        try (FileSystemBlobStore store = newStore(baseDir)) {
+            try (InputStream inputStream = store.get(blob.getObjectName()).getPayload().stream()) {
+                assertArrayEquals(randomBytes(1024, 7), inputStream.readAllBytes());
+            }
+            Blob next = store.put("telemetry", "b.bin", new ByteArrayPayload(new byte[]{9}), Collections.emptyMap(), "application/octet-stream");
+            assertEquals(1, store.stat(next.getObjectName()).getLength());
+        }
+    }
+}
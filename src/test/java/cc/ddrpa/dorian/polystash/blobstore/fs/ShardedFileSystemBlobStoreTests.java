@@ -0,0 +1,98 @@
+package cc.ddrpa.dorian.polystash.blobstore.fs;
+
+import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStore;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemShardLayout;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemShardMigrator;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedFileSystemBlobStoreTests extends AbstractBlobStoreTests {
+    private static BlobStore blobStore;
+
+    @Override
+    protected BlobStore getBlobStore() throws GeneralPolyStashException {
+        if (Objects.isNull(blobStore)) {
+            blobStore = new FileSystemBlobStoreBuilder()
+                    .name("local-sharded")
+                    .properties(
+                            new FullBlobStoreProperties("fs")
+                                    .setBaseDir("filesystem-storage/test-sharded")
+                                    .setShardDepth(2))
+                    .build();
+        }
+        return blobStore;
+    }
+
+    @Test
+    void shardedPathTest() throws GeneralPolyStashException {
+        Blob blob = getBlobStore().put("text",
+                "some-text.txt",
+                new ByteArrayPayload("Hello, Forvariz!".getBytes(StandardCharsets.UTF_8)),
+                Collections.emptyMap(),
+                "text/plain");
+        // object name stays flat, while the file lives in shard directories
+        assertEquals(2, blob.getObjectName().split("/").length);
+        Path objectPath = Path.of(blob.getObjectName());
+        Path storagePath = FileSystemShardLayout.of(2, 2).toStoragePath(objectPath);
+        assertEquals(4, storagePath.getNameCount());
+        assertTrue(Files.isRegularFile(Path.of("filesystem-storage/test-sharded").resolve(storagePath)));
+        assertFalse(Files.exists(Path.of("filesystem-storage/test-sharded").resolve(objectPath)));
+    }
+
+    @Test
+    void migrateFromFlatLayoutTest(@TempDir Path baseDir) throws Exception {
+        BlobStore flatStore = FileSystemStoreFixtures.newStore(baseDir, properties -> properties);
+        Blob legacy = flatStore.put("legacy",
+                "legacy.txt",
+                new ByteArrayPayload("legacy content".getBytes(StandardCharsets.UTF_8)),
+                Collections.emptyMap(),
+                "text/plain");
+
+        FileSystemBlobStore shardedStore = FileSystemStoreFixtures.newStore(baseDir, properties -> properties.setShardDepth(1));
+        // legacy flat file is still readable before migration
+        assertTrue(shardedStore.exist(legacy.getObjectName()));
+        assertEquals("legacy.txt", shardedStore.stat(legacy.getObjectName()).getReadableName());
+
+        FileSystemShardMigrator.Report report = FileSystemShardMigrator
+                .forBlobStore(shardedStore, FileSystemShardLayout.FLAT, 2)
+                .migrate("");
+        assertTrue(report.isSuccess());
+        assertEquals(1, report.moved());
+        assertFalse(Files.exists(baseDir.resolve(legacy.getObjectName())));
+
+        Blob fetched = shardedStore.stat(legacy.getObjectName());
+        assertEquals(legacy.getObjectName(), fetched.getObjectName());
+        assertEquals("legacy.txt", fetched.getReadableName());
+        assertEquals(legacy.getChecksum(), fetched.getChecksum());
+
+        List<String> names = new ArrayList<>();
+        for (BlobResult result : shardedStore.list("legacy", new ListOptions("/", false))) {
+            names.add(result.get().getObjectName());
+        }
+        assertEquals(List.of(legacy.getObjectName()), names);
+
+        // migrating again is a no-op
+        report = FileSystemShardMigrator.forBlobStore(shardedStore, FileSystemShardLayout.FLAT, 2).migrate("");
+        assertEquals(0, report.moved());
+        assertEquals(1, report.skipped());
+    }
+}
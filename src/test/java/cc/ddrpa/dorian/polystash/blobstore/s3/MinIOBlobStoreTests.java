@@ -1,11 +1,46 @@
 package cc.ddrpa.dorian.polystash.blobstore.s3;
 
 import cc.ddrpa.dorian.polystash.blobstore.AbstractBlobStoreTests;
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.BlobResult;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.FilePayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
 import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ListOptions;
+import cc.ddrpa.dorian.polystash.core.exception.BlobNotFoundException;
+import cc.ddrpa.dorian.polystash.provider.s3.S3AsyncBlobStore;
+import cc.ddrpa.dorian.polystash.provider.s3.S3BlobStore;
 import cc.ddrpa.dorian.polystash.provider.s3.S3BlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.provider.s3.S3UploadBufferPool;
 import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MinIOBlobStoreTests extends AbstractBlobStoreTests {
 
@@ -32,4 +67,232 @@ class MinIOBlobStoreTests extends AbstractBlobStoreTests {
         }
         return blobStore;
     }
-}
\ No newline at end of file
+
+    @Test
+    void keyEntropyListTest() throws Exception {
+        getBlobStore();
+        S3BlobStore entropyStore = ((S3BlobStoreBuilder) new S3BlobStoreBuilder().name("minio-entropy"))
+                .minio()
+                .endpoint(ENDPOINT)
+                .bucket(BUCKET)
+                .credentials(ACCESS_KEY, SECRET_KEY)
+                .keyEntropyLength(2)
+                .build();
+        String prefix = "entropy-" + UUID.randomUUID();
+        Set<String> written = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            Blob blob = entropyStore.put(prefix, "some-text.txt",
+                    new ByteArrayPayload("Hello, Forvariz!".getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptyMap(), "text/plain");
+            assertTrue(blob.getObjectName().matches(prefix + "/[0-9a-f]{2}/[^/]+"));
+            written.add(blob.getObjectName());
+        }
+        // 非递归列举会展开哈希目录
+        Set<String> listed = new HashSet<>();
+        for (BlobResult result : entropyStore.list(prefix + "/", new ListOptions("/", false))) {
+            listed.add(result.get().getObjectName());
+        }
+        assertEquals(written, listed);
+        for (String objectName : written) {
+            entropyStore.remove(objectName, true);
+        }
+    }
+
+    @Test
+    void packedSmallObjectsTest() throws Exception {
+        getBlobStore();
+        String prefix = "packed-" + UUID.randomUUID();
+        Set<String> written = new HashSet<>();
+        try (S3BlobStore packedStore = ((S3BlobStoreBuilder) new S3BlobStoreBuilder().name("minio-packed"))
+                .minio()
+                .endpoint(ENDPOINT)
+                .bucket(BUCKET)
+                .credentials(ACCESS_KEY, SECRET_KEY)
+                .pack(1024, 64 * 1024, Duration.ofMillis(20))
+                .build()) {
+            for (int i = 0; i < 10; i++) {
+                Blob blob = packedStore.put(prefix, i + ".json",
+                        new ByteArrayPayload(("{\"seq\":" + i + "}").getBytes(StandardCharsets.UTF_8)),
+                        Map.of("seq", String.valueOf(i)), "application/json");
+                written.add(blob.getObjectName());
+            }
+            Blob large = packedStore.put(prefix, "large.bin", new ByteArrayPayload(new byte[4096]),
+                    Collections.emptyMap(), "application/octet-stream");
+            written.add(large.getObjectName());
+
+            String first = written.iterator().next();
+            Blob fetched = packedStore.get(first);
+            try (InputStream inputStream = fetched.getPayload().stream()) {
+                assertEquals(fetched.getLength(), inputStream.readAllBytes().length);
+            }
+            // 打包的对象和普通对象一起列举，不包含打包存储内部的对象
+            Set<String> listed = new HashSet<>();
+            for (BlobResult result : packedStore.list(prefix + "/", new ListOptions("/", false))) {
+                listed.add(result.get().getObjectName());
+            }
+            assertEquals(written, listed);
+
+            for (String objectName : written) {
+                packedStore.remove(objectName, false);
+                assertFalse(packedStore.exist(objectName));
+            }
+            assertTrue(packedStore.compactPacks(0) >= 0);
+        }
+    }
+
+    @Test
+    void parallelMultipartUploadTest() throws Exception {
+        getBlobStore();
+        byte[] data = new byte[12 * 1024 * 1024 + 17];
+        new Random(5).nextBytes(data);
+        Path file = Files.createTempFile("polystash-multipart", ".bin");
+        Files.write(file, data);
+        try (S3BlobStore multipartStore = ((S3BlobStoreBuilder) new S3BlobStoreBuilder().name("minio-multipart"))
+                .minio()
+                .endpoint(ENDPOINT)
+                .bucket(BUCKET)
+                .credentials(ACCESS_KEY, SECRET_KEY)
+                .multipartUpload(5 * 1024 * 1024, 3)
+                .uploadBufferBudget(10 * 1024 * 1024)
+                .build()) {
+            // 文件按位置并行读取分片，长度未知的数据流顺序读取分片
+            Blob fromFile = multipartStore.put("multipart", "file.bin", new FilePayload(file.toFile()),
+                    Map.of("source", "file"), "application/octet-stream");
+            Blob fromStream = multipartStore.put("multipart", "stream.bin",
+                    new InputStreamPayload(new ByteArrayInputStream(data)), Collections.emptyMap(), "application/octet-stream");
+            for (Blob blob : List.of(fromFile, fromStream)) {
+                assertEquals(data.length, blob.getLength());
+                try (InputStream inputStream = multipartStore.get(blob.getObjectName()).getPayload().stream()) {
+                    assertArrayEquals(data, inputStream.readAllBytes());
+                }
+                multipartStore.remove(blob.getObjectName(), false);
+            }
+            assertEquals("file", fromFile.getUserDefinedAttributes().get("source"));
+            assertEquals("file.bin", fromFile.getReadableName());
+            // 缓冲区预算只够两个分片，上传会等待缓冲区但不会超出预算
+            S3UploadBufferPool.Stats stats = multipartStore.getUploadBufferStats();
+            assertEquals(0, stats.usedBytes());
+            assertTrue(stats.peakBytes() <= 10 * 1024 * 1024);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void parallelRangedDownloadTest() throws Exception {
+        getBlobStore();
+        byte[] data = new byte[3 * 1024 * 1024 + 5];
+        new Random(7).nextBytes(data);
+        Path target = Files.createTempFile("polystash-download", ".bin");
+        try (S3BlobStore downloadStore = ((S3BlobStoreBuilder) new S3BlobStoreBuilder().name("minio-download"))
+                .minio()
+                .endpoint(ENDPOINT)
+                .bucket(BUCKET)
+                .credentials(ACCESS_KEY, SECRET_KEY)
+                .parallelDownload(1024 * 1024, 3)
+                .build()) {
+            Blob large = downloadStore.put("download", "large.bin", new ByteArrayPayload(data),
+                    Collections.emptyMap(), "application/octet-stream");
+            Blob small = downloadStore.put("download", "small.txt",
+                    new ByteArrayPayload("small".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+            // 大对象按分块并行下载后按顺序拼接，小对象只需要一个范围请求
+            Blob fetched = downloadStore.get(large.getObjectName());
+            assertEquals(data.length, fetched.getLength());
+            assertEquals(large.getETag(), fetched.getETag());
+            try (InputStream inputStream = fetched.getPayload().stream()) {
+                assertArrayEquals(data, inputStream.readAllBytes());
+            }
+            Blob fetchedSmall = downloadStore.get(small.getObjectName());
+            assertEquals(5, fetchedSmall.getLength());
+            try (InputStream inputStream = fetchedSmall.getPayload().stream()) {
+                assertEquals("small", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            // 各个分块按偏移量直接写入文件
+            downloadStore.download(large.getObjectName(), target);
+            assertArrayEquals(data, Files.readAllBytes(target));
+            downloadStore.remove(large.getObjectName(), false);
+            downloadStore.remove(small.getObjectName(), false);
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    @Test
+    void readAheadTest() throws Exception {
+        getBlobStore();
+        byte[] data = new byte[512 * 1024 + 3];
+        new Random(11).nextBytes(data);
+        try (S3BlobStore readAheadStore = ((S3BlobStoreBuilder) new S3BlobStoreBuilder().name("minio-read-ahead"))
+                .minio()
+                .endpoint(ENDPOINT)
+                .bucket(BUCKET)
+                .credentials(ACCESS_KEY, SECRET_KEY)
+                .readAhead(64 * 1024)
+                .build()) {
+            Blob blob = readAheadStore.put("read-ahead", "data.bin", new ByteArrayPayload(data),
+                    Collections.emptyMap(), "application/octet-stream");
+            // 预读缓冲区小于对象，调用方停顿时后台线程在缓冲区写满后等待
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (InputStream inputStream = readAheadStore.get(blob.getObjectName()).getPayload().stream()) {
+                byte[] buffer = new byte[100 * 1024];
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    outputStream.write(buffer, 0, read);
+                    Thread.sleep(5);
+                }
+            }
+            assertArrayEquals(data, outputStream.toByteArray());
+            readAheadStore.remove(blob.getObjectName(), false);
+        }
+    }
+
+    @Test
+    void asyncApiTest() throws Exception {
+        S3AsyncBlobStore asyncStore = ((S3BlobStore) getBlobStore()).async();
+        String prefix = "async-" + UUID.randomUUID();
+        List<CompletableFuture<Blob>> puts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            puts.add(asyncStore.put(prefix, "item-" + i + ".txt",
+                    new ByteArrayPayload(("item-" + i).getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain"));
+        }
+        CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).join();
+        Blob first = puts.get(0).join();
+        Blob fetched = asyncStore.get(first.getObjectName()).join();
+        try (InputStream inputStream = fetched.getPayload().stream()) {
+            assertEquals("item-0", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(first.getETag(), asyncStore.stat(first.getObjectName()).join().getETag());
+        // 分页列举
+        Set<String> listed = new HashSet<>();
+        S3AsyncBlobStore.ListPage page = asyncStore.listPage(prefix + "/", ListOptions.withDefault(), null, 2).join();
+        page.blobs().forEach(blob -> listed.add(blob.getObjectName()));
+        while (page.hasMore()) {
+            page = asyncStore.listPage(prefix + "/", ListOptions.withDefault(), page.nextContinuationToken(), 2).join();
+            page.blobs().forEach(blob -> listed.add(blob.getObjectName()));
+        }
+        assertEquals(5, listed.size());
+        CompletableFuture.allOf(listed.stream()
+                .map(objectName -> asyncStore.remove(objectName, false))
+                .toArray(CompletableFuture[]::new)).join();
+        assertFalse(asyncStore.exist(first.getObjectName()).join());
+        CompletionException e = assertThrows(CompletionException.class, () -> asyncStore.get(first.getObjectName()).join());
+        assertInstanceOf(BlobNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    void putResultMatchesStatTest() throws Exception {
+        BlobStore store = getBlobStore();
+        byte[] data = "{\"ingest\":true}".getBytes(StandardCharsets.UTF_8);
+        // 长度未知的数据流，返回的长度来自实际上传的字节数
+        Blob blob = store.put("ingest", "event.json", new InputStreamPayload(new ByteArrayInputStream(data)),
+                Map.of("Source", "sensor-1"), "application/json");
+        Blob stat = store.stat(blob.getObjectName());
+        assertEquals(stat.getETag(), blob.getETag());
+        assertEquals(stat.getLength(), blob.getLength());
+        assertEquals(stat.getContentType(), blob.getContentType());
+        assertEquals(stat.getReadableName(), blob.getReadableName());
+        assertEquals(stat.getUserDefinedAttributes(), blob.getUserDefinedAttributes());
+        assertEquals(stat.getVersionId(), blob.getVersionId());
+        store.remove(blob.getObjectName(), false);
+    }
+}
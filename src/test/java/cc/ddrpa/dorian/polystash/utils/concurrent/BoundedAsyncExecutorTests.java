@@ -0,0 +1,70 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedAsyncExecutorTests {
+
+    @Test
+    void concurrencyLimitTest() {
+        try (BoundedAsyncExecutor executor = new BoundedAsyncExecutor("test-bounded", 4)) {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return index;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).join());
+            }
+            assertTrue(peak.get() <= 4);
+        }
+    }
+
+    @Test
+    void cancelTest() throws InterruptedException {
+        try (BoundedAsyncExecutor executor = new BoundedAsyncExecutor("test-bounded", 1)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            CompletableFuture<Object> running = executor.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return null;
+            });
+            AtomicBoolean executed = new AtomicBoolean();
+            CompletableFuture<Object> queued = executor.submit(() -> {
+                executed.set(true);
+                return null;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(queued.cancel(true));
+            assertTrue(running.cancel(true));
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+            assertThrows(CancellationException.class, running::join);
+            // 取消的任务释放名额，排队中已经取消的任务不会执行
+            assertEquals("done", executor.submitAsync(() -> CompletableFuture.completedFuture("done")).join());
+            assertFalse(executed.get());
+        }
+    }
+}
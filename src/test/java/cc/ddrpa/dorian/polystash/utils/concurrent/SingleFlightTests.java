@@ -0,0 +1,109 @@
+package cc.ddrpa.dorian.polystash.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    @Test
+    void coalesceTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 42;
+                }), executor));
+            }
+            // 等待所有调用方到达
+            Thread.sleep(200);
+            release.countDown();
+            for (CompletableFuture<Integer> future : futures) {
+                assertEquals(42, future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, singleFlight.inFlight());
+            // 操作结束后的调用重新执行
+            assertEquals(43, singleFlight.execute("key", () -> 43));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IOException failure = new IOException("failed");
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return singleFlight.execute("key", () -> {
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    throw failure;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                return singleFlight.<IOException>execute("key", () -> 0);
+            } catch (IOException e) {
+                assertSame(failure, e);
+                return -1;
+            }
+        });
+        Thread.sleep(200);
+        release.countDown();
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+        assertSame(failure, exception.getCause().getCause());
+        assertEquals(-1, follower.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void forgetTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // 数据被修改后的调用不再等待修改之前开始的操作
+        singleFlight.forget("key");
+        assertEquals(2, singleFlight.execute("key", () -> 2));
+        release.countDown();
+        assertEquals(1, leader.get(10, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlight());
+    }
+}
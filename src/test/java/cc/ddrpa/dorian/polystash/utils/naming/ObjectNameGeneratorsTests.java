@@ -0,0 +1,115 @@
+package cc.ddrpa.dorian.polystash.utils.naming;
+
+import cc.ddrpa.dorian.polystash.core.blob.Blob;
+import cc.ddrpa.dorian.polystash.core.blob.payload.ByteArrayPayload;
+import cc.ddrpa.dorian.polystash.core.blob.payload.InputStreamPayload;
+import cc.ddrpa.dorian.polystash.core.blobstore.BlobStore;
+import cc.ddrpa.dorian.polystash.core.blobstore.ObjectNameGenerator;
+import cc.ddrpa.dorian.polystash.core.exception.GeneralPolyStashException;
+import cc.ddrpa.dorian.polystash.core.exception.OperationNotSupportedException;
+import cc.ddrpa.dorian.polystash.provider.filesystem.FileSystemBlobStoreBuilder;
+import cc.ddrpa.dorian.polystash.springboot.autoconfigure.FullBlobStoreProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectNameGeneratorsTests {
+
+    @Test
+    void createByAliasTest() {
+        assertInstanceOf(RandomUUIDNameGenerator.class, ObjectNameGenerators.create(null, Collections.emptyMap()));
+        assertInstanceOf(RandomUUIDNameGenerator.class, ObjectNameGenerators.create("uuid", Collections.emptyMap()));
+        assertInstanceOf(UUIDv7NameGenerator.class, ObjectNameGenerators.create("uuid-v7", Collections.emptyMap()));
+        assertInstanceOf(ULIDNameGenerator.class, ObjectNameGenerators.create("ULID", Collections.emptyMap()));
+        assertInstanceOf(ContentHashNameGenerator.class, ObjectNameGenerators.create("content-hash", Collections.emptyMap()));
+        ObjectNameGenerator snowflake = ObjectNameGenerators.create("snowflake", Map.of("workerId", "42"));
+        assertEquals(42, ((SnowflakeNameGenerator) snowflake).getWorkerId());
+        assertInstanceOf(ULIDNameGenerator.class,
+                ObjectNameGenerators.create(ULIDNameGenerator.class.getName(), Collections.emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> ObjectNameGenerators.create("no-such-generator", Collections.emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> ObjectNameGenerators.create(String.class.getName(), Collections.emptyMap()));
+    }
+
+    @Test
+    void uuidV7Test() {
+        UUID first = UUIDv7NameGenerator.next();
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        long timestamp = first.getMostSignificantBits() >>> 16;
+        assertTrue(Math.abs(System.currentTimeMillis() - timestamp) < 60_000);
+    }
+
+    @Test
+    void ulidTest() throws InterruptedException {
+        String first = ULIDNameGenerator.next();
+        assertEquals(26, first.length());
+        assertTrue(first.matches("[0-9A-HJKMNP-TV-Z]{26}"));
+        Thread.sleep(2);
+        String second = ULIDNameGenerator.next();
+        // 不同毫秒生成的 ULID 按时间排序
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    void snowflakeUniqueAndIncreasingTest() {
+        SnowflakeNameGenerator generator = new SnowflakeNameGenerator(1);
+        long previous = -1;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 50_000).parallel().forEach(i -> ids.add(generator.nextId()));
+        assertEquals(50_000, ids.size());
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeNameGenerator(1024));
+    }
+
+    @Test
+    void contentHashTest() throws GeneralPolyStashException {
+        ContentHashNameGenerator generator = new ContentHashNameGenerator();
+        String name = generator.generate(new ByteArrayPayload("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", name);
+        assertThrows(OperationNotSupportedException.class,
+                () -> generator.generate(new InputStreamPayload(new ByteArrayInputStream(new byte[]{1}))));
+    }
+
+    @Test
+    void blobStoreWithGeneratorTest() throws GeneralPolyStashException {
+        BlobStore blobStore = new FileSystemBlobStoreBuilder()
+                .name("local-ulid")
+                .properties(new FullBlobStoreProperties("fs")
+                        .setBaseDir("filesystem-storage/test-naming")
+                        .setNameGenerator("ulid"))
+                .build();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            Blob blob = blobStore.put("ulid",
+                    "some-text.txt",
+                    new ByteArrayPayload("Hello, Forvariz!".getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptyMap(),
+                    "text/plain");
+            assertTrue(blob.getObjectName().matches("ulid/[0-9A-HJKMNP-TV-Z]{26}"));
+            assertTrue(blobStore.exist(blob.getObjectName()));
+            names.add(blob.getObjectName());
+        }
+        assertEquals(3, names.size());
+
+        blobStore.replaceObjectNameGenerator(new ContentHashNameGenerator());
+        Blob first = blobStore.put("hash", "a.txt",
+                new ByteArrayPayload("same".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        Blob second = blobStore.put("hash", "b.txt",
+                new ByteArrayPayload("same".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap(), "text/plain");
+        assertEquals(first.getObjectName(), second.getObjectName());
+    }
+}